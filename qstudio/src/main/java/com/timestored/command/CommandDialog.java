@@ -28,11 +28,10 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowFocusListener;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 import javax.swing.ActionMap;
 import javax.swing.InputMap;
@@ -41,7 +40,6 @@ import javax.swing.JTextField;
 import javax.swing.KeyStroke;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import com.timestored.swingxx.AAction;
 
 /**
@@ -55,7 +53,7 @@ public class CommandDialog extends JDialog {
 	private static final int RESULT_LIMIT = 100;
 	private final CommandPanel commandPanel;
 	private String prevSearch = "";
-	private Collection<Command> commands = Collections.emptyList();
+	private volatile CommandIndex commandIndex = CommandIndex.EMPTY;
 	private final ExecutorService executorService;
 	
 
@@ -73,6 +71,14 @@ public class CommandDialog extends JDialog {
 	
 	
 	public CommandDialog(String title, final CommandProvider commandProvider, ExecutorService executorService) {
+		this(title, (Supplier<CommandIndex>) () -> CommandIndex.of(commandProvider.getCommands()), executorService);
+	}
+
+	/**
+	 * Create a titled dialog displaying the commands of an index.
+	 * @param commandIndexSupplier Called on the executorService to get the commands to search.
+	 */
+	public CommandDialog(String title, final Supplier<CommandIndex> commandIndexSupplier, ExecutorService executorService) {
 		
 		this.executorService = Preconditions.checkNotNull(executorService);
 		setTitle(title);
@@ -155,7 +161,7 @@ public class CommandDialog extends JDialog {
 		
 		executorService.execute(new Runnable() {
 			@Override public void run() {
-				commands = commandProvider.getCommands();
+				commandIndex = commandIndexSupplier.get();
 				EventQueue.invokeLater(() -> showDocsForSearch(prevSearch));
 			}
 		});
@@ -164,36 +170,9 @@ public class CommandDialog extends JDialog {
 
 	
 
-	/** Only show commands that match this search query **/
+	/** Only show commands that match this search query, best matches first **/
 	private void showDocsForSearch(final String txt) {
-		if(txt.trim().length() > 0) {
-			String[] t = txt.trim().split(" ");
-			List<Command> r = new ArrayList<Command>();
-			for(Command c : commands) {
-				boolean match = true;
-				if(t.length>0) {
-			    	for(String s : t) {
-			    		if(!c.getTitle().toUpperCase().contains(s.toUpperCase())) {
-			    			match = false;
-			    			break;
-			    		}
-			    	}
-				}
-				if(match) {
-					r.add(c);
-				}
-				if(r.size() > RESULT_LIMIT) {
-					break; // show no more than 100 rows
-				}
-			}
-			commandPanel.setCommands(r);
-		} else {
-			List<Command> l = Lists.newArrayList(commands);
-			if(l.size()>100) {
-				l = l.subList(0, RESULT_LIMIT);
-			}
-			commandPanel.setCommands(l);
-		}
+		commandPanel.setCommands(commandIndex.search(txt, RESULT_LIMIT));
 	}
 	
 	public void setSelectedCommand(Command command) {
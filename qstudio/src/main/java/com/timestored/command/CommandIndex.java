@@ -0,0 +1,226 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.command;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Searchable snapshot of {@link Command}s with their titles prepared for matching, so that
+ * searching as the user types only compares text rather than fetching and converting every title.
+ * <p>
+ * Each search word must occur in a title, either whole or as a subsequence, e.g. "opq" finds "Open Query".
+ * Whole words, especially at word starts, score higher and only the best matches are kept.
+ * When a search extends the previous one only the titles that matched before are checked.
+ */
+public final class CommandIndex {
+
+	public static final CommandIndex EMPTY = new CommandIndex(new Command[0], new String[0], new String[0], new long[0]);
+
+	private final Command[] commands;
+	private final String[] titles;
+	private final String[] upperTitles;
+	/** Bit set of the characters in each title so most non matches are rejected at once. */
+	private final long[] signatures;
+
+	private String[] prevWords;
+	/** Index of every command that matched prevWords, in order. */
+	private int[] prevMatches;
+
+	private CommandIndex(Command[] commands, String[] titles, String[] upperTitles, long[] signatures) {
+		this.commands = commands;
+		this.titles = titles;
+		this.upperTitles = upperTitles;
+		this.signatures = signatures;
+	}
+
+	public static CommandIndex of(Collection<Command> commands) {
+		Command[] cs = commands.toArray(new Command[0]);
+		String[] t = new String[cs.length];
+		String[] u = new String[cs.length];
+		long[] s = new long[cs.length];
+		for(int i = 0; i < cs.length; i++) {
+			String title = cs[i].getTitle();
+			t[i] = title == null ? "" : title;
+			u[i] = t[i].toUpperCase(Locale.ROOT);
+			s[i] = signature(u[i]);
+		}
+		return new CommandIndex(cs, t, u, s);
+	}
+
+	/** @return An index of all the commands of the given indexes in order, reusing their prepared titles. */
+	public static CommandIndex concat(List<CommandIndex> indexes) {
+		if(indexes.size() == 1) {
+			return indexes.get(0);
+		}
+		int n = 0;
+		for(CommandIndex ci : indexes) {
+			n += ci.commands.length;
+		}
+		Command[] cs = new Command[n];
+		String[] t = new String[n];
+		String[] u = new String[n];
+		long[] s = new long[n];
+		int p = 0;
+		for(CommandIndex ci : indexes) {
+			int len = ci.commands.length;
+			System.arraycopy(ci.commands, 0, cs, p, len);
+			System.arraycopy(ci.titles, 0, t, p, len);
+			System.arraycopy(ci.upperTitles, 0, u, p, len);
+			System.arraycopy(ci.signatures, 0, s, p, len);
+			p += len;
+		}
+		return new CommandIndex(cs, t, u, s);
+	}
+
+	public int size() {
+		return commands.length;
+	}
+
+	public List<Command> getCommands() {
+		return Collections.unmodifiableList(Arrays.asList(commands));
+	}
+
+	/**
+	 * @param query Space separated words that must all occur in a command's title, case insensitive.
+	 * @param limit Maximum number of commands to return.
+	 * @return The best matching commands, best first, or the first commands if the query is blank.
+	 */
+	public synchronized List<Command> search(String query, int limit) {
+		String q = query.trim();
+		if(q.isEmpty()) {
+			prevWords = null;
+			prevMatches = null;
+			return getCommands().subList(0, Math.min(limit, commands.length));
+		}
+		String[] words = q.toUpperCase(Locale.ROOT).split(" +");
+		long sig = 0;
+		for(String w : words) {
+			sig |= signature(w);
+		}
+
+		int[] candidates = isNarrowing(words) ? prevMatches : null;
+		int n = candidates == null ? commands.length : candidates.length;
+		int[] matches = new int[n];
+		int matchCount = 0;
+		// min heap of the best so far so the worst is evicted as better matches are found
+		PriorityQueue<long[]> best = new PriorityQueue<long[]>(limit + 1,
+				Comparator.<long[]>comparingLong(a -> a[0]).thenComparingLong(a -> -a[1]));
+		for(int c = 0; c < n; c++) {
+			int i = candidates == null ? c : candidates[c];
+			if((signatures[i] & sig) != sig) {
+				continue;
+			}
+			int score = score(titles[i], upperTitles[i], words);
+			if(score > 0) {
+				matches[matchCount++] = i;
+				// later commands lose ties so only a strictly better score can replace the worst kept
+				if(best.size() < limit || score > best.peek()[0]) {
+					best.add(new long[] { score, i });
+					if(best.size() > limit) {
+						best.poll();
+					}
+				}
+			}
+		}
+		prevWords = words;
+		prevMatches = Arrays.copyOf(matches, matchCount);
+
+		Command[] r = new Command[best.size()];
+		for(int j = r.length - 1; j >= 0; j--) {
+			r[j] = commands[(int) best.poll()[1]];
+		}
+		return Arrays.asList(r);
+	}
+
+	/** @return true if everything matching words must have matched prevWords, i.e. each previous word was extended. */
+	private boolean isNarrowing(String[] words) {
+		if(prevWords == null || words.length < prevWords.length) {
+			return false;
+		}
+		for(int i = 0; i < prevWords.length; i++) {
+			if(!words[i].contains(prevWords[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return Score of the title for all words or 0 if any word does not match. */
+	private static int score(String title, String upperTitle, String[] words) {
+		int total = 0;
+		for(String w : words) {
+			int s = score(title, upperTitle, w);
+			if(s == 0) {
+				return 0;
+			}
+			total += s;
+		}
+		// prefer shorter titles when otherwise equal
+		return Math.max(1, total * 8 - title.length() / 4);
+	}
+
+	private static int score(String title, String upperTitle, String word) {
+		int p = upperTitle.indexOf(word);
+		if(p >= 0) {
+			return 20 + 4 * word.length() + (p == 0 ? 20 : isWordStart(title, p) ? 10 : 0);
+		}
+		// subsequence with matches at word starts and runs scoring more
+		int score = 0;
+		int wi = 0;
+		int prevMatch = -2;
+		for(int i = 0; i < upperTitle.length() && wi < word.length(); i++) {
+			if(upperTitle.charAt(i) == word.charAt(wi)) {
+				score += isWordStart(title, i) ? 3 : prevMatch == i - 1 ? 2 : 1;
+				prevMatch = i;
+				wi++;
+			}
+		}
+		return wi == word.length() ? score : 0;
+	}
+
+	private static boolean isWordStart(String title, int i) {
+		if(i == 0) {
+			return true;
+		} else if(i >= title.length()) {
+			return false; // upper casing changed the length
+		}
+		char prev = title.charAt(i - 1);
+		char c = title.charAt(i);
+		return !Character.isLetterOrDigit(prev) || (Character.isUpperCase(c) && Character.isLowerCase(prev));
+	}
+
+	private static long signature(String upper) {
+		long sig = 0;
+		for(int i = 0; i < upper.length(); i++) {
+			char c = upper.charAt(i);
+			if(c >= 'A' && c <= 'Z') {
+				sig |= 1L << (c - 'A');
+			} else if(c >= '0' && c <= '9') {
+				sig |= 1L << (26 + c - '0');
+			} else if(c != ' ') {
+				sig |= 1L << 36;
+			}
+		}
+		return sig;
+	}
+}
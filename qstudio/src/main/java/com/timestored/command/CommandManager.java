@@ -21,50 +21,89 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.Action;
 
 /**
  * Allows grouping {@link CommandProvider} and treating them as one. 
+ * The commands of providers that notify of changes are indexed once and kept until they change,
+ * other providers are asked for their commands on every use.
  */
 public class CommandManager implements CommandProvider {
 
 	private List<CommandProvider> providers = new ArrayList<CommandProvider>();
 	private Map<String,List<CommandProvider>> languageSpecificProviders = new HashMap<>();
+	private final Map<CommandProvider,CachedIndex> cachedIndexes = new ConcurrentHashMap<>();
+
+	/** The index of one provider's commands, rebuilt on next use once the provider says they changed. */
+	private static class CachedIndex {
+		private volatile CommandIndex index = CommandIndex.EMPTY;
+		private volatile boolean stale = true;
+	}
 	
 	public CommandManager() {}
 
 	public Collection<Command> getCommands(String language) {
-		List<Command> r = new ArrayList<Command>();
+		return getCommandIndex(language).getCommands();
+	}
+	
+	@Override public Collection<Command> getCommands() { return getCommands(null); }
+
+	/** @return Searchable index of the commands of all general providers and those for the language if not null. */
+	public CommandIndex getCommandIndex(String language) {
+		List<CommandIndex> r = new ArrayList<CommandIndex>();
 		for(CommandProvider cp : providers) {
-			r.addAll(cp.getCommands());
+			r.add(getCommandIndex(cp));
 		}
 		if(language != null) {
 			List<CommandProvider> ls = languageSpecificProviders.get(language);
 			if(ls != null) { 
 				for(CommandProvider cp : ls) {
-					r.addAll(cp.getCommands());
+					r.add(getCommandIndex(cp));
 				}
 			}
 		}
-		return r;
+		return CommandIndex.concat(r);
+	}
+
+	private CommandIndex getCommandIndex(CommandProvider cp) {
+		CachedIndex ci = cachedIndexes.get(cp);
+		if(ci == null) {
+			return CommandIndex.of(cp.getCommands());
+		}
+		if(ci.stale) {
+			// cleared before fetching so that a change during the fetch is not lost
+			ci.stale = false;
+			ci.index = CommandIndex.of(cp.getCommands());
+		}
+		return ci.index;
 	}
-	
-	@Override public Collection<Command> getCommands() { return getCommands(null); }
 	
 	public void registerProvider(String language, CommandProvider commandProvider) {
 		List<CommandProvider> l = languageSpecificProviders.computeIfAbsent(language, s -> new ArrayList<>());
 		l.add(commandProvider);
+		cacheIfNotifies(commandProvider);
 	}
 
 	public void registerProvider(CommandProvider commandProvider) {
 		providers.add(commandProvider);
+		cacheIfNotifies(commandProvider);
 	}
 
 	public void removeProvider(CommandProvider commandProvider) {
 		providers.remove(commandProvider);
 	}
 
+	private void cacheIfNotifies(CommandProvider commandProvider) {
+		if(!cachedIndexes.containsKey(commandProvider)) {
+			final CachedIndex ci = new CachedIndex();
+			if(commandProvider.addCommandsChangedListener(() -> ci.stale = true)) {
+				cachedIndexes.put(commandProvider, ci);
+			}
+		}
+	}
+
 	public static Collection<Command> toCommands(List<Action> actions) {
 		List<Command> cs = new ArrayList<Command>();
 		for(Action a : actions) {
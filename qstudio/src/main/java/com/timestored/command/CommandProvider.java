@@ -22,6 +22,14 @@ import java.util.Collection;
 @FunctionalInterface
 public interface CommandProvider {
 	public Collection<Command> getCommands();
+
+	/**
+	 * Ask to be told when the commands this provider returns change, so they can be kept rather than fetched on every use.
+	 * @return true if listener will be run on every change, false if not supported and the commands must be fetched each time.
+	 */
+	public default boolean addCommandsChangedListener(Runnable listener) {
+		return false;
+	}
 	
 	public static CommandProvider fromCollection(Collection<Command> listOfCommands) {
 		return () ->  listOfCommands;
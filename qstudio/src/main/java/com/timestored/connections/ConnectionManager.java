@@ -21,17 +21,20 @@ import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,11 +48,11 @@ import org.apache.commons.dbcp2.PoolableConnection;
 import org.apache.commons.dbcp2.PoolableConnectionFactory;
 import org.apache.commons.pool2.ObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.StaxDriver;
 import com.thoughtworks.xstream.security.AnyTypePermission;
@@ -79,10 +82,10 @@ public class ConnectionManager implements AutoCloseable {
 
 	private static final XStream xstream = new XStream(new StaxDriver());
 	
-	private final List<ServerConfig> serverConns;
-	private final Map<ServerConfig, ObjectPool<PoolableConnection>> serverConnPool;
+	/** Replaced whole while holding {@link #LOCK} so that reads need no lock. */
+	private volatile ServerRegistry servers = ServerRegistry.EMPTY;
+	private final Map<ServerConfig, ServerPool> serverConnPool = new ConcurrentHashMap<>();
 	private final Map<ServerConfig, Boolean> serverConnected = new ConcurrentHashMap<ServerConfig, Boolean>();
-	private final List<ServerConfig> readonlyServerConnections;
 	private final CopyOnWriteArrayList<Listener> listeners;
 	private final Object LOCK = new Object();
 	
@@ -91,29 +94,45 @@ public class ConnectionManager implements AutoCloseable {
 
 	public void close() {
 		// copy map, else inner remove causes concurrentModificaitonException
-		Map<ServerConfig, ObjectPool<PoolableConnection>> mapCopy = new HashMap<>(serverConnPool);
+		Map<ServerConfig, ServerPool> mapCopy = new HashMap<>(serverConnPool);
 		for(ServerConfig sc : mapCopy.keySet()) {
-			closePool(sc);
+			closePool(sc, true);
 		}
 		serverConnPool.clear();
 		notifyListeners();
 	}
 
+	/** Close all connections to the server, a later connection creates a new pool. */
 	public void closePool(ServerConfig sc) {
-		ObjectPool<PoolableConnection> op = serverConnPool.remove(sc);
-		if(op != null) {
+		// For some reason if I close() then reopen a duckdb file, it still finds the objectpool closed even though it was removed.
+		// So for file databases I'm just not closing. I tested and clear() seems to close duckdb file so it's deletable etc. i.e. It works.
+		closePool(sc, !isFileDatabase(sc));
+	}
+
+	private void closePool(ServerConfig sc, boolean close) {
+		ServerPool sp = serverConnPool.remove(sc);
+		if(sp != null) {
+			ObjectPool<PoolableConnection> op = sp.pool;
 			try {
 				op.clear();
 			} catch (Exception e) {}
-			try {
-				op.close();
-			} catch (Exception e) {}
+			if(close) {
+				try {
+					op.close();
+				} catch (Exception e) {}
+			}
 		}
 		serverConnected.put(sc, Boolean.FALSE);
 	}
+
+	/** @return true if the server is an embedded database such as duckdb that is opened as a local file or folder. */
+	private static boolean isFileDatabase(ServerConfig sc) {
+		return sc.getJdbcType().getDefaultPort() == 0 && sc.getPort() == 0;
+	}
 	
 	private Preferences preferences;
 	private String prefKey;
+	private ServerListStore serverListStore;
 
 	static {
 		xstream.addPermission(AnyTypePermission.ANY);
@@ -126,9 +145,6 @@ public class ConnectionManager implements AutoCloseable {
 
 	private ConnectionManager() {
 		
-		serverConnPool = new HashMap<ServerConfig, ObjectPool<PoolableConnection>>();
-		this.serverConns = new CopyOnWriteArrayList<ServerConfig>();
-		readonlyServerConnections = Collections.unmodifiableList(serverConns);
 		this.listeners = new CopyOnWriteArrayList<Listener>();
 	}
 
@@ -145,52 +161,76 @@ public class ConnectionManager implements AutoCloseable {
 		this.prefKey = prefKeyPrefix;
 		reloadFromPreferences();
 	}
+
+	/**
+	 * Use a {@link ServerListStore} for saving and loading connection details in place of preferences,
+	 * remove any current servers and load only those from the store.
+	 * Each add/update/remove then only reads the changes made by others and writes the changed servers.
+	 * @param legacyPreferences If the store has never been written to, servers saved by
+	 * 	{@link #setPreferenceStore(Preferences, String)} here are copied into it, the preferences are left unchanged.
+	 */
+	public void setServerListStore(ServerListStore serverListStore, Preferences legacyPreferences, String legacyPrefKeyPrefix) {
+		synchronized (LOCK) {
+			this.serverListStore = Preconditions.checkNotNull(serverListStore);
+			this.preferences = null;
+			if(serverListStore.isNew() && legacyPreferences != null) {
+				try {
+					List<ServerConfig> legacy = readPreferences(legacyPreferences, legacyPrefKeyPrefix);
+					if(!legacy.isEmpty()) {
+						serverListStore.write(legacy, Collections.emptyList());
+						LOG.info("migrated " + legacy.size() + " servers from preferences");
+					}
+				} catch (IOException e) {
+					LOG.log(Level.SEVERE, "Could not migrate connections from preferences", e);
+				}
+			}
+			reload();
+		}
+	}
 	
 	/**
 	 * @return The list of server connections at a given point in time,
 	 * this list is not guaranteed to be 100% up to date.
-	 * Connections returned will be alphabetically sorted on name.
+	 * Connections returned will be alphabetically sorted on name and the list is unmodifiable.
 	 */
 	public List<ServerConfig> getServerConnections() {
-		
-		List<ServerConfig> r = new ArrayList<ServerConfig>(readonlyServerConnections);
-		Comparator<ServerConfig> alphabetOrder = new Comparator<ServerConfig>() {
-			@Override public int compare(ServerConfig sc1, ServerConfig sc2) {
-				return sc1.getName().compareTo(sc2.getName());
-			}
-		};
-		Collections.sort(r, alphabetOrder);
-		return r;
+		return servers.getSorted();
 	}
 	
 	/**
 	 * @return list of names of all servers.
 	 */
 	public List<String> getServerNames() {
-		List<String> s = Lists.newArrayList();
-		for(ServerConfig sc : getServerConnections()) {
-			s.add(sc.getName());
-		}
-		return Collections.unmodifiableList(s);
+		return servers.getNames();
 	}
 	
-	/** add server but do not notify listeners */ 
-	private void addServerSilently(ServerConfig serverConnection) {
+	/**
+	 * Check the server can be added alongside those already accepted in this batch.
+	 * @return false if an identical server is already present so there is nothing to add.
+	 */
+	private boolean checkCanAdd(ServerConfig serverConnection, Map<String, ServerConfig> batch) {
 		Preconditions.checkNotNull(serverConnection);
+		String name = serverConnection.getName();
+		ServerConfig existingSC = batch.containsKey(name) ? batch.get(name) : getServer(name);
+		if(existingSC!=null) {
+			if(existingSC.equals(serverConnection)) {
+				return false;
+			} else {
+				throw new IllegalArgumentException("Server name must be unique. " +
+						"Cant use this call to update settings.");
+			}
+		}
+		return true;
+	}
+
+	/** add servers that passed {@link #checkCanAdd(ServerConfig, Map)} in one registry update but do not notify listeners */ 
+	private void addServersSilently(Collection<ServerConfig> serverConnections) {
 		synchronized (LOCK) {
-			String name = serverConnection.getName();
-			ServerConfig existingSC = getServer(name);
-			if(existingSC!=null) {
-				if(existingSC.equals(serverConnection)) {
-					return;
-				} else {
-					throw new IllegalArgumentException("Server name must be unique. " +
-							"Cant use this call to update settings.");
-				}
+			servers = servers.with(serverConnections, Collections.emptyList());
+			for(ServerConfig sc : serverConnections) {
+				serverConnected.put(sc, Boolean.FALSE);
+				LOG.info("added server: " + sc.toString());
 			}
-			serverConns.add(serverConnection);
-			serverConnected.put(serverConnection, Boolean.FALSE);
-			LOG.info("added server: " + serverConnection.toString());
 		}
 	}
 	
@@ -203,9 +243,11 @@ public class ConnectionManager implements AutoCloseable {
 	 */
 	public void addServer(ServerConfig serverConnection) {
 		synchronized (LOCK) {
-			reloadFromPreferences();
-			addServerSilently(serverConnection);
-			save();	
+			reload();
+			if(checkCanAdd(serverConnection, Collections.emptyMap())) {
+				addServersSilently(Collections.singletonList(serverConnection));
+				persist(Collections.singletonList(serverConnection), Collections.emptyList());
+			}
 		}
 		notifyListenersServerAdded(serverConnection);
 	}
@@ -220,19 +262,23 @@ public class ConnectionManager implements AutoCloseable {
 	public List<ServerConfig> addServer(List<ServerConfig> connections) {
 
 		List<ServerConfig> failedConfigs = new ArrayList<ServerConfig>();
+		Map<String, ServerConfig> added = new LinkedHashMap<String, ServerConfig>();
 		synchronized (LOCK) {
-			reloadFromPreferences();
+			reload();
 			Preconditions.checkNotNull(connections);
 			for(ServerConfig sc : connections) {
 				try {
-					addServerSilently(sc);
+					if(checkCanAdd(sc, added)) {
+						added.put(sc.getName(), sc);
+					}
 				} catch(IllegalArgumentException iae) {
 					LOG.log(Level.WARNING, "Could not add sc: " + sc.toString(), iae);
 					failedConfigs.add(sc);
 				}
 				
 			}
-			save();
+			addServersSilently(added.values());
+			persist(added.values(), Collections.emptyList());
 		}
 		connections.forEach(sc -> notifyListenersServerAdded(sc));
 		return failedConfigs;
@@ -253,16 +299,16 @@ public class ConnectionManager implements AutoCloseable {
 		
 		ServerConfig existingSC = null;
 		synchronized(LOCK) {
-			reloadFromPreferences();
+			reload();
 			existingSC = getServer(oldServerName);
 			if(existingSC != null) {
-				serverConns.remove(existingSC);
+				List<String> removed = newName.equals(oldServerName) ? Collections.emptyList() : Collections.singletonList(oldServerName);
+				servers = servers.with(Collections.singletonList(serverConnection), removed);
 				closePool(existingSC);
 				statusUpdate(existingSC, false);
-				serverConns.add(serverConnection);
 				statusUpdate(serverConnection, false);
+				persist(Collections.singletonList(serverConnection), removed);
 			}
-			save();
 		}
 		LOG.info("updated server: " + serverConnection.toString());
 		notifyListeners();
@@ -301,26 +347,22 @@ public class ConnectionManager implements AutoCloseable {
 		if(serverConfigs.size()>0) {
 			boolean[] goners = new boolean[serverConfigs.size()];
 
+			List<String> removedNames = new ArrayList<String>();
 			synchronized (LOCK) {
-				reloadFromPreferences();
+				reload();
 				for(int i=0; i<serverConfigs.size(); i++) {
 					ServerConfig sc = serverConfigs.get(i);
-					ObjectPool<PoolableConnection> objectPool = serverConnPool.remove(sc);
-					if(objectPool != null) {
-						try { objectPool.clear(); } catch (Exception e) {}
-						// For some reason if I close() then reopen a duckdb file, it still finds the objectpool closed even though it was removed.
-						// So for now I'm just not closing. I tested and clear() seems to close duckdb file so it's deletable etc. i.e. It works.
-//						try { objectPool.close(); } catch (Exception e) {}
-					}
+					closePool(sc);
 					serverConnected.computeIfPresent(sc, (currentSC,present) -> false);
 					
-					goners[i] = serverConns.remove(sc);
-					closePool(sc);
+					goners[i] = servers.contains(sc);
 					if(goners[i]) {
+						removedNames.add(sc.getName());
 						LOG.info("removed server: " + serverConfigs.toString());
 					}
 				}
-				save();
+				servers = servers.with(Collections.emptyList(), removedNames);
+				persist(Collections.emptyList(), removedNames);
 			}
 			notifyListeners();
 			return goners;
@@ -338,8 +380,16 @@ public class ConnectionManager implements AutoCloseable {
 	/** Remove all servers. */
 	public void removeServers() {
 		synchronized (LOCK) {
-			serverConns.clear();
-			save();
+			servers = ServerRegistry.EMPTY;
+			if(serverListStore != null) {
+				try {
+					serverListStore.clear();
+				} catch (IOException e) {
+					LOG.log(Level.SEVERE, "Could not save connections", e);
+				}
+			} else {
+				save();
+			}
 			LOG.info("removed all servers");
 		}
 		notifyListeners();
@@ -368,23 +418,21 @@ public class ConnectionManager implements AutoCloseable {
 	 * @throws IOException if problem connecting to server
 	 */
 	public PoolableConnection getConnection(ServerConfig serverConfig) throws IOException  {
-		synchronized (LOCK) {
-			if(!serverConns.contains(serverConfig)) {
-				return null;
-			} 
+		if(!servers.contains(serverConfig)) {
+			return null;
 		}
 		return getConn(serverConfig);
 	}
 
 	/** Return the connection to the pool */
 	public boolean returnConn(ServerConfig serverConfig, PoolableConnection conn, boolean invalidateConnection)  {
-		ObjectPool<PoolableConnection> sp = serverConnPool.get(serverConfig);
+		ServerPool sp = serverConnPool.get(serverConfig);
 		if(sp!=null && conn!=null) {
 			try {
 				if(conn.isClosed() || invalidateConnection) {
-					sp.invalidateObject(conn);
+					sp.pool.invalidateObject(conn);
 				} else {
-					sp.returnObject(conn);
+					sp.pool.returnObject(conn);
 				}
 				return true;
 			} catch (Exception e) {
@@ -395,25 +443,14 @@ public class ConnectionManager implements AutoCloseable {
 	}
 	/** get a connection but don't care if we know about it or not */
 	private PoolableConnection getConn(ServerConfig serverConfig) throws IOException {
+		ServerPool sp = null;
 		try {
-			ObjectPool<PoolableConnection> connPool = null;
-			synchronized (LOCK) {
-				connPool = serverConnPool.get(serverConfig);
-				if(connPool == null) {
-					ServerConfig sc = overrideServerConfig(serverConfig);
-					ConnectionFactory connectionFactory = new MyDriverManagerConnectionFactory(sc);
-					// I think this may be needed, to pool connections
-					@SuppressWarnings("unused")
-					PoolableConnectionFactory poolableConnectionFactory = new PoolableConnectionFactory(connectionFactory, null);
-					connPool = new GenericObjectPool<>(poolableConnectionFactory);
-					  
-					serverConnPool.put(serverConfig, connPool);
-				}
-			}
-			
-			PoolableConnection c = connPool.borrowObject();
+			sp = serverConnPool.computeIfAbsent(serverConfig, this::createPool);
+			long start = System.nanoTime();
+			PoolableConnection c = sp.pool.borrowObject();
+			sp.borrowed(System.nanoTime() - start);
 			if(c.isClosed()) {
-				connPool.invalidateObject(c);
+				sp.pool.invalidateObject(c);
 				c = null;
 			} else {
 				statusUpdate(serverConfig, true);
@@ -421,6 +458,9 @@ public class ConnectionManager implements AutoCloseable {
 			
 			return  c;
 		} catch ( Exception e) {
+			if(sp != null) {
+				sp.failed(e);
+			}
 			if(serverConnected.containsKey(serverConfig)) {
 				statusUpdate(serverConfig, false);
 			}
@@ -429,6 +469,113 @@ public class ConnectionManager implements AutoCloseable {
 		}
 	}
 
+	private ServerPool createPool(ServerConfig serverConfig) {
+		ServerConfig sc = overrideServerConfig(serverConfig);
+		ConnectionPoolSettings settings = serverConfig.getPoolSettings();
+		ConnectionFactory connectionFactory = new MyDriverManagerConnectionFactory(sc);
+		PoolableConnectionFactory poolableConnectionFactory = new PoolableConnectionFactory(connectionFactory, null);
+		poolableConnectionFactory.setValidationQuery(settings.getValidationQuery());
+		poolableConnectionFactory.setValidationQueryTimeout(settings.getValidationTimeoutSeconds());
+		
+		GenericObjectPoolConfig<PoolableConnection> config = new GenericObjectPoolConfig<>();
+		config.setMaxTotal(settings.getMaxTotal());
+		config.setMaxIdle(Math.max(settings.getMinIdle(), GenericObjectPoolConfig.DEFAULT_MAX_IDLE));
+		config.setMinIdle(settings.getMinIdle());
+		config.setMaxWait(Duration.ofMillis(settings.getMaxWaitMillis()));
+		config.setTestOnBorrow(settings.isTestOnBorrow());
+		config.setTestWhileIdle(settings.isTestWhileIdle());
+		config.setTimeBetweenEvictionRuns(Duration.ofMillis(settings.getEvictionRunMillis()));
+		config.setMinEvictableIdleTime(Duration.ofMillis(settings.getMinEvictableIdleMillis()));
+		return new ServerPool(serverConfig.getName(), new GenericObjectPool<>(poolableConnectionFactory, config));
+	}
+
+	/**
+	 * Open connections to the server before the first query needs them, its pool's minIdle or at least one.
+	 * Blocks while connecting so call it off the GUI thread, e.g. for a server the user is likely to query next.
+	 * @return true if the pool now holds a connection, false if the server is unknown or could not be reached.
+	 */
+	public boolean prewarm(ServerConfig serverConfig) {
+		if(!servers.contains(serverConfig)) {
+			return false;
+		}
+		ServerPool sp = serverConnPool.computeIfAbsent(serverConfig, this::createPool);
+		try {
+			sp.pool.preparePool();
+			if(sp.pool.getNumIdle() + sp.pool.getNumActive() == 0) {
+				sp.pool.addObject();
+			}
+			statusUpdate(serverConfig, true);
+			return true;
+		} catch (Exception e) {
+			sp.failed(e);
+			statusUpdate(serverConfig, false);
+			LOG.info("prewarm failed for server: " + serverConfig.getName() + " " + e);
+		}
+		return false;
+	}
+
+	/**
+	 * Set how connections to one server are pooled, saved with the server and used once its current pool is closed.
+	 * @param settings The settings to use or null for {@link ConnectionPoolSettings#DEFAULT}.
+	 * @throws IllegalArgumentException If no server has that name.
+	 */
+	public void setPoolSettings(String serverName, ConnectionPoolSettings settings) {
+		ServerConfig sc = getServer(serverName);
+		Preconditions.checkArgument(sc != null, "No server named " + serverName);
+		updateServer(serverName, sc.withPoolSettings(settings == null ? ConnectionPoolSettings.DEFAULT : settings));
+	}
+
+	/** @return Statistics of the server's pool or null if it has not been connected to since last closed. */
+	public ConnectionPoolStats getPoolStats(ServerConfig serverConfig) {
+		ServerPool sp = serverConnPool.get(serverConfig);
+		return sp == null ? null : sp.getStats();
+	}
+
+	/** @return Statistics of every open pool. */
+	public List<ConnectionPoolStats> getPoolStats() {
+		List<ConnectionPoolStats> r = new ArrayList<ConnectionPoolStats>();
+		for(ServerPool sp : serverConnPool.values()) {
+			r.add(sp.getStats());
+		}
+		return r;
+	}
+
+	/** One server's pool and the counters behind its {@link ConnectionPoolStats}. */
+	private static class ServerPool {
+		private final String serverName;
+		private final GenericObjectPool<PoolableConnection> pool;
+		private final LongAdder borrowCount = new LongAdder();
+		private final LongAdder borrowNanos = new LongAdder();
+		private final LongAdder failureCount = new LongAdder();
+		private final AtomicLong maxBorrowNanos = new AtomicLong();
+		private volatile long lastFailureTime = 0;
+		private volatile String lastFailure = null;
+
+		ServerPool(String serverName, GenericObjectPool<PoolableConnection> pool) {
+			this.serverName = serverName;
+			this.pool = pool;
+		}
+
+		void borrowed(long nanos) {
+			borrowCount.increment();
+			borrowNanos.add(nanos);
+			maxBorrowNanos.accumulateAndGet(nanos, Math::max);
+		}
+
+		void failed(Exception e) {
+			failureCount.increment();
+			lastFailureTime = System.currentTimeMillis();
+			lastFailure = e.getMessage() == null ? e.toString() : e.getMessage();
+		}
+
+		ConnectionPoolStats getStats() {
+			long borrows = borrowCount.sum();
+			double meanMs = borrows == 0 ? 0 : borrowNanos.sum() / 1_000_000.0 / borrows;
+			return new ConnectionPoolStats(serverName, pool.getNumActive(), pool.getNumIdle(), pool.getMaxTotal(),
+					borrows, failureCount.sum(), meanMs, maxBorrowNanos.get() / 1_000_000, lastFailureTime, lastFailure);
+		}
+	}
+
 	private ServerConfig overrideServerConfig(ServerConfig serverConfig) {
 		ServerConfig sc = serverConfig;
 		
@@ -458,15 +605,7 @@ public class ConnectionManager implements AutoCloseable {
 	 */
 	public ServerConfig getServer(String serverName) {
 		Preconditions.checkNotNull(serverName);
-
-		synchronized(LOCK) {
-			for(ServerConfig sc : serverConns) {
-				if(sc.getName().equals(serverName)) {
-					return sc;
-				}
-			}
-		}
-		return null;
+		return servers.get(serverName);
 	}
 	
 	
@@ -526,7 +665,7 @@ public class ConnectionManager implements AutoCloseable {
 	@Override
 	public String toString() {
 		return toStringHelper(this)
-			.add("serverConns", serverConns)
+			.add("servers", servers)
 			.add("listeners", listeners)
 			.toString();
 	}
@@ -549,7 +688,7 @@ public class ConnectionManager implements AutoCloseable {
 			returnConn(serverConfig, conn, !connected);
 		}
 		
-		if(serverConns.contains(serverConfig)) {
+		if(servers.contains(serverConfig)) {
 			statusUpdate(serverConfig, connected);
 		}
 
@@ -633,31 +772,25 @@ public class ConnectionManager implements AutoCloseable {
 	}
 
 	public boolean contains(ServerConfig serverConfig) {
-		synchronized (LOCK) {
-			return serverConns.contains(serverConfig);
-		}
+		return servers.contains(serverConfig);
 	}
 
 	public boolean containsKdbServer() {
-		synchronized (LOCK) {
-			return serverConns.stream().anyMatch(sc -> sc.isKDB());
-		}
+		return servers.containsKdb();
 	}
 
 	/**
 	 * @return true if there are no connections defined, otherwise false.
 	 */
 	public boolean isEmpty() {
-		synchronized (LOCK) {
-			return serverConns.size()==0;
-		}
+		return servers.size()==0;
 	}
 
 	/**
 	 * Reload connectiong from stored preferences.
 	 */
 	public void refreshFromPreferences() {
-		if(reloadFromPreferences()) {
+		if(reload()) {
 			notifyListeners();
 		}
 	}
@@ -697,37 +830,97 @@ public class ConnectionManager implements AutoCloseable {
 	private boolean reloadFromPreferences() {
 		if(preferences != null) {
 			synchronized (LOCK) {
-				StringBuilder sb = new StringBuilder(preferences.get(prefKey, ""));
-				for(int i=0; i<MAX_STORAGE_SLOTS; i++) {
-					sb.append(preferences.get(prefKey + i, ""));
-				}
-				String txt = sb.toString();
-				
 				try {
-			        txt = PreferenceHelper.decode(txt);
-					
-					List<ServerConfig> sConns = getConnectionsFromXml(txt);
-					if(!sConns.equals(serverConns)) {
+					ServerRegistry stored = ServerRegistry.of(readPreferences(preferences, prefKey));
+					if(!stored.equals(servers)) {
 						LOG.warning("stored conns and current conns disagreed, using stored values");
-						LOG.warning("serverConns = " + serverConns.toString());
-						LOG.warning("sConns = " + sConns.toString());
-						serverConns.clear();
-						serverConns.addAll(sConns);
+						LOG.warning("servers = " + servers.toString());
+						LOG.warning("stored = " + stored.toString());
+						servers = stored;
 						return true;
 					}
 				} catch (IOException e) {
-					LOG.log(Level.SEVERE, "Could not decrypt connection details txt = " + txt, e);
+					LOG.log(Level.SEVERE, "Could not decrypt connection details", e);
+				}
+			}
+		}
+		return false;
+	}
+
+	private static List<ServerConfig> readPreferences(Preferences preferences, String prefKey) throws IOException {
+		StringBuilder sb = new StringBuilder(preferences.get(prefKey, ""));
+		for(int i=0; i<MAX_STORAGE_SLOTS; i++) {
+			sb.append(preferences.get(prefKey + i, ""));
+		}
+		return getConnectionsFromXml(PreferenceHelper.decode(sb.toString()));
+	}
+
+	/** Reload from whichever of the server list store or preferences is set. @return true if there was an actual change */
+	private boolean reload() {
+		return serverListStore != null ? reloadFromStore() : reloadFromPreferences();
+	}
+
+	/**
+	 * Apply only the servers added, updated or removed in the store since the last reload.
+	 * @return true if there was an actual change
+	 */
+	private boolean reloadFromStore() {
+		synchronized (LOCK) {
+			try {
+				ServerListStore.Changes changes = serverListStore.reload();
+				if(changes.isFullReload()) {
+					ServerRegistry stored = ServerRegistry.of(changes.getPuts().values());
+					if(stored.equals(servers)) {
+						return false;
+					}
+					servers = stored;
+					return true;
+				}
+				List<String> removed = new ArrayList<String>();
+				List<ServerConfig> changed = new ArrayList<ServerConfig>();
+				for(String name : changes.getRemoves()) {
+					ServerConfig sc = getServer(name);
+					if(sc != null) {
+						closePool(sc);
+						removed.add(name);
+					}
 				}
+				for(ServerConfig sc : changes.getPuts().values()) {
+					ServerConfig existingSC = getServer(sc.getName());
+					if(!sc.equals(existingSC)) {
+						if(existingSC != null) {
+							closePool(existingSC);
+						}
+						changed.add(sc);
+					}
+				}
+				servers = servers.with(changed, removed);
+				return !removed.isEmpty() || !changed.isEmpty();
+			} catch (IOException e) {
+				LOG.log(Level.SEVERE, "Could not reload connections", e);
 			}
 		}
 		return false;
 	}
 
+	/** Save the changed servers to the store, or if using preferences save every server. */
+	private void persist(Collection<ServerConfig> changed, Collection<String> removedNames) {
+		if(serverListStore != null) {
+			try {
+				serverListStore.write(changed, removedNames);
+			} catch (IOException e) {
+				LOG.log(Level.SEVERE, "Could not save connections", e);
+			}
+		} else {
+			save();
+		}
+	}
+
 	
 	private void save() {
 		if(preferences != null) {
 			synchronized (LOCK) {
-					String txt = getConnectionsXml(serverConns);
+				String txt = getConnectionsXml(servers.getSorted());
 				txt = PreferenceHelper.encode(txt);
 				if(txt.length() > Preferences.MAX_VALUE_LENGTH * (MAX_STORAGE_SLOTS - 1)) {
 					LOG.info("txt.length = " + txt.length() + " maxLength = " + Preferences.MAX_VALUE_LENGTH * 9);
@@ -775,7 +968,7 @@ public class ConnectionManager implements AutoCloseable {
 	}
 
 	public String getConnectionsXml() {
-		return getConnectionsXml(serverConns);
+		return getConnectionsXml(servers.getSorted());
 	}
 	
 	/**
@@ -809,14 +1002,7 @@ public class ConnectionManager implements AutoCloseable {
 	 * 	are in named folders, the root folder "" will not be in the set.
 	 */
 	public Set<String> getFolders() {
-		Set<String> r = Collections.emptySet();
-		if(!serverConns.isEmpty()) {
-			r = Sets.newHashSet();
-			for(ServerConfig  sc : serverConns) {
-				r.add(sc.getFolder());
-			}			
-		}
-		return r;
+		return servers.getFolders();
 	}
 
 	/**
@@ -997,20 +1183,26 @@ public class ConnectionManager implements AutoCloseable {
 		LOG.info("renameFolder(" + from + " -> " + to + ")");
 
 		synchronized(LOCK) {
-			reloadFromPreferences();
+			reload();
 			Collection<ServerConfig> fromSCs = getServersInFolder(from);
 			if(fromSCs.isEmpty()) {
 				return 0;
 			}
+			List<ServerConfig> renamed = new ArrayList<ServerConfig>(fromSCs.size());
+			List<String> oldNames = new ArrayList<String>(fromSCs.size());
 			for(ServerConfig existingSC : fromSCs) {
-				serverConns.remove(existingSC);
-				statusUpdate(existingSC, false);
+				oldNames.add(existingSC.getName());
 				String newFolder = to + existingSC.getFolder().substring(from.length());
-				ServerConfig sc = new ServerConfigBuilder(existingSC).setFolder(newFolder).build();
-				serverConns.add(sc);
+				renamed.add(new ServerConfigBuilder(existingSC).setFolder(newFolder).build());
+			}
+			servers = servers.with(renamed, oldNames);
+			for(ServerConfig existingSC : fromSCs) {
+				statusUpdate(existingSC, false);
+			}
+			for(ServerConfig sc : renamed) {
 				statusUpdate(sc, false);
 			}
-			save();
+			persist(renamed, oldNames);
 			notifyListeners();
 			return fromSCs.size();
 		}
@@ -1019,24 +1211,14 @@ public class ConnectionManager implements AutoCloseable {
 	/** @return The servers that are in a given folder including subfolders.	 */
 	public List<ServerConfig> getServersInFolder(String folder) {
 		Preconditions.checkNotNull(folder);
-		String fn = ServerConfig.cleanFolderName(folder);
-		List<ServerConfig> r = null;
-		for(ServerConfig sc : serverConns) {
-			if(sc.getFolder().startsWith(fn)) {
-				if(r == null) {
-					r = new ArrayList<ServerConfig>();
-				}
-				r.add(sc);
-			}
-		}
-		return r==null ? Collections.<ServerConfig>emptyList() : r;
+		return servers.getInFolder(ServerConfig.cleanFolderName(folder));
 	}
 
 	/**
 	 * @return true if the first server config connection works.
 	 */
 	public boolean doesLoginWork() {
-		for(ServerConfig sc : serverConns) {
+		for(ServerConfig sc : servers.getSorted()) {
 			try {
 				testConnection(sc);
 			} catch (IOException e) {
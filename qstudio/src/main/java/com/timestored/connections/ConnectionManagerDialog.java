@@ -48,6 +48,7 @@ import javax.swing.Action;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
+import javax.swing.JCheckBox;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.JComboBox;
@@ -114,6 +115,11 @@ public class ConnectionManagerDialog extends JDialog implements ActionListener {
 	private final HighlightTextField urlTextField;
 	private final JRadioButton hostButton;
 	private final JRadioButton urlButton;
+	private final JTextField poolMaxTotalField;
+	private final JTextField poolMaxWaitField;
+	private final JTextField poolValidationQueryField;
+	private final JCheckBox poolTestOnBorrowCheckBox;
+	private final JTextField poolIdleMinutesField;
 	
 	/**
 	 * Add or Edit an existing {@link ServerConfig} details.
@@ -280,6 +286,27 @@ public class ConnectionManagerDialog extends JDialog implements ActionListener {
 		folderComboBox.setEditable(true);
 		nameColorPanel.add(INPUT_LABELLER.get("Folder:", folderComboBox, "folderComboBox"));
 		
+		// CONNECTION POOL
+		JPanel poolPanel = new JPanel();
+		poolPanel.setBorder(new TitledBorder(null, "Connection Pool", TitledBorder.LEADING, TitledBorder.TOP, null, null));
+		poolPanel.setLayout(new BoxLayout(poolPanel, BoxLayout.PAGE_AXIS));
+		poolMaxTotalField = new HighlightTextField("");
+		poolMaxTotalField.setColumns(10);
+		poolPanel.add(INPUT_LABELLER.get("Max Connections:", poolMaxTotalField, "poolMaxTotalField"));
+		poolMaxWaitField = new HighlightTextField("");
+		poolMaxWaitField.setColumns(10);
+		poolMaxWaitField.setToolTipText("Seconds to wait for a connection when all are in use, negative waits forever.");
+		poolPanel.add(INPUT_LABELLER.get("Max Wait (s):", poolMaxWaitField, "poolMaxWaitField"));
+		poolIdleMinutesField = new HighlightTextField("");
+		poolIdleMinutesField.setColumns(10);
+		poolIdleMinutesField.setToolTipText("Idle connections older than this many minutes are closed.");
+		poolPanel.add(INPUT_LABELLER.get("Close Idle (mins):", poolIdleMinutesField, "poolIdleMinutesField"));
+		poolValidationQueryField = new HighlightTextField("");
+		poolValidationQueryField.setToolTipText("Query run to check a connection is alive, blank to ask the driver.");
+		poolPanel.add(INPUT_LABELLER.get("Validation Query:", poolValidationQueryField, "poolValidationQueryField"));
+		poolTestOnBorrowCheckBox = new JCheckBox("Check each connection before use, costs a round trip per query.");
+		poolPanel.add(INPUT_LABELLER.get("Test On Borrow:", poolTestOnBorrowCheckBox, "poolTestOnBorrowCheckBox"));
+		
 		JPanel buttonPanel = new JPanel(); 
 		
 		buttonPanel.add(makeButton(serverConfig==null ? Msg.get(Key.ADD) : Msg.get(Key.SAVE), this));
@@ -347,6 +374,7 @@ public class ConnectionManagerDialog extends JDialog implements ActionListener {
 		cp.add(connPanel);
 		cp.add(loginPanel);
 		cp.add(nameColorPanel);
+		cp.add(poolPanel);
 		
 //		cp.add(buttonPanel);
 		add(SwingUtils.verticalScrollPane(cp), BorderLayout.CENTER);
@@ -424,6 +452,7 @@ public class ConnectionManagerDialog extends JDialog implements ActionListener {
 			colorChooserPanel.setColor(sc.getColor());
 			databasePanel.setVisible(sc.getJdbcType().isDatabaseRequired());
 			setFolder(sc.getFolder());
+			showPoolSettings(sc.getPoolSettings());
 			
 			if(sc.getPort() == 0) {
 				enableHostPort(false);
@@ -433,6 +462,7 @@ public class ConnectionManagerDialog extends JDialog implements ActionListener {
 				urlTextField.setText(sc.getDatabase());
 			}
 		} else {
+			showPoolSettings(ConnectionPoolSettings.DEFAULT);
 			folderComboBox.setSelectedItem("");
 			// if adding a server, place defaulter user/pass in GUI box
 			if(conMan.isDefaultLoginSet()) {
@@ -443,6 +473,32 @@ public class ConnectionManagerDialog extends JDialog implements ActionListener {
 	}
 
 
+	private void showPoolSettings(ConnectionPoolSettings ps) {
+		poolMaxTotalField.setText("" + ps.getMaxTotal());
+		poolMaxWaitField.setText("" + (ps.getMaxWaitMillis() < 0 ? -1 : ps.getMaxWaitMillis() / 1000));
+		poolIdleMinutesField.setText("" + ps.getMinEvictableIdleMillis() / 60_000);
+		poolValidationQueryField.setText(ps.getValidationQuery() == null ? "" : ps.getValidationQuery());
+		poolTestOnBorrowCheckBox.setSelected(ps.isTestOnBorrow());
+	}
+
+	/** @return Pool settings from the typed in details, keeping any settings not shown from the existing server. */
+	private ConnectionPoolSettings newPoolSettings() {
+		ConnectionPoolSettings ps = serverConfig == null ? ConnectionPoolSettings.DEFAULT : serverConfig.getPoolSettings();
+		int maxTotal = Integer.parseInt(poolMaxTotalField.getText().trim());
+		if(maxTotal < 1) {
+			throw new IllegalArgumentException("Max Connections must be at least 1");
+		}
+		long maxWait = Long.parseLong(poolMaxWaitField.getText().trim());
+		String vq = poolValidationQueryField.getText().trim();
+		return ps.toBuilder()
+				.maxTotal(maxTotal)
+				.maxWaitMillis(maxWait < 0 ? -1 : maxWait * 1000)
+				.minEvictableIdleMillis(Long.parseLong(poolIdleMinutesField.getText().trim()) * 60_000)
+				.validationQuery(vq.isEmpty() ? null : vq)
+				.testOnBorrow(poolTestOnBorrowCheckBox.isSelected())
+				.build();
+	}
+
 	/** get a server config based on the currently typed in details */
 	private ServerConfig newServerConfig() {
 		String niceName = (String) serverTypeComboBox.getSelectedItem();
@@ -463,7 +519,7 @@ public class ConnectionManagerDialog extends JDialog implements ActionListener {
 			database = urlTextField.getText();
 		}
 		
-		return new ServerConfig(host, port, username, password, name, t, c, database, folder);
+		return new ServerConfig(host, port, username, password, name, t, c, database, folder).withPoolSettings(newPoolSettings());
 	}
 	
 	@Override public void actionPerformed(ActionEvent e) {
@@ -0,0 +1,54 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.connections;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How the {@link ConnectionManager} pools connections to each server: how many, how long to wait for one,
+ * how they are validated and when idle ones are evicted.
+ * Each {@link ServerConfig} holds its own, saved with the server, and they take effect when its pool is next created.
+ */
+@Builder(toBuilder = true)
+@Getter
+@EqualsAndHashCode
+@ToString
+public class ConnectionPoolSettings {
+
+	public static final ConnectionPoolSettings DEFAULT = ConnectionPoolSettings.builder().build();
+
+	/** Maximum connections open at once, borrowers wait once reached. */
+	@Builder.Default private final int maxTotal = 8;
+	/** Idle connections the evictor keeps open and that {@link ConnectionManager#prewarm(ServerConfig)} creates. */
+	@Builder.Default private final int minIdle = 0;
+	/** Milliseconds to wait for a connection when all are in use, negative waits forever. */
+	@Builder.Default private final long maxWaitMillis = 30_000;
+	/** Query run to check a connection is alive or null to use the driver's Connection.isValid. */
+	@Builder.Default private final String validationQuery = null;
+	@Builder.Default private final int validationTimeoutSeconds = 5;
+	/** Check every connection before handing it out, safest but costs a round trip per borrow. */
+	@Builder.Default private final boolean testOnBorrow = false;
+	/** Check idle connections when the evictor runs so broken ones are dropped before being borrowed. */
+	@Builder.Default private final boolean testWhileIdle = true;
+	/** Milliseconds between evictor runs, negative disables eviction. */
+	@Builder.Default private final long evictionRunMillis = 60_000;
+	/** Idle connections older than this in milliseconds are closed by the evictor. */
+	@Builder.Default private final long minEvictableIdleMillis = 30 * 60_000;
+}
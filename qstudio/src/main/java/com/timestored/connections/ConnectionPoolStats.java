@@ -0,0 +1,47 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.connections;
+
+import lombok.Data;
+
+/**
+ * Snapshot of the behaviour of one server's connection pool in a {@link ConnectionManager}
+ * since the pool was created, to spot exhausted or flapping pools.
+ */
+@Data
+public class ConnectionPoolStats {
+	private final String serverName;
+	/** Connections currently borrowed. */
+	private final int active;
+	/** Connections open and waiting in the pool. */
+	private final int idle;
+	private final int maxTotal;
+	private final long borrowCount;
+	/** Borrows that failed, i.e. no connection could be created or none became free in time. */
+	private final long failureCount;
+	private final double meanBorrowMillis;
+	private final long maxBorrowMillis;
+	/** Time the last borrow failed in milliseconds since epoch or 0 if none have. */
+	private final long lastFailureTime;
+	/** Message of the last failure or null if none. */
+	private final String lastFailure;
+
+	/** @return true if every connection is in use so the next borrower will wait. */
+	public boolean isExhausted() {
+		return maxTotal > 0 && active >= maxTotal;
+	}
+}
@@ -23,7 +23,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import lombok.Data;
@@ -62,6 +65,15 @@ import lombok.NonNull;
 	
 	
 	
+	/** A catalog and schema as reported by the driver, allows fetching the meta data of only that schema. */
+	@Data
+	public static class SchemaInfo {
+		@NonNull final String cat;
+		@NonNull final String schema;
+		/** The namespace its tables are reported under, see {@link ColumnInfo#getNamespace()} */
+		@NonNull final String namespace;
+	}
+	
 	public static MetaInfo empty() { return new MetaInfo(Collections.emptyList()); }
 		
 	public static MetaInfo getMetaInfo(ConnectionManager connMan, ServerConfig serverConfig) throws Exception {
@@ -76,7 +88,7 @@ import lombok.NonNull;
 			if(r != null && r.getColumnInfo().size()>0) { return r; }
 		}
 		try {
-			r = getColumns(connMan, serverConfig, null, "%", "%", "%");
+			r = getColumns(connMan, serverConfig, null, null);
 		} catch(Exception e) { err = e; } catch(Throwable t) { LOG.info(t.getLocalizedMessage()); }
 		if(r != null && r.getColumnInfo().size()>0) { return r; }
 		
@@ -91,11 +103,59 @@ import lombok.NonNull;
 		return MetaInfo.empty();
 	}
 
+	/**
+	 * @return The catalogs / schemas of the database without fetching their tables, 
+	 * 	empty if the driver does not report them.
+	 */
+	public static List<SchemaInfo> getSchemas(ConnectionManager connMan, ServerConfig serverConfig) throws IOException, SQLException {
+		return connMan.useConn(serverConfig, (Connection conn) -> {
+			List<SchemaInfo> r = new ArrayList<>();
+			DatabaseMetaData md = conn.getMetaData();
+			ResultSet rs = md.getSchemas();
+			if(rs != null) {
+				while(rs.next()) {
+					r.add(toSchemaInfo(serverConfig, safeGet(rs, "TABLE_CATALOG"), safeGet(rs, "TABLE_SCHEM")));
+				}
+				try { rs.close(); } catch(Exception e) {};
+			}
+			if(r.isEmpty()) { // e.g. MySQL reports databases as catalogs rather than schemas
+				rs = md.getCatalogs();
+				if(rs != null) {
+					while(rs.next()) {
+						r.add(toSchemaInfo(serverConfig, safeGet(rs, "TABLE_CAT"), ""));
+					}
+					try { rs.close(); } catch(Exception e) {};
+				}
+			}
+			return r;
+		});
+	}
+
+	private static SchemaInfo toSchemaInfo(ServerConfig serverConfig, String cat, String schem) {
+		String[] catSchem = removeDefaults(serverConfig.getJdbcType(), cat, schem);
+		return new SchemaInfo(cat, schem, new ColumnInfo(catSchem[0], catSchem[1], "", "", "", 0).getNamespace());
+	}
+
+	/** @return The meta data for the tables within only the one schema. */
+	public static MetaInfo getMetaInfo(ConnectionManager connMan, ServerConfig serverConfig, SchemaInfo schemaInfo) throws IOException, SQLException {
+		String cat = schemaInfo.getCat().isEmpty() ? null : schemaInfo.getCat();
+		String schem = schemaInfo.getSchema().isEmpty() ? null : schemaInfo.getSchema();
+		MetaInfo r = getColumns(connMan, serverConfig, cat, schem);
+		if(r != null && r.getColumnInfo().size()>0) { return r; }
+		r = getTables(connMan, serverConfig, cat, schem);
+		return r == null ? MetaInfo.empty() : r;
+	}
+
 	private static MetaInfo getTables(ConnectionManager connMan, ServerConfig serverConfig) throws IOException, SQLException {
+		return getTables(connMan, serverConfig, null, null);
+	}
+
+	/** @param schema exact schema name or null for all. */
+	private static MetaInfo getTables(ConnectionManager connMan, ServerConfig serverConfig, String catalog, String schema) throws IOException, SQLException {
 		return connMan.useConn(serverConfig, (Connection conn) -> {
 			DatabaseMetaData md = conn.getMetaData();
 			// TABLE_CAT:`;TABLE_SCHEM:`;TABLE_NAME
-			ResultSet rs = md.getTables(null, null, "%", new String[] {"TABLE","VIEW"});
+			ResultSet rs = md.getTables(catalog, escape(md, schema), "%", new String[] {"TABLE","VIEW"});
 			if(rs != null) { // some databases don't return a result for these meta queries.
 				List<ColumnInfo> colInfos = new ArrayList<>();
 				if(rs != null) { // some databases don't return a result for these meta queries.
@@ -111,12 +171,13 @@ import lombok.NonNull;
 		});
 	}
 
-	private static MetaInfo getColumns(ConnectionManager connMan, ServerConfig serverConfig, String catalog, String schemaPattern, String tableName, String columnName) throws IOException, SQLException {
+	/** @param schema exact schema name or null for all. */
+	private static MetaInfo getColumns(ConnectionManager connMan, ServerConfig serverConfig, String catalog, String schema) throws IOException, SQLException {
 		return connMan.useConn(serverConfig, (Connection conn) -> {
 			MetaInfo res = null;
 			DatabaseMetaData md = conn.getMetaData();
 			// TABLE_CAT:`,TABLE_SCHEM:`,TABLE_NAME:n,COLUMN_NAME:c,DATA_TYPE:0i,TYPE_NAME:`int$t
-			ResultSet rs = md.getColumns(catalog, schemaPattern, tableName, columnName);
+			ResultSet rs = md.getColumns(catalog, schema == null ? "%" : escape(md, schema), "%", "%");
 			if(rs != null) { // some databases don't return a result for these meta queries.
 				res = MetaInfo.fromColumnRs(serverConfig, rs);
 				try { rs.close(); } catch(Exception e) {};
@@ -125,6 +186,15 @@ import lombok.NonNull;
 		});
 	}
 
+	/** @return The name with any search pattern wildcards escaped so that it only matches itself. */
+	private static String escape(DatabaseMetaData md, String name) throws SQLException {
+		String esc = name == null ? null : md.getSearchStringEscape();
+		if(esc == null || esc.isEmpty()) {
+			return name;
+		}
+		return name.replace(esc, esc + esc).replace("_", esc + "_").replace("%", esc + "%");
+	}
+
 	private static String safeGet(ResultSet rs, String col) {
 		String r = "";
 		try {
@@ -144,37 +214,39 @@ import lombok.NonNull;
 				try {
 					dataType = rs.getInt("DATA_TYPE");
 				} catch (Exception e) {}
-				String cat = safeGet(rs, "TABLE_CAT");
-				String schem = safeGet(rs, "TABLE_SCHEM");
-				
-				switch(serverConfig.getJdbcType()) {
-					case MSSERVER:
-						cat = cat.equals("master") ? "" : cat; // master is default 99% of time. Remove to hide in UI
-//						schem = schem.equals("dbo") ? "" : schem; NOT turning this on as some MS users do use dbo in queries
-						break;
-					case H2:
-						//cat = cat.equals("UNNAMED") ? "" : cat;
-						// For in-memory cat=UNNAMED, ondisk cat=filename so always remove as querying cat.table doesn't work.
-						cat = "";
-						schem = schem.equals("PUBLIC") ? "" : schem; // PUBLIC is only schema. Not required
-						break;
-					case DUCKDB:
-						cat = ""; // DUckDB reports catalog=memory for in-memory. This is useless.
-						schem = schem.equals("main") ? "" : schem; // main is only one currently I think?
-						break;
-					case POSTGRES:
-						schem = schem.equals("public") ? "" : schem;
-						break;
-					default: // do nothing;
-				}
-				
-				colInfos.add(new ColumnInfo(cat, schem, safeGet(rs, "TABLE_NAME"), 
+				String[] catSchem = removeDefaults(serverConfig.getJdbcType(), safeGet(rs, "TABLE_CAT"), safeGet(rs, "TABLE_SCHEM"));
+				colInfos.add(new ColumnInfo(catSchem[0], catSchem[1], safeGet(rs, "TABLE_NAME"), 
 						safeGet(rs, "COLUMN_NAME"), safeGet(rs, "TYPE_NAME"), dataType));		
 			}
 			try { rs.close(); } catch(Exception e) {};
 		}
 		return new MetaInfo(colInfos);
 	}
+
+	/** @return catalog and schema with any default that is pointless to show in the UI replaced by "". */
+	private static String[] removeDefaults(JdbcTypes jdbcTypes, String cat, String schem) {
+		switch(jdbcTypes) {
+			case MSSERVER:
+				cat = cat.equals("master") ? "" : cat; // master is default 99% of time. Remove to hide in UI
+//				schem = schem.equals("dbo") ? "" : schem; NOT turning this on as some MS users do use dbo in queries
+				break;
+			case H2:
+				//cat = cat.equals("UNNAMED") ? "" : cat;
+				// For in-memory cat=UNNAMED, ondisk cat=filename so always remove as querying cat.table doesn't work.
+				cat = "";
+				schem = schem.equals("PUBLIC") ? "" : schem; // PUBLIC is only schema. Not required
+				break;
+			case DUCKDB:
+				cat = ""; // DUckDB reports catalog=memory for in-memory. This is useless.
+				schem = schem.equals("main") ? "" : schem; // main is only one currently I think?
+				break;
+			case POSTGRES:
+				schem = schem.equals("public") ? "" : schem;
+				break;
+			default: // do nothing;
+		}
+		return new String[] { cat, schem };
+	}
 	
 	private static String cols(JdbcTypes jdbcTypes, List<String> colNames, boolean includeColumnNames) {
 		String cols = jdbcTypes.isKDB() ? "" : "*";
@@ -188,6 +260,108 @@ import lombok.NonNull;
 		return cols;
 	}
 	
+	/**
+	 * @return A query much cheaper than fetching the full meta data whose first row changes whenever
+	 * 	tables or columns are created, altered or dropped. Or null if no such query is known for that database.
+	 */
+	public static String getSchemaFingerprintQuery(JdbcTypes jdbcTypes) {
+		if(jdbcTypes.isKDB()) {
+			// hash of every namespace's variable names, table columns, in-memory table counts, partitions,
+			// function parameters and other types
+			return "md5 \"c\"$-8!{d:value x;(key d;{$[.Q.qt x;(cols x;$[.Q.qp x;.Q.pv;count x]);100h=type x;(100h;value[x]1);type x]} each value d)} each `.,` sv/:`,/:key `";
+		}
+		switch(jdbcTypes) {
+		case POSTGRES:
+			return "SELECT COUNT(*), md5(string_agg(n.nspname || '.' || c.relname || '.' || a.attname || ':' || a.atttypid::text, ',' ORDER BY a.attrelid, a.attnum))"
+				+ " FROM pg_attribute a JOIN pg_class c ON c.oid = a.attrelid JOIN pg_namespace n ON n.oid = c.relnamespace"
+				+ " WHERE c.relkind IN ('r','v','m','p','f') AND a.attnum > 0 AND NOT a.attisdropped"
+				+ " AND n.nspname NOT IN ('pg_catalog','information_schema')";
+		case CLICKHOUSE:
+		case CLICKHOUSE_COM:
+		case YANDEX_CLICKHOUSE:
+			return "SELECT count(), toString(max(metadata_modification_time)) FROM system.tables";
+		case MYSQL:
+			return "SELECT COUNT(*), SUM(CRC32(CONCAT_WS('.', TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME, COLUMN_TYPE))) FROM information_schema.COLUMNS";
+		case MSSERVER:
+			return "SELECT COUNT(*), MAX(modify_date) FROM sys.objects WHERE type IN ('U','V')";
+		case ORACLE:
+			return "SELECT COUNT(*), MAX(LAST_DDL_TIME) FROM ALL_OBJECTS WHERE OBJECT_TYPE IN ('TABLE','VIEW')";
+		case DUCKDB:
+			return "SELECT COUNT(*), SUM(hash(schema_name || '.' || table_name || '.' || column_name || ':' || data_type)) FROM duckdb_columns()";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return A query that returns an estimated row count for every table using the database's own statistics
+	 * 	rather than scanning the tables, or null if no such query is known for that database.
+	 * 	For kdb the result is a dictionary from table name to count, with partitioned tables counted using .Q.pn.
+	 * 	For other databases each row is (schema, table, rows).
+	 */
+	public static String getApproximateCountQuery(JdbcTypes jdbcTypes) {
+		if(jdbcTypes.isKDB()) {
+			// .Q.pn holds the partition counts once a partitioned table has been counted, otherwise unknown
+			return "{x!{$[.Q.qp v:value x;$[count p:.Q.pn x;sum p;0N];count v]} each x} tables[]";
+		}
+		switch(jdbcTypes) {
+		case POSTGRES:
+			return "SELECT n.nspname, c.relname, c.reltuples::bigint FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace"
+				+ " WHERE c.relkind IN ('r','m','p')";
+		case CLICKHOUSE:
+		case CLICKHOUSE_COM:
+		case YANDEX_CLICKHOUSE:
+			return "SELECT database, table, sum(rows) FROM system.parts WHERE active GROUP BY database, table";
+		case MYSQL:
+			return "SELECT TABLE_SCHEMA, TABLE_NAME, TABLE_ROWS FROM information_schema.TABLES";
+		case MSSERVER:
+			return "SELECT s.name, t.name, SUM(p.rows) FROM sys.tables t JOIN sys.schemas s ON s.schema_id = t.schema_id"
+				+ " JOIN sys.partitions p ON p.object_id = t.object_id AND p.index_id IN (0,1) GROUP BY s.name, t.name";
+		case DUCKDB:
+			return "SELECT schema_name, table_name, estimated_size FROM duckdb_tables()";
+		case H2:
+			return "SELECT TABLE_SCHEMA, TABLE_NAME, ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_TYPE = 'TABLE'";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Run {@link #getApproximateCountQuery(JdbcTypes)} against a non-kdb database.
+	 * @return Map from schema.table to estimated row count, use {@link #getApproximateCount(Map, ColumnInfo)} to find
+	 * 	a table's count. Empty if the database has no estimates or the query failed, as counts are optional.
+	 */
+	public static Map<String, Long> getApproximateCounts(ConnectionManager connMan, ServerConfig serverConfig) {
+		JdbcTypes jdbcTypes = serverConfig.getJdbcType();
+		String qry = getApproximateCountQuery(jdbcTypes);
+		if(qry == null || jdbcTypes.isKDB()) {
+			return Collections.emptyMap();
+		}
+		Map<String, Long> r = new HashMap<>();
+		try {
+			ResultSet rs = connMan.executeQuery(serverConfig, qry);
+			while(rs.next()) {
+				long rows = rs.getLong(3);
+				if(!rs.wasNull() && rows >= 0) { // postgres reports -1 for never analyzed tables
+					String schem = rs.getString(1) == null ? "" : rs.getString(1);
+					r.put(removeDefaults(jdbcTypes, "", schem)[1] + "." + rs.getString(2), rows);
+				}
+			}
+		} catch(Exception e) {
+			LOG.info("Could not get approximate counts for " + serverConfig.getName() + ": " + e);
+		}
+		return r;
+	}
+
+	/** @return The estimated row count for the table that column belongs to, or -1 if unknown. */
+	public static long getApproximateCount(Map<String, Long> approximateCounts, ColumnInfo columnInfo) {
+		Long c = approximateCounts.get(columnInfo.getSchema() + "." + columnInfo.getTableName());
+		if(c == null) { // e.g. MySQL reports databases as catalogs
+			c = approximateCounts.get(columnInfo.getCat() + "." + columnInfo.getTableName());
+		}
+		return c == null ? -1 : c;
+	}
+
 	public static String getCountQuery(JdbcTypes jdbcTypes, String fullname) {
 		return (jdbcTypes.isKDB() ? "count " : "SELECT COUNT(*) FROM ") + fullname;	
 	}
@@ -207,6 +381,97 @@ import lombok.NonNull;
 		return qry;
 	}
 	
+	/**
+	 * @return One query that profiles every column of the table, sampling tables with more than sampleRows rows.
+	 * 	For kdb a table of column, nulls, distinctCount, minValue, maxValue, histogram, sampled is returned
+	 * 	where histogram is 10 equal width bucket counts for numeric columns.
+	 * 	For other databases a single row is returned: the number of rows profiled, followed for each column by 
+	 * 	its non-null count, distinct count (estimated where the database supports it), min and max if includeMinMax, 
+	 * 	then for ClickHouse its 10 most frequent values.
+	 * @param estimatedCount Row count if known, otherwise -1 in which case large SQL tables may be sampled by taking their first rows.
+	 */
+	public static String getProfileQuery(JdbcTypes jdbcTypes, List<String> colNames, String fullname, 
+			long estimatedCount, long sampleRows, boolean includeMinMax) {
+		if(jdbcTypes.isKDB()) {
+			// evenly spaced rows are read using .Q.ind for partitioned tables, so only the sampled rows leave disk.
+			// symbols have no min/max and any other column min/max cannot take is trapped to null rather than failing the query.
+			return "{[t;n] c:count t; i:$[c>n;`long$(til n)*c%n;til c]; s:$[.Q.qp t;.Q.ind[t;i];(0!t) i]; v:value flip s;"
+				+ " rng:{(t within 4 19) and not 11=t:abs type x};"
+				+ " h:{f:f where not null f:\"f\"$x; mn:min f; w:(max[f]-mn)%10; $[w>0;@[10#0;9&floor(f-mn)%w;+;1];enlist count f]};"
+				+ " flip `column`nulls`distinctCount`minValue`maxValue`histogram`sampled!(cols s;"
+				+ " {$[0h=type x;sum 0=count each x;sum null x]} each v; count each distinct each v;"
+				+ " {$[x y;@[min;y;{[e]}];::]}[rng] each v; {$[x y;@[max;y;{[e]}];::]}[rng] each v;"
+				+ " {$[(abs type y) within 5 9;x y;()]}[h] each v; (count v)#c>n)}[" + fullname + ";" + sampleRows + "]";
+		}
+		StringBuilder sb = new StringBuilder("SELECT COUNT(*)");
+		for(String cn : colNames) {
+			String c = cn.contains(" ") ? ("\"" + cn + "\"") : cn;
+			sb.append(", COUNT(").append(c).append("), ").append(getDistinctCount(jdbcTypes, c));
+			if(includeMinMax) {
+				sb.append(", MIN(").append(c).append("), MAX(").append(c).append(")");
+			}
+			if(isClickhouse(jdbcTypes)) {
+				sb.append(", toString(topK(10)(").append(c).append("))");
+			}
+		}
+		return sb.append(" FROM ").append(getSampled(jdbcTypes, fullname, estimatedCount, sampleRows)).toString();
+	}
+
+	private static boolean isClickhouse(JdbcTypes jdbcTypes) {
+		return jdbcTypes.equals(JdbcTypes.CLICKHOUSE) || jdbcTypes.equals(JdbcTypes.CLICKHOUSE_COM) || jdbcTypes.equals(JdbcTypes.YANDEX_CLICKHOUSE);
+	}
+
+	private static String getDistinctCount(JdbcTypes jdbcTypes, String col) {
+		if(isClickhouse(jdbcTypes)) {
+			return "uniq(" + col + ")";
+		}
+		switch(jdbcTypes) {
+		case DUCKDB:
+		case SPARK_HIVE:
+			return "approx_count_distinct(" + col + ")";
+		case SNOWFLAKE:
+		case ORACLE:
+			return "APPROX_COUNT_DISTINCT(" + col + ")";
+		case PRESTO:
+		case TRINO:
+			return "approx_distinct(" + col + ")";
+		case REDSHIFT:
+			return "APPROXIMATE COUNT(DISTINCT " + col + ")";
+		default:
+			return "COUNT(DISTINCT " + col + ")";
+		}
+	}
+
+	/** @return The table, or a subquery sampling roughly sampleRows of it if it is larger than that or of unknown size. */
+	private static String getSampled(JdbcTypes jdbcTypes, String fullname, long estimatedCount, long sampleRows) {
+		if(estimatedCount >= 0 && estimatedCount <= sampleRows) {
+			return fullname;
+		}
+		boolean countKnown = estimatedCount > 0;
+		String pct = countKnown ? String.format(Locale.ROOT, "%.6f", 100.0 * sampleRows / estimatedCount) : "";
+		switch(jdbcTypes) {
+		case POSTGRES:
+			return countKnown ? fullname + " TABLESAMPLE SYSTEM (" + pct + ")" : "(SELECT * FROM " + fullname + " LIMIT " + sampleRows + ") s";
+		case DUCKDB:
+			return fullname + " USING SAMPLE " + sampleRows + " ROWS";
+		case SNOWFLAKE:
+			return fullname + " SAMPLE (" + sampleRows + " ROWS)";
+		case MSSERVER:
+			return "(SELECT TOP " + sampleRows + " * FROM " + fullname + " TABLESAMPLE (" + sampleRows + " ROWS)) s";
+		case ORACLE:
+			return countKnown ? fullname + " SAMPLE (" + pct + ")" : "(SELECT * FROM " + fullname + " WHERE ROWNUM <= " + sampleRows + ") s";
+		case PRESTO:
+		case TRINO:
+			if(countKnown) {
+				return fullname + " TABLESAMPLE BERNOULLI (" + pct + ")";
+			}
+			break;
+		default:
+		}
+		// no sampling clause known, profile the first rows instead
+		return "(SELECT * FROM " + fullname + " LIMIT " + sampleRows + ") s";
+	}
+
 	public static String getBottom100query(JdbcTypes jdbcTypes, List<String> colNames,String fullname, boolean isKdbPartitioned, boolean includeColumnNames) {
 		String cols = cols(jdbcTypes, colNames, includeColumnNames);
 		if (isKdbPartitioned) {
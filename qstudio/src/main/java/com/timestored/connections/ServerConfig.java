@@ -49,6 +49,8 @@ public class ServerConfig {
 	/** The color GUI elements should be shown for this server */
 	private final Color color;
 	private static final Color DEFAULT_COLOR = Color.WHITE;
+	/** How connections to this server are pooled */
+	private final ConnectionPoolSettings poolSettings;
 	
 
 	public ServerConfig(String host, int port, String username, 
@@ -146,6 +148,24 @@ public class ServerConfig {
 		
 		
 		this.jdbcType = Preconditions.checkNotNull(jdbcType);
+		this.poolSettings = ConnectionPoolSettings.DEFAULT;
+	}
+
+	private ServerConfig(ServerConfig sc, ConnectionPoolSettings poolSettings) {
+		this.name = sc.name;
+		this.username = sc.username;
+		this.password = sc.password;
+		this.host = sc.host;
+		this.port = sc.port;
+		this.database = sc.database;
+		this.jdbcType = sc.jdbcType;
+		this.color = sc.color;
+		this.poolSettings = Preconditions.checkNotNull(poolSettings);
+	}
+
+	/** @return A copy of this server whose connections are pooled with the given settings. */
+	public ServerConfig withPoolSettings(ConnectionPoolSettings poolSettings) {
+		return poolSettings.equals(this.poolSettings) ? this : new ServerConfig(this, poolSettings);
 	}
 
 	public ServerConfig(String host, int port, 
@@ -263,10 +283,13 @@ public class ServerConfig {
 	
 	public boolean isDefaultColor() { return DEFAULT_COLOR.equals(color); }
 
+	/** @return How connections to this server are pooled, {@link ConnectionPoolSettings#DEFAULT} unless set. */
+	public ConnectionPoolSettings getPoolSettings() { return poolSettings; }
+
 
 	@Override
 	public int hashCode(){
-		return Objects.hashCode(name, username, password, host, port, database, jdbcType, color);
+		return Objects.hashCode(name, username, password, host, port, database, jdbcType, color, poolSettings);
 	}
 	
 	@Override
@@ -281,7 +304,8 @@ public class ServerConfig {
 				&& Objects.equal(this.getDatabase(), that.getDatabase())
 				&& Objects.equal(this.getFolder(), that.getFolder())
 				&& Objects.equal(this.jdbcType, that.jdbcType)
-				&& Objects.equal(this.color, that.color);
+				&& Objects.equal(this.color, that.color)
+				&& Objects.equal(this.poolSettings, that.poolSettings);
 		}
 		return false;
 	}
@@ -33,6 +33,7 @@ public class ServerConfigBuilder {
 	private JdbcTypes jdbcType = JdbcTypes.KDB;
 	/** The color GUI elements should be shown for this server */
 	private Color color;
+	private ConnectionPoolSettings poolSettings = ConnectionPoolSettings.DEFAULT;
 
 //	public ServerConfigBuilder() { }
 
@@ -45,6 +46,7 @@ public class ServerConfigBuilder {
 		database = sc.getDatabase();
 		jdbcType = sc.getJdbcType();
 		color = sc.getColor();
+		poolSettings = sc.getPoolSettings();
 	}
 
 	public ServerConfigBuilder setName(String name) {this.name = name;	return this; }
@@ -67,6 +69,7 @@ public class ServerConfigBuilder {
 	
 	public ServerConfigBuilder setColor(Color color) {	this.color = color; return this; }
 	public ServerConfigBuilder setHost(String host) { this.host = host; return this; }
+	public ServerConfigBuilder setPoolSettings(ConnectionPoolSettings poolSettings) { this.poolSettings = poolSettings; return this; }
 
 	public ServerConfigBuilder setPort(int port) {
 		if(port<0) {
@@ -79,6 +82,6 @@ public class ServerConfigBuilder {
 		if(port == -1) {
 			port = jdbcType.getDefaultPort();
 		}
-		return new ServerConfig(host, port, username, password, name, jdbcType, color, database);
+		return new ServerConfig(host, port, username, password, name, jdbcType, color, database).withPoolSettings(poolSettings);
 	}
 }
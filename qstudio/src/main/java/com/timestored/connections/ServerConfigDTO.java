@@ -41,6 +41,17 @@ public class ServerConfigDTO {
     // deprecated, for now I read in but do not write out, later mark transient
    	@XStreamAsAttribute private String folder;
    	
+   	// pool settings, only written if not the defaults, attributes so older versions ignore them
+   	@XStreamAsAttribute private Integer poolMaxTotal;
+   	@XStreamAsAttribute private Integer poolMinIdle;
+   	@XStreamAsAttribute private Long poolMaxWaitMillis;
+   	@XStreamAsAttribute private String poolValidationQuery;
+   	@XStreamAsAttribute private Integer poolValidationTimeoutSeconds;
+   	@XStreamAsAttribute private Boolean poolTestOnBorrow;
+   	@XStreamAsAttribute private Boolean poolTestWhileIdle;
+   	@XStreamAsAttribute private Long poolEvictionRunMillis;
+   	@XStreamAsAttribute private Long poolMinEvictableIdleMillis;
+   	
    	/** 
    	 * Zero-arg constructor to make xstream work? 
    	 * https://stackoverflow.com/questions/25661763/xstream-exception
@@ -70,6 +81,18 @@ public class ServerConfigDTO {
 		this.jdbcType = sc.getJdbcType();
 //		this.folder = sc.getFolder();
 		this.clr = sc.getColor().getRGB();
+		ConnectionPoolSettings ps = sc.getPoolSettings();
+		if(!ps.equals(ConnectionPoolSettings.DEFAULT)) {
+			poolMaxTotal = ps.getMaxTotal();
+			poolMinIdle = ps.getMinIdle();
+			poolMaxWaitMillis = ps.getMaxWaitMillis();
+			poolValidationQuery = ps.getValidationQuery();
+			poolValidationTimeoutSeconds = ps.getValidationTimeoutSeconds();
+			poolTestOnBorrow = ps.isTestOnBorrow();
+			poolTestWhileIdle = ps.isTestWhileIdle();
+			poolEvictionRunMillis = ps.getEvictionRunMillis();
+			poolMinEvictableIdleMillis = ps.getMinEvictableIdleMillis();
+		}
 	}
 	
 	ServerConfig getInstance() {
@@ -82,6 +105,21 @@ public class ServerConfigDTO {
 		if(this.folder != null && this.folder.length()>0) {
 			n = folder + "/" + name;
 		}
-		return new ServerConfig(host, port, username, password, n, jdbcType, c, database);
+		return new ServerConfig(host, port, username, password, n, jdbcType, c, database).withPoolSettings(getPoolSettings());
+	}
+
+	/** @return The saved pool settings with any not saved taken from the defaults. */
+	private ConnectionPoolSettings getPoolSettings() {
+		ConnectionPoolSettings.ConnectionPoolSettingsBuilder b = ConnectionPoolSettings.DEFAULT.toBuilder();
+		if(poolMaxTotal != null) { b.maxTotal(poolMaxTotal); }
+		if(poolMinIdle != null) { b.minIdle(poolMinIdle); }
+		if(poolMaxWaitMillis != null) { b.maxWaitMillis(poolMaxWaitMillis); }
+		if(poolValidationQuery != null) { b.validationQuery(poolValidationQuery); }
+		if(poolValidationTimeoutSeconds != null) { b.validationTimeoutSeconds(poolValidationTimeoutSeconds); }
+		if(poolTestOnBorrow != null) { b.testOnBorrow(poolTestOnBorrow); }
+		if(poolTestWhileIdle != null) { b.testWhileIdle(poolTestWhileIdle); }
+		if(poolEvictionRunMillis != null) { b.evictionRunMillis(poolEvictionRunMillis); }
+		if(poolMinEvictableIdleMillis != null) { b.minEvictableIdleMillis(poolMinEvictableIdleMillis); }
+		return b.build();
 	}
 }
@@ -0,0 +1,332 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.connections;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+
+/**
+ * Stores the list of {@link ServerConfig}s in a folder, one record per server, with no limit on the number of servers.
+ * <ul>
+ * <li>servers.snapshot holds every server as of the last compaction.</li>
+ * <li>servers.journal holds every add, update or removal since, each appended as one line so a change costs one small write.</li>
+ * </ul>
+ * Both files start with the same generation id, a journal whose generation does not match the snapshot's
+ * is left over from an interrupted compaction and is ignored as the snapshot already contains its changes.
+ * Snapshots are written to a temporary file then atomically moved into place.
+ * Other processes may share the folder, {@link #reload()} reads only the journal lines appended since the last call
+ * unless another process has compacted. Writes are serialised between processes with a file lock.
+ */
+public class ServerListStore {
+
+	private static final Logger LOG = Logger.getLogger(ServerListStore.class.getName());
+
+	private static final String GEN = "gen";
+	private static final String PUT = "P";
+	private static final String DEL = "D";
+	/** Journal lines allowed beyond the number of servers before the journal is folded into a new snapshot. */
+	private static final int MIN_COMPACT_LINES = 500;
+
+	private final File snapshotFile;
+	private final File journalFile;
+	private final File lockFile;
+
+	/** Server name to its encoded record, as of the last read or write. */
+	private final Map<String, String> records = new LinkedHashMap<>();
+	private String generation = null;
+	/** Position in the journal up to which lines have been applied. */
+	private long journalOffset = 0;
+	private int journalLines = 0;
+	/** Changes made by other processes that were read while writing and are yet to be returned by {@link #reload()}. */
+	private Changes pending = null;
+
+	/** Servers added or updated and names removed since the previous {@link ServerListStore#reload()}. */
+	public static class Changes {
+		/** If true all existing servers should be discarded before applying the puts. */
+		@Getter private boolean fullReload;
+		@Getter private final Map<String, ServerConfig> puts = new LinkedHashMap<>();
+		@Getter private final List<String> removes = new ArrayList<>();
+
+		public boolean isEmpty() { return !fullReload && puts.isEmpty() && removes.isEmpty(); }
+
+		private void put(String name, ServerConfig sc) {
+			removes.remove(name);
+			puts.put(name, sc);
+		}
+
+		private void remove(String name) {
+			puts.remove(name);
+			removes.add(name);
+		}
+	}
+
+	public ServerListStore(File folder) {
+		Preconditions.checkNotNull(folder);
+		this.snapshotFile = new File(folder, "servers.snapshot");
+		this.journalFile = new File(folder, "servers.journal");
+		this.lockFile = new File(folder, "servers.lock");
+	}
+
+	/** @return true if no servers have ever been saved in this store, e.g. before migrating from Preferences. */
+	public boolean isNew() {
+		return !snapshotFile.exists() && !journalFile.exists();
+	}
+
+	/** Delete the store's files, removing every saved server. */
+	public synchronized void wipe() {
+		snapshotFile.delete();
+		journalFile.delete();
+		records.clear();
+		generation = null;
+		journalOffset = 0;
+		journalLines = 0;
+		pending = null;
+	}
+
+	/**
+	 * Read only what has changed on disk since the last call.
+	 * The first call returns every server with {@link Changes#isFullReload()} set.
+	 */
+	public synchronized Changes reload() throws IOException {
+		Changes r = pending == null ? new Changes() : pending;
+		pending = null;
+		readChanges(r);
+		return r;
+	}
+
+	private void readChanges(Changes r) throws IOException {
+		String diskGen = readGeneration(snapshotFile);
+		if(generation == null || !generation.equals(diskGen)) {
+			r.fullReload = true;
+			r.puts.clear();
+			r.removes.clear();
+			records.clear();
+			journalOffset = 0;
+			journalLines = 0;
+			generation = diskGen;
+			if(snapshotFile.exists()) {
+				for(String line : Files.readAllLines(snapshotFile.toPath(), StandardCharsets.UTF_8)) {
+					apply(line, r);
+				}
+			}
+		}
+		if(diskGen != null && diskGen.equals(readGeneration(journalFile))) {
+			readJournal(r);
+		}
+	}
+
+	/** Apply the complete lines appended to the journal after {@link #journalOffset}. */
+	private void readJournal(Changes r) throws IOException {
+		try(RandomAccessFile raf = new RandomAccessFile(journalFile, "r")) {
+			long len = raf.length();
+			if(len < journalOffset) { // truncated by something other than a compaction, start again
+				journalOffset = 0;
+				journalLines = 0;
+			}
+			if(len == journalOffset) {
+				return;
+			}
+			byte[] b = new byte[(int) (len - journalOffset)];
+			raf.seek(journalOffset);
+			raf.readFully(b);
+			int lineStart = 0;
+			for(int i = 0; i < b.length; i++) {
+				if(b[i] == '\n') {
+					String line = new String(b, lineStart, i - lineStart, StandardCharsets.UTF_8);
+					if(!line.startsWith(GEN)) {
+						apply(line, r);
+						journalLines++;
+					}
+					lineStart = i + 1;
+				}
+			}
+			// a partial last line is left to be read once complete
+			journalOffset += lineStart;
+		}
+	}
+
+	private void apply(String line, Changes r) {
+		int tab = line.indexOf('\t');
+		if(tab < 0) {
+			return; // header or blank
+		}
+		String op = line.substring(0, tab);
+		String payload = line.substring(tab + 1);
+		try {
+			if(op.equals(PUT)) {
+				ServerConfig sc = decode(payload);
+				records.put(sc.getName(), payload);
+				r.put(sc.getName(), sc);
+			} else if(op.equals(DEL)) {
+				String name = PreferenceHelper.decode(payload);
+				records.remove(name);
+				r.remove(name);
+			}
+		} catch(IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Skipping unreadable server record: " + line, e);
+		}
+	}
+
+	/**
+	 * Record the servers added or updated and the names removed, each costing one appended line.
+	 * The journal is compacted into a new snapshot once it grows much larger than the number of servers.
+	 */
+	public synchronized void write(Collection<ServerConfig> puts, Collection<String> removes) throws IOException {
+		if(puts.isEmpty() && removes.isEmpty()) {
+			return;
+		}
+		lockFile.getParentFile().mkdirs();
+		try(FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			FileLock lock = lockChannel.lock();
+			try {
+				// pick up anything another process wrote so offsets and records stay accurate
+				Changes other = pending == null ? new Changes() : pending;
+				readChanges(other);
+				pending = other.isEmpty() ? null : other;
+
+				// the first write creates the files, a journal left from an interrupted compaction is replaced
+				if(generation == null || !generation.equals(readGeneration(journalFile))) {
+					writeSnapshot();
+				}
+				StringBuilder sb = new StringBuilder();
+				for(String name : removes) {
+					if(records.remove(name) != null) {
+						sb.append(DEL).append('\t').append(PreferenceHelper.encode(name)).append('\n');
+						if(pending != null) {
+							pending.remove(name);
+						}
+					}
+				}
+				for(ServerConfig sc : puts) {
+					String payload = encode(sc);
+					records.put(sc.getName(), payload);
+					sb.append(PUT).append('\t').append(payload).append('\n');
+					if(pending != null) {
+						pending.put(sc.getName(), sc); // keep a pending full reload complete
+					}
+				}
+				append(sb.toString());
+				if(journalLines > Math.max(MIN_COMPACT_LINES, records.size())) {
+					writeSnapshot();
+				}
+			} finally {
+				lock.release();
+			}
+		}
+	}
+
+	/** Remove every server by writing an empty snapshot, other processes will see the new generation and fully reload. */
+	public synchronized void clear() throws IOException {
+		lockFile.getParentFile().mkdirs();
+		try(FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			FileLock lock = lockChannel.lock();
+			try {
+				records.clear();
+				pending = null;
+				writeSnapshot();
+			} finally {
+				lock.release();
+			}
+		}
+	}
+
+	private void append(String lines) throws IOException {
+		if(lines.isEmpty()) {
+			return;
+		}
+		try(RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+			long len = raf.length();
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			if(len > 0) {
+				raf.seek(len - 1);
+				if(raf.read() != '\n') {
+					bos.write('\n'); // terminate a line left partial by a crash so it is skipped not merged
+				}
+			}
+			bos.write(lines.getBytes(StandardCharsets.UTF_8));
+			raf.seek(len);
+			raf.write(bos.toByteArray());
+			raf.getFD().sync();
+			journalOffset = raf.length();
+		}
+		journalLines += lines.split("\n").length;
+	}
+
+	/** Write every record to a new snapshot and start an empty journal, both with a new generation. */
+	private void writeSnapshot() throws IOException {
+		String gen = UUID.randomUUID().toString();
+		File tmp = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+		try(BufferedWriter w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+			w.write(GEN + "\t" + gen + "\n");
+			for(String payload : records.values()) {
+				w.write(PUT + "\t" + payload + "\n");
+			}
+		}
+		Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		File jtmp = new File(journalFile.getParentFile(), journalFile.getName() + ".tmp");
+		Files.write(jtmp.toPath(), (GEN + "\t" + gen + "\n").getBytes(StandardCharsets.UTF_8));
+		Files.move(jtmp.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		generation = gen;
+		journalOffset = journalFile.length();
+		journalLines = 0;
+	}
+
+	/** @return The generation id from the first line of the file or null if it does not exist. */
+	private static String readGeneration(File f) throws IOException {
+		if(!f.exists()) {
+			return null;
+		}
+		try(RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+			String first = raf.readLine();
+			return first != null && first.startsWith(GEN + "\t") ? first.substring(GEN.length() + 1) : null;
+		}
+	}
+
+	private static String encode(ServerConfig sc) {
+		return PreferenceHelper.encode(ConnectionManager.getConnectionsXml(Collections.singletonList(sc)));
+	}
+
+	private static ServerConfig decode(String payload) throws IOException {
+		List<ServerConfig> l = ConnectionManager.getConnectionsFromXml(PreferenceHelper.decode(payload));
+		if(l.size() != 1) {
+			throw new IOException("expected one server per record");
+		}
+		return l.get(0);
+	}
+}
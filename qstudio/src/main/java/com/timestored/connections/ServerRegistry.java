@@ -0,0 +1,171 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.connections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Immutable snapshot of the servers held by a {@link ConnectionManager}, indexed by name and folder
+ * and kept sorted by name. Changes return a new registry so readers never lock, the sorted view is
+ * updated by merging in the changed servers rather than resorting everything.
+ */
+final class ServerRegistry {
+
+	static final ServerRegistry EMPTY = new ServerRegistry(ImmutableList.of());
+
+	private static final Comparator<ServerConfig> BY_NAME = Comparator.comparing(ServerConfig::getName);
+
+	private final ImmutableList<ServerConfig> sorted;
+	private final ImmutableList<String> names;
+	private final Map<String, ServerConfig> byName;
+	/** folder to the servers directly in that folder, ordered so subfolders follow their parent. */
+	private final NavigableMap<String, List<ServerConfig>> byFolder;
+	private final Set<String> folders;
+	private final boolean containsKdb;
+
+	private ServerRegistry(ImmutableList<ServerConfig> sorted) {
+		this.sorted = sorted;
+		ImmutableList.Builder<String> nb = ImmutableList.builder();
+		Map<String, ServerConfig> m = new HashMap<>(sorted.size() * 2);
+		TreeMap<String, List<ServerConfig>> f = new TreeMap<>();
+		boolean kdb = false;
+		for(ServerConfig sc : sorted) {
+			nb.add(sc.getName());
+			m.put(sc.getName(), sc);
+			f.computeIfAbsent(sc.getFolder(), k -> new ArrayList<>()).add(sc);
+			kdb = kdb || sc.isKDB();
+		}
+		this.names = nb.build();
+		this.byName = m;
+		this.byFolder = Collections.unmodifiableNavigableMap(f);
+		this.folders = f.isEmpty() ? Collections.emptySet() : ImmutableSet.copyOf(f.keySet());
+		this.containsKdb = kdb;
+	}
+
+	/** @return registry of the given servers, if names repeat the last one wins. */
+	static ServerRegistry of(Collection<ServerConfig> servers) {
+		return EMPTY.with(servers, Collections.emptyList());
+	}
+
+	/**
+	 * @param puts Servers to add or to replace the existing server of the same name.
+	 * @param removeNames Names of servers to remove, applied before the puts.
+	 * @return New registry with the changes applied, this one is unchanged.
+	 */
+	ServerRegistry with(Collection<ServerConfig> puts, Collection<String> removeNames) {
+		if(puts.isEmpty() && removeNames.isEmpty()) {
+			return this;
+		}
+		Map<String, ServerConfig> putsByName = new HashMap<>(puts.size() * 2);
+		for(ServerConfig sc : puts) {
+			putsByName.put(sc.getName(), sc);
+		}
+		List<ServerConfig> added = new ArrayList<>(putsByName.values());
+		added.sort(BY_NAME);
+		Set<String> dropped = new HashSet<>(removeNames);
+		dropped.addAll(putsByName.keySet());
+
+		// merge the kept existing servers with the sorted puts, both already in name order
+		ImmutableList.Builder<ServerConfig> b = ImmutableList.builderWithExpectedSize(sorted.size() + added.size());
+		int a = 0;
+		for(ServerConfig sc : sorted) {
+			if(dropped.contains(sc.getName())) {
+				continue;
+			}
+			while(a < added.size() && BY_NAME.compare(added.get(a), sc) < 0) {
+				b.add(added.get(a++));
+			}
+			b.add(sc);
+		}
+		while(a < added.size()) {
+			b.add(added.get(a++));
+		}
+		return new ServerRegistry(b.build());
+	}
+
+	/** @return Server with that name or null if there is none. */
+	ServerConfig get(String name) {
+		return byName.get(name);
+	}
+
+	boolean contains(ServerConfig sc) {
+		return sc != null && sc.equals(byName.get(sc.getName()));
+	}
+
+	/** @return All servers sorted by name. */
+	List<ServerConfig> getSorted() {
+		return sorted;
+	}
+
+	/** @return All server names sorted. */
+	List<String> getNames() {
+		return names;
+	}
+
+	int size() {
+		return sorted.size();
+	}
+
+	boolean containsKdb() {
+		return containsKdb;
+	}
+
+	/** @return Every folder that directly contains a server. */
+	Set<String> getFolders() {
+		return folders;
+	}
+
+	/** @return Servers whose folder starts with the prefix, i.e. in that folder or its subfolders. */
+	List<ServerConfig> getInFolder(String folderPrefix) {
+		List<ServerConfig> r = null;
+		for(Map.Entry<String, List<ServerConfig>> e : byFolder.tailMap(folderPrefix, true).entrySet()) {
+			if(!e.getKey().startsWith(folderPrefix)) {
+				break;
+			}
+			if(r == null) {
+				r = new ArrayList<>();
+			}
+			r.addAll(e.getValue());
+		}
+		return r == null ? Collections.emptyList() : r;
+	}
+
+	@Override public boolean equals(Object o) {
+		return o instanceof ServerRegistry && sorted.equals(((ServerRegistry) o).sorted);
+	}
+
+	@Override public int hashCode() {
+		return sorted.hashCode();
+	}
+
+	@Override public String toString() {
+		return sorted.toString();
+	}
+}
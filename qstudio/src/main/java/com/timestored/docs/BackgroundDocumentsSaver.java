@@ -18,9 +18,15 @@ package com.timestored.docs;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -35,15 +41,22 @@ import lombok.extern.java.Log;
 
 /**
  * Saves a scratch version of the currently open documents on a regular schedule and only when Documents modified. 
+ * Each document has its own {@link ScratchFile} so only documents changed since the last save are written,
+ * usually by appending their edits to a journal. The order of the documents is kept in {@link #ORDER_FILE}.
  */
 @Log public class BackgroundDocumentsSaver implements OpenDocumentsModel.Listener {
 
-	private static final String CONTENT_MARKER = "\r\nCONTENT:\r\n";
-	private static final String PATH_MARKER = "\r\nPATH:\r\n";
+	/** Lists the id of each document's scratch, one per line, in the order the documents are open. */
+	static final String ORDER_FILE = "documents.txt";
 	
 	private final OpenDocumentsModel openDocumentsModel;
 	private final File scratchDir;
 	private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);	 
+	/** Ids are unique to this run so they never clash with scratch files left from previous ones. */
+	private final String idPrefix = Long.toString(System.currentTimeMillis(), 36) + "_";
+	private final Map<Document, ScratchFile> scratches = new IdentityHashMap<Document, ScratchFile>();
+	private List<String> savedOrder = Collections.emptyList();
+	private int idCounter = 0;
 	
 	private Date previousSave = new Date(0);
 	private boolean anyDocModified;
@@ -94,9 +107,9 @@ import lombok.extern.java.Log;
 	}
 
 	@Override public void docCaratModified() { }
-	@Override public void docSaved() { }
-	@Override public void docAdded(Document document) { }
-	@Override public void docClosed(Document document) { }
+	@Override public void docSaved() { docContentModified(); }
+	@Override public void docAdded(Document document) { docContentModified(); }
+	@Override public void docClosed(Document document) { docContentModified(); }
 	@Override public void docSelected(Document document) { }
 	@Override public void folderSelected(File selectedFolder) { }
 	@Override public void ignoredFolderPatternSelected(Pattern ignoredFolderPattern) { }
@@ -104,37 +117,65 @@ import lombok.extern.java.Log;
 
 	/**
 	 * Saves any currently opened files and their modifications to a "scratch" directory
-	 * this directory can later be used to restore the unsaved changes using {@link #restoreDocuments()}
+	 * this directory can later be used to restore the unsaved changes using {@link #restoreDocuments()}.
+	 * Only documents changed since the previous save are written.
 	 */
 	synchronized public void saveDocumentsScratch() {
 		log.log(Level.INFO, "Saving docs to scratch");
-		int i = 0;
-
-		File[] existingFiles = scratchDir.listFiles();
-		if(existingFiles != null) {
-			for(File ef : existingFiles) {
-				ef.delete();
-			}
-		}
 		List<Document> documents = openDocumentsModel.getDocuments();
+		Map<Document, ScratchFile> open = new IdentityHashMap<Document, ScratchFile>();
+		List<String> order = new ArrayList<String>(documents.size());
+		int written = 0;
 		for(Document d : documents) {
-			// generate non-existent name
-			File f = null;
-			do {
-				i++;
-				f = new File(scratchDir, i + "-" + d.getTitle());
-			} while(f.exists() && i++<1000);
-			String firstLine = d.getFilePath() == null ? "" : d.getFilePath();
+			ScratchFile sf = scratches.remove(d);
+			if(sf == null) {
+				sf = new ScratchFile(scratchDir, idPrefix + (++idCounter), d);
+			}
+			open.put(d, sf);
+			order.add(sf.getId());
 			try {
-				StringBuilder sb = new StringBuilder(d.getTitle() + PATH_MARKER + firstLine);;
-				if(d.hasUnsavedChanges()) {
-					sb.append(CONTENT_MARKER).append(d.getContent());	
+				if(sf.save()) {
+					written++;
 				}
-				IOUtils.writeStringToFile(sb.toString(), f);
 			} catch (IOException e) {
 				log.log(Level.SEVERE, "Could not save scratch files.", e);
 			}
 		}
+		for(ScratchFile closed : scratches.values()) {
+			closed.delete();
+		}
+		scratches.clear();
+		scratches.putAll(open);
+
+		if(!order.equals(savedOrder)) {
+			try {
+				File tmp = new File(scratchDir, ORDER_FILE + ".tmp");
+				IOUtils.writeStringToFile(String.join("\n", order), tmp);
+				Files.move(tmp.toPath(), new File(scratchDir, ORDER_FILE).toPath(), 
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				savedOrder = order;
+				deleteUnusedFiles();
+			} catch (IOException e) {
+				log.log(Level.SEVERE, "Could not save scratch files.", e);
+			}
+		}
+		log.fine("Wrote scratch of " + written + " of " + documents.size() + " documents");
+	}
+
+	/** Delete any scratch files from earlier runs and documents since closed. */
+	private void deleteUnusedFiles() {
+		File[] existingFiles = scratchDir.listFiles();
+		if(existingFiles != null) {
+			for(File ef : existingFiles) {
+				boolean used = ef.getName().equals(ORDER_FILE);
+				for(ScratchFile sf : scratches.values()) {
+					used = used || sf.owns(ef);
+				}
+				if(!used) {
+					ef.delete();
+				}
+			}
+		}
 	}
 
 	
@@ -148,53 +189,20 @@ import lombok.extern.java.Log;
 		/*
 		 * Open the previously opened files.
 		 */
-		File[] files = scratchDir.listFiles();
-		List<File> scratchFiles = Collections.emptyList();
-		if(files != null) {
-			scratchFiles = Lists.newArrayList(files);
-		}
-		
-		for(File f : scratchFiles) {
+		File orderFile = new File(scratchDir, ORDER_FILE);
+		if(orderFile.isFile()) {
 			try {
-				String c = IOUtils.toString(f);
-				int pathPos = c.indexOf(PATH_MARKER);
-				int contentPos = c.indexOf(CONTENT_MARKER);
-				if(pathPos > 0) {
-					String title = c.substring(0, pathPos);
-					String path = c.substring(pathPos + PATH_MARKER.length());
-					String content = null;
-					if(contentPos > pathPos) {
-						path = c.substring(pathPos + PATH_MARKER.length(), contentPos);
-						content = c.substring(contentPos + CONTENT_MARKER.length());
+				for(String id : Files.readAllLines(orderFile.toPath(), StandardCharsets.UTF_8)) {
+					ScratchFile.Restored r = id.trim().isEmpty() ? null : ScratchFile.restore(scratchDir, id.trim());
+					if(r != null) {
+						restore(r);
 					}
-					
-					Document d = null;
-					if(path.trim().length() > 0) {
-						log.info("attempting to restore existing known document");
-						File pFile = new File(path);
-						if(pFile.exists() && pFile.canRead()) {
-							try {
-								d = openDocumentsModel.openDocument(pFile);
-								if(content != null) {
-									d.setContent(content);
-								}
-							} catch(IOException ioe) {
-								// ignore, maybe it moved
-							}
-						}
-					} else {
-						d = openDocumentsModel.addDocument();
-						d.setTitle(title);
-						if(content != null) {
-							d.setContent(content);
-						}
-					}
-				} else {
-					log.log(Level.WARNING, "found scratch file I dont know how to restore: " + f.getAbsolutePath());
 				}
 			} catch (IOException e) {
 				log.log(Level.WARNING, "error restoring files from scratch: " + e);
 			}
+		} else {
+			restoreOldScratchFiles();
 		}
 
 		/*
@@ -209,6 +217,51 @@ import lombok.extern.java.Log;
 		}
 	}
 
+	/** Restore scratch files written whole, one per document, by versions before the journal. */
+	private void restoreOldScratchFiles() {
+		File[] files = scratchDir.listFiles();
+		List<File> scratchFiles = Collections.emptyList();
+		if(files != null) {
+			scratchFiles = Lists.newArrayList(files);
+		}
+		
+		for(File f : scratchFiles) {
+			try {
+				ScratchFile.Restored r = ScratchFile.parseSnapshot(IOUtils.toString(f));
+				if(r != null) {
+					restore(r);
+				} else {
+					log.log(Level.WARNING, "found scratch file I dont know how to restore: " + f.getAbsolutePath());
+				}
+			} catch (IOException e) {
+				log.log(Level.WARNING, "error restoring files from scratch: " + e);
+			}
+		}
+	}
+
+	private void restore(ScratchFile.Restored r) {
+		if(r.path.trim().length() > 0) {
+			log.info("attempting to restore existing known document");
+			File pFile = new File(r.path);
+			if(pFile.exists() && pFile.canRead()) {
+				try {
+					Document d = openDocumentsModel.openDocument(pFile);
+					if(r.content != null) {
+						d.setContent(r.content);
+					}
+				} catch(IOException ioe) {
+					// ignore, maybe it moved
+				}
+			}
+		} else {
+			Document d = openDocumentsModel.addDocument();
+			d.setTitle(r.title);
+			if(r.content != null) {
+				d.setContent(r.content);
+			}
+		}
+	}
+
 	public void shutdownNow() {
 		scheduler.shutdownNow();
 	}
@@ -33,7 +33,6 @@ import lombok.Setter;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import com.google.common.base.Preconditions;
-import com.timestored.misc.IOUtils;
 import com.timestored.theme.Icon;
 import com.timestored.theme.Theme;
 
@@ -41,6 +40,8 @@ import com.timestored.theme.Theme;
 
 /**
  * Represents a saveable file with current line, selected text and  saved status.
+ * The text is held in a {@link PieceTable} so that edits, line lookups and saves do not
+ * copy the whole text, which matters for files of many megabytes.
  */
 public class Document {
 
@@ -48,11 +49,17 @@ public class Document {
 	private static AtomicInteger counter = new AtomicInteger(0);
 
 	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private final List<EditListener> editListeners = new CopyOnWriteArrayList<EditListener>();
 	
 	private String title;
 	@Setter private File file = null;
-	private String savedContent = "";
-	private String content = "";
+	private PieceTable savedContent = PieceTable.EMPTY;
+	private PieceTable content = PieceTable.EMPTY;
+	/** Last result of {@link #hasUnsavedChanges()} and the versions it compared as comparing can be slow. */
+	private PieceTable comparedContent = PieceTable.EMPTY;
+	private PieceTable comparedSavedContent = PieceTable.EMPTY;
+	private boolean unsavedChanges = false;
+	private final StatementIndex statements = new StatementIndex();
 	/*** value of currently selected line */
 	private int selectionStart = 0;
 	private int selectionEnd = 0;
@@ -65,22 +72,29 @@ public class Document {
 	
 	public Document(File file) throws IOException {		
 		this.file = Preconditions.checkNotNull(file);
-        content = IOUtils.toString(file, Charset.forName("UTF-8")).replace("\r", "");
+        content = PieceTable.read(file);
         savedContent = content;
 		this.title = file.getName();
 	}
 
 	public void reloadFromFile() throws IOException {
 		if(file != null) {
-	        String s = IOUtils.toString(file, Charset.forName("UTF-8")).replace("\r", "");
-	        setContent(s);
+			PieceTable before = content;
+	        content = PieceTable.read(file);
+	        fireEdited(before, 0, before.length(), content.length());
+	        contentModified();
 		}
 		
 	}
 	
 	/** true if this document has been changed and not saved */
-	public boolean hasUnsavedChanges() {
-		return !savedContent.equals(content);
+	public synchronized boolean hasUnsavedChanges() {
+		if(comparedContent != content || comparedSavedContent != savedContent) {
+			unsavedChanges = !savedContent.contentEquals(content);
+			comparedContent = content;
+			comparedSavedContent = savedContent;
+		}
+		return unsavedChanges;
 	}
 
 	/** true if this document has been changed and not saved */
@@ -127,7 +141,27 @@ public class Document {
 	}
 
 	public String getContent() {
-		return content;
+		return content.toString();
+	}
+
+	/** @return The number of characters in the document. */
+	public int getLength() {
+		return content.length();
+	}
+
+	/** @return The number of lines, one more than the number of newlines. */
+	public int getLineCount() {
+		return content.getLineCount();
+	}
+
+	/** @return Zero based line containing the offset. */
+	public int getLineOfOffset(int offset) {
+		return content.getLineOfOffset(offset);
+	}
+
+	/** @return Offset of the first character of the zero based line. */
+	public int getLineStartOffset(int line) {
+		return content.getLineStartOffset(line);
 	}
 	
 	
@@ -158,20 +192,12 @@ public class Document {
 	 * @return Get the line of text for the current cursor position
 	 */
 	public String getCurrentLine() {
-		final char LS ='\n';
-		int i= Math.max(caretPosition-1, 0);
-		while(i>0 && i<content.length() && content.charAt(i)!=LS) {
-			i--;
-		}
-		int j=Math.min(caretPosition, content.length());
-		while(j<content.length() && content.charAt(j)!=LS) {
-			j++;
-		}
-		return content.substring(i, j).trim();
+		int line = content.getLineOfOffset(Math.min(caretPosition, content.length()));
+		return content.substring(content.getLineStartOffset(line), content.getLineEndOffset(line)).trim();
 	}
 
 	public int[] getCurrentStatementBounds() {
-		return getStatementBounds(content, caretPosition);
+		return statements.getStatementBounds(content, caretPosition);
 	}
 	
 	public String getCurrentStatement() {
@@ -198,81 +224,7 @@ public class Document {
 			return Collections.emptyList();
 		}
 		List<Integer> splitPoints = new ArrayList<>();
-		boolean textFound = false;
-		for(int i=0; i<sqlCode.length(); i++) {
-			char c = sqlCode.charAt(i);
-			char nextC = i < sqlCode.length()-1 ? sqlCode.charAt(i+1) : ' ';
-			switch(c) {
-			case ';': splitPoints.add(i); textFound = false; break;
-			case '-':
-				if(nextC == '-') {
-					i++; i++;
-					while(i<sqlCode.length() && sqlCode.charAt(i) != '\n') {
-						i++;
-					}
-					if(!textFound) {
-						splitPoints.add(i);
-					}
-				} else {
-					textFound = true;
-				}
-				break;
-			case '`':
-				if(nextC == '`' && i<sqlCode.length()-2 && sqlCode.charAt(i+2)=='`') {
-					i++; i++; i++;
-					while(i<sqlCode.length() && sqlCode.charAt(i) != '\n') {
-						i++;
-					}
-					splitPoints.add(i);
-					textFound = false;
-					break;
-				}
-				break;
-			case '/':
-				if(nextC == '*') {
-					i++;
-					for(i++; i<sqlCode.length(); i++) {
-						if(sqlCode.charAt(i-1)=='*' && sqlCode.charAt(i)=='/') {
-							i++;
-							if(!textFound) {
-								splitPoints.add(i);
-							}
-							break;
-						}
-					}
-					//splitPoints.add(i); // break so that running statement within comment does NOT run statement
-				}
-				textFound = true;
-				break;
-			case '\\': // escaping next item
-				i++;
-				textFound = true;
-				break;
-			case '\"':
-			case '\'':
-				textFound = true;
-				char insidec = c;
-				for(i++; i<sqlCode.length(); i++) {
-					boolean notEscaped = i==sqlCode.length() || sqlCode.charAt(i-1) != '\\';
-					c = sqlCode.charAt(i);
-					if((c == insidec) && notEscaped) {
-						break; // find ending and swallow quotations
-					} else if(c == '\n' && notEscaped) {
-						splitPoints.add(i);
-						break;
-					}
-				}
-				break;
-			case '\n':
-			case ' ':
-			case '\r':
-			case '\t':
-				break;
-			default:
-				textFound = true;
-				break;
-			}
-		}
+		StatementIndex.scan(sqlCode, StatementIndex.START, splitPoints::add);
 		return splitPoints;
 	}
 	
@@ -280,25 +232,14 @@ public class Document {
 	 * @return Get text block before the carat, stopping at whitespace.
 	 */
 	public String getTextBeforeCarat() {
-		final char LS ='\n';
-		int i= Math.max(caretPosition-1, 0);
-		while(i>0 && i<content.length() && content.charAt(i)!=LS 
-				&& content.charAt(i)!=' ') {
-			i--;
-		}
-		
-		return content.substring(i, caretPosition).trim();
+		int lineStart = content.getLineStartOffset(content.getLineOfOffset(caretPosition));
+		String s = content.substring(lineStart, caretPosition);
+		return s.substring(s.lastIndexOf(' ') + 1).trim();
 	}
 	
 	public void saveAs(File file, boolean useWindowsLineEndings) throws IOException {
 		try {
-			BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8")));
-			if(useWindowsLineEndings) {
-				bw.write(content.replace("\n", "\r\n"));
-			} else {
-				bw.write(content);
-			}
-			bw.close();
+			write(file, useWindowsLineEndings);
 			this.file = file;
 			title = file.getName();
 			savedContent = content;
@@ -311,7 +252,42 @@ public class Document {
 	}
 
 	public void setContent(String content) {
-		this.content = content.replace("\r", "");
+		String s = content.replace("\r", "");
+		int[] d = PieceTable.diff(getContent(), s);
+		if(d != null) {
+			replace(d[0], d[1], s.substring(d[0], d[2]));
+		}
+		contentModified();
+	}
+
+	/**
+	 * Replace the characters from start to end with text, as an editor does for each insert and remove.
+	 * Unlike {@link #setContent(String)} this does not compare the whole text so costs O(log n).
+	 */
+	public void replaceText(int start, int end, String text) {
+		replace(start, end, text.replace("\r", ""));
+		contentModified();
+	}
+
+	private void replace(int start, int end, String text) {
+		PieceTable before = content;
+		content = before.replace(start, end, text);
+		fireEdited(before, start, end, start + text.length());
+	}
+
+	private void fireEdited(PieceTable before, int start, int end, int newEnd) {
+		statements.edited(before, content, start, end, newEnd);
+		for(EditListener l : editListeners) {
+			l.edited(before, content, start, end, newEnd);
+		}
+	}
+
+	/** @return The current text, an immutable version that later edits do not change. */
+	PieceTable getText() {
+		return content;
+	}
+
+	private void contentModified() {
 		int l = content.length();
 		if(selectionEnd > l) {
 			selectionEnd = l;
@@ -324,14 +300,7 @@ public class Document {
 	
 	public void save(boolean useWindowsLineEndings) throws IOException {
 		try {    
-			OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(file), "UTF8");
-			BufferedWriter bw = new BufferedWriter(osw);
-			if(useWindowsLineEndings) {
-				bw.write(content.replace("\n", "\r\n"));
-			} else {
-				bw.write(content);
-			}
-			bw.close();
+			write(file, useWindowsLineEndings);
 			savedContent = content;
 
 			for(Listener l : listeners) {
@@ -342,6 +311,12 @@ public class Document {
 		}
 	}
 
+	/** Write the content to the file a piece at a time rather than building one string of it. */
+	private void write(File f, boolean useWindowsLineEndings) throws IOException {
+		try(BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), Charset.forName("UTF-8")))) {
+			content.writeTo(bw, useWindowsLineEndings ? "\r\n" : "\n");
+		}
+	}
 
 	public void setSelection(int selectionStart, int selectionEnd, int caretPosition) {
 		Preconditions.checkArgument((selectionStart>=0) 
@@ -374,8 +349,7 @@ public class Document {
 	 */
 	public void insertSelectedText(String text) {
 		String t = text.replace("\r\n", "\n");
-		content = content.substring(0, selectionStart) 
-				+ "\n" + t + content.substring(selectionEnd);
+		replace(selectionStart, selectionEnd, "\n" + t);
 		if(caretPosition > content.length()) {
 			caretPosition = content.length();	
 		}
@@ -388,9 +362,7 @@ public class Document {
 	 * Insert text at current carat position, Without moving carat.
 	 */
 	public void insertText(String text) {
-		content = content.substring(0, selectionEnd) 
-				+ text 
-				+ content.substring(selectionEnd);
+		replace(selectionEnd, selectionEnd, text);
 		notifyListenersContentModified();
 	}
 
@@ -398,17 +370,12 @@ public class Document {
 	 * Move the carat to the start of the next line if there is one.
 	 */
 	public void gotoNextLine() {
-		int i=caretPosition;
-		boolean found = false;
-		while(i<content.length()-1) {
-			if(content.charAt(i)=='\n') {
-				found = true;
-				break;
+		int line = content.getLineOfOffset(Math.min(caretPosition, content.length()));
+		if(line + 1 < content.getLineCount()) {
+			int nextLineStart = content.getLineStartOffset(line + 1);
+			if(nextLineStart < content.length()) {
+				setCaratPosition(nextLineStart);
 			}
-			i++;
-		}
-		if(found) {
-			setCaratPosition(i+1);
 		}
 	}
 	
@@ -429,6 +396,23 @@ public class Document {
 		public void docSaved();
 	}
 
+	/**
+	 * Told of every change to the text as the replace that made it, for keeping a copy in step without comparing.
+	 * Called on the thread making the edit, after the text has changed.
+	 */
+	interface EditListener {
+		/** From start to end of before was replaced, giving after where the new text ends at newEnd. */
+		void edited(PieceTable before, PieceTable after, int start, int end, int newEnd);
+	}
+
+	void addEditListener(EditListener listener) {
+		editListeners.add(listener);
+	}
+
+	void removeEditListener(EditListener listener) {
+		editListeners.remove(listener);
+	}
+
 	public void addListener(Listener listener) {
 		listeners.add(listener);
 	}
@@ -462,7 +446,7 @@ public class Document {
 	}
 
 	public boolean isInMemoryAndEmpty() {
-		return getFilePath() == null && content.trim().isEmpty();
+		return getFilePath() == null && getContent().trim().isEmpty();
 	}
 }
 	
\ No newline at end of file
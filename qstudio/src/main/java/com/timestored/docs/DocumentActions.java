@@ -333,9 +333,8 @@ public class DocumentActions {
     		putValue(Action.ACCELERATOR_KEY, k);
         }
         public void actionPerformed(ActionEvent e) {
-        	int[] startEnd = openDocumentsModel.getSelectedDocument().getCurrentStatementBounds();
+        	int[] bounds = openDocumentsModel.getSelectedDocument().getCurrentStatementBounds();
         	JTextComponent txtc = getTextComponent(e);
-        	int[] bounds = Document.getStatementBounds(txtc.getText(), txtc.getCaretPosition());
         	txtc.setSelectionStart(bounds[0]);
         	txtc.setSelectionEnd(bounds[1]);
         }
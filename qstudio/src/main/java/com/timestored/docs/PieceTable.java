@@ -0,0 +1,466 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.docs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Immutable text held as pieces of the text it was loaded from and of the text inserted since,
+ * so that an edit creates a new version sharing almost everything with the old one rather than copying it.
+ * <p>
+ * The pieces are kept in a persistent treap, a randomly balanced tree, where each node knows the number
+ * of characters and newlines beneath it. Edits, character lookups and converting between offsets and
+ * lines therefore take O(log n). Each chunk of source text indexes its newlines once, when created,
+ * so counting the newlines in part of a piece is a binary search rather than a scan.
+ * <p>
+ * Files of plain ASCII are kept as their bytes rather than as chars, see {@link #read(File)}.
+ */
+final class PieceTable implements CharSequence {
+
+	static final PieceTable EMPTY = new PieceTable(null);
+
+	/** Inserted text shorter than this is joined to the insert before it, so typing does not create a piece per key. */
+	private static final int JOIN_LIMIT = 1024;
+	private static final int BLOCK = 8 * 1024;
+
+	private final Node root;
+
+	private PieceTable(Node root) {
+		this.root = root;
+	}
+
+	/** @return Text of the given characters, which must not change as they are referenced not copied. */
+	static PieceTable of(CharSequence text) {
+		return text.length() == 0 ? EMPTY : new PieceTable(leaf(new Chunk(text, false), 0, text.length()));
+	}
+
+	/**
+	 * Read a UTF-8 file with any carriage returns removed.
+	 * Files that are plain ASCII with no carriage returns, typical of large data scripts and dumps,
+	 * keep the bytes read as their text, one byte per character, rather than decoding and copying them.
+	 */
+	static PieceTable read(File file) throws IOException {
+		byte[] b = Files.readAllBytes(file.toPath());
+		if(isPlainAscii(b)) {
+			return b.length == 0 ? EMPTY : new PieceTable(leaf(new Chunk(new AsciiChars(b, 0, b.length), false), 0, b.length));
+		}
+		return of(new String(b, StandardCharsets.UTF_8).replace("\r", ""));
+	}
+
+	private static boolean isPlainAscii(byte[] b) {
+		for(byte c : b) {
+			if(c < 0 || c == '\r') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override public int length() {
+		return size(root);
+	}
+
+	@Override public char charAt(int index) {
+		Preconditions.checkElementIndex(index, length());
+		Node n = root;
+		int i = index;
+		while(true) {
+			int leftSize = size(n.left);
+			if(i < leftSize) {
+				n = n.left;
+			} else if(i < leftSize + n.len) {
+				return n.chunk.text.charAt(n.start + i - leftSize);
+			} else {
+				i -= leftSize + n.len;
+				n = n.right;
+			}
+		}
+	}
+
+	@Override public CharSequence subSequence(int start, int end) {
+		return substring(start, end);
+	}
+
+	String substring(int start, int end) {
+		Preconditions.checkPositionIndexes(start, end, length());
+		if(start == 0 && end == length()) {
+			return toString();
+		}
+		StringBuilder sb = new StringBuilder(end - start);
+		append(root, start, end, sb);
+		return sb.toString();
+	}
+
+	private static void append(Node n, int start, int end, StringBuilder sb) {
+		if(n == null || start >= end) {
+			return;
+		}
+		int leftSize = size(n.left);
+		if(start < leftSize) {
+			append(n.left, start, Math.min(end, leftSize), sb);
+		}
+		int from = Math.max(start - leftSize, 0);
+		int to = Math.min(end - leftSize, n.len);
+		if(from < to) {
+			sb.append(n.chunk.text, n.start + from, n.start + to);
+		}
+		int rightStart = leftSize + n.len;
+		if(end > rightStart) {
+			append(n.right, Math.max(start - rightStart, 0), end - rightStart, sb);
+		}
+	}
+
+	/** @return The whole text, built on each call rather than kept so the text is not held twice. */
+	@Override public String toString() {
+		StringBuilder sb = new StringBuilder(length());
+		append(root, 0, length(), sb);
+		return sb.toString();
+	}
+
+	/** @return This text with the characters from start to end replaced by text. */
+	PieceTable replace(int start, int end, String text) {
+		Preconditions.checkPositionIndexes(start, end, length());
+		if(start == end && text.isEmpty()) {
+			return this;
+		}
+		Node[] a = split(root, start);
+		Node[] b = split(a[1], end - start);
+		Node left = a[0];
+		if(!text.isEmpty()) {
+			Node last = last(left);
+			if(last != null && last.chunk.isInsert && last.start + last.len == last.chunk.text.length()
+					&& last.chunk.text.length() + text.length() < JOIN_LIMIT) {
+				// typing, continue the previous insert rather than adding a piece per key
+				Chunk joined = new Chunk(last.chunk.text.toString() + text, true);
+				left = merge(split(left, size(left) - last.len)[0], leaf(joined, last.start, last.len + text.length()));
+			} else {
+				left = merge(left, leaf(new Chunk(text, true), 0, text.length()));
+			}
+		}
+		Node r = merge(left, b[1]);
+		if(r == null) {
+			return EMPTY;
+		}
+		return new PieceTable(r);
+	}
+
+	/**
+	 * @return The single replace that turns cur into text, what lies between their common start and end,
+	 * 	as the start, the end in cur and the end in text, or null if they are equal.
+	 */
+	static int[] diff(String cur, String text) {
+		int curLen = cur.length();
+		int newLen = text.length();
+		int maxPrefix = Math.min(curLen, newLen);
+		int prefix = 0;
+		while(prefix < maxPrefix && cur.charAt(prefix) == text.charAt(prefix)) {
+			prefix++;
+		}
+		if(prefix == curLen && prefix == newLen) {
+			return null;
+		}
+		int suffix = 0;
+		int maxSuffix = maxPrefix - prefix;
+		while(suffix < maxSuffix && cur.charAt(curLen - 1 - suffix) == text.charAt(newLen - 1 - suffix)) {
+			suffix++;
+		}
+		return new int[] { prefix, curLen - suffix, newLen - suffix };
+	}
+
+	/** @return true if both hold the same characters, cheap if one is an unchanged version of the other. */
+	boolean contentEquals(PieceTable o) {
+		if(root == o.root) {
+			return true;
+		} else if(length() != o.length() || lines(root) != lines(o.root)) {
+			return false;
+		}
+		for(int p = 0; p < length(); p += BLOCK) {
+			int e = Math.min(p + BLOCK, length());
+			if(!substring(p, e).equals(o.substring(p, e))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return The number of lines, one more than the number of newlines. */
+	int getLineCount() {
+		return lines(root) + 1;
+	}
+
+	/** @return Zero based line containing offset, i.e. the number of newlines before it. */
+	int getLineOfOffset(int offset) {
+		Preconditions.checkPositionIndex(offset, length());
+		int line = 0;
+		Node n = root;
+		int p = offset;
+		while(n != null) {
+			int leftSize = size(n.left);
+			if(p <= leftSize) {
+				n = n.left;
+			} else {
+				line += lines(n.left);
+				p -= leftSize;
+				if(p <= n.len) {
+					return line + n.chunk.countNewlines(n.start, n.start + p);
+				}
+				line += n.nl;
+				p -= n.len;
+				n = n.right;
+			}
+		}
+		return line;
+	}
+
+	/** @return Offset of the first character of the zero based line. */
+	int getLineStartOffset(int line) {
+		Preconditions.checkElementIndex(line, getLineCount());
+		if(line == 0) {
+			return 0;
+		}
+		// find the line'th newline
+		int k = line;
+		int offset = 0;
+		Node n = root;
+		while(true) {
+			int leftLines = lines(n.left);
+			if(k <= leftLines) {
+				n = n.left;
+			} else {
+				k -= leftLines;
+				offset += size(n.left);
+				if(k <= n.nl) {
+					return offset + n.chunk.nthNewline(n.start, k - 1) - n.start + 1;
+				}
+				k -= n.nl;
+				offset += n.len;
+				n = n.right;
+			}
+		}
+	}
+
+	/** @return Offset of the newline ending the zero based line or the length for the last line. */
+	int getLineEndOffset(int line) {
+		return line + 1 < getLineCount() ? getLineStartOffset(line + 1) - 1 : length();
+	}
+
+	/** Write the text a piece at a time, without building it whole, with each newline written as lineSeparator. */
+	void writeTo(Writer w, String lineSeparator) throws IOException {
+		boolean convert = !lineSeparator.equals("\n");
+		writeTo(root, w, convert ? lineSeparator : null);
+	}
+
+	private static void writeTo(Node n, Writer w, String lineSeparator) throws IOException {
+		if(n == null) {
+			return;
+		}
+		writeTo(n.left, w, lineSeparator);
+		int end = n.start + n.len;
+		if(lineSeparator == null) {
+			write(w, n.chunk.text, n.start, end);
+		} else {
+			int p = n.start;
+			for(int i = 0; i < n.nl; i++) {
+				int nlPos = n.chunk.nthNewline(n.start, i);
+				write(w, n.chunk.text, p, nlPos);
+				w.write(lineSeparator);
+				p = nlPos + 1;
+			}
+			write(w, n.chunk.text, p, end);
+		}
+		writeTo(n.right, w, lineSeparator);
+	}
+
+	private static void write(Writer w, CharSequence cs, int start, int end) throws IOException {
+		if(cs instanceof String) {
+			w.write((String) cs, start, end - start);
+			return;
+		}
+		char[] buf = new char[Math.min(BLOCK, end - start)];
+		for(int p = start; p < end;) {
+			int len = Math.min(buf.length, end - p);
+			for(int i = 0; i < len; i++) {
+				buf[i] = cs.charAt(p + i);
+			}
+			w.write(buf, 0, len);
+			p += len;
+		}
+	}
+
+
+	/*
+	 * Treap of pieces
+	 *********************************************************/
+
+	/** Source text with the position of every newline in it. */
+	private static final class Chunk {
+		private final CharSequence text;
+		private final int[] newlines;
+		/** true if this is text inserted by an edit rather than the text initially loaded. */
+		private final boolean isInsert;
+
+		Chunk(CharSequence text, boolean isInsert) {
+			this.text = text;
+			this.isInsert = isInsert;
+			int count = 0;
+			for(int i = 0; i < text.length(); i++) {
+				if(text.charAt(i) == '\n') {
+					count++;
+				}
+			}
+			newlines = new int[count];
+			int j = 0;
+			for(int i = 0; j < count; i++) {
+				if(text.charAt(i) == '\n') {
+					newlines[j++] = i;
+				}
+			}
+		}
+
+		int countNewlines(int start, int end) {
+			return lowerBound(end) - lowerBound(start);
+		}
+
+		/** @return Position of the k'th, zero based, newline at or after start. */
+		int nthNewline(int start, int k) {
+			return newlines[lowerBound(start) + k];
+		}
+
+		/** @return Index of the first newline at or after pos. */
+		private int lowerBound(int pos) {
+			int i = Arrays.binarySearch(newlines, pos);
+			return i >= 0 ? i : -i - 1;
+		}
+	}
+
+	/** A piece, the text of a chunk from start for len characters, with the totals for its subtree. */
+	private static final class Node {
+		private final Chunk chunk;
+		private final int start;
+		private final int len;
+		private final int nl;
+		private final int priority;
+		private final Node left;
+		private final Node right;
+		private final int size;
+		private final int lines;
+
+		Node(Chunk chunk, int start, int len, int nl, int priority, Node left, Node right) {
+			this.chunk = chunk;
+			this.start = start;
+			this.len = len;
+			this.nl = nl;
+			this.priority = priority;
+			this.left = left;
+			this.right = right;
+			this.size = size(left) + len + size(right);
+			this.lines = lines(left) + nl + lines(right);
+		}
+
+		Node with(Node left, Node right) {
+			return left == this.left && right == this.right ? this : new Node(chunk, start, len, nl, priority, left, right);
+		}
+	}
+
+	private static Node leaf(Chunk chunk, int start, int len) {
+		int nl = chunk.countNewlines(start, start + len);
+		return new Node(chunk, start, len, nl, ThreadLocalRandom.current().nextInt(), null, null);
+	}
+
+	private static int size(Node n) {
+		return n == null ? 0 : n.size;
+	}
+
+	private static int lines(Node n) {
+		return n == null ? 0 : n.lines;
+	}
+
+	private static Node last(Node n) {
+		while(n != null && n.right != null) {
+			n = n.right;
+		}
+		return n;
+	}
+
+	/** @return All of a followed by all of b. */
+	private static Node merge(Node a, Node b) {
+		if(a == null) {
+			return b;
+		} else if(b == null) {
+			return a;
+		} else if(a.priority > b.priority) {
+			return a.with(a.left, merge(a.right, b));
+		}
+		return b.with(merge(a, b.left), b.right);
+	}
+
+	/** @return The first pos characters and the rest, splitting a piece if pos falls within it. */
+	private static Node[] split(Node n, int pos) {
+		if(n == null) {
+			return new Node[] { null, null };
+		}
+		int leftSize = size(n.left);
+		if(pos <= leftSize) {
+			Node[] s = split(n.left, pos);
+			return new Node[] { s[0], n.with(s[1], n.right) };
+		} else if(pos >= leftSize + n.len) {
+			Node[] s = split(n.right, pos - leftSize - n.len);
+			return new Node[] { n.with(n.left, s[0]), s[1] };
+		}
+		int k = pos - leftSize;
+		return new Node[] { merge(n.left, leaf(n.chunk, n.start, k)),
+				merge(leaf(n.chunk, n.start + k, n.len - k), n.right) };
+	}
+
+	/** Characters of a file that is plain ASCII, one byte per character. */
+	private static final class AsciiChars implements CharSequence {
+		private final byte[] bytes;
+		private final int offset;
+		private final int length;
+
+		AsciiChars(byte[] bytes, int offset, int length) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override public int length() {
+			return length;
+		}
+
+		@Override public char charAt(int index) {
+			return (char) bytes[offset + index];
+		}
+
+		@Override public CharSequence subSequence(int start, int end) {
+			Preconditions.checkPositionIndexes(start, end, length);
+			return new AsciiChars(bytes, offset + start, end - start);
+		}
+
+		@Override public String toString() {
+			return new String(bytes, offset, length, StandardCharsets.US_ASCII);
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.docs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.timestored.misc.IOUtils;
+
+/**
+ * The scratch copy of one open {@link Document}, a snapshot of its title, path and, if it has unsaved
+ * changes, content followed by a journal of the edits made since. Edits are recorded as they happen
+ * and only appended to the journal when {@link #save()} is called, which writes nothing if the
+ * document is unchanged. Once the journal grows larger than the snapshot a new snapshot is written.
+ * <p>
+ * Each snapshot has a generation in its name, id.generation.snapshot, and its journal the same,
+ * so a journal is never applied to the wrong snapshot. Snapshots are written to a temporary file
+ * that is then moved into place and the previous generation deleted, so a crash leaves either.
+ * A journal entry only partly written by a crash is ignored when restoring.
+ */
+class ScratchFile implements Document.EditListener {
+
+	private static final Logger LOG = Logger.getLogger(ScratchFile.class.getName());
+
+	static final String CONTENT_MARKER = "\r\nCONTENT:\r\n";
+	static final String PATH_MARKER = "\r\nPATH:\r\n";
+	static final String SNAPSHOT = ".snapshot";
+	static final String JOURNAL = ".journal";
+
+	/** Edits inserting more than this many characters cause a snapshot rather than a journal entry. */
+	private static final int MAX_EDIT_LENGTH = 64 * 1024;
+	/** Journals are kept until larger than this or the snapshot, whichever is bigger. */
+	private static final long MIN_COMPACT_LENGTH = 64 * 1024;
+
+	private final File dir;
+	private final String id;
+	private final Document document;
+
+	/** Generation of the current snapshot, 0 if none written yet. */
+	private int generation = 0;
+	private String title;
+	private String path;
+	private boolean withContent;
+	/** Text held by the snapshot and journal, the point edits must follow on from to be journaled. */
+	private PieceTable base;
+	private long snapshotLength;
+	private long journalLength;
+
+	/** Edits made since the last save, guarded by this. */
+	private final List<Edit> pending = new ArrayList<Edit>();
+
+	/** A replace of start to end of before by text giving after, text is null if too long to journal. */
+	private static final class Edit {
+		private final PieceTable before;
+		private final PieceTable after;
+		private final int start;
+		private final int end;
+		private final String text;
+
+		Edit(PieceTable before, PieceTable after, int start, int end, String text) {
+			this.before = before;
+			this.after = after;
+			this.start = start;
+			this.end = end;
+			this.text = text;
+		}
+	}
+
+	/** The parts of a restored scratch document. */
+	static final class Restored {
+		final String title;
+		final String path;
+		/** Content or null if the document had no unsaved changes. */
+		final String content;
+
+		Restored(String title, String path, String content) {
+			this.title = title;
+			this.path = path;
+			this.content = content;
+		}
+	}
+
+	/** Start keeping a scratch copy of the document, nothing is written until {@link #save()}. */
+	ScratchFile(File dir, String id, Document document) {
+		this.dir = dir;
+		this.id = id;
+		this.document = document;
+		document.addEditListener(this);
+	}
+
+	String getId() {
+		return id;
+	}
+
+	Document getDocument() {
+		return document;
+	}
+
+	@Override public synchronized void edited(PieceTable before, PieceTable after, int start, int end, int newEnd) {
+		String text = newEnd - start <= MAX_EDIT_LENGTH ? after.substring(start, newEnd) : null;
+		Edit last = pending.isEmpty() ? null : pending.get(pending.size() - 1);
+		if(last != null && last.after == before && last.text != null && text != null
+				&& start == end && start == last.start + last.text.length()) {
+			// typing, extend the previous insert
+			pending.set(pending.size() - 1, new Edit(last.before, after, last.start, last.end, last.text + text));
+		} else {
+			pending.add(new Edit(before, after, start, end, text));
+		}
+	}
+
+	/**
+	 * Write any changes since the last save, journaling the edits if possible, otherwise a new snapshot.
+	 * @return true if anything was written.
+	 */
+	boolean save() throws IOException {
+		List<Edit> edits;
+		PieceTable current;
+		synchronized (this) {
+			edits = new ArrayList<Edit>(pending);
+			pending.clear();
+			current = document.getText();
+		}
+		String t = document.getTitle();
+		String p = document.getFilePath() == null ? "" : document.getFilePath();
+		boolean dirty = document.hasUnsavedChanges();
+		boolean snapshot = generation == 0 || !t.equals(title) || !p.equals(path) || dirty != withContent;
+		if(!snapshot && dirty) {
+			// edits before the base are already in the snapshot, an edit may arrive after its text was read
+			List<Edit> journal = new ArrayList<Edit>(edits.size());
+			PieceTable b = base;
+			for(Edit e : edits) {
+				if(e.before == b) {
+					if(e.text == null) {
+						snapshot = true;
+						break;
+					}
+					journal.add(e);
+					b = e.after;
+				}
+			}
+			if(!snapshot && !journal.isEmpty()) {
+				appendJournal(journal);
+				base = b;
+				snapshot = journalLength > Math.max(MIN_COMPACT_LENGTH, snapshotLength);
+				if(!snapshot) {
+					return true;
+				}
+			}
+		}
+		if(snapshot) {
+			writeSnapshot(t, p, dirty, current);
+		}
+		return snapshot;
+	}
+
+	private void appendJournal(List<Edit> edits) throws IOException {
+		File f = new File(dir, id + "." + generation + JOURNAL);
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f, true)))) {
+			for(Edit e : edits) {
+				byte[] b = e.text.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(e.start);
+				out.writeInt(e.end);
+				out.writeInt(b.length);
+				out.write(b);
+				journalLength += 12 + b.length;
+			}
+		}
+	}
+
+	private void writeSnapshot(String t, String p, boolean dirty, PieceTable current) throws IOException {
+		int gen = generation + 1;
+		File f = new File(dir, id + "." + gen + SNAPSHOT);
+		File tmp = new File(dir, id + "." + gen + SNAPSHOT + ".tmp");
+		try {
+			try(Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+				w.write(t + PATH_MARKER + p);
+				if(dirty) {
+					w.write(CONTENT_MARKER);
+					current.writeTo(w, "\n");
+				}
+			}
+			Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmp.delete();
+		}
+		deleteGeneration(generation);
+		generation = gen;
+		title = t;
+		path = p;
+		withContent = dirty;
+		base = current;
+		snapshotLength = dirty ? current.length() : 0;
+		journalLength = 0;
+	}
+
+	/** Stop following the document and delete its scratch files. */
+	void delete() {
+		document.removeEditListener(this);
+		deleteGeneration(generation);
+	}
+
+	private void deleteGeneration(int gen) {
+		if(gen > 0) {
+			new File(dir, id + "." + gen + SNAPSHOT).delete();
+			new File(dir, id + "." + gen + JOURNAL).delete();
+		}
+	}
+
+	/** @return true if the file belongs to the current generation of this scratch. */
+	boolean owns(File f) {
+		String prefix = id + "." + generation;
+		return f.getName().equals(prefix + SNAPSHOT) || f.getName().equals(prefix + JOURNAL);
+	}
+
+	/** @return The document in the latest snapshot with the given id plus its journal, or null if there is none. */
+	static Restored restore(File dir, String id) throws IOException {
+		int gen = 0;
+		File[] files = dir.listFiles();
+		for(File f : files == null ? new File[0] : files) {
+			String n = f.getName();
+			if(n.startsWith(id + ".") && n.endsWith(SNAPSHOT)) {
+				try {
+					gen = Math.max(gen, Integer.parseInt(n.substring(id.length() + 1, n.length() - SNAPSHOT.length())));
+				} catch(NumberFormatException e) {
+					// not one of ours
+				}
+			}
+		}
+		if(gen == 0) {
+			return null;
+		}
+		Restored r = parseSnapshot(IOUtils.toString(new File(dir, id + "." + gen + SNAPSHOT)));
+		File journal = new File(dir, id + "." + gen + JOURNAL);
+		if(r == null || r.content == null || !journal.isFile()) {
+			return r;
+		}
+		StringBuilder sb = new StringBuilder(r.content);
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+			while(true) {
+				int start = in.readInt();
+				int end = in.readInt();
+				byte[] b = new byte[in.readInt()];
+				in.readFully(b);
+				if(start < 0 || start > end || end > sb.length()) {
+					LOG.warning("Ignoring invalid scratch journal entry in " + journal);
+					break;
+				}
+				sb.replace(start, end, new String(b, StandardCharsets.UTF_8));
+			}
+		} catch(EOFException e) {
+			// end of the journal or an entry only partly written
+		} catch(IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Could not read all of scratch journal " + journal, e);
+		}
+		return new Restored(r.title, r.path, sb.toString());
+	}
+
+	/** @return The title, path and content of a snapshot or scratch file or null if it is not one. */
+	static Restored parseSnapshot(String c) {
+		int pathPos = c.indexOf(PATH_MARKER);
+		int contentPos = c.indexOf(CONTENT_MARKER);
+		if(pathPos > 0) {
+			String title = c.substring(0, pathPos);
+			String path = c.substring(pathPos + PATH_MARKER.length());
+			String content = null;
+			if(contentPos > pathPos) {
+				path = c.substring(pathPos + PATH_MARKER.length(), contentPos);
+				content = c.substring(contentPos + CONTENT_MARKER.length());
+			}
+			return new Restored(title, path, content);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.docs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Index of the points that split a {@link Document} into SQL statements, see
+ * {@link Document#getSqlStatementSplitpoints(String)}, kept up to date as the document is edited.
+ * <p>
+ * The state of the lexer, whether inside a block comment or quote and whether the statement has
+ * text yet, is recorded at the start of every line along with the split points found on that line.
+ * An edit re-lexes only the lines it touched and then continues until a line is reached whose
+ * recorded start state is unchanged, as everything from there on lexes exactly as before.
+ * Split points are held relative to their line so lines after an edit need no change.
+ * <p>
+ * Finding the statement around the caret is a line lookup, O(log n), followed by a walk to the
+ * nearest lines with split points, so its cost does not grow with the size of the document.
+ * The index is built when first asked for and rebuilt if the document changes without it being told.
+ */
+final class StatementIndex implements Document.EditListener {
+
+	private static final int NORMAL = 0;
+	private static final int BLOCK_COMMENT = 1;
+	private static final int SINGLE_QUOTE = 2;
+	private static final int DOUBLE_QUOTE = 3;
+	private static final int MODE_MASK = 3;
+	/** Flag set once the current statement contains something other than whitespace and comments. */
+	private static final int TEXT_FOUND = 4;
+	/** State at the start of a document. */
+	static final int START = NORMAL;
+
+	/** Text that lines were built from, null if not built. */
+	private PieceTable text;
+	private List<Line> lines;
+
+	private static final class Line {
+		private final int state;
+		private final int endState;
+		/** Split points relative to the start of the line. */
+		private final int[] splits;
+
+		Line(int state, int endState, int[] splits) {
+			this.state = state;
+			this.endState = endState;
+			this.splits = splits;
+		}
+	}
+
+	/**
+	 * Update the index for an edit that replaced from start to oldEnd of before, giving after in which
+	 * the replacement ends at newEnd. If the index is not for before it is discarded.
+	 */
+	@Override public synchronized void edited(PieceTable before, PieceTable after, int start, int oldEnd, int newEnd) {
+		if(lines == null) {
+			return;
+		} else if(text != before) {
+			text = null;
+			lines = null;
+			return;
+		}
+		int first = before.getLineOfOffset(start);
+		int oldLast = before.getLineOfOffset(oldEnd);
+		int newLast = after.getLineOfOffset(newEnd);
+		int state = lines.get(first).state;
+		List<Line> relexed = new ArrayList<Line>(newLast - first + 1);
+		for(int l = first; l <= newLast; l++) {
+			Line line = lex(after, l, state);
+			relexed.add(line);
+			state = line.endState;
+		}
+		lines.subList(first, oldLast + 1).clear();
+		lines.addAll(first, relexed);
+		// later lines are unchanged text, re-lex until one starts in the state it did before
+		for(int l = newLast + 1; l < lines.size() && lines.get(l).state != state; l++) {
+			Line line = lex(after, l, state);
+			lines.set(l, line);
+			state = line.endState;
+		}
+		text = after;
+	}
+
+	/** @return Start and end of the statement containing caretPosition, see {@link Document#getStatementBounds(String, int)}. */
+	synchronized int[] getStatementBounds(PieceTable t, int caretPosition) {
+		if(text != t) {
+			build(t);
+		}
+		int len = t.length();
+		int caretLine = t.getLineOfOffset(Math.min(Math.max(caretPosition, 0), len));
+		int caretLineStart = t.getLineStartOffset(caretLine);
+
+		int end = len;
+		int[] splits = lines.get(caretLine).splits;
+		int i = 0;
+		while(i < splits.length && caretLineStart + splits[i] < caretPosition) {
+			i++;
+		}
+		if(i < splits.length) {
+			end = caretLineStart + splits[i];
+		} else {
+			for(int l = caretLine + 1; l < lines.size(); l++) {
+				if(lines.get(l).splits.length > 0) {
+					end = t.getLineStartOffset(l) + lines.get(l).splits[0];
+					break;
+				}
+			}
+		}
+
+		int start = 0;
+		if(i > 0) {
+			start = caretLineStart + splits[i - 1] + 1;
+		} else {
+			for(int l = caretLine - 1; l >= 0; l--) {
+				int[] s = lines.get(l).splits;
+				if(s.length > 0) {
+					start = t.getLineStartOffset(l) + s[s.length - 1] + 1;
+					break;
+				}
+			}
+		}
+		return new int[] { start, end };
+	}
+
+	private void build(PieceTable t) {
+		int lineCount = t.getLineCount();
+		List<Line> ls = new ArrayList<Line>(lineCount);
+		int state = START;
+		for(int l = 0; l < lineCount; l++) {
+			Line line = lex(t, l, state);
+			ls.add(line);
+			state = line.endState;
+		}
+		lines = ls;
+		text = t;
+	}
+
+	/** @return The lexed line, including its newline, starting in the given state. */
+	private static Line lex(PieceTable t, int line, int state) {
+		int start = t.getLineStartOffset(line);
+		int end = line + 1 < t.getLineCount() ? t.getLineStartOffset(line + 1) : t.length();
+		List<Integer> splits = new ArrayList<Integer>(1);
+		int endState = scan(t.substring(start, end), state, splits::add);
+		int[] s = new int[splits.size()];
+		for(int i = 0; i < s.length; i++) {
+			s[i] = splits.get(i);
+		}
+		return new Line(state, endState, s);
+	}
+
+	/**
+	 * Find the split points of sqlCode when lexing starts in the given state.
+	 * Statements are split at semicolons, at the end of comments that precede any text,
+	 * at lines starting with ``` and at a newline ending an unterminated quote.
+	 * @param splits Receives each split point in order.
+	 * @return The state at the end of sqlCode, to continue lexing from.
+	 */
+	static int scan(CharSequence sqlCode, int state, IntConsumer splits) {
+		int len = sqlCode.length();
+		boolean textFound = (state & TEXT_FOUND) != 0;
+		int i = 0;
+		// continue a block comment or quote from a previous line
+		int mode = state & MODE_MASK;
+		if(mode == BLOCK_COMMENT) {
+			i = endOfBlockComment(sqlCode, 0, textFound, splits);
+			if(i < 0) {
+				return state;
+			}
+			textFound = true;
+			i++;
+		} else if(mode != NORMAL) {
+			i = endOfQuote(sqlCode, 0, mode == SINGLE_QUOTE ? '\'' : '\"', splits);
+			if(i < 0) {
+				return state;
+			}
+			i++;
+		}
+
+		for(; i<len; i++) {
+			char c = sqlCode.charAt(i);
+			char nextC = i < len-1 ? sqlCode.charAt(i+1) : ' ';
+			switch(c) {
+			case ';': splits.accept(i); textFound = false; break;
+			case '-':
+				if(nextC == '-') {
+					i++; i++;
+					while(i<len && sqlCode.charAt(i) != '\n') {
+						i++;
+					}
+					if(!textFound) {
+						splits.accept(i);
+					}
+				} else {
+					textFound = true;
+				}
+				break;
+			case '`':
+				if(nextC == '`' && i<len-2 && sqlCode.charAt(i+2)=='`') {
+					i++; i++; i++;
+					while(i<len && sqlCode.charAt(i) != '\n') {
+						i++;
+					}
+					splits.accept(i);
+					textFound = false;
+					break;
+				}
+				break;
+			case '/':
+				if(nextC == '*') {
+					i = endOfBlockComment(sqlCode, i + 2, textFound, splits);
+					if(i < 0) {
+						return BLOCK_COMMENT | (textFound ? TEXT_FOUND : 0);
+					}
+					// break so that running statement within comment does NOT run statement
+				}
+				textFound = true;
+				break;
+			case '\\': // escaping next item
+				i++;
+				textFound = true;
+				break;
+			case '\"':
+			case '\'':
+				textFound = true;
+				i = endOfQuote(sqlCode, i + 1, c, splits);
+				if(i < 0) {
+					return (c == '\'' ? SINGLE_QUOTE : DOUBLE_QUOTE) | TEXT_FOUND;
+				}
+				break;
+			case '\n':
+			case ' ':
+			case '\r':
+			case '\t':
+				break;
+			default:
+				textFound = true;
+				break;
+			}
+		}
+		return NORMAL | (textFound ? TEXT_FOUND : 0);
+	}
+
+	/** @return Position just after the closing star slash, which is a split point if no text was found, or -1 if none. */
+	private static int endOfBlockComment(CharSequence sqlCode, int from, boolean textFound, IntConsumer splits) {
+		for(int i = from; i < sqlCode.length(); i++) {
+			if(i > 0 && sqlCode.charAt(i-1)=='*' && sqlCode.charAt(i)=='/') {
+				i++;
+				if(!textFound) {
+					splits.accept(i);
+				}
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** @return Position of the closing quote or of an unescaped newline, which is a split point, or -1 if neither. */
+	private static int endOfQuote(CharSequence sqlCode, int from, char quote, IntConsumer splits) {
+		for(int i = from; i < sqlCode.length(); i++) {
+			boolean notEscaped = i == 0 || sqlCode.charAt(i-1) != '\\';
+			char c = sqlCode.charAt(i);
+			if((c == quote) && notEscaped) {
+				return i; // find ending and swallow quotations
+			} else if(c == '\n' && notEscaped) {
+				splits.accept(i);
+				return i;
+			}
+		}
+		return -1;
+	}
+}
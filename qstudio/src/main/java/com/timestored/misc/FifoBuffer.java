@@ -36,18 +36,22 @@ public class FifoBuffer<E> {
 		this.linkList = new LinkedList<E>();
 	}
 
-	public void addAll(Collection<E> items) {
+	/** @return true if any item was not already in the buffer. */
+	public boolean addAll(Collection<E> items) {
+		boolean added = false;
 		for(E e : items) {
-			this.add(e);
+			added |= this.add(e);
 		}
+		return added;
 	}
 
 	/**
 	 * Add e to buffer, removing thelast entry to make room if needed.
 	 * If e already in buffer it will be moved to front and
 	 * and no other items will be evicted.
+	 * @return true if e was not already in the buffer.
 	 */
-	public void add(E e) {
+	public boolean add(E e) {
 		int p = linkList.lastIndexOf(e);
 		// not already in it and need to make room
 		if(p==-1) {
@@ -59,6 +63,7 @@ public class FifoBuffer<E> {
 			linkList.remove(p);
 		}
 		linkList.addFirst(e);
+		return p == -1;
 	}
 
 	public List<E> getAll() {
@@ -192,11 +192,13 @@ public class AutoCompleteDialog extends JDialog {
 
 			Document doc = editorPane.getDocument();
 			try {
-				String newText = doc.getText(0, prevDot) + suggestion.getTextInsert() 
+				int insertPos = prevDot - suggestion.getReplaceLength();
+				String newText = doc.getText(0, insertPos) + suggestion.getTextInsert() 
 						+ doc.getText(prevDot, doc.getLength()-prevDot);
 				editorPane.setText(newText);
-				editorPane.setSelectionStart(prevDot+suggestion.getSelectionStart());
-				editorPane.setSelectionEnd(prevDot+suggestion.getSelectionEnd());
+				editorPane.setSelectionStart(insertPos+suggestion.getSelectionStart());
+				editorPane.setSelectionEnd(insertPos+suggestion.getSelectionEnd());
+				documentedEntityMatcher.recordUsage(documentedEntity);
 			} catch (BadLocationException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
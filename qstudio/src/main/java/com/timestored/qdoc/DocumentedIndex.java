@@ -0,0 +1,321 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qdoc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Immutable index of {@link DocumentedEntity}s by name for autocompletion.
+ * <p>
+ * Prefix lookups binary search the names held sorted, a flattened trie, and return a view of the
+ * matching range so cost does not grow with the number of matches. Fuzzy lookups narrow to the names
+ * sharing the query's namespace and first letter the same way, then match the rest of the query as a
+ * subsequence, so "gtn" or "gTN" finds "getTableNames". Each name carries a bit signature of the
+ * characters it contains so most non matches are rejected without being looked at.
+ */
+final class DocumentedIndex {
+
+	static final DocumentedIndex EMPTY = of(Collections.emptyList(), false);
+
+	/** An entity and its matching key, sorted by key then name. */
+	private static final Comparator<Keyed> ORDER = Comparator.<Keyed,String>comparing(k -> k.key)
+			.thenComparing(k -> k.de.getDocName());
+
+	/** The list the index was built from in its original order, to tell if a refetch changed anything. */
+	private final Object[] source;
+	private final boolean ignoreCasing;
+	/** Entities sorted by key then name. */
+	private final List<DocumentedEntity> sorted;
+	/** The name used for matching of each entry in sorted, lower cased if ignoring case. */
+	private final String[] keys;
+	private final long[] signatures;
+
+	private static final class Keyed {
+		private final String key;
+		private final DocumentedEntity de;
+
+		Keyed(String key, DocumentedEntity de) {
+			this.key = key;
+			this.de = de;
+		}
+	}
+
+	private DocumentedIndex(Object[] source, boolean ignoreCasing, DocumentedEntity[] sorted, String[] keys, long[] signatures) {
+		this.source = source;
+		this.ignoreCasing = ignoreCasing;
+		this.sorted = Collections.unmodifiableList(Arrays.asList(sorted));
+		this.keys = keys;
+		this.signatures = signatures;
+	}
+
+	static DocumentedIndex of(List<? extends DocumentedEntity> docs, boolean ignoreCasing) {
+		Object[] source = docs.toArray();
+		Keyed[] ks = keyed(Arrays.asList(source), ignoreCasing);
+		int n = ks.length;
+		DocumentedEntity[] s = new DocumentedEntity[n];
+		String[] keys = new String[n];
+		long[] signatures = new long[n];
+		for(int i = 0; i < n; i++) {
+			s[i] = ks[i].de;
+			keys[i] = ks[i].key;
+			signatures[i] = signature(keys[i]);
+		}
+		return new DocumentedIndex(source, ignoreCasing, s, keys, signatures);
+	}
+
+	/** @return The entities with their keys sorted. */
+	private static Keyed[] keyed(Collection<?> docs, boolean ignoreCasing) {
+		Keyed[] ks = new Keyed[docs.size()];
+		int i = 0;
+		for(Object o : docs) {
+			DocumentedEntity de = (DocumentedEntity) o;
+			String name = de.getDocName();
+			ks[i++] = new Keyed(ignoreCasing ? name.toLowerCase(Locale.ROOT) : name, de);
+		}
+		Arrays.sort(ks, ORDER);
+		return ks;
+	}
+
+	/**
+	 * @return Index of the latest docs, this one if they are unchanged. Otherwise the entities that were 
+	 * 	added are sorted and merged into those kept, rather than sorting everything again.
+	 */
+	DocumentedIndex update(List<? extends DocumentedEntity> docs, boolean ignoreCasing) {
+		if(isFor(docs, ignoreCasing)) {
+			return this;
+		} else if(this.ignoreCasing != ignoreCasing || sorted.isEmpty()) {
+			return of(docs, ignoreCasing);
+		}
+		Object[] latestSource = docs.toArray();
+		Set<Object> latest = Collections.newSetFromMap(new IdentityHashMap<>(latestSource.length));
+		latest.addAll(Arrays.asList(latestSource));
+		Set<Object> existing = Collections.newSetFromMap(new IdentityHashMap<>(source.length));
+		existing.addAll(Arrays.asList(source));
+		if(latest.size() != latestSource.length || existing.size() != source.length) {
+			// an entity listed twice, rare so simplest to start again
+			return of(docs, ignoreCasing);
+		}
+		List<Object> added = new ArrayList<>();
+		for(Object o : latestSource) {
+			if(!existing.contains(o)) {
+				added.add(o);
+			}
+		}
+		Keyed[] ks = keyed(added, ignoreCasing);
+
+		int n = latestSource.length;
+		DocumentedEntity[] s = new DocumentedEntity[n];
+		String[] k = new String[n];
+		long[] sigs = new long[n];
+		int j = 0;
+		int a = 0;
+		for(int i = 0; i < keys.length; i++) {
+			DocumentedEntity de = sorted.get(i);
+			if(!latest.contains(de)) {
+				continue;
+			}
+			Keyed kept = new Keyed(keys[i], de);
+			while(a < ks.length && ORDER.compare(ks[a], kept) < 0) {
+				s[j] = ks[a].de;
+				k[j] = ks[a].key;
+				sigs[j++] = signature(ks[a++].key);
+			}
+			s[j] = de;
+			k[j] = keys[i];
+			sigs[j++] = signatures[i];
+		}
+		while(a < ks.length) {
+			s[j] = ks[a].de;
+			k[j] = ks[a].key;
+			sigs[j++] = signature(ks[a++].key);
+		}
+		return new DocumentedIndex(latestSource, ignoreCasing, s, k, sigs);
+	}
+
+	/** @return true if this index was built from the same entities, in the same order, with the same casing. */
+	boolean isFor(List<? extends DocumentedEntity> docs, boolean ignoreCasing) {
+		if(docs.size() != source.length || this.ignoreCasing != ignoreCasing) {
+			return false;
+		}
+		int i = 0;
+		for(DocumentedEntity de : docs) {
+			if(de != source[i++]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	int size() {
+		return sorted.size();
+	}
+
+	/** @return Entities whose name starts with prefix, sorted by name, an unmodifiable view of the index. */
+	List<DocumentedEntity> findByPrefix(String prefix) {
+		int from = lowerBound(key(prefix));
+		return sorted.subList(from, prefixEnd(key(prefix), from));
+	}
+
+	/**
+	 * @param query Text whose namespace and first letter after it must match the start of names exactly
+	 * 	and whose remainder must occur in order, case insensitive, e.g. ".Q.gtn" finds ".Q.getTableNames".
+	 * 	Names that start with the whole query are not included as {@link #findByPrefix(String)} finds those.
+	 * @param limit Maximum number of entities to return.
+	 * @param boost Added to the match score of each entity, e.g. to favour frequently used ones.
+	 * @return The best matches, best first.
+	 */
+	List<DocumentedEntity> findFuzzy(String query, int limit, ToIntFunction<DocumentedEntity> boost) {
+		int anchor = query.lastIndexOf('.') + 2;
+		if(query.length() <= anchor || limit <= 0) {
+			return Collections.emptyList();
+		}
+		String anchorKey = key(query.substring(0, anchor));
+		String queryKey = key(query);
+		String q = query.toLowerCase(Locale.ROOT);
+		long sig = signature(q.substring(anchor));
+		int from = lowerBound(anchorKey);
+		int to = prefixEnd(anchorKey, from);
+
+		// min heap of the best so far so the worst is evicted as better matches are found
+		PriorityQueue<long[]> best = new PriorityQueue<long[]>(limit + 1,
+				Comparator.<long[]>comparingLong(a -> a[0]).thenComparingLong(a -> -a[1]));
+		for(int i = from; i < to; i++) {
+			if((signatures[i] & sig) != sig || keys[i].startsWith(queryKey)) {
+				continue;
+			}
+			DocumentedEntity de = sorted.get(i);
+			int score = score(de.getDocName(), q);
+			if(score > 0) {
+				best.add(new long[] { score + boost.applyAsInt(de), i });
+				if(best.size() > limit) {
+					best.poll();
+				}
+			}
+		}
+		DocumentedEntity[] r = new DocumentedEntity[best.size()];
+		for(int j = r.length - 1; j >= 0; j--) {
+			r[j] = sorted.get((int) best.poll()[1]);
+		}
+		return Arrays.asList(r);
+	}
+
+	/**
+	 * Score how well the lower case query matches name as a subsequence. Matches at word starts,
+	 * i.e. the start, after . or _ or a lower to upper case change, and runs of matches score more.
+	 * @return The score or 0 if the query is not a subsequence of name starting at a word start.
+	 */
+	static int score(String name, String q) {
+		int score = 0;
+		int qi = 0;
+		int prevMatch = -2;
+		for(int i = 0; i < name.length() && qi < q.length(); i++) {
+			if(Character.toLowerCase(name.charAt(i)) != q.charAt(qi)) {
+				continue;
+			}
+			boolean wordStart = i == 0 || isWordStart(name, i);
+			if(qi == 0 && !wordStart) {
+				continue;
+			}
+			score += 1;
+			if(wordStart) {
+				score += 8;
+			} else if(prevMatch == i - 1) {
+				score += 4;
+			}
+			prevMatch = i;
+			qi++;
+		}
+		if(qi < q.length()) {
+			return 0;
+		}
+		// prefer shorter names when otherwise equal
+		return Math.max(1, score * 8 - name.length() / 4);
+	}
+
+	private static boolean isWordStart(String name, int i) {
+		char prev = name.charAt(i - 1);
+		char c = name.charAt(i);
+		return prev == '.' || prev == '_' || (Character.isUpperCase(c) && !Character.isUpperCase(prev))
+				|| (Character.isDigit(c) && !Character.isDigit(prev));
+	}
+
+	private String key(String name) {
+		return ignoreCasing ? name.toLowerCase(Locale.ROOT) : name;
+	}
+
+	/** @return Index after the last key starting with prefix, the keys with it are contiguous from the lower bound. */
+	private int prefixEnd(String prefix, int from) {
+		int lo = from;
+		int hi = keys.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid].startsWith(prefix)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private int lowerBound(String key) {
+		int lo = 0;
+		int hi = keys.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid].compareTo(key) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/** @return Bit set of the characters, case insensitive, so names lacking any query character are skipped cheaply. */
+	private static long signature(String s) {
+		long sig = 0;
+		for(int i = 0; i < s.length(); i++) {
+			sig |= 1L << bit(s.charAt(i));
+		}
+		return sig;
+	}
+
+	private static int bit(char c) {
+		char l = Character.toLowerCase(c);
+		if(l >= 'a' && l <= 'z') {
+			return l - 'a';
+		} else if(l >= '0' && l <= '9') {
+			return 26 + (l - '0');
+		} else if(l == '_') {
+			return 36;
+		} else if(l == '.') {
+			return 37;
+		}
+		return 38;
+	}
+}
@@ -19,15 +19,16 @@ package com.timestored.qdoc;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.transform;
 
-import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.timestored.qstudio.Language;
 import com.timestored.qstudio.qdoc.ContextualDocCompleter;
@@ -51,13 +52,18 @@ public class DocumentedMatcher implements DocCompleter {
 	private final String argDivider;
 	private final boolean ignoreCasing;
 	
-	/** cache previous result */
 	/** time in millis after which all docs are refetched */
 	private static final long STALE_TIME = 1000;
-	private List<DocumentedEntity> prevPrefixDocs;
-	private java.util.Calendar calendar = Calendar.getInstance();
-	private String prevPrefix;
-	private long prevMillis = calendar.getTimeInMillis();
+	/** Fuzzy matches are added when there are fewer prefix matches than this. */
+	private static final int FUZZY_LIMIT = 50;
+	/** Prefix matches are ranked by usage only when there are this few, otherwise left in name order. */
+	private static final int RANK_LIMIT = 2000;
+	private static final int MAX_USAGE_BOOST = 200;
+
+	private volatile DocumentedIndex index = DocumentedIndex.EMPTY;
+	private volatile long indexMillis = 0;
+	/** Number of times each doc name has been chosen as a completion. */
+	private final Map<String,Integer> usageCounts = new ConcurrentHashMap<>();
 
 	private ContextualDocCompleter contextualDocCompleter;
 
@@ -177,7 +183,12 @@ public class DocumentedMatcher implements DocCompleter {
 	 * @param latestPrefix the relevant preceding text
 	 */
 	private Suggestion getSuggestion(DocumentedEntity de, String latestPrefix) {
-		String textInsert = de.getDocName().substring(latestPrefix.length());
+		String name = de.getDocName();
+		boolean prefixMatch = ignoreCasing ? name.regionMatches(true, 0, latestPrefix, 0, latestPrefix.length()) 
+				: name.startsWith(latestPrefix);
+		// fuzzy matches replace the typed text rather than extend it
+		int replaceLength = prefixMatch ? 0 : latestPrefix.length();
+		String textInsert = prefixMatch ? name.substring(latestPrefix.length()) : name;
 		
 		int start = textInsert.length();
 		int end = textInsert.length();
@@ -193,7 +204,7 @@ public class DocumentedMatcher implements DocCompleter {
 			}
 		}
 		
-		return new Suggestion(de, textInsert, start, end);
+		return new Suggestion(de, textInsert, start, end, replaceLength);
 	}
 
 	/** 
@@ -202,7 +213,8 @@ public class DocumentedMatcher implements DocCompleter {
 	private List<DocumentedEntity> findByFullname(final String fullname) {
 		final String cleanName = removeArgs(fullname);
 		Predicate<DocumentedEntity> fullMatchFilter = de -> cleanName.equals(removeArgs(de.getDocName()));
-	    return sortByName(Lists.newArrayList(filter(docSource.getDocs(), fullMatchFilter)));
+		// any exact match must start with the name
+	    return sortByName(Lists.newArrayList(filter(getIndex().findByPrefix(cleanName), fullMatchFilter)));
 	}
 
 	private String removeArgs(String docName) {
@@ -231,37 +243,59 @@ public class DocumentedMatcher implements DocCompleter {
 	}
 	 
 	/** 
-	 * For given prefix return list of docs that contain elements starting with that prefix 
+	 * For given prefix return list of docs that contain elements starting with that prefix,
+	 * most used first. If there are few, they are followed by the best fuzzy matches, 
+	 * where the prefix occurs as a subsequence, e.g. "gtn" finds "getTableNames".
 	 */
 	private List<DocumentedEntity> findByPrefix(final String latestPrefix) {
 
-		List<DocumentedEntity> docs = null;
-		Predicate<DocumentedEntity> prefixFilter = new Predicate<DocumentedEntity>() {
-	        @Override public boolean apply(DocumentedEntity de) {
-	        	if(ignoreCasing) {
-		            return de.getDocName().toLowerCase().startsWith(latestPrefix.toLowerCase());
-	        	}
-	            return de.getDocName().startsWith(latestPrefix);
-	        }
-	    };
-
-	    long ticksNow = Calendar.getInstance().getTimeInMillis();
-	    boolean longTimeBetweenSearch = (ticksNow - prevMillis) > STALE_TIME;
-	    boolean extensionToLastSearch = prevPrefix!=null && latestPrefix.startsWith(prevPrefix);
-	    if(extensionToLastSearch && !longTimeBetweenSearch) {
-		    // just typed an extra letter, filter previous search further
-	    	docs = ImmutableList.copyOf(filter(prevPrefixDocs, prefixFilter));
-	    } else { 
-			docs = sortByName(Lists.newArrayList(filter(docSource.getDocs(), prefixFilter)));
-	    }
-		
-		prevPrefixDocs = docs;
-		prevPrefix = latestPrefix;
+		DocumentedIndex idx = getIndex();
+		List<DocumentedEntity> docs = idx.findByPrefix(latestPrefix);
+		if(!usageCounts.isEmpty() && docs.size() > 1 && docs.size() <= RANK_LIMIT) {
+			docs = Lists.newArrayList(docs);
+			// stable so equally used docs stay in name order
+			docs.sort(Comparator.comparingInt((DocumentedEntity de) -> -getUsageCount(de)));
+		}
+		if(docs.size() < FUZZY_LIMIT && latestPrefix.length() > 1) {
+			List<DocumentedEntity> fuzzy = idx.findFuzzy(latestPrefix, FUZZY_LIMIT - docs.size(), 
+					de -> Math.min(MAX_USAGE_BOOST, getUsageCount(de) * 20));
+			if(!fuzzy.isEmpty()) {
+				List<DocumentedEntity> l = Lists.newArrayListWithCapacity(docs.size() + fuzzy.size());
+				l.addAll(docs);
+				l.addAll(fuzzy);
+				docs = l;
+			}
+		}
 
-		LOG.info("Found " + docs.size() + " docs for prefix: " + latestPrefix);
+		LOG.fine("Found " + docs.size() + " docs for prefix: " + latestPrefix);
 		return docs;
 	}
 
+	/** 
+	 * @return Index of the latest docs, refetched from the {@link DocSource} at most every {@link #STALE_TIME}
+	 * 	and updated with any that changed.
+	 */
+	private DocumentedIndex getIndex() {
+		long now = System.currentTimeMillis();
+		DocumentedIndex idx = index;
+		if(now - indexMillis > STALE_TIME) {
+			idx = idx.update(docSource.getDocs(), ignoreCasing);
+			index = idx;
+			indexMillis = now;
+		}
+		return idx;
+	}
+
+	/** Record that a doc was chosen so that it ranks higher in later suggestions. */
+	public void recordUsage(DocumentedEntity de) {
+		usageCounts.merge(de.getDocName(), 1, Integer::sum);
+	}
+
+	private int getUsageCount(DocumentedEntity de) {
+		Integer c = usageCounts.get(de.getDocName());
+		return c == null ? 0 : c;
+	}
+
 	/** sort the collection in place and also return */
 	private List<DocumentedEntity> sortByName(List<DocumentedEntity> docs) {
 		Collections.sort(docs, (de1, de2)  -> de1.getDocName().compareTo(de2.getDocName()));
@@ -293,7 +327,7 @@ public class DocumentedMatcher implements DocCompleter {
 
 
 	/** Get the closest text before and after the carat that is relevant */
-	static String getLatestFullname(final String txt, int caratPos) {
+	public static String getLatestFullname(final String txt, int caratPos) {
 		
 		int endPos = caratPos;
 		while(endPos < txt.length()) {
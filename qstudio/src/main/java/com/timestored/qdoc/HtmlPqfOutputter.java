@@ -17,22 +17,31 @@
 package com.timestored.qdoc;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.timestored.TimeStored.Page;
 import com.timestored.docs.Document;
 import com.timestored.misc.HtmlUtils;
@@ -48,6 +57,12 @@ public class HtmlPqfOutputter {
 	private static final String QDOC_LINK = "<a class='qlogo' href='" + Page.QDOC.url() + "' target='a'>q<span>Doc</span></a>";
 	
 	private static final String FILE_SUFFIX = ".html";
+	private static final String ALLCLASSES = "allclasses-frame.html";
+	private static final String PACKAGE_SUMMARY = "package-summary.html";
+	private static final String MANLISTING = "manlisting.q";
+	/** Pages generated from every file, regenerated whenever any file changes. */
+	private static final String[] INDEX_PAGES = { ALLCLASSES, PACKAGE_SUMMARY, MANLISTING };
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
 
 	private static final Logger LOG = Logger.getLogger(HtmlPqfOutputter.class.getName());
 	private static final String C = ";";
@@ -64,6 +79,8 @@ public class HtmlPqfOutputter {
 
 	/**
 	 * Save documentation as HTMl to selected directory.
+	 * Pages are parsed, rendered and written in parallel. The hash of each page's source is kept in a
+	 * {@link QDocManifest} in the directory and pages whose source is unchanged since the last run are skipped.
 	 * @param documents The documents to output documentation for.
 	 * @param outdir The directory to write to, any existing files will be overwritten
 	 * @param baseWeblink The beginning of a URL that is added to to allow sending a webQuery showing example function calls. Can be null.
@@ -80,60 +97,161 @@ public class HtmlPqfOutputter {
 			return errors;
 		}
 		
-		if(outdir.list().length > 0) {
+		QDocManifest manifest = QDocManifest.load(outdir);
+		if(manifest == QDocManifest.EMPTY && outdir.list().length > 0) {
 			LOG.warning("directory is not empty!");
 		}
 		
-		// output each HTML file
-		List<ParsedQFile> writtenDocs = Lists.newArrayList();
+		// read documents here as they are not thread safe, a later document with the same title overwrites the page
+		Map<String, DocPage> pages = new LinkedHashMap<String, DocPage>();
 		for(Document d : documents) {
-			try {
-				String filename;
-				filename = destdir + d.getTitle() + FILE_SUFFIX;
-				ParsedQFile pqf = QFileParser.parse(d.getContent(), d.getFilePath(), d.getTitle());
-				String html = generateHTML(pqf, baseWeblink);
-				IOUtils.writeStringToFile(html, new File(filename));
-				writtenDocs.add(pqf);
-			} catch (IOException e) {
-				addLogError(errors, "Could not output documentation for " + d.getFilePath());
+			DocPage p = new DocPage(d.getContent(), d.getFilePath(), d.getTitle(), baseWeblink);
+			pages.put(p.filename, p);
+		}
+		List<String> pageHashes = Lists.newArrayList();
+		for(DocPage p : pages.values()) {
+			pageHashes.add(p.filename);
+			pageHashes.add(p.hash);
+		}
+		String indexHash = QDocManifest.hash(pageHashes.toArray(new String[0]));
+		boolean writeIndex = !manifest.isIndexUnchanged(outdir, indexHash, INDEX_PAGES);
+		
+		// output each HTML file, only parsing unchanged ones if needed for the index
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS,
+				new ThreadFactoryBuilder().setNameFormat("qdoc-%d").setDaemon(true).build());
+		try {
+			List<Future<?>> futures = Lists.newArrayList();
+			for(DocPage p : pages.values()) {
+				boolean render = !manifest.isUnchanged(outdir, p.filename, p.hash);
+				if(render || writeIndex) {
+					futures.add(executor.submit(() -> p.generate(outdir, render)));
+				}
+			}
+			for(Future<?> f : futures) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			addLogError(errors, "Interrupted generating documentation");
+			return errors;
+		} catch (ExecutionException e) {
+			LOG.log(Level.SEVERE, "Could not generate documentation", e);
+			errors.add("Could not generate documentation: " + e.getCause());
+			return errors;
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		List<ParsedQFile> writtenDocs = Lists.newArrayList();
+		Map<String, String> generated = new LinkedHashMap<String, String>();
+		int rendered = 0;
+		// the index is only recorded as up to date if it lists every page
+		int errorCount = errors.size();
+		for(DocPage p : pages.values()) {
+			if(p.error != null) {
+				addLogError(errors, p.error);
+				continue;
 			}
+			generated.put(p.filename, p.hash);
+			rendered += p.rendered ? 1 : 0;
+			if(p.pqf != null) {
+				writtenDocs.add(p.pqf);
+			}
+		}
+		LOG.info("Generated " + rendered + " of " + pages.size() + " documentation pages, the rest were unchanged");
+		
+		if(writeIndex) {
+			writeIndexPages(writtenDocs, destdir, errors);
+		}
+		if(errors.size() > errorCount) {
+			indexHash = null;
+		}
+		
+		// index
+		try {
+			String index = IOUtils.toString(HtmlPqfOutputter.class, "index.html");
+			IOUtils.writeStringToFile(index, new File(destdir + "index.html"));
+			saveQdocCssTo(destdir);
+		} catch (IOException e) {
+			addLogError(errors, "Could not output index.html");
 		}
 		
+		try {
+			QDocManifest.save(outdir, generated, indexHash);
+		} catch (IOException e) {
+			addLogError(errors, "Could not output " + QDocManifest.FILENAME);
+		}
+		return errors;
+	}
+	
+	/** Write the pages that list all files and namespaces. */
+	private static void writeIndexPages(List<ParsedQFile> writtenDocs, String destdir, List<String> errors) {
 		// generate allclasses listing to show namespaces/files
 		try {
 			String frameSetHtml = generateIndexListing(writtenDocs);
-			File framesetFile = new File(destdir + "allclasses-frame.html");
-			IOUtils.writeStringToFile(frameSetHtml, framesetFile);
+			write(new File(destdir + ALLCLASSES), frameSetHtml);
 		} catch (IOException e) {
-			addLogError(errors, "Could not output allclasses-frame.html");
+			addLogError(errors, "Could not output " + ALLCLASSES);
 		}
 
-		try {
-			FileWriter fw = new FileWriter(new File(destdir, "manlisting.q"));
-			generateQhelpTable(writtenDocs, fw);
-			fw.close();
+		try(Writer w = Files.newBufferedWriter(new File(destdir, MANLISTING).toPath(), StandardCharsets.UTF_8)) {
+			generateQhelpTable(writtenDocs, w);
 		} catch (IOException e) {
-			addLogError(errors, "manlisting.q");
+			addLogError(errors, MANLISTING);
 		}
 		
 		// generate package-summary.html
 		try {
 			String fileSummaryHTML = generateFileSummaryHtml(writtenDocs);
-			File dfile = new File(destdir + "package-summary.html");
-			IOUtils.writeStringToFile(fileSummaryHTML, dfile);
+			write(new File(destdir + PACKAGE_SUMMARY), fileSummaryHTML);
 		} catch (IOException e) {
-			addLogError(errors, "Could not output package-summary.html");
+			addLogError(errors, "Could not output " + PACKAGE_SUMMARY);
 		}
+	}
+	
+	private static void write(File f, String s) throws IOException {
+		try(Writer w = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8)) {
+			w.write(s);
+		}
+	}
+	
+	/** One document's page, generated on any thread. */
+	private static final class DocPage {
+		private final String content;
+		private final String path;
+		private final String title;
+		private final String baseWeblink;
+		private final String filename;
+		/** Hash of everything the page is generated from. */
+		private final String hash;
 		
-		// index
-		try {
-			String index = IOUtils.toString(HtmlPqfOutputter.class, "index.html");
-			IOUtils.writeStringToFile(index, new File(destdir + "index.html"));
-			saveQdocCssTo(destdir);
-		} catch (IOException e) {
-			addLogError(errors, "Could not output index.html");
+		private volatile ParsedQFile pqf;
+		private volatile boolean rendered;
+		private volatile String error;
+		
+		DocPage(String content, String path, String title, String baseWeblink) {
+			this.content = content;
+			this.path = path;
+			this.title = title;
+			this.baseWeblink = baseWeblink;
+			this.filename = title + FILE_SUFFIX;
+			this.hash = QDocManifest.hash(content, path, title, baseWeblink);
+		}
+		
+		/** Parse the document and if render, write its page. */
+		void generate(File outdir, boolean render) {
+			ParsedQFile p = QFileParser.parse(content, path, title);
+			if(render) {
+				try {
+					write(new File(outdir, filename), generateHTML(p, baseWeblink));
+					rendered = true;
+				} catch (IOException e) {
+					error = "Could not output documentation for " + path;
+					return;
+				}
+			}
+			pqf = p;
 		}
-		return errors;
 	}
 	
 	public static void saveQdocCssTo(String destdir) throws IOException {
@@ -189,7 +307,7 @@ public class HtmlPqfOutputter {
 		return "\"" + s.replace("\"", "\\\"") + "\"";
 	}
 
-	private static void generateQhelpTable(List<ParsedQFile> pqfiles, FileWriter w) throws IOException {
+	private static void generateQhelpTable(List<ParsedQFile> pqfiles, Writer w) throws IOException {
 		for(ParsedQFile pqFile : pqfiles) {
 			for(ParsedQEntity parsedQentity : pqFile.getQEntities()) {
 				w.write(".man.registerFunc (");
@@ -222,7 +340,7 @@ public class HtmlPqfOutputter {
 	}
 
 
-	private static void writeArg(FileWriter w, String name, String tag, String subTag,
+	private static void writeArg(Writer w, String name, String tag, String subTag,
 			String description) throws IOException {
 		w.write(".man.registerArg (");
 		w.write(esc(name));
@@ -0,0 +1,187 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.timestored.qdoc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.timestored.qdoc.QFileParser.Checkpoint;
+import com.timestored.qdoc.QFileParser.Result;
+
+/**
+ * Keeps the {@link ParsedQFile} of one q document up to date as its contents change, re-parsing
+ * only the top level statements around the edit rather than the whole file.
+ * <p>
+ * The full parse records a {@link Checkpoint} at the start of each top level line. On update the edited
+ * region is found by comparing the old and new text, parsing resumes at the last checkpoint before it
+ * and stops at the first checkpoint after it that matches an old one, same namespace at the same place
+ * in the unchanged text, as everything from there on parses exactly as before.
+ * Later entities and checkpoints are reused with their offsets shifted. Edits to the header comment
+ * cause a full parse. Not thread safe.
+ */
+class IncrementalQFileParser {
+
+	private final String srcFilePath;
+	private final String srcFileTitle;
+
+	private char[] text;
+	private ParsedQFile pqf;
+	private int headerEnd;
+	/** Every entity in file order before combining by name. */
+	private List<ParsedQEntity> entities;
+	private List<Checkpoint> checkpoints;
+
+	IncrementalQFileParser(String srcFilePath, String srcFileTitle) {
+		this.srcFilePath = srcFilePath;
+		this.srcFileTitle = srcFileTitle;
+	}
+
+	/** @return true if this parser is for a file at the given path and title. */
+	boolean isFor(String path, String title) {
+		return Objects.equals(srcFilePath, path) && Objects.equals(srcFileTitle, title);
+	}
+
+	/**
+	 * @return The parse of the new contents, the same {@link ParsedQFile} as the previous call
+	 * 	with its entities replaced unless the header comment changed.
+	 */
+	ParsedQFile update(String fullFileContents) {
+		char[] newText = QFileParser.normalise(fullFileContents).toCharArray();
+		if(pqf == null) {
+			return parseFully(newText);
+		}
+
+		int oldLen = text.length;
+		int newLen = newText.length;
+		int prefix = 0;
+		int maxPrefix = Math.min(oldLen, newLen);
+		while(prefix < maxPrefix && text[prefix] == newText[prefix]) {
+			prefix++;
+		}
+		if(prefix == oldLen && prefix == newLen) {
+			return pqf;
+		}
+		int suffix = 0;
+		int maxSuffix = maxPrefix - prefix;
+		while(suffix < maxSuffix && text[oldLen - 1 - suffix] == newText[newLen - 1 - suffix]) {
+			suffix++;
+		}
+		final int delta = newLen - oldLen;
+		final int newEditEnd = newLen - suffix;
+
+		// the checkpoint must be strictly before the edit, the char before it is the newline that created it
+		int from = lastCheckpointBefore(prefix);
+		if(prefix <= headerEnd || from < 0) {
+			return parseFully(newText);
+		}
+		Checkpoint start = checkpoints.get(from);
+		final int firstOld = from + 1;
+		final int[] resyncIdx = { -1 };
+		Result r = QFileParser.parseFrom(newText, pqf, headerEnd, start, (offset, namespace) -> {
+			// newline that created the checkpoint must be in the unchanged suffix
+			if(offset - 1 < newEditEnd) {
+				return false;
+			}
+			int i = findCheckpoint(offset - delta, firstOld);
+			if(i >= 0 && checkpoints.get(i).namespace.equals(namespace)) {
+				resyncIdx[0] = i;
+				return true;
+			}
+			return false;
+		});
+
+		List<ParsedQEntity> newEntities = new ArrayList<ParsedQEntity>(entities.size() + r.entities.size());
+		newEntities.addAll(entities.subList(0, start.entityIndex));
+		newEntities.addAll(r.entities);
+		List<Checkpoint> newCheckpoints = new ArrayList<Checkpoint>(checkpoints.size() + r.checkpoints.size());
+		newCheckpoints.addAll(checkpoints.subList(0, from + 1));
+		for(Checkpoint cp : r.checkpoints) {
+			cp.entityIndex += start.entityIndex;
+			newCheckpoints.add(cp);
+		}
+		if(r.stoppedAt != null) {
+			Checkpoint oldStop = checkpoints.get(resyncIdx[0]);
+			int entityShift = r.stoppedAt.entityIndex - oldStop.entityIndex;
+			for(ParsedQEntity pqe : entities.subList(oldStop.entityIndex, entities.size())) {
+				newEntities.add(pqe.withOffset(pqe.getOffset() + delta));
+			}
+			for(Checkpoint cp : checkpoints.subList(resyncIdx[0] + 1, checkpoints.size())) {
+				cp.offset += delta;
+				cp.entityIndex += entityShift;
+				newCheckpoints.add(cp);
+			}
+		}
+		text = newText;
+		entities = newEntities;
+		checkpoints = newCheckpoints;
+		publish();
+		return pqf;
+	}
+
+	private ParsedQFile parseFully(char[] newText) {
+		Result r = QFileParser.parseFully(newText, srcFilePath, srcFileTitle);
+		text = newText;
+		pqf = r.parsedQFile;
+		headerEnd = r.headerEnd;
+		entities = r.entities;
+		checkpoints = r.checkpoints;
+		return pqf;
+	}
+
+	private void publish() {
+		List<ParsedQEntity> combined = new ArrayList<ParsedQEntity>(entities);
+		QFileParser.combineByFullName(combined);
+		pqf.setqEntities(combined);
+	}
+
+	/** @return index of the last checkpoint with offset strictly less than pos or -1 if none. */
+	private int lastCheckpointBefore(int pos) {
+		int lo = 0;
+		int hi = checkpoints.size() - 1;
+		int r = -1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(checkpoints.get(mid).offset < pos) {
+				r = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return r;
+	}
+
+	/** @return index of the old checkpoint at exactly offset searching from index fromIdx or -1 if none. */
+	private int findCheckpoint(int offset, int fromIdx) {
+		int lo = fromIdx;
+		int hi = checkpoints.size() - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int o = checkpoints.get(mid).offset;
+			if(o == offset) {
+				return mid;
+			} else if(o < offset) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return -1;
+	}
+}
@@ -18,19 +18,30 @@
 package com.timestored.qdoc;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -39,6 +50,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.timestored.docs.Document;
 import com.timestored.docs.OpenDocumentsModel;
 import com.timestored.qstudio.BackgroundExecutor;
@@ -53,28 +65,65 @@ public class OpenDocumentsDocSource implements DocSource,OpenDocumentsModel.List
 	private static final Logger LOG = Logger.getLogger(OpenDocumentsDocSource.class.getName());
 	
 	private final OpenDocumentsModel openDocumentsModel;
+	private final QDocIndexStore indexStore;
 	/** Documents that have not changed since last parse */
-	private Map<Document,ParsedQFile> docParseCache = Maps.newHashMap();
+	private final Map<Document,ParsedQFile> docParseCache = new ConcurrentHashMap<Document, ParsedQFile>();
+	/** Parsers kept per document so that an edit only re-parses the statements that changed, guarded by this */
+	private final Map<Document,IncrementalQFileParser> docParsers = Maps.newHashMap();
 	private Map<String,ParsedQFile> folderParseCache = new ConcurrentHashMap<String, ParsedQFile>();
+	/** Full name to the entities of that name in the folder files, for go to definition without a scan */
+	private Map<String,List<ParsedQEntity>> folderSymbols = new ConcurrentHashMap<String, List<ParsedQEntity>>();
 	
 	private Future<Void> future;
+	/** Set to stop the parse tasks of the current folder index that have not started yet */
+	private AtomicBoolean indexCancelled = new AtomicBoolean();
 	private Pattern ignoredFoldersRegex = Pattern.compile("");
 	private File selectedFolder = null;
+	private volatile int filesFound = 0;
+	private volatile int filesIndexed = 0;
+	private volatile boolean indexing = false;
+	private final List<IndexListener> listeners = new CopyOnWriteArrayList<IndexListener>();
 
-	/** maximum depth of folders to search for .q files whos docs will be read */
-	private static final int MAX_FOLDER_SEARCH_DEPTH = 8;
-	/** maximum number of .q files whos docs will be parsed */
-	private static final int MAX_FILE_PARSE = 200;
+	/** How often progress is reported, in files parsed */
+	private static final int PROGRESS_INTERVAL = 50;
+	/** 
+	 * Parses folder files in parallel, bounded and low priority so that a large workspace 
+	 * does not starve the GUI or the queries running on {@link BackgroundExecutor}.
+	 */
+	private static final ExecutorService INDEX_POOL = Executors.newFixedThreadPool(
+			Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+			new ThreadFactoryBuilder().setNameFormat("qdoc-index-%d").setDaemon(true)
+				.setPriority(Thread.MIN_PRIORITY).build());
 
 	protected static final String FILE_SUFFIX = ".q";
 	
-	
+	/** Receives progress of indexing the selected folder. */
+	public static interface IndexListener {
+		/** 
+		 * Called from a background thread periodically while the folder is indexed and once when finished,
+		 * also called with finished true and no files if indexing stopped as no folder is selected.
+		 * @param filesIndexed Number of files parsed so far.
+		 * @param filesFound Number of q files found within the folder.
+		 * @param finished true if all files were parsed, false if still going.
+		 */
+		void indexProgress(int filesIndexed, int filesFound, boolean finished);
+	}
 
 	/** 
 	 * Files opened in openDocumentsModel will  be documented when opened/saved. 
 	 */
 	public OpenDocumentsDocSource(OpenDocumentsModel openDocumentsModel) {
+		this(openDocumentsModel, null);
+	}
+
+	/** 
+	 * Files opened in openDocumentsModel will  be documented when opened/saved.
+	 * @param indexFile Where the parse of the selected folder is kept so that the next run only
+	 * 	parses files that changed, or null to parse every file each run.
+	 */
+	public OpenDocumentsDocSource(OpenDocumentsModel openDocumentsModel, File indexFile) {
 		this.openDocumentsModel = openDocumentsModel;
+		this.indexStore = new QDocIndexStore(indexFile);
 		openDocumentsModel.addListener(this);
 		startFolderParse(openDocumentsModel.getSelectedFolder());
 	}
@@ -82,16 +131,25 @@ public class OpenDocumentsDocSource implements DocSource,OpenDocumentsModel.List
 	/**
 	 * @return The latest parse result for the given document
 	 */
-	private ParsedQFile parseAndCache(Document document) {
+	private synchronized ParsedQFile parseAndCache(Document document) {
 		Language lang = Language.getLanguage(document.getFileEnding());
 		if(Language.Q.equals(lang) || document.getFileEnding().length()==0) { // new files won't have suffix
 			String fp = document.getFilePath();
 			String fileId = document.getTitle();
-			ParsedQFile pqf = QFileParser.parse(document.getContent(), fp, fileId);
+			IncrementalQFileParser parser = docParsers.get(document);
+			if(parser == null || !parser.isFor(fp, fileId)) {
+				parser = new IncrementalQFileParser(fp, fileId);
+				docParsers.put(document, parser);
+			}
+			// the parser updates and returns the same ParsedQFile so take the names it had first
+			ParsedQFile old = fp == null ? null : folderParseCache.get(fp);
+			List<ParsedQEntity> oldEntities = old == null ? null : old.getQEntities();
+			ParsedQFile pqf = parser.update(document.getContent());
 			docParseCache.put(document, pqf);
 			
-			if(fp!=null && folderParseCache.containsKey(fp)) {
-				folderParseCache.put(document.getFilePath(), pqf);
+			if(old != null) {
+				folderParseCache.put(fp, pqf);
+				index(folderSymbols, oldEntities, pqf);
 			}
 			
 			return pqf;
@@ -99,8 +157,9 @@ public class OpenDocumentsDocSource implements DocSource,OpenDocumentsModel.List
 		return null;
 	}
 	
-	@Override public void docClosed(Document document) {
+	@Override public synchronized void docClosed(Document document) {
 		docParseCache.remove(document);
+		docParsers.remove(document);
 	}
 	
 	@Override public void docSaved() {
@@ -111,7 +170,13 @@ public class OpenDocumentsDocSource implements DocSource,OpenDocumentsModel.List
 	}
 
 	@Override public void docAdded(Document document) {}
-	@Override public void docContentModified() {} // may be invalid code
+	/** Edits are re-parsed incrementally when the docs are next requested, so typing costs nothing here. */
+	@Override public void docContentModified() {
+		Document d = openDocumentsModel.getSelectedDocument();
+		if(d != null) {
+			docParseCache.remove(d);
+		}
+	}
 	@Override public void docCaratModified() {} // no point parsing
 	@Override public void docSelected(Document document) {} // no point parsing
 	
@@ -127,41 +192,218 @@ public class OpenDocumentsDocSource implements DocSource,OpenDocumentsModel.List
 
 		synchronized (this) {
 			
-			// cancel previous task
+			// cancel previous task, its queued file parses will be skipped
 			if(future != null) {
 				future.cancel(true);
 				future = null;
 			}
+			indexCancelled.set(true);
 			
+			final AtomicBoolean cancelled = new AtomicBoolean();
 			final Map<String,ParsedQFile> fParseCache = new ConcurrentHashMap<String, ParsedQFile>();
+			final Map<String,List<ParsedQEntity>> fSymbols = new ConcurrentHashMap<String, List<ParsedQEntity>>();
+			indexCancelled = cancelled;
 			folderParseCache = fParseCache;
+			folderSymbols = fSymbols;
+			selectedFolder = folder;
+			filesFound = 0;
+			filesIndexed = 0;
+			indexing = false;
 			
 			// if new folder selected start it parsing
 			if(folder != null && folder.isDirectory()) {
+				indexing = true;
+				final Pattern ignored = ignoredFoldersRegex;
 				future = BackgroundExecutor.EXECUTOR.submit(new Callable<Void>() {
 		
 					@Override public Void call() throws Exception {
-						List<File> qFiles = findFiles(folder, FILE_SUFFIX, ignoredFoldersRegex);
-						int i = 0;
-						
-						for(File f : qFiles) {
-							 if (Thread.currentThread().isInterrupted()) {
-							        throw new RuntimeException(); 
-						    }
-							if(i++ > MAX_FILE_PARSE) {
-								LOG.log(Level.WARNING, "stopping file parsing as hit MAX_FILE_PARSE");
-								break;
+						try {
+							indexFolder(folder, ignored, cancelled, fParseCache, fSymbols);
+						} finally {
+							synchronized (OpenDocumentsDocSource.this) {
+								// still the current index but stopped early, e.g. by an error
+								if(cancelled.compareAndSet(false, true) && indexing) {
+									indexing = false;
+									notifyListeners(filesIndexed, filesFound, true);
+								}
 							}
-							fParseCache.put(f.getAbsolutePath(), QFileParser.parse(f));
 						}
 						return null;
 					}
-					
 				});
+			} else {
+				notifyListeners(0, 0, true);
 			}
 		}
 	}
 
+	/**
+	 * Find every q file within folder and parse them on the {@link #INDEX_POOL}, 
+	 * adding each to the caches as it completes so partial results are usable straight away.
+	 */
+	private void indexFolder(File folder, Pattern ignored, final AtomicBoolean cancelled, 
+			Map<String,ParsedQFile> fParseCache, Map<String,List<ParsedQEntity>> fSymbols) throws InterruptedException {
+		
+		long start = System.currentTimeMillis();
+		List<File> qFiles = findFiles(folder, FILE_SUFFIX, ignored);
+		if(cancelled.get()) {
+			return;
+		}
+		filesFound = qFiles.size();
+		fireProgress(cancelled, 0, qFiles.size(), false);
+		
+		// files unchanged since the last run are taken straight from the index store
+		List<QDocIndexStore.Entry> entries = new ArrayList<QDocIndexStore.Entry>(qFiles.size());
+		CompletionService<QDocIndexStore.Entry> completionService = new ExecutorCompletionService<QDocIndexStore.Entry>(INDEX_POOL);
+		int submitted = 0;
+		for(final File f : qFiles) {
+			QDocIndexStore.Entry e = indexStore.getIfUnchanged(f);
+			if(e != null) {
+				add(fParseCache, fSymbols, e.parsedQFile);
+				entries.add(e);
+			} else {
+				completionService.submit(new Callable<QDocIndexStore.Entry>() {
+					@Override public QDocIndexStore.Entry call() throws Exception {
+						return cancelled.get() ? null : indexStore.read(f);
+					}
+				});
+				submitted++;
+			}
+		}
+		int reused = entries.size();
+		filesIndexed = reused;
+		fireProgress(cancelled, reused, qFiles.size(), false);
+		
+		for(int i = 1; i <= submitted; i++) {
+			QDocIndexStore.Entry e = null;
+			try {
+				e = completionService.take().get();
+			} catch (ExecutionException ee) {
+				LOG.log(Level.WARNING, "Could not parse q file", ee.getCause());
+			}
+			if(cancelled.get()) {
+				return;
+			}
+			if(e != null) {
+				add(fParseCache, fSymbols, e.parsedQFile);
+				entries.add(e);
+			}
+			filesIndexed = reused + i;
+			if(i % PROGRESS_INTERVAL == 0 && i < submitted) {
+				fireProgress(cancelled, reused + i, qFiles.size(), false);
+			}
+		}
+		if(cancelled.get()) {
+			return;
+		}
+		if(submitted > 0 || indexStore.size() != entries.size()) {
+			indexStore.save(entries);
+		}
+		indexing = false;
+		LOG.info("Indexed " + qFiles.size() + " q files in " + folder.getAbsolutePath() 
+				+ " in " + (System.currentTimeMillis() - start) + "ms, parsed " + submitted);
+		fireProgress(cancelled, qFiles.size(), qFiles.size(), true);
+	}
+
+	private static void add(Map<String,ParsedQFile> fParseCache, Map<String,List<ParsedQEntity>> fSymbols, ParsedQFile pqf) {
+		// an open document saved meanwhile holds the newer parse
+		if(fParseCache.putIfAbsent(pqf.getSrcFileAbsolutePath(), pqf) == null) {
+			index(fSymbols, null, pqf);
+		}
+	}
+
+	/** 
+	 * Replace the entities a file had with those of its new parse in a symbol index.
+	 * @param oldEntities The entities of the file before this parse, null if it was not indexed.
+	 */
+	private static void index(Map<String,List<ParsedQEntity>> symbols, List<ParsedQEntity> oldEntities, ParsedQFile pqf) {
+		if(oldEntities != null) {
+			final String path = pqf.getSrcFileAbsolutePath();
+			for(ParsedQEntity pqe : oldEntities) {
+				symbols.computeIfPresent(pqe.getFullName(), (k, l) -> {
+					List<ParsedQEntity> r = new ArrayList<ParsedQEntity>(l);
+					r.removeIf(e -> path.equals(e.getParentFile().getSrcFileAbsolutePath()));
+					return r.isEmpty() ? null : r;
+				});
+			}
+		}
+		for(final ParsedQEntity pqe : pqf.getQEntities()) {
+			symbols.compute(pqe.getFullName(), (k, l) -> {
+				List<ParsedQEntity> r = l == null ? new ArrayList<ParsedQEntity>(1) : new ArrayList<ParsedQEntity>(l);
+				r.add(pqe);
+				return r;
+			});
+		}
+	}
+
+	/** Report progress unless a newer folder index has replaced the one reporting. */
+	private void fireProgress(AtomicBoolean cancelled, int indexed, int found, boolean finished) {
+		if(!cancelled.get()) {
+			notifyListeners(indexed, found, finished);
+		}
+	}
+
+	private void notifyListeners(int indexed, int found, boolean finished) {
+		for(IndexListener l : listeners) {
+			try {
+				l.indexProgress(indexed, found, finished);
+			} catch(RuntimeException e) {
+				LOG.log(Level.WARNING, "IndexListener threw", e);
+			}
+		}
+	}
+
+	public void addIndexListener(IndexListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeIndexListener(IndexListener listener) {
+		listeners.remove(listener);
+	}
+
+	/** @return Number of q files found in the selected folder, 0 until the search has finished. */
+	public int getFilesFound() {
+		return filesFound;
+	}
+
+	/** @return Number of q files in the selected folder parsed so far. */
+	public int getFilesIndexed() {
+		return filesIndexed;
+	}
+
+	/** @return true while the selected folder is being searched or parsed. */
+	public boolean isIndexing() {
+		return indexing;
+	}
+
+	/**
+	 * @return Every entity with the given full name, e.g. ".ns.fn", defined in an open document 
+	 * 	or in a file within the selected folder. Open documents first.
+	 */
+	public List<ParsedQEntity> getDefinitions(String fullName) {
+		List<ParsedQEntity> r = Lists.newArrayList();
+		Set<String> openDocFilePaths = Sets.newHashSet();
+		for(Document doc : openDocumentsModel.getDocuments()) {
+			ParsedQFile pqf = docParseCache.get(doc);
+			if(pqf == null) {
+				pqf = parseAndCache(doc);
+			}
+			if(pqf != null) {
+				openDocFilePaths.add(doc.getFilePath());
+				r.addAll(pqf.getQEntities(fullName));
+			}
+		}
+		List<ParsedQEntity> inFolder = folderSymbols.get(fullName);
+		if(inFolder != null) {
+			for(ParsedQEntity pqe : inFolder) {
+				if(!openDocFilePaths.contains(pqe.getParentFile().getSrcFileAbsolutePath())) {
+					r.add(pqe);
+				}
+			}
+		}
+		return r;
+	}
+
 	@Override public List<DocumentedEntity> getDocs() {
 
 		List<DocumentedEntity> documentedEntities = Lists.newArrayList();
@@ -208,65 +450,47 @@ public class OpenDocumentsDocSource implements DocSource,OpenDocumentsModel.List
 	}
 
 	/**
-	 * @return Files within any depth within directory which have a given suffix.
-	 */
-	static List<File> findFiles(File directory, String suffix, Pattern ignoredFoldersRegex) {
-		List<File> result = Collections.synchronizedList(new ArrayList<File>());
-		return findFiles(result, directory, suffix, ignoredFoldersRegex);
-	}
-	
-	/**
-	 * @param matches The collection that matches are added to.
-	 * @return Files within any depth of a directory which have a given suffix.
+	 * @return Files within any depth within directory which have a given suffix, 
+	 * 	skipping folders whose name matches ignoredFoldersRegex.
 	 */
-	private static List<File> findFiles(List<File> result, File directory, final String suffix, final Pattern ignoredFoldersRegex) {
+	static List<File> findFiles(File directory, final String suffix, final Pattern ignoredFoldersRegex) {
 
 		Preconditions.checkArgument(directory.isDirectory());
-		
-		// breadth first search for suffixed files
-		// allows stopping early and result will contain what we have so far.
-		List<File> directoriesToProcess = new ArrayList<File>();
-		directoriesToProcess.add(directory);
-		
-		int i = 0;
-		int depth = 0;
-		while(i < directoriesToProcess.size() && depth<MAX_FOLDER_SEARCH_DEPTH) {
-			
-			int dirSize = directoriesToProcess.size();
-			while(i < dirSize) {
-				File f = directoriesToProcess.get(i);
-				LOG.finer("searching " + f.getAbsolutePath());
+		final List<File> result = new ArrayList<File>();
+		final Path root = directory.toPath();
+		final int[] dirCount = { 0 };
+		try {
+			// following links as the old search did, the walk detects and skips any cycles 
+			Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, 
+					new SimpleFileVisitor<Path>() {
 				
-				// add matches at this level
-				File[] filesFound = f.listFiles(new FilenameFilter() {
-					public boolean accept(File dir, String name) {
-						return name.endsWith(suffix);
+				@Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					if (Thread.currentThread().isInterrupted()) {
+						return FileVisitResult.TERMINATE;
 					}
-				});
-				if(filesFound != null) {
-					result.addAll(Arrays.asList(filesFound));
+					if(!dir.equals(root) && ignoredFoldersRegex.matcher(dir.getFileName().toString()).matches()) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					dirCount[0]++;
+					return FileVisitResult.CONTINUE;
 				}
-
-				// add subfolders to toProcess list
-				File[] directories = f.listFiles(new FileFilter() {
-					@Override public boolean accept(File pathname) {
-						if(pathname.isDirectory()) {
-							return !ignoredFoldersRegex.matcher(pathname.getName()).matches();
-						}
-						return false;
+				
+				@Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if(file.getFileName().toString().endsWith(suffix) && !attrs.isDirectory()) {
+						result.add(file.toFile());
 					}
-				});
-				if(directories != null) {
-					directoriesToProcess.addAll(Arrays.asList(directories));
+					return FileVisitResult.CONTINUE;
 				}
 				
-				i++;
-			}
-			
-			depth++;
-			LOG.fine(depth + " levels deep in seach");
+				@Override public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					LOG.finer("could not search " + file + " " + exc);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not search " + directory, e);
 		}
-		LOG.info("Searched " + directoriesToProcess.size() + " directories and found " 
+		LOG.info("Searched " + dirCount[0] + " directories and found " 
 				+ result.size() + " matches for " + suffix);
 		
 		return result;
@@ -109,6 +109,14 @@ class ParsedComments {
 		this.returnDescription = ret;
 	}
 
+	private ParsedComments(String docDescription, String returnDescription, 
+			Map<String, Map<String,String>> namedTags, Map<String,String> tags) {
+		this.docDescription = docDescription;
+		this.returnDescription = returnDescription;
+		this.namedTags = namedTags;
+		this.tags = tags;
+	}
+
 	private void addIfExists(Multimap<String, String> t, String tag) {
 		Map<String, String> m = toMap(t.get(tag));
 		if(m.size() > 0) {
@@ -140,4 +148,10 @@ class ParsedComments {
 	public static ParsedComments parse(List<String> comments) {
 		return new ParsedComments(comments);
 	}
+
+	/** @return Comments with exactly the given fields, used to restore ones read from a {@link QDocIndexStore}. */
+	static ParsedComments restore(String docDescription, String returnDescription, 
+			Map<String, Map<String,String>> namedTags, Map<String,String> tags) {
+		return new ParsedComments(docDescription, returnDescription, namedTags, tags);
+	}
 }
@@ -60,6 +60,8 @@ public class ParsedQEntity implements QEntity, Comparable<ParsedQEntity> {
 	
 	private final ParsedQFile parentFile;
 	private final int offset;
+	/** Cached as sorting and combining entities of large files call it constantly. */
+	private final String fullName;
 
 
 	/**
@@ -95,6 +97,7 @@ public class ParsedQEntity implements QEntity, Comparable<ParsedQEntity> {
 		this.tags = Preconditions.checkNotNull(tags);
 		this.parentFile = Preconditions.checkNotNull(parentFile);
 		this.offset = offset;
+		this.fullName = (namespace.equals(".") ? "" : namespace + ".") + name;
 	}
 	
 	
@@ -120,6 +123,20 @@ public class ParsedQEntity implements QEntity, Comparable<ParsedQEntity> {
 				namedTags, EMPTY_MAP, returnDescription, offset);
 	}
 
+	/** @return Entity with exactly the given fields, used to restore one read from a {@link QDocIndexStore}. */
+	static ParsedQEntity restore(ParsedQFile parentFile, String name, String namespace, String docDescription, 
+			Map<String, Map<String, String>> namedTags, Map<String, String> tags, 
+			String returnDescription, int offset) {
+		return new ParsedQEntity(parentFile, name, namespace, docDescription, 
+				namedTags, tags, returnDescription, offset);
+	}
+
+	/** @return The same entity found elsewhere in its file, e.g. after text before it was edited. */
+	ParsedQEntity withOffset(int newOffset) {
+		return newOffset == offset ? this : new ParsedQEntity(parentFile, name, namespace, docDescription, 
+				namedTags, tags, returnDescription, newOffset);
+	}
+
 	/** {@inheritDoc} */ @Override 
 	public String getNamespace() {
 		return namespace;
@@ -190,7 +207,7 @@ public class ParsedQEntity implements QEntity, Comparable<ParsedQEntity> {
 	}
 
 	@Override public String getFullName() {
-		 return (namespace.equals(".") ? "" : namespace + ".") + name;
+		 return fullName;
 	}
 	
 	String getDocDescription() {
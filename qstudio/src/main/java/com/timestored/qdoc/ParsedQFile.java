@@ -69,6 +69,11 @@ public class ParsedQFile {
 		return headerDoc==null ? "" : headerDoc.docDescription;
 	}
 
+	/** @return The parsed comments at the top of the file or null if there were none. */
+	ParsedComments getHeaderComments() {
+		return headerDoc;
+	}
+
 	String getAuthor() {
 		return author;
 	}
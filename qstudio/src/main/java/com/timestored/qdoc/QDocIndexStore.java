@@ -0,0 +1,299 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.timestored.qdoc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Persists the {@link ParsedQFile} of every file in the indexed folder so that on restart
+ * only files that changed are parsed again. A file's old parse is reused if its modified time and size
+ * are unchanged or, failing that, if the hash of its content is, e.g. after a checkout touched it.
+ * <p>
+ * The index is rewritten whole to a temporary file that is then moved into place, so a crash leaves
+ * the previous index. An index that cannot be read is logged and treated as empty.
+ */
+class QDocIndexStore {
+
+	private static final Logger LOG = Logger.getLogger(QDocIndexStore.class.getName());
+	private static final int MAGIC = 0x71646F63;
+	/** Increment whenever the format or what the parser produces changes so old indexes are ignored. */
+	private static final int VERSION = 1;
+
+	/** Index file or null to keep nothing between runs. */
+	private final File file;
+	/** Path to entry, null until first used. Never modified once set, save replaces it. */
+	private volatile Map<String, Entry> entries;
+
+	/** A parsed file and the state of the file when it was parsed. */
+	static final class Entry {
+		final long lastModified;
+		final long length;
+		final long hash;
+		final ParsedQFile parsedQFile;
+
+		Entry(long lastModified, long length, long hash, ParsedQFile parsedQFile) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.hash = hash;
+			this.parsedQFile = parsedQFile;
+		}
+	}
+
+	/** @param file Where the index is stored or null to keep nothing between runs. */
+	QDocIndexStore(File file) {
+		this.file = file;
+	}
+
+	/** @return Entry for the file if its modified time and size still match, otherwise null. */
+	Entry getIfUnchanged(File f) {
+		Entry e = getEntries().get(f.getAbsolutePath());
+		if(e != null && e.lastModified == f.lastModified() && e.length == f.length()) {
+			return e;
+		}
+		return null;
+	}
+
+	/** @return Number of files in the index. */
+	int size() {
+		return getEntries().size();
+	}
+
+	/**
+	 * Read a file and reuse its previous parse if the content is the same, otherwise parse it.
+	 * Like {@link QFileParser#parse(File)} an unreadable file is treated as empty.
+	 */
+	Entry read(File f) {
+		// stat before reading so that a write during the read is caught on the next run
+		long lastModified = f.lastModified();
+		long length = f.length();
+		byte[] content = new byte[0];
+		try {
+			content = Files.readAllBytes(f.toPath());
+		} catch (IOException e) {
+			LOG.log(Level.INFO, "Could not read q file", e);
+		}
+		long hash = Hashing.murmur3_128().hashBytes(content).asLong();
+		String path = f.getAbsolutePath();
+		Entry old = getEntries().get(path);
+		ParsedQFile pqf;
+		if(old != null && old.hash == hash) {
+			pqf = old.parsedQFile;
+		} else {
+			pqf = QFileParser.parse(new String(content, StandardCharsets.UTF_8), path, f.getName());
+		}
+		return new Entry(lastModified, length, hash, pqf);
+	}
+
+	/** Replace the whole index with the given entries and write it to disk. */
+	synchronized void save(Collection<Entry> newEntries) {
+		Map<String, Entry> m = new HashMap<String, Entry>(newEntries.size() * 2);
+		for(Entry e : newEntries) {
+			m.put(e.parsedQFile.getSrcFileAbsolutePath(), e);
+		}
+		entries = Collections.unmodifiableMap(m);
+		if(file == null) {
+			return;
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			File dir = file.getAbsoluteFile().getParentFile();
+			if(dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Could not create folder " + dir);
+			}
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(m.size());
+				for(Entry e : m.values()) {
+					write(out, e);
+				}
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			LOG.fine("Saved qdoc index of " + m.size() + " files to " + file);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not save qdoc index " + file, e);
+			tmp.delete();
+		}
+	}
+
+	private Map<String, Entry> getEntries() {
+		Map<String, Entry> m = entries;
+		if(m == null) {
+			synchronized (this) {
+				if(entries == null) {
+					entries = load();
+				}
+				m = entries;
+			}
+		}
+		return m;
+	}
+
+	private Map<String, Entry> load() {
+		if(file == null || !file.isFile()) {
+			return Collections.emptyMap();
+		}
+		long start = System.currentTimeMillis();
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+				LOG.info("Ignoring qdoc index from another version " + file);
+				return Collections.emptyMap();
+			}
+			int n = in.readInt();
+			Map<String, Entry> m = new HashMap<String, Entry>(n * 2);
+			for(int i = 0; i < n; i++) {
+				Entry e = read(in);
+				m.put(e.parsedQFile.getSrcFileAbsolutePath(), e);
+			}
+			LOG.info("Loaded qdoc index of " + n + " files in " + (System.currentTimeMillis() - start) + "ms");
+			return Collections.unmodifiableMap(m);
+		} catch (IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Could not load qdoc index " + file + " so all files will be parsed", e);
+			return Collections.emptyMap();
+		}
+	}
+
+	private static void write(DataOutputStream out, Entry e) throws IOException {
+		ParsedQFile pqf = e.parsedQFile;
+		out.writeLong(e.lastModified);
+		out.writeLong(e.length);
+		out.writeLong(e.hash);
+		writeString(out, pqf.getSrcFileAbsolutePath());
+		writeString(out, pqf.getFileTitle());
+		writeString(out, pqf.getAuthor());
+		ParsedComments header = pqf.getHeaderComments();
+		out.writeBoolean(header != null);
+		if(header != null) {
+			writeString(out, header.docDescription);
+			writeString(out, header.returnDescription);
+			writeNamedTags(out, header.namedTags);
+			writeMap(out, header.tags);
+		}
+		List<ParsedQEntity> entities = pqf.getQEntities();
+		out.writeInt(entities.size());
+		for(ParsedQEntity pqe : entities) {
+			writeString(out, pqe.getName());
+			writeString(out, pqe.getNamespace());
+			writeString(out, pqe.getDocDescription());
+			writeNamedTags(out, pqe.getNamedTags());
+			writeMap(out, pqe.getTags());
+			writeString(out, pqe.getReturnDescription());
+			out.writeInt(pqe.getOffset());
+		}
+	}
+
+	private static Entry read(DataInputStream in) throws IOException {
+		long lastModified = in.readLong();
+		long length = in.readLong();
+		long hash = in.readLong();
+		String path = readString(in);
+		String title = readString(in);
+		String author = readString(in);
+		ParsedComments header = null;
+		if(in.readBoolean()) {
+			header = ParsedComments.restore(readString(in), readString(in), readNamedTags(in), readMap(in));
+		}
+		ParsedQFile pqf = new ParsedQFile(header, author, path, title);
+		int n = in.readInt();
+		List<ParsedQEntity> entities = new ArrayList<ParsedQEntity>(n);
+		for(int i = 0; i < n; i++) {
+			entities.add(ParsedQEntity.restore(pqf, readString(in), readString(in), readString(in),
+					readNamedTags(in), readMap(in), readString(in), in.readInt()));
+		}
+		pqf.setqEntities(entities);
+		return new Entry(lastModified, length, hash, pqf);
+	}
+
+	/** writeUTF is limited to 64KB which a long comment could exceed. */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if(s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(b.length);
+			out.write(b);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int len = in.readInt();
+		if(len < 0) {
+			return null;
+		}
+		byte[] b = new byte[len];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	private static void writeMap(DataOutputStream out, Map<String, String> m) throws IOException {
+		out.writeInt(m.size());
+		for(Map.Entry<String, String> e : m.entrySet()) {
+			writeString(out, e.getKey());
+			writeString(out, e.getValue());
+		}
+	}
+
+	private static Map<String, String> readMap(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		if(n == 0) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> m = new HashMap<String, String>(n * 2);
+		for(int i = 0; i < n; i++) {
+			m.put(readString(in), readString(in));
+		}
+		return Collections.unmodifiableMap(m);
+	}
+
+	private static void writeNamedTags(DataOutputStream out, Map<String, Map<String, String>> m) throws IOException {
+		out.writeInt(m.size());
+		for(Map.Entry<String, Map<String, String>> e : m.entrySet()) {
+			writeString(out, e.getKey());
+			writeMap(out, e.getValue());
+		}
+	}
+
+	private static Map<String, Map<String, String>> readNamedTags(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		Map<String, Map<String, String>> m = new HashMap<String, Map<String, String>>(n * 2);
+		for(int i = 0; i < n; i++) {
+			m.put(readString(in), readMap(in));
+		}
+		return m;
+	}
+}
@@ -34,6 +34,7 @@ import com.timestored.docs.Document;
  * 1-targetFolder- created if necessary 
  * 2-qSrcFolder searched recursively for .q files
  * 3-(optional) baseWeblink A http web address specifying a kdb server against which example call links should be generated.
+ * Running again into the same targetFolder only regenerates pages whose source changed, see {@link QDocManifest}.
  */
 public class QDocMain {
 
@@ -0,0 +1,149 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qdoc;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * The hash of the source of every page qdoc generated into a folder, so that a later run into the
+ * same folder only renders pages whose source changed. The index pages, that list every file,
+ * have one hash covering all the pages.
+ * <p>
+ * Stored as a tab separated text file in the output folder, written to a temporary file that is then
+ * moved into place. A manifest that cannot be read is logged and treated as empty so everything is generated.
+ */
+final class QDocManifest {
+
+	private static final Logger LOG = Logger.getLogger(QDocManifest.class.getName());
+	static final String FILENAME = "qdoc-manifest.txt";
+	/** Increment whenever the HTML output changes so pages from older versions are regenerated. */
+	private static final int VERSION = 1;
+	private static final String HEADER = "qdoc-manifest\t" + VERSION;
+	private static final String PAGE = "page";
+	private static final String INDEX = "index";
+
+	static final QDocManifest EMPTY = new QDocManifest(Collections.<String,String>emptyMap(), null);
+
+	/** Page filename to hash of its source. */
+	private final Map<String, String> pageHashes;
+	private final String indexHash;
+
+	private QDocManifest(Map<String, String> pageHashes, String indexHash) {
+		this.pageHashes = pageHashes;
+		this.indexHash = indexHash;
+	}
+
+	/** @return The manifest of the folder or {@link #EMPTY} if it has none. */
+	static QDocManifest load(File dir) {
+		File f = new File(dir, FILENAME);
+		if(!f.isFile()) {
+			return EMPTY;
+		}
+		try {
+			List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+			if(lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+				LOG.info("Ignoring qdoc manifest from another version " + f);
+				return EMPTY;
+			}
+			Map<String, String> pages = new HashMap<String, String>(lines.size() * 2);
+			String index = null;
+			for(String l : lines.subList(1, lines.size())) {
+				String[] parts = l.split("\t", 3);
+				if(parts.length == 3 && parts[0].equals(PAGE)) {
+					pages.put(parts[2], parts[1]);
+				} else if(parts.length == 2 && parts[0].equals(INDEX)) {
+					index = parts[1];
+				}
+			}
+			return new QDocManifest(pages, index);
+		} catch(IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Could not read qdoc manifest " + f + " so all pages will be generated", e);
+			return EMPTY;
+		}
+	}
+
+	/** @return true if the page was generated from a source with this hash and is still in the folder. */
+	boolean isUnchanged(File dir, String page, String hash) {
+		return hash.equals(pageHashes.get(page)) && new File(dir, page).isFile();
+	}
+
+	/** @return true if the index pages were generated from pages with this combined hash and are still in the folder. */
+	boolean isIndexUnchanged(File dir, String hash, String... indexPages) {
+		if(!hash.equals(indexHash)) {
+			return false;
+		}
+		for(String p : indexPages) {
+			if(!new File(dir, p).isFile()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Replace the manifest in the folder.
+	 * @param pageHashes Filename of every page generated to the hash of its source.
+	 * @param indexHash Hash of all pages that the index pages were generated from, null if they were not.
+	 */
+	static void save(File dir, Map<String, String> pageHashes, String indexHash) throws IOException {
+		File f = new File(dir, FILENAME);
+		File tmp = new File(dir, FILENAME + ".tmp");
+		try {
+			try(BufferedWriter w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+				w.write(HEADER);
+				w.newLine();
+				for(Map.Entry<String, String> e : pageHashes.entrySet()) {
+					w.write(PAGE + "\t" + e.getValue() + "\t" + e.getKey());
+					w.newLine();
+				}
+				if(indexHash != null) {
+					w.write(INDEX + "\t" + indexHash);
+					w.newLine();
+				}
+			}
+			Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	/** @return Hex hash of the parts, null parts being distinct from empty ones. */
+	static String hash(String... parts) {
+		Hasher h = Hashing.murmur3_128().newHasher();
+		for(String p : parts) {
+			h.putBoolean(p != null);
+			if(p != null) {
+				h.putInt(p.length()).putString(p, StandardCharsets.UTF_8);
+			}
+		}
+		return h.hash().toString();
+	}
+}
@@ -64,19 +64,52 @@ public class QFileParser {
 	
 	private final List<String> commentsBuffer = new ArrayList<String>();
 	private final List<ParsedQEntity> qEntities = new ArrayList<ParsedQEntity>();
+	private final List<Checkpoint> checkpoints = new ArrayList<Checkpoint>();
 	private int pos = 0;
 	private String curNamespace = DEFAULT_NS;
 	private ParsedQFile pqf;
+	/** Position the body starts after the header comment. */
+	private int headerEnd = 0;
 	
 	
 	private QFileParser(String fullFileContents, 
 			String srcFilePath, String srcFileTitle) {
-		
-		s = fullFileContents.replace("\r\n", "\n").toCharArray();
+		this(normalise(fullFileContents).toCharArray(), srcFilePath, srcFileTitle);
+	}
+	
+	private QFileParser(char[] s, String srcFilePath, String srcFileTitle) {
+		this.s = s;
 		this.srcFilePath = srcFilePath;
 		this.srcFileTitle = srcFileTitle;
 		curNamespace = DEFAULT_NS;
 	}
+
+	static String normalise(String fullFileContents) {
+		return fullFileContents.replace("\r\n", "\n");
+	}
+	
+	/**
+	 * Parser state at the start of a top level line where the comments buffer is empty,
+	 * the whole state of the parser so parsing can resume from here after the text that follows changes.
+	 */
+	static class Checkpoint {
+		int offset;
+		final String namespace;
+		/** Number of entities found before this point. */
+		int entityIndex;
+		
+		Checkpoint(int offset, String namespace, int entityIndex) {
+			this.offset = offset;
+			this.namespace = namespace;
+			this.entityIndex = entityIndex;
+		}
+	}
+	
+	/** Decides where a resumed parse can stop as the old parse from that point is still valid. */
+	static interface Resync {
+		/** @return true if parsing can stop at this checkpoint. */
+		boolean canStop(int offset, String namespace);
+	}
 	
 	private ParsedQFile parse() {		
 		// header comment
@@ -88,14 +121,32 @@ public class QFileParser {
 		commentsBuffer.clear();
 		LOG.fine("headerDoc = " + headerDoc);
 		pqf = new ParsedQFile(headerDoc, "",  srcFilePath, srcFileTitle);
+		headerEnd = pos;
 		
-		
+		parseBody(null);
+		List<ParsedQEntity> combined = new ArrayList<ParsedQEntity>(qEntities);
+		combineByFullName(combined);
+		pqf.setqEntities(combined);
+		return pqf;
+	}
+
+	/**
+	 * Parse from the current pos recording a {@link Checkpoint} at the start of each top level line.
+	 * @param resync Consulted at each checkpoint, null to parse to the end.
+	 * @return The checkpoint parsing stopped at or null if it reached the end.
+	 */
+	private Checkpoint parseBody(Resync resync) {
 		while(pos<s.length) {
 			if(isWhiteSpace(s[pos])) {
 				pos++;
 			} else if(isNewLine(s[pos])){
 				pos++;
 				commentsBuffer.clear();
+				Checkpoint cp = new Checkpoint(pos, curNamespace, qEntities.size());
+				checkpoints.add(cp);
+				if(resync != null && resync.canStop(pos, curNamespace)) {
+					return cp;
+				}
 			} else {
 				boolean found = parseCommentsToBuffer()
 						| parseNamespace()
@@ -107,16 +158,13 @@ public class QFileParser {
 				}
 			}
 		}
-
-		combineByFullName(qEntities);
-		pqf.setqEntities(qEntities);
-		return pqf;
+		return null;
 	}
 
 	/**
 	 * combine duplicate entries i.e. getFullname matches, then just have a list of offsets
 	 */
-	private void combineByFullName(List<ParsedQEntity> qEntities) {
+	static void combineByFullName(List<ParsedQEntity> qEntities) {
 
 		// combine to multiset
 		Multimap<String, ParsedQEntity> namespaceToEntities = ArrayListMultimap.create();
@@ -124,12 +172,10 @@ public class QFileParser {
 			namespaceToEntities.put(pqe.getFullName(), pqe);
 		}
 		
-		// go through, find multiples, remove them and create new combined one
+		// rebuild with multiples replaced by a combined one, linear as large files repeat names a lot
+		qEntities.clear();
 		for(Collection<ParsedQEntity> nsEntries : namespaceToEntities.asMap().values()) {
-			if(nsEntries.size()>1) {
-				qEntities.removeAll(nsEntries);
-				qEntities.add(combine(nsEntries));
-			}
+			qEntities.add(combine(nsEntries));
 		}
 	}
 
@@ -139,7 +185,7 @@ public class QFileParser {
 	 * @param nsEntries The entries that all occur in the same file that need combined.
 	 * @return A combined Entity that represents the separate occurrences.
 	 */
-	private ParsedQEntity combine(Collection<ParsedQEntity> nsEntries) {
+	private static ParsedQEntity combine(Collection<ParsedQEntity> nsEntries) {
 		
 		Preconditions.checkArgument(nsEntries.size() > 0);
 		if(nsEntries.size()==1) {
@@ -147,7 +193,7 @@ public class QFileParser {
 		}
 		
 		ParsedQEntity re = nsEntries.iterator().next();
-		String doc = "";
+		StringBuilder doc = new StringBuilder();
 		String ret = "";
 		int offset = Integer.MIN_VALUE;
 		Map<String,String> paramDescriptions = Maps.newHashMap();
@@ -163,13 +209,15 @@ public class QFileParser {
 				ret = pqe.getReturnDescription();
 			}
 			String d = pqe.getDocDescription().trim();
-			doc += d.isEmpty() ? d : d + BR;
+			if(!d.isEmpty()) {
+				doc.append(d).append(BR);
+			}
 			offset = Math.min(offset, pqe.getOffset());
 			paramDescriptions.putAll(pqe.getParamTags());
 			exceptionDescriptions.putAll(pqe.getExceptionTags());
 		}
 		return ParsedQEntity.get(re.getParentFile(), re.getDocName(), re.getNamespace(), 
-				doc, paramDescriptions, exceptionDescriptions, ret, offset);
+				doc.toString(), paramDescriptions, exceptionDescriptions, ret, offset);
 	}
 
 	/**
@@ -198,6 +246,48 @@ public class QFileParser {
 		return new QFileParser(fullFileContents, srcFilePath, srcFileTitle).parse();
 		
 	}
+
+	/**
+	 * The result of a full parse or of resuming one, what {@link IncrementalQFileParser} keeps between edits.
+	 * Entities are uncombined and in file order.
+	 */
+	static class Result {
+		final ParsedQFile parsedQFile;
+		final int headerEnd;
+		final List<ParsedQEntity> entities;
+		final List<Checkpoint> checkpoints;
+		/** The checkpoint a resumed parse stopped at or null if it reached the end. */
+		final Checkpoint stoppedAt;
+
+		private Result(QFileParser p, Checkpoint stoppedAt) {
+			this.parsedQFile = p.pqf;
+			this.headerEnd = p.headerEnd;
+			this.entities = p.qEntities;
+			this.checkpoints = p.checkpoints;
+			this.stoppedAt = stoppedAt;
+		}
+	}
+
+	/** Parse the whole of already normalised contents. */
+	static Result parseFully(char[] contents, String srcFilePath, String srcFileTitle) {
+		QFileParser p = new QFileParser(contents, srcFilePath, srcFileTitle);
+		p.parse();
+		return new Result(p, null);
+	}
+
+	/**
+	 * Parse already normalised contents from a checkpoint of an earlier parse until resync says to stop.
+	 * Entities found are added to parsedQFile, the caller must then set its entity list.
+	 */
+	static Result parseFrom(char[] contents, ParsedQFile parsedQFile, int headerEnd, Checkpoint from, Resync resync) {
+		QFileParser p = new QFileParser(contents, parsedQFile.getSrcFileAbsolutePath(), parsedQFile.getFileTitle());
+		p.pqf = parsedQFile;
+		p.headerEnd = headerEnd;
+		p.pos = from.offset;
+		p.curNamespace = from.namespace;
+		Checkpoint stoppedAt = p.parseBody(resync);
+		return new Result(p, stoppedAt);
+	}
 	
 	private static boolean parseCode() {
 		// TODO Auto-generated method stub
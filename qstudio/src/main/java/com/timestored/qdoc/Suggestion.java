@@ -32,6 +32,8 @@ class Suggestion {
 	private final String textInsert;
 	private final int selectionStart;
 	private final int selectionEnd;
+	/** Number of characters before the carat that textInsert replaces, 0 if it only extends them. */
+	private final int replaceLength;
 
 	/** Offset from start of textInsert that selectionStart should move to */
 	public int getSelectionStart() { return selectionStart; }
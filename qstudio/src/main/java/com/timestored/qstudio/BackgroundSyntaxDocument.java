@@ -0,0 +1,598 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio;
+
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentEvent.ElementChange;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import jsyntaxpane.SyntaxDocument;
+import jsyntaxpane.Token;
+import jsyntaxpane.lexers.DefaultJFlexLexer;
+import jsyntaxpane.lexers.PrqlLexer;
+import jsyntaxpane.lexers.QSqlLexer;
+import jsyntaxpane.lexers.SqlLexer;
+
+/**
+ * A {@link SyntaxDocument} that tokenizes on a background thread rather than re-lexing the whole
+ * document on the EDT after every keystroke.
+ * <p>
+ * Tokens are held per line relative to the line start, so lines after an edit need no change, along
+ * with a checkpoint: where and in what state the lexer can resume to re-lex that line. An edit marks
+ * the lines it touched stale, their old tokens shifted so colours do not flicker, and the lexer then
+ * resumes at the first stale line and continues until it reaches an untouched line whose checkpoint
+ * is unchanged, as everything from there on lexes exactly as before. Reads are a line at a time so
+ * how far the lexer looked ahead is known and editing a line re-lexes any earlier line that read it.
+ * Lexing is done in short slices holding the read lock so typing is never blocked for long, with
+ * the lines lexed repainted after each, so a multi-megabyte file is editable at once and coloured
+ * progressively.
+ * Painting only asks for the tokens of the lines in view.
+ */
+class BackgroundSyntaxDocument extends SyntaxDocument {
+
+	private static final long serialVersionUID = 1L;
+	private static final Logger LOG = Logger.getLogger(BackgroundSyntaxDocument.class.getName());
+
+	/** Content types whose lexer can be resumed part way through, all other types lex as normal. */
+	private static final Map<String, Supplier<ResumableLexer>> LEXERS = ImmutableMap.of(
+			"text/qsql", () -> { QSqlLexer l = new QSqlLexer(); return new ResumableLexer(l, l::yystate, l::yybegin); },
+			"text/sql", () -> { SqlLexer l = new SqlLexer(); return new ResumableLexer(l, l::yystate, l::yybegin); },
+			"text/prql", () -> { PrqlLexer l = new PrqlLexer(); return new ResumableLexer(l, l::yystate, l::yybegin); });
+
+	/** Maximum time one slice of lexing holds the read lock. */
+	private static final long SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(15);
+	private static final Token[] NO_TOKENS = new Token[0];
+
+	/** Shared by all documents, one thread so documents take turns a slice at a time, it exits when idle. */
+	private static final ThreadPoolExecutor EXECUTOR;
+	static {
+		EXECUTOR = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactoryBuilder().setNameFormat("syntax-lexer-%d").setDaemon(true).build());
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	private final Supplier<ResumableLexer> lexerSupplier;
+	/**
+	 * One entry per line of the document. Structural changes are made by edits holding the write lock,
+	 * entries are replaced by the lexer holding the read lock. Entries are immutable.
+	 */
+	private final List<Line> lines = new ArrayList<Line>();
+	/** No line before this is stale, guarded by the document lock. */
+	private int staleFrom = 0;
+	/** Guarded by this. */
+	private boolean scheduled = false;
+	/** Set by edits so a lex that started before them is followed by another, guarded by this. */
+	private boolean pending = false;
+
+	/** A lexer with its state exposed so that lexing can resume from a checkpoint. */
+	private static final class ResumableLexer {
+		private final DefaultJFlexLexer lexer;
+		private final IntSupplier state;
+		private final IntConsumer begin;
+
+		ResumableLexer(DefaultJFlexLexer lexer, IntSupplier state, IntConsumer begin) {
+			this.lexer = lexer;
+			this.state = state;
+			this.begin = begin;
+		}
+	}
+
+	/**
+	 * The tokens of one line, clipped to it and relative to its start, and its checkpoint:
+	 * the lexer resumes back characters before the line start, the end of the last token that
+	 * ended at or before it, in the given state. A back of -1 means the checkpoint is unknown.
+	 * Lexing earlier lines may have looked ahead into this one, lookbehind is how many lines before
+	 * this one lexing must restart from if it is edited.
+	 */
+	private static final class Line {
+		private static final Line START = new Line(NO_TOKENS, 0, 0, 0, true);
+		private static final Line UNKNOWN = new Line(NO_TOKENS, -1, 0, 0, true);
+
+		private final Token[] tokens;
+		private final int back;
+		private final int state;
+		private final int lookbehind;
+		/** True if the line was edited since lexed, its tokens are only approximate. */
+		private final boolean stale;
+
+		Line(Token[] tokens, int back, int state, int lookbehind, boolean stale) {
+			this.tokens = tokens;
+			this.back = back;
+			this.state = state;
+			this.lookbehind = lookbehind;
+			this.stale = stale;
+		}
+
+		/** @return This line after delta characters were inserted, or if negative removed, at col. */
+		Line edited(int col, int delta) {
+			List<Token> r = new ArrayList<Token>(tokens.length + 1);
+			for(Token t : tokens) {
+				int s = delta > 0 ? (t.start < col ? t.start : t.start + delta) : shiftRemoved(t.start, col, delta);
+				int e = delta > 0 ? (t.end() <= col ? t.end() : t.end() + delta) : shiftRemoved(t.end(), col, delta);
+				if(e > s) {
+					r.add(new Token(t.type, s, e - s, t.pairValue));
+				}
+			}
+			return new Line(r.toArray(NO_TOKENS), back, state, lookbehind, true);
+		}
+
+		private static int shiftRemoved(int p, int col, int delta) {
+			return p <= col ? p : p >= col - delta ? p + delta : col;
+		}
+
+		/** @return This line with only the tokens before col, for when the rest was moved to other lines. */
+		Line truncated(int col) {
+			List<Token> r = new ArrayList<Token>(tokens.length);
+			for(Token t : tokens) {
+				if(t.start < col) {
+					r.add(new Token(t.type, t.start, Math.min(t.end(), col) - t.start, t.pairValue));
+				}
+			}
+			return new Line(r.toArray(NO_TOKENS), back, state, lookbehind, true);
+		}
+	}
+
+	private BackgroundSyntaxDocument(Supplier<ResumableLexer> lexerSupplier) {
+		super(null); // no lexer so the superclass never lexes on the EDT
+		this.lexerSupplier = lexerSupplier;
+		lines.add(Line.START);
+	}
+
+	/** @return A new document for the content type or null if it has no lexer that can be run in the background. */
+	static BackgroundSyntaxDocument forContentType(String contentType) {
+		Supplier<ResumableLexer> lexerSupplier = LEXERS.get(contentType);
+		return lexerSupplier == null ? null : new BackgroundSyntaxDocument(lexerSupplier);
+	}
+
+	@Override protected void fireInsertUpdate(DocumentEvent e) {
+		edited(e, e.getLength());
+		super.fireInsertUpdate(e);
+	}
+
+	@Override protected void fireRemoveUpdate(DocumentEvent e) {
+		edited(e, -e.getLength());
+		super.fireRemoveUpdate(e);
+	}
+
+	/** Called holding the write lock after the text and lines were changed, marks the edited lines stale. */
+	private void edited(DocumentEvent e, int delta) {
+		Element root = getDefaultRootElement();
+		ElementChange change = e.getChange(root);
+		int first;
+		if(change == null) {
+			first = root.getElementIndex(e.getOffset());
+			int col = e.getOffset() - root.getElement(first).getStartOffset();
+			lines.set(first, lines.get(first).edited(col, delta));
+		} else {
+			// the first line replaced starts where the first added does so its checkpoint still holds
+			first = change.getIndex();
+			int col = e.getOffset() - root.getElement(first).getStartOffset();
+			int added = change.getChildrenAdded().length;
+			List<Line> replacement = new ArrayList<Line>(added);
+			replacement.add(lines.get(first).truncated(col));
+			for(int i = 1; i < added; i++) {
+				replacement.add(Line.UNKNOWN);
+			}
+			lines.subList(first, first + change.getChildrenRemoved().length).clear();
+			lines.addAll(first, replacement);
+		}
+		staleFrom = Math.min(staleFrom, first);
+		schedule();
+	}
+
+	private synchronized void schedule() {
+		pending = true;
+		if(!scheduled) {
+			scheduled = true;
+			EXECUTOR.execute(this::lexSlice);
+		}
+	}
+
+	private void lexSlice() {
+		synchronized (this) {
+			pending = false;
+		}
+		boolean more = false;
+		readLock();
+		try {
+			more = lexStaleLines();
+		} catch(IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Could not lex document", e);
+		} finally {
+			readUnlock();
+		}
+		synchronized (this) {
+			if(more || pending) {
+				EXECUTOR.execute(this::lexSlice);
+			} else {
+				scheduled = false;
+			}
+		}
+	}
+
+	/**
+	 * Lex from the first stale line until an unchanged line is reached or the slice of time is used up.
+	 * Called holding the read lock.
+	 * @return true if there may be more stale lines.
+	 */
+	private boolean lexStaleLines() throws IOException {
+		int lineCount = lines.size();
+		int l = staleFrom;
+		while(l < lineCount && !lines.get(l).stale) {
+			l++;
+		}
+		staleFrom = l;
+		if(l == lineCount) {
+			return false;
+		}
+		// restart where lexing first looked at the stale line, which may be a line or more before it
+		int from = Math.max(0, l - lines.get(l).lookbehind);
+		while(lines.get(from).back < 0) {
+			from--; // added by an edit, the line before it has a checkpoint
+		}
+		return new Pass(from, l).run();
+	}
+
+	/** One run of the lexer from the checkpoint of a line. */
+	private final class Pass {
+		private final Element root = getDefaultRootElement();
+		private final long deadline = System.nanoTime() + SLICE_NANOS;
+		private final int firstLine;
+		private final int resume;
+		private final ResumableLexer lexer = lexerSupplier.get();
+		private final DocumentReader reader;
+
+		private int line;
+		private int lineStart;
+		private int lineEnd;
+		private Line checkpoint;
+		private final List<Token> lineTokens = new ArrayList<Token>();
+		/** The last stale line reached, the pass cannot stop at or before it or where the checkpoint resumes in it. */
+		private int lastStale;
+		/** End and state after the last token. */
+		private int prevEnd;
+		private int prevState;
+		/** Last line read by the lexer, and for runs of lines read ahead, their first line and the line lexing was on. */
+		private int readLine;
+		private final ArrayDeque<int[]> readAhead = new ArrayDeque<int[]>();
+		/** Line lexing was on when the current line was first read. */
+		private int readFrom;
+		/** Line this pass started reading from. */
+		private final int firstRead;
+
+		/** Lex from the checkpoint of firstLine, which must be at or before the stale line. */
+		Pass(int firstLine, int staleLine) {
+			this.firstLine = firstLine;
+			this.line = firstLine;
+			this.checkpoint = lines.get(firstLine);
+			this.lastStale = staleLine;
+			Element e = root.getElement(firstLine);
+			this.lineStart = e.getStartOffset();
+			this.lineEnd = e.getEndOffset();
+			this.resume = lineStart - checkpoint.back;
+			this.prevEnd = resume;
+			this.prevState = checkpoint.state;
+			this.reader = new DocumentReader(resume);
+			this.firstRead = root.getElementIndex(resume);
+			this.readLine = firstRead;
+			this.readFrom = firstRead;
+		}
+
+		/** @return true if there may be more stale lines. */
+		boolean run() throws IOException {
+			lexer.lexer.yyreset(reader);
+			lexer.begin.accept(checkpoint.state);
+			for(Token t = lexer.lexer.yylex(); t != null; t = lexer.lexer.yylex()) {
+				noteReadAhead();
+				int start = resume + t.start;
+				int end = start + t.length;
+				while(start >= lineEnd) {
+					if(!nextLine()) {
+						return true;
+					}
+				}
+				add(t, start, end);
+				while(end > lineEnd) {
+					if(!nextLine()) {
+						return true;
+					}
+					add(t, start, end);
+				}
+				prevEnd = end;
+				prevState = lexer.state.getAsInt();
+			}
+			noteReadAhead();
+			while(line < lines.size() - 1) {
+				if(!nextLine()) {
+					return true;
+				}
+			}
+			finishLine();
+			staleFrom = lines.size();
+			repaint(lineEnd);
+			return false;
+		}
+
+		/** Record the lines the lexer read beyond those it had, what they depend on is from the last token on. */
+		private void noteReadAhead() {
+			if(reader.line > readLine) {
+				readAhead.add(new int[] { readLine + 1, root.getElementIndex(prevEnd) });
+				readLine = reader.line;
+			}
+		}
+
+		/** Add the part of the token on the current line, tokens before it are from lines already lexed. */
+		private void add(Token t, int start, int end) {
+			int s = Math.max(start, lineStart);
+			if(end > s || start >= lineStart) {
+				lineTokens.add(new Token(t.type, s - lineStart, Math.min(end, lineEnd) - s, t.pairValue));
+			}
+		}
+
+		private void finishLine() {
+			int from = Math.min(readFrom, root.getElementIndex(lineStart - checkpoint.back));
+			if(line - checkpoint.lookbehind < firstRead) {
+				from = Math.min(from, line - checkpoint.lookbehind); // read by lexing before this pass
+			}
+			int lookbehind = Math.max(0, line - from);
+			lines.set(line, new Line(lineTokens.toArray(NO_TOKENS), checkpoint.back, checkpoint.state, lookbehind, false));
+			lineTokens.clear();
+		}
+
+		/**
+		 * Store the current line and move to the next, whose checkpoint is the end of the last token.
+		 * @return false if this pass should stop, the next line being unchanged or time being up.
+		 */
+		private boolean nextLine() {
+			finishLine();
+			line++;
+			while(!readAhead.isEmpty() && readAhead.peek()[0] <= line) {
+				readFrom = readAhead.poll()[1];
+			}
+			Element e = root.getElement(line);
+			lineStart = e.getStartOffset();
+			lineEnd = e.getEndOffset();
+			Line old = lines.get(line);
+			int back = lineStart - prevEnd;
+			if(line > lastStale && !old.stale && old.back == back && old.state == prevState
+					&& root.getElementIndex(prevEnd) > lastStale) {
+				staleFrom = line;
+				repaint(lineStart);
+				return false;
+			}
+			if(old.stale) {
+				lastStale = line;
+			}
+			checkpoint = new Line(old.tokens, back, prevState, old.lookbehind, true);
+			if(System.nanoTime() > deadline) {
+				lines.set(line, checkpoint);
+				staleFrom = line;
+				repaint(lineStart);
+				return false;
+			}
+			return true;
+		}
+
+		/** Repaint the lines lexed so far, once the lock is released. */
+		private void repaint(int end) {
+			int start = root.getElement(firstLine).getStartOffset();
+			EventQueue.invokeLater(() -> fireLexed(start, end));
+		}
+	}
+
+	/** Tell the views the tokens from start to end changed so they repaint. */
+	private void fireLexed(int start, int end) {
+		writeLock();
+		try {
+			int len = getLength();
+			int s = Math.min(start, len);
+			fireChangedUpdate(new DefaultDocumentEvent(s, Math.min(end, len) - s, DocumentEvent.EventType.CHANGE));
+		} finally {
+			writeUnlock();
+		}
+	}
+
+	/**
+	 * Reads the document from a position without copying it, must be used holding the read lock.
+	 * Each read returns at most the rest of a line so that how far the lexer looked ahead is known.
+	 */
+	private final class DocumentReader extends Reader {
+		private final Element root = getDefaultRootElement();
+		private final Segment segment = new Segment();
+		private int pos;
+		/** Line of the last character read. */
+		private int line;
+
+		DocumentReader(int pos) {
+			this.pos = pos;
+			this.line = root.getElementIndex(pos);
+			segment.setPartialReturn(true);
+		}
+
+		@Override public int read(char[] cbuf, int off, int len) throws IOException {
+			int l = root.getElementIndex(pos);
+			int available = Math.min(len, Math.min(root.getElement(l).getEndOffset(), getLength()) - pos);
+			if(available <= 0) {
+				return len == 0 ? 0 : -1;
+			}
+			try {
+				getText(pos, available, segment);
+			} catch(BadLocationException e) {
+				throw new IOException(e);
+			}
+			System.arraycopy(segment.array, segment.offset, cbuf, off, segment.count);
+			pos += segment.count;
+			line = l;
+			return segment.count;
+		}
+
+		@Override public void close() { }
+	}
+
+	/** @return The tokens, in order, that end after start and begin before end. */
+	@Override public Iterator<Token> getTokens(int start, int end) {
+		Element root = getDefaultRootElement();
+		int first = root.getElementIndex(start);
+		int last = Math.min(root.getElementIndex(end), lines.size() - 1);
+		return new Iterator<Token>() {
+			private int l = first;
+			private int i = 0;
+			private Token next = advance();
+
+			private Token advance() {
+				for(; l <= last; l++, i = 0) {
+					Token[] ts = lines.get(l).tokens;
+					int lineStart = root.getElement(l).getStartOffset();
+					while(i < ts.length) {
+						Token t = absolute(ts[i++], lineStart);
+						if(t.start >= end) {
+							return null;
+						} else if(t.end() > start) {
+							return t;
+						}
+					}
+				}
+				return null;
+			}
+
+			@Override public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override public Token next() {
+				if(next == null) {
+					throw new NoSuchElementException();
+				}
+				Token t = next;
+				next = advance();
+				return t;
+			}
+		};
+	}
+
+	/** @return The token starting at pos, else the one before it if pos is within or at its end, else null. */
+	@Override public Token getTokenAt(int pos) {
+		if(pos < 0 || pos > getLength()) {
+			return null;
+		}
+		Element root = getDefaultRootElement();
+		int l = root.getElementIndex(pos);
+		int lineStart = root.getElement(l).getStartOffset();
+		Token found = null;
+		for(Token t : lines.get(l).tokens) {
+			if(t.start + lineStart > pos) {
+				break;
+			}
+			found = t;
+		}
+		return found != null && pos <= found.end() + lineStart ? absolute(found, lineStart) : null;
+	}
+
+	@Override public Token getNextToken(Token tok) {
+		Iterator<Token> it = getTokens(tok.end(), getLength());
+		return it.hasNext() ? it.next() : null;
+	}
+
+	@Override public Token getPrevToken(Token tok) {
+		Iterator<Token> it = getTokensBefore(tok.start);
+		return it.hasNext() ? it.next() : null;
+	}
+
+	/** @return The token that pairs with t, e.g. the closing bracket for an opening one, or null if none. */
+	@Override public Token getPairFor(Token t) {
+		if(t == null || t.pairValue == 0) {
+			return null;
+		}
+		int kind = Math.abs(t.pairValue);
+		int balance = t.pairValue;
+		Iterator<Token> it = t.pairValue > 0 ? getTokens(t.end(), getLength()) : getTokensBefore(t.start);
+		while(it.hasNext()) {
+			Token p = it.next();
+			if(Math.abs(p.pairValue) == kind) {
+				balance += p.pairValue;
+				if(balance == 0) {
+					return p;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** @return The tokens ending at or before pos, last first. */
+	private Iterator<Token> getTokensBefore(int pos) {
+		Element root = getDefaultRootElement();
+		return new Iterator<Token>() {
+			private int l = Math.min(root.getElementIndex(pos), lines.size() - 1);
+			private int i = lines.get(l).tokens.length;
+			private Token next = advance();
+
+			private Token advance() {
+				for(; l >= 0; l--, i = l >= 0 ? lines.get(l).tokens.length : 0) {
+					Token[] ts = lines.get(l).tokens;
+					int lineStart = root.getElement(l).getStartOffset();
+					while(i > 0) {
+						Token t = ts[--i];
+						if(t.end() + lineStart <= pos) {
+							return absolute(t, lineStart);
+						}
+					}
+				}
+				return null;
+			}
+
+			@Override public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override public Token next() {
+				if(next == null) {
+					throw new NoSuchElementException();
+				}
+				Token t = next;
+				next = advance();
+				return t;
+			}
+		};
+	}
+
+	private static Token absolute(Token t, int lineStart) {
+		return new Token(t.type, lineStart + t.start, t.length, t.pairValue);
+	}
+}
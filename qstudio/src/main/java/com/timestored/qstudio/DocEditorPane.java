@@ -21,8 +21,12 @@ import java.awt.event.MouseEvent;
 
 import javax.swing.JEditorPane;
 import javax.swing.ToolTipManager;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.EditorKit;
 import javax.swing.event.CaretEvent;
 import javax.swing.event.CaretListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import com.google.common.base.MoreObjects;
 import com.timestored.docs.Document;
@@ -40,6 +44,25 @@ class DocEditorPane extends JEditorPane {
 	private TooltipProvider tooltipProvider = null;
 
 	private boolean modifyingSelf;
+	
+	/** Passes each insert and remove to the document so typing does not copy or compare the whole text. */
+	private final DocumentListener editForwarder = new DocumentListener() {
+
+		@Override public void insertUpdate(DocumentEvent e) {
+			try {
+				String text = e.getDocument().getText(e.getOffset(), e.getLength());
+				forwardEdit(e, e.getOffset(), e.getOffset(), text);
+			} catch (BadLocationException ble) {
+				copyAll();
+			}
+		}
+
+		@Override public void removeUpdate(DocumentEvent e) {
+			forwardEdit(e, e.getOffset(), e.getOffset() + e.getLength(), "");
+		}
+
+		@Override public void changedUpdate(DocumentEvent e) { } // styles only
+	};
 
 	/**
 	 * Show the selected document, allow editing it and performing other actions on it. 
@@ -48,18 +71,21 @@ class DocEditorPane extends JEditorPane {
 
 		this.document = document;
 
-		// handle both content changes and selection changes here.
+		// content changes are forwarded as they happen, the caret only moves the selection.
+		getDocument().addDocumentListener(editForwarder);
+		addPropertyChangeListener("document", e -> {
+			if(e.getOldValue() != null) {
+				((javax.swing.text.Document) e.getOldValue()).removeDocumentListener(editForwarder);
+			}
+			if(e.getNewValue() != null) {
+				((javax.swing.text.Document) e.getNewValue()).addDocumentListener(editForwarder);
+			}
+		});
 		addCaretListener(new CaretListener() {
 			
 			@Override public void caretUpdate(CaretEvent e) {
-				//TODO this creates a different large string on every single keystroke!
 				if(!modifyingSelf) {
 					modifyingSelf = true;
-					String t = getText().replaceAll(NL, "\n");
-					if(!t.equals(document.getContent())) {
-						document.setContent(t);
-					}
-					
 					document.setSelection(getSelectionStart(), getSelectionEnd(), e.getDot());
 					modifyingSelf = false;
 				}
@@ -71,7 +97,9 @@ class DocEditorPane extends JEditorPane {
         document.addListener(new Document.Listener() {
 
 			@Override public void docContentModified() {
-		        refreshContent();
+				if(!modifyingSelf) {
+					refreshContent();
+				}
 			}
 
 			@Override public void docCaratModified() {
@@ -90,6 +118,46 @@ class DocEditorPane extends JEditorPane {
 	}
 
 
+	/**
+	 * Make the same replace in the document, unless the editor and document were not in step before it,
+	 * e.g. after a new editor kit emptied the editor, or the text has carriage returns the document drops.
+	 */
+	private void forwardEdit(DocumentEvent e, int start, int end, String text) {
+		if(modifyingSelf) {
+			return;
+		}
+		int lengthBefore = e.getDocument().getLength() - text.length() + (end - start);
+		if(document.getLength() != lengthBefore || text.indexOf('\r') >= 0) {
+			copyAll();
+			return;
+		}
+		modifyingSelf = true;
+		try {
+			document.replaceText(start, end, text);
+		} finally {
+			modifyingSelf = false;
+		}
+	}
+
+	/** Copy the whole editor text to the document, slow so only used to get back in step. */
+	private void copyAll() {
+		modifyingSelf = true;
+		try {
+			document.setContent(getText().replaceAll(NL, "\n"));
+		} finally {
+			modifyingSelf = false;
+		}
+	}
+
+	/** Use a document that highlights in the background where the kit's language supports it. */
+	@Override public void setEditorKit(EditorKit kit) {
+		super.setEditorKit(kit);
+		BackgroundSyntaxDocument doc = kit == null ? null : BackgroundSyntaxDocument.forContentType(kit.getContentType());
+		if(doc != null) {
+			setDocument(doc);
+		}
+	}
+
 	/** @return Get screen location near carat */
 	Point getPopupPoint() {
 		Point screen = getLocationOnScreen();
@@ -113,8 +181,7 @@ class DocEditorPane extends JEditorPane {
 		String docText = document.getContent();
 		String editorText = getText().replaceAll(System.getProperty("line.separator"), "\n");
 		
-		boolean textDiff = (docText!=null && editorText!= null && docText.length()>0 && !docText.equals(editorText))
-				|| !document.getContent().equals(editorText);
+		boolean textDiff = !docText.equals(editorText);
 		
 		if(textDiff) {
 			modifyingSelf = true;
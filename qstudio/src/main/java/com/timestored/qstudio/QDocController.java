@@ -47,8 +47,10 @@ import com.timestored.qdoc.DocumentedEntity;
 import com.timestored.qdoc.DocumentedMatcher;
 import com.timestored.qdoc.EmptyDocSource;
 import com.timestored.qdoc.GotoDefinitionCommandProvider;
+import com.timestored.qdoc.OpenDocumentsDocSource;
 import com.timestored.qdoc.ParsedQEntity;
 import com.timestored.qstudio.DocEditorPane.TooltipProvider;
+import com.timestored.qstudio.model.AdminModel;
 import com.timestored.qstudio.qdoc.ContextualDocCompleter;
 import com.timestored.swingxx.AAction;
 import com.timestored.theme.Theme;
@@ -71,6 +73,8 @@ public class QDocController {
 	private static final KeyStroke OUTLINE_ALL_DOC_KS = KeyStroke.getKeyStroke(KeyEvent.VK_U, shortModifier);
 
 	private final @NonNull QStudioModel qStudioModel;
+	/** Parse of the open q documents and of every q file in the selected folder. */
+	private final @NonNull OpenDocumentsDocSource openDocumentsDocSource;
 	
 	private final static @NonNull List<Supplier<DocumentedMatcher>> SUPPLIERS = new ArrayList<>();
 	private final static @NonNull List<DocumentedMatcher> docMatchers = new ArrayList<>();
@@ -83,11 +87,21 @@ public class QDocController {
 	
 	public QDocController(QStudioModel qStudioModel) {
 		this.qStudioModel = qStudioModel;
+		openDocumentsDocSource = new OpenDocumentsDocSource(qStudioModel.getOpenDocumentsModel(), QStudioModel.QDOC_INDEX_FILE);
 
 		contextualDocCompleter = new ContextualDocCompleter(qStudioModel);
 		for(Supplier<DocumentedMatcher> supplier : SUPPLIERS) {
 			docMatchers.add(supplier.get());
 		}
+		if(docMatchers.stream().noneMatch(dm -> dm.getLanguage().equals(Language.Q))) {
+			// q code in the open documents and folder plus the entities of the connected servers
+			AdminModel adminModel = qStudioModel.getAdminModel();
+			docMatchers.add(new DocumentedMatcher(Language.Q, () -> {
+				List<DocumentedEntity> r = new ArrayList<>(openDocumentsDocSource.getDocs());
+				r.addAll(adminModel.getDocs());
+				return r;
+			}));
+		}
 		for(DocumentedMatcher dm : docMatchers) {
 			dm.setContextDocCompleter(contextualDocCompleter);
 		}
@@ -123,7 +137,12 @@ public class QDocController {
 		final Action gotoDefinitionAction = new AbstractAction("goto Definition", Theme.CIcon.INFO.get16()) {
 			@Override public void actionPerformed(ActionEvent e) {
 				int cp = document.getCaratPosition();
-				List<DocumentedEntity> docEs = getDocumentedMatcher().findDocs(document.getContent(), cp);
+				// q definitions are looked up by name in the index, anything else is matched against all docs
+				String fullName = DocumentedMatcher.getLatestFullname(document.getContent(), cp);
+				List<? extends DocumentedEntity> docEs = openDocumentsDocSource.getDefinitions(fullName);
+				if(docEs.isEmpty()) {
+					docEs = getDocumentedMatcher().findDocs(document.getContent(), cp);
+				}
 				for (DocumentedEntity de : docEs) {
 					if (de instanceof ParsedQEntity) {
 						try {
@@ -236,9 +255,8 @@ public class QDocController {
 		
 	}
 
-	public Object getOpenDocumentsDocSource() {
-		// TODO Auto-generated method stub
-		return null;
+	public OpenDocumentsDocSource getOpenDocumentsDocSource() {
+		return openDocumentsDocSource;
 	}
 
 
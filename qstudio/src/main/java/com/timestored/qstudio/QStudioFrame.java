@@ -51,6 +51,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.BackingStoreException;
@@ -98,7 +99,7 @@ import com.timestored.babeldb.DBHelper;
 import com.timestored.command.CodeSnippetCommandProvider;
 import com.timestored.command.CommandDialog;
 import com.timestored.command.CommandManager;
-import com.timestored.command.CommandProvider;
+import com.timestored.command.CommandIndex;
 import com.timestored.connections.ConnectionManager;
 import com.timestored.connections.ConnectionManagerDialog;
 import com.timestored.connections.LoginDialog;
@@ -119,6 +120,7 @@ import com.timestored.misc.AppLaunchHelper;
 import com.timestored.misc.HtmlUtils;
 import com.timestored.misc.IOUtils;
 import com.timestored.misc.Mac;
+import com.timestored.qdoc.OpenDocumentsDocSource;
 import com.timestored.qstudio.kdb.KdbHelper;
 import com.timestored.qstudio.kdb.KdbTableFactory;
 import com.timestored.qstudio.model.AdminModel;
@@ -448,10 +450,8 @@ public class QStudioFrame extends JFrame {
 		commandPaletteAction = new AbstractAction() {
 			private static final long serialVersionUID = 1L;
 			@Override public void actionPerformed(ActionEvent e) {   
-				CommandProvider cp = () -> {
-					return commandManager.getCommands(qStudioModel.getCurrentSqlLanguage().name());
-				};
 				// Language specific filter
+				Supplier<CommandIndex> cp = () -> commandManager.getCommandIndex(qStudioModel.getCurrentSqlLanguage().name());
 				CommandDialog cd = new CommandDialog("", cp, BackgroundExecutor.EXECUTOR);
 				cd.setPreferredSize(new Dimension(600, 400));
 				cd.setMinimumSize(new Dimension(600, 400));
@@ -529,7 +529,7 @@ public class QStudioFrame extends JFrame {
         add(getToolbar(commonActions, queryManager, documentActions), BorderLayout.NORTH);
         add(station, BorderLayout.CENTER);
         
-		add(getStatusBar(queryManager), BorderLayout.SOUTH);
+		add(getStatusBar(queryManager, qDocController.getOpenDocumentsDocSource()), BorderLayout.SOUTH);
 
 		// @todo this one line takes 100ms
 		defaultLayoutXml = DockerHelper.getLayout(frontend);
@@ -661,9 +661,15 @@ public class QStudioFrame extends JFrame {
 	}
 
 	
-	private static QueryStatusBar getStatusBar(QueryManager queryManager) {
+	private static QueryStatusBar getStatusBar(QueryManager queryManager, OpenDocumentsDocSource openDocumentsDocSource) {
 		
 		final QueryStatusBar queryStatusBar = new QueryStatusBar();
+		// indexing may have started before the listener was added
+		openDocumentsDocSource.addIndexListener((indexed, found, finished) -> 
+			queryStatusBar.showTask(finished ? null : getIndexingText(indexed, found)));
+		if(openDocumentsDocSource.isIndexing()) {
+			queryStatusBar.showTask(getIndexingText(openDocumentsDocSource.getFilesIndexed(), openDocumentsDocSource.getFilesFound()));
+		}
 	    queryManager.addQueryListener(new QueryAdapter() {
 	    	@Override public void sendingQuery(ServerConfig sc, final String query) {
 	    		queryStatusBar.startQuery(query);
@@ -690,6 +696,10 @@ public class QStudioFrame extends JFrame {
 	
 	
 
+	private static String getIndexingText(int indexed, int found) {
+		return found == 0 ? "Indexing q files..." : ("Indexing q files " + indexed + "/" + found);
+	}
+
 	/*
 	 * This class MUST be kept public as the Mac stuff relies on it being so. 
 	 * Previously using anonymous class variable prevented program starting
@@ -28,6 +28,7 @@ import javax.swing.SwingUtilities;
 
 import com.timestored.TimeStored;
 import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.ServerListStore;
 import com.timestored.docs.OpenDocumentsModel;
 import com.timestored.misc.AppLaunchHelper;
 import com.timestored.misc.ErrorReporter;
@@ -145,7 +146,7 @@ public class QStudioLauncher  {
         			conMan.setDefaultLogin(u, p);
         		}
         		
-        		conMan.setPreferenceStore(persistance.getPref(), Persistance.Key.CONNECTIONS.name());
+        		conMan.setServerListStore(new ServerListStore(QStudioModel.SERVERS_DIR), persistance.getPref(), Persistance.Key.CONNECTIONS.name());
         		QStudioModel qStudioModel = new QStudioModel(conMan, persistance, openDocumentsModel);
 
         		try {
@@ -37,6 +37,14 @@ public class QStudioModel {
 	// For legacy reasons this MUST be qStudio - with that casing so as not to lose work
 	public static final File APP_HOME = new File(System.getProperty("user.home") + File.separator + LEGACY_FOLDER_NAME);
 	static final File SCRATCH_DIR = new File(APP_HOME, "scratch");
+	/** Saved server connections, see {@link com.timestored.connections.ServerListStore}. */
+	static final File SERVERS_DIR = new File(APP_HOME, "servers");
+	/** Server trees cached between sessions so they can be shown before each server is queried. */
+	private static final File METADATA_DIR = new File(APP_HOME, "metadata");
+	/** Rolling history of each kdb server's memory usage and partition count. */
+	private static final File HEALTH_DIR = new File(APP_HOME, "health");
+	/** Parse of every q file in the selected folder so that only changed files are parsed on restart. */
+	static final File QDOC_INDEX_FILE = new File(APP_HOME, "qdoc" + File.separator + "index.bin");
 	
 	private final ConnectionManager connectionManager;
 	private final OpenDocumentsModel openDocumentsModel; 
@@ -64,7 +72,7 @@ public class QStudioModel {
 		} 
 		BabelDBJdbcDriver.setDEFAULT_DBRUNNER(new MyDbRunner(connectionManager));
 		
-        this.adminModel = new AdminModel(connectionManager, queryManager);
+        this.adminModel = new AdminModel(connectionManager, queryManager, METADATA_DIR, HEALTH_DIR);
 		queryCount = persistance.getInt(Persistance.Key.QUERY_COUNT, 0);
 	}
 
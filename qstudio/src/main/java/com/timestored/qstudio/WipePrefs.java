@@ -21,6 +21,7 @@ import java.util.prefs.BackingStoreException;
 import javax.swing.JOptionPane;
 
 import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.ServerListStore;
 
 /** Wipes qStudio preferences and resets defaults to allow testing newly installed behaviour. */
 public class WipePrefs {
@@ -40,6 +41,7 @@ public class WipePrefs {
 			try {
 				QStudioFrame.resetDefaults(false);
 				ConnectionManager.wipePreferences(Persistance.INSTANCE.getPref(), Persistance.Key.CONNECTIONS.name());
+				new ServerListStore(QStudioModel.SERVERS_DIR).wipe();
 			} catch (BackingStoreException e1) {
 				String errMsg = "Problem accessing registry, please report as bug";
 				JOptionPane.showMessageDialog(null, errMsg);
@@ -16,6 +16,7 @@
  */
 package com.timestored.qstudio.model;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -59,6 +60,15 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 	private String selectedServerName;
 
 	protected boolean refreshing;
+	private final ServerRefresher serverRefresher = new ServerRefresher();
+	/** Cache of server trees stored on disk or null if trees are always queried. */
+	private final MetadataCache metadataCache;
+	/** Exact table counts run on request, the tree only holds estimates. */
+	@Getter private final TableCounter tableCounter;
+	/** Column profiles run on request and kept until the server is refreshed. */
+	@Getter private final TableProfiler tableProfiler;
+	/** Samples memory and partition counts of connected kdb servers in the background. */
+	@Getter private final ServerHealthCollector healthCollector;
 
 
 	public enum Category { TABLES,VIEWS,FUNCTIONS,VARIABLES,ELEMENT, NAMESPACE, UNSELECTED };
@@ -80,8 +90,35 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 	 * the model unless {@link #refresh()} is called.
 	 */
 	public AdminModel(ConnectionManager connectionManager, final QueryManager queryManager) {
+		this(connectionManager, queryManager, null);
+	}
+
+	/**
+	 * Constructs our model but will not actually try to connect and refresh 
+	 * the model unless {@link #refresh()} is called.
+	 * @param metadataCacheFolder Directory where server trees are cached between sessions 
+	 * 	or null to disable caching.
+	 */
+	public AdminModel(ConnectionManager connectionManager, final QueryManager queryManager, File metadataCacheFolder) {
+		this(connectionManager, queryManager, metadataCacheFolder, null);
+	}
+
+	/**
+	 * Constructs our model but will not actually try to connect and refresh 
+	 * the model unless {@link #refresh()} is called.
+	 * @param metadataCacheFolder Directory where server trees are cached between sessions 
+	 * 	or null to disable caching.
+	 * @param healthHistoryFolder Directory server health history is kept in between sessions 
+	 * 	or null to keep it in memory only.
+	 */
+	public AdminModel(ConnectionManager connectionManager, final QueryManager queryManager, File metadataCacheFolder,
+			File healthHistoryFolder) {
 		
 		this.connectionManager = connectionManager;
+		this.tableCounter = new TableCounter(connectionManager);
+		this.tableProfiler = new TableProfiler(connectionManager);
+		this.healthCollector = new ServerHealthCollector(connectionManager, healthHistoryFolder);
+		this.metadataCache = metadataCacheFolder == null ? null : new MetadataCache(metadataCacheFolder);
 		this.queryManager = queryManager;
 		connectionManager.addListener(this);
 		
@@ -97,7 +134,7 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 			
 			@Override public void serverListingChanged(List<String> serverNames) {
 				// Adding immediately to prevent cache miss later.
-				serverNames.forEach(sn -> serverContainer.put(sn, new ServerModel(connectionManager, connectionManager.getServer(sn))));
+				serverNames.forEach(sn -> serverContainer.put(sn, new ServerModel(connectionManager, connectionManager.getServer(sn), metadataCache, healthCollector)));
 				BackgroundExecutor.EXECUTOR.execute(new Runnable() {
 					@Override public void run() {
 						refresh();	
@@ -107,6 +144,7 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 		});
 		selectedServerName = queryManager.getSelectedServerName();
 		listeners = new CopyOnWriteArrayList<Listener>();
+		healthCollector.start();
 	}
 
 	/**
@@ -160,8 +198,10 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 						ServerModel sm = null;
 						for(int i=0; i<serverModels.size(); i++) {
 							if(sconf.equals(serverModels.get(i).getServerConfig())) {
-								sm = new ServerModel(connectionManager, sconf);
-								sm.refresh();
+								sm = new ServerModel(connectionManager, sconf, metadataCache, healthCollector);
+								tableCounter.clear(sconf);
+								tableProfiler.clear(sconf);
+								serverRefresher.refresh(sm);
 								serverContainer.put(sconf.getName(), sm);
 								serverModels.set(i, sm);
 		
@@ -185,7 +225,8 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 	
 	/**
 	 * @param hardRefresh if true every server will be requeried to get state, otherwise
-	 * 	cached state used.
+	 * 	cached state used. The selected server is refreshed before returning, all others
+	 * 	are refreshed in parallel afterwards with listeners notified as each completes.
 	 */
 	private synchronized void refresh(boolean hardRefresh) {
 
@@ -205,7 +246,11 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 			if(!hardRefresh && cacheSM!=null && cacheSM.getServerConfig().equals(sconf)) {
 				sm = cacheSM;
 			} else {
-				sm = new ServerModel(connectionManager, sconf);
+				sm = new ServerModel(connectionManager, sconf, metadataCache, healthCollector);
+				tableCounter.clear(sconf);
+				tableProfiler.clear(sconf);
+				// show the last known tree straight away, refreshing replaces it once the server is queried
+				sm.loadCached();
 //				modelsNeedingRefreshed.add(sm);
 			}
 			
@@ -233,12 +278,24 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 		// refresh then notify listeners again to show server trees updated
 		// done separately as refresh can take a lot of time
 		for(ServerModel sm : modelsNeedingRefreshed) {
-			sm.refresh();
+			serverRefresher.refresh(sm);
 		}
 		for(Listener l : listeners) {
 			l.modelChanged();
 		}
 		
+		if(hardRefresh) {
+			List<ServerModel> others = new ArrayList<ServerModel>(sTrees);
+			others.removeAll(modelsNeedingRefreshed);
+			serverRefresher.refreshAll(others, sm -> {
+				// ignore results for models replaced by a later refresh
+				if(serverModels.contains(sm)) {
+					for(Listener l : listeners) {
+						l.modelChanged(sm);
+					}
+				}
+			});
+		}
 	}
 	
 
@@ -409,7 +466,30 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 
 	@Override public void statusChange(ServerConfig serverConfig, 
 			boolean connected) {
-		refresh(serverConfig);
+		// a server that keeps failing is not requeried each time it is seen to be down
+		// nor is one whose status changed because it is being refreshed right now
+		if(!serverRefresher.isRefreshing(serverConfig) && (connected || !serverRefresher.isOpen(serverConfig))) {
+			refresh(serverConfig);
+		}
+	}
+
+	/**
+	 * Fetch in the background the elements of a namespace that was only listed when the server
+	 * was refreshed, listeners are notified once they arrive. Does nothing if it is already loaded.
+	 */
+	public void loadNamespace(ServerModel serverModel, String namespace) {
+		ServerObjectTree tree = serverModel.getServerObjectTree();
+		if(tree == null || tree.isLoaded(namespace) || !tree.namespaceExists(namespace)) {
+			return;
+		}
+		BackgroundExecutor.EXECUTOR.execute(() -> {
+			// ignore trees replaced by a later refresh
+			if(tree.loadNamespace(namespace) && serverModel.getServerObjectTree() == tree && serverModels.contains(serverModel)) {
+				for(Listener l : listeners) {
+					l.modelChanged(serverModel);
+				}
+			}
+		});
 	}
 
 	/**
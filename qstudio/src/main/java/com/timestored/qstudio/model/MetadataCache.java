@@ -0,0 +1,261 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.rowset.CachedRowSet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.MetaInfo;
+import com.timestored.connections.MetaInfo.SchemaInfo;
+import com.timestored.connections.ServerConfig;
+import com.timestored.kdb.KdbConnection;
+
+import lombok.Data;
+
+/**
+ * Stores the elements of each server's {@link ServerObjectTree} on disk, one file per server,
+ * so that a tree can be shown at startup before the server has been queried.
+ * Alongside the elements a fingerprint of the server's schema is stored, see
+ * {@link MetaInfo#getSchemaFingerprintQuery(com.timestored.connections.JdbcTypes)}. If a later refresh
+ * finds the fingerprint unchanged the cached elements are reused rather than re-reading all the metadata.
+ */
+class MetadataCache {
+
+	private static final Logger LOG = Logger.getLogger(MetadataCache.class.getName());
+	private static final int FORMAT_VERSION = 3;
+
+	private final File folder;
+	/** The latest snapshot for each server key, saves rereading the disk on every refresh. */
+	private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+	/** The details needed to recreate one {@link ServerQEntity} using {@link ServerQEntityFactory}. */
+	@Data static class Element {
+		private final String name;
+		private final short typeNum;
+		private final long count;
+		/** true if count is an estimate from the database's statistics rather than exact. */
+		private final boolean countApproximate;
+		private final boolean isTable;
+		private final boolean partitioned;
+		private final boolean isView;
+		/** Column names for tables, argument names for lambdas, otherwise null. */
+		private final String[] colArgNames;
+	}
+
+	/** All the elements of one server grouped by namespace, at the time the fingerprint was taken. */
+	@Data static class Snapshot {
+		private final String fingerprint;
+		private final long savedTime;
+		private final Map<String, List<Element>> namespaceElements;
+		/** Namespaces whose elements had not been fetched, mapped to the schemas they contain. */
+		private final Map<String, List<SchemaInfo>> unloadedNamespaces;
+	}
+
+	/** @param folder Directory the cache files are stored in, created if it does not exist. */
+	MetadataCache(File folder) {
+		this.folder = Preconditions.checkNotNull(folder);
+	}
+
+	/** Key that changes if any setting affecting which database is connected to changes. */
+	private static String getKey(ServerConfig sc) {
+		return sc.getName() + "\n" + sc.getJdbcType() + "\n" + sc.getUrl() + "\n" + sc.getUsername();
+	}
+
+	private File getFile(String key) {
+		return new File(folder, "meta-" + Hashing.sha256().hashString(key, StandardCharsets.UTF_8) + ".bin");
+	}
+
+	/** @return The last saved snapshot for this server or null if there is none or it could not be read. */
+	Snapshot get(ServerConfig sc) {
+		String key = getKey(sc);
+		Snapshot s = snapshots.get(key);
+		if(s == null) {
+			File f = getFile(key);
+			if(f.exists()) {
+				try {
+					s = read(f, key);
+				} catch(IOException | RuntimeException e) {
+					LOG.log(Level.WARNING, "Could not read metadata cache " + f, e);
+				}
+				if(s != null) {
+					snapshots.put(key, s);
+				}
+			}
+		}
+		return s;
+	}
+
+	/** Store the snapshot for this server, replacing any previous one. */
+	void put(ServerConfig sc, Snapshot snapshot) {
+		String key = getKey(sc);
+		snapshots.put(key, snapshot);
+		File f = getFile(key);
+		try {
+			folder.mkdirs();
+			File tmp = new File(folder, f.getName() + ".tmp");
+			write(tmp, key, snapshot);
+			Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException e) {
+			LOG.log(Level.WARNING, "Could not write metadata cache " + f, e);
+		}
+	}
+
+	/**
+	 * Run the cheap schema fingerprint query for this server.
+	 * @return The fingerprint or null if the database has no known fingerprint query or it failed.
+	 */
+	static String getFingerprint(ServerConfig sc, ConnectionManager connectionManager) {
+		String qry = MetaInfo.getSchemaFingerprintQuery(sc.getJdbcType());
+		if(qry == null) {
+			return null;
+		}
+		try {
+			if(sc.isKDB()) {
+				KdbConnection kdbConn = connectionManager.getKdbConnection(sc);
+				if(kdbConn == null) {
+					return null;
+				}
+				try {
+					Object o = kdbConn.query(qry);
+					return o instanceof byte[] ? BaseEncoding.base16().encode((byte[]) o) : null;
+				} finally {
+					kdbConn.close();
+				}
+			}
+			CachedRowSet rs = connectionManager.executeQuery(sc, qry);
+			if(!rs.next()) {
+				return null;
+			}
+			StringBuilder sb = new StringBuilder();
+			for(int c = 1; c <= rs.getMetaData().getColumnCount(); c++) {
+				sb.append(rs.getString(c)).append('|');
+			}
+			return sb.toString();
+		} catch(Exception e) {
+			LOG.info("Could not fingerprint schema of " + sc.getName() + ": " + e);
+		}
+		return null;
+	}
+
+	private static void write(File f, String key, Snapshot s) throws IOException {
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(f))))) {
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(key);
+			out.writeUTF(s.getFingerprint() == null ? "" : s.getFingerprint());
+			out.writeLong(s.getSavedTime());
+			out.writeInt(s.getNamespaceElements().size());
+			for(Map.Entry<String, List<Element>> e : s.getNamespaceElements().entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeInt(e.getValue().size());
+				for(Element el : e.getValue()) {
+					out.writeUTF(el.getName());
+					out.writeShort(el.getTypeNum());
+					out.writeLong(el.getCount());
+					out.writeBoolean(el.isCountApproximate());
+					out.writeBoolean(el.isTable());
+					out.writeBoolean(el.isPartitioned());
+					out.writeBoolean(el.isView());
+					String[] names = el.getColArgNames();
+					out.writeInt(names == null ? -1 : names.length);
+					for(int i = 0; names != null && i < names.length; i++) {
+						out.writeUTF(names[i]);
+					}
+				}
+			}
+			out.writeInt(s.getUnloadedNamespaces().size());
+			for(Map.Entry<String, List<SchemaInfo>> e : s.getUnloadedNamespaces().entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeInt(e.getValue().size());
+				for(SchemaInfo si : e.getValue()) {
+					out.writeUTF(si.getCat());
+					out.writeUTF(si.getSchema());
+					out.writeUTF(si.getNamespace());
+				}
+			}
+		}
+	}
+
+	/** @return The snapshot stored in the file or null if it is for a different key or format. */
+	private static Snapshot read(File f, String key) throws IOException {
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(f))))) {
+			if(in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key)) {
+				return null;
+			}
+			String fingerprint = in.readUTF();
+			long savedTime = in.readLong();
+			int nsCount = in.readInt();
+			Map<String, List<Element>> namespaceElements = new LinkedHashMap<>(nsCount * 2);
+			for(int n = 0; n < nsCount; n++) {
+				String ns = in.readUTF();
+				int size = in.readInt();
+				List<Element> elements = new ArrayList<>(size);
+				for(int i = 0; i < size; i++) {
+					String name = in.readUTF();
+					short typeNum = in.readShort();
+					long count = in.readLong();
+					boolean countApproximate = in.readBoolean();
+					boolean isTable = in.readBoolean();
+					boolean partitioned = in.readBoolean();
+					boolean isView = in.readBoolean();
+					int nameCount = in.readInt();
+					String[] names = nameCount < 0 ? null : new String[nameCount];
+					for(int j = 0; j < nameCount; j++) {
+						names[j] = in.readUTF();
+					}
+					elements.add(new Element(name, typeNum, count, countApproximate, isTable, partitioned, isView, names));
+				}
+				namespaceElements.put(ns, elements);
+			}
+			int unloadedCount = in.readInt();
+			Map<String, List<SchemaInfo>> unloadedNamespaces = new LinkedHashMap<>(unloadedCount * 2);
+			for(int n = 0; n < unloadedCount; n++) {
+				String ns = in.readUTF();
+				int size = in.readInt();
+				List<SchemaInfo> schemas = new ArrayList<>(size);
+				for(int i = 0; i < size; i++) {
+					schemas.add(new SchemaInfo(in.readUTF(), in.readUTF(), in.readUTF()));
+				}
+				unloadedNamespaces.put(ns, schemas);
+			}
+			return new Snapshot(fingerprint.isEmpty() ? null : fingerprint, savedTime, namespaceElements, unloadedNamespaces);
+		}
+	}
+}
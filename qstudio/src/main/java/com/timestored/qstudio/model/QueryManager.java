@@ -505,6 +505,10 @@ import com.timestored.theme.Theme;
 			if(actualChange) {
 				ServerConfig sc = connectionManager.getServer(serverName);
 				this.selectedServerName = sc==null ? null : serverName;
+				// SQL queries borrow from the pool so open a connection now rather than on the first query
+				if(sc != null && !sc.isKDB()) {
+					BackgroundExecutor.EXECUTOR.execute(() -> connectionManager.prewarm(sc));
+				}
 			}
 			for(QueryListener l : listeners) {
 				l.selectedServerChanged(serverName);
@@ -577,6 +581,14 @@ import com.timestored.theme.Theme;
 	@Override public Collection<Command> getCommands() {
 		return getChangeServerCommands(false);
 	}
+
+	@Override public boolean addCommandsChangedListener(Runnable listener) {
+		connectionManager.addListener(new ConnectionManager.Adapter() {
+			@Override public void prefChange() { listener.run(); }
+			@Override public void serverAdded(ServerConfig sc) { listener.run(); }
+		});
+		return true;
+	}
 	
 	
 	/**
@@ -0,0 +1,252 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.ServerConfig;
+import com.timestored.kdb.KdbConnection;
+
+/**
+ * Samples the {@link ServerReport} of every connected kdb server on a schedule, in parallel,
+ * keeping the latest report and a {@link ServerHealthHistory} of memory and partition counts for each.
+ * This allows trends such as memory growth on an RDB to be shown instantly without querying the server.
+ * If a folder is given each server's history is also appended to a file there so it survives restarts.
+ */
+public class ServerHealthCollector {
+
+	private static final Logger LOG = Logger.getLogger(ServerHealthCollector.class.getName());
+
+	private static final int THREADS = 4;
+	private static final long PERIOD_MS = 60_000;
+	/** One day of samples at the default period. */
+	private static final int CAPACITY = 1440;
+
+	private final ConnectionManager connectionManager;
+	private final File spillFolder;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setNameFormat("server-health-schedule").setDaemon(true).build());
+	private final ExecutorService samplers = Executors.newFixedThreadPool(THREADS,
+			new ThreadFactoryBuilder().setNameFormat("server-health-%d").setDaemon(true).build());
+	private final Map<String, ServerHealthHistory> histories = new ConcurrentHashMap<>();
+	private final Map<String, ServerReport> latestReports = new ConcurrentHashMap<>();
+	/** Number of lines in each server's spill file, used to decide when to compact it. */
+	private final Map<String, Integer> spilledLines = new ConcurrentHashMap<>();
+	/** Names of servers being sampled, a slow server is not sampled again until it replies. */
+	private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private boolean started = false;
+
+	public static interface Listener {
+		/** Called on a sampling thread each time a new sample is added for that server. */
+		void sampled(String serverName);
+	}
+
+	/** @param spillFolder Directory each server's history is appended to or null to keep history in memory only. */
+	ServerHealthCollector(ConnectionManager connectionManager, File spillFolder) {
+		this.connectionManager = Preconditions.checkNotNull(connectionManager);
+		this.spillFolder = spillFolder;
+	}
+
+	/** Begin sampling all connected kdb servers every minute, does nothing if already started. */
+	synchronized void start() {
+		if(!started) {
+			started = true;
+			scheduler.scheduleWithFixedDelay(this::sampleAll, PERIOD_MS, PERIOD_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void sampleAll() {
+		for(ServerConfig sc : connectionManager.getServerConnections()) {
+			// only servers already known to be up, so that down servers are not hammered every minute
+			if(sc.isKDB() && connectionManager.isConnected(sc) && inFlight.add(sc.getName())) {
+				samplers.execute(() -> {
+					try {
+						sample(sc);
+					} finally {
+						inFlight.remove(sc.getName());
+					}
+				});
+			}
+		}
+	}
+
+	/** Query the report for one server on the calling thread, recording it if successful. */
+	private void sample(ServerConfig sc) {
+		KdbConnection kdbConn = connectionManager.getKdbConnection(sc);
+		if(kdbConn == null) {
+			return;
+		}
+		try {
+			record(sc, new ServerReport(kdbConn));
+		} catch(Exception e) {
+			LOG.log(Level.FINE, "Could not sample health of " + sc.getName(), e);
+		} finally {
+			try {
+				kdbConn.close();
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "problem closing kdb connection", e);
+			}
+		}
+	}
+
+	/** Add a report that was queried elsewhere, e.g. when the server was refreshed. */
+	void record(ServerConfig sc, ServerReport report) {
+		String name = sc.getName();
+		latestReports.put(name, report);
+		long[] sample = ServerHealthHistory.toSample(report);
+		getHistory(name).add(report.getTime(), sample);
+		spill(name, report.getTime(), sample);
+		for(Listener l : listeners) {
+			l.sampled(name);
+		}
+	}
+
+	/**
+	 * @return The latest report if it was taken within the sampling period, otherwise null
+	 * 	meaning the caller should query the server.
+	 */
+	ServerReport getRecentReport(ServerConfig sc) {
+		ServerReport r = latestReports.get(sc.getName());
+		return r != null && System.currentTimeMillis() - r.getTime() < PERIOD_MS ? r : null;
+	}
+
+	/** @return The most recent report for the server or null if none has been taken. */
+	public ServerReport getLatestReport(String serverName) {
+		return latestReports.get(serverName);
+	}
+
+	/** @return History for the server, empty if it has never been sampled. */
+	public ServerHealthHistory getHistory(String serverName) {
+		return histories.computeIfAbsent(serverName, this::load);
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	private File getSpillFile(String serverName) {
+		return new File(spillFolder, "health-" + Hashing.sha256().hashString(serverName, StandardCharsets.UTF_8) + ".csv");
+	}
+
+	/** @return History populated from the spill file if there is one. */
+	private ServerHealthHistory load(String serverName) {
+		ServerHealthHistory h = new ServerHealthHistory(CAPACITY);
+		if(spillFolder != null) {
+			File f = getSpillFile(serverName);
+			if(f.exists()) {
+				try {
+					List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+					for(String line : lines.subList(Math.max(0, lines.size() - CAPACITY), lines.size())) {
+						String[] vals = line.split(",");
+						if(vals.length == ServerHealthHistory.METRICS.size() + 1) {
+							long[] sample = new long[vals.length - 1];
+							for(int i = 0; i < sample.length; i++) {
+								sample[i] = Long.parseLong(vals[i + 1]);
+							}
+							h.add(Long.parseLong(vals[0]), sample);
+						}
+					}
+					spilledLines.put(serverName, lines.size());
+				} catch(IOException | NumberFormatException e) {
+					LOG.log(Level.WARNING, "Could not read server health history " + f, e);
+				}
+			}
+		}
+		return h;
+	}
+
+	/** Append the sample to the server's file, rewriting it from memory once it holds twice the history kept. */
+	private void spill(String serverName, long time, long[] sample) {
+		if(spillFolder == null) {
+			return;
+		}
+		File f = getSpillFile(serverName);
+		// a refresh may record a report while the scheduled sample for the same server is written
+		synchronized (getHistory(serverName)) {
+			spillLocked(serverName, f, time, sample);
+		}
+	}
+
+	private void spillLocked(String serverName, File f, long time, long[] sample) {
+		try {
+			spillFolder.mkdirs();
+			int lines = spilledLines.merge(serverName, 1, Integer::sum);
+			if(lines > 2 * CAPACITY) {
+				ServerHealthHistory.Snapshot h = getHistory(serverName).getSnapshot();
+				long[] times = h.getTimes();
+				List<long[]> cols = new ArrayList<>();
+				for(String m : ServerHealthHistory.METRICS) {
+					cols.add(h.getValues(m));
+				}
+				File tmp = new File(spillFolder, f.getName() + ".tmp");
+				try(BufferedWriter w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+					for(int i = 0; i < times.length; i++) {
+						long[] row = new long[cols.size()];
+						for(int m = 0; m < row.length; m++) {
+							row[m] = cols.get(m)[i];
+						}
+						w.write(toLine(times[i], row));
+					}
+				}
+				Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				spilledLines.put(serverName, times.length);
+			} else {
+				Files.write(f.toPath(), toLine(time, sample).getBytes(StandardCharsets.UTF_8),
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			}
+		} catch(IOException e) {
+			LOG.log(Level.WARNING, "Could not write server health history " + f, e);
+		}
+	}
+
+	private static String toLine(long time, long[] sample) {
+		List<Long> vals = new ArrayList<>(sample.length + 1);
+		vals.add(time);
+		for(long v : sample) {
+			vals.add(v);
+		}
+		return Joiner.on(',').join(vals) + "\n";
+	}
+}
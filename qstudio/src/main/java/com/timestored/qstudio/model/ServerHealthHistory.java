@@ -0,0 +1,135 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Rolling time-series of the health metrics sampled from one server by {@link ServerHealthCollector}.
+ * Stored as primitive ring buffers, one per metric, so a day of samples takes a few hundred KB at most.
+ * Once full the oldest samples are overwritten. Thread safe.
+ */
+public class ServerHealthHistory {
+
+	/** .Q.w[] memory statistics followed by the partition count, the order values are stored in. */
+	public static final List<String> METRICS = ImmutableList.of("used", "heap", "peak", "mphy", "syms", "partitions");
+	/** Value stored when a metric was not reported. */
+	public static final long MISSING = Long.MIN_VALUE;
+
+	private final long[] times;
+	private final long[][] values;
+	/** Index the next sample is written to. */
+	private int next = 0;
+	private int size = 0;
+
+	ServerHealthHistory(int capacity) {
+		Preconditions.checkArgument(capacity > 0);
+		this.times = new long[capacity];
+		this.values = new long[METRICS.size()][capacity];
+	}
+
+	/** Add one sample, values are in {@link #METRICS} order. */
+	synchronized void add(long time, long[] sample) {
+		Preconditions.checkArgument(sample.length == METRICS.size());
+		times[next] = time;
+		for(int m = 0; m < sample.length; m++) {
+			values[m][next] = sample[m];
+		}
+		next = (next + 1) % times.length;
+		size = Math.min(size + 1, times.length);
+	}
+
+	/** @return Values in {@link #METRICS} order from the report, {@link #MISSING} where not reported. */
+	static long[] toSample(ServerReport report) {
+		long[] r = new long[METRICS.size()];
+		for(int m = 0; m < r.length; m++) {
+			String metric = METRICS.get(m);
+			Long v = metric.equals("partitions") ? report.getPartitionCount() : report.getMemoryStat(metric);
+			r[m] = v == null ? MISSING : v;
+		}
+		return r;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/** @return Time of each sample in milliseconds since epoch, oldest first. */
+	public synchronized long[] getTimes() {
+		return ordered(times);
+	}
+
+	/** @return Values of the metric, oldest first, with {@link #MISSING} where it was not reported. */
+	public synchronized long[] getValues(String metric) {
+		int m = METRICS.indexOf(metric);
+		Preconditions.checkArgument(m >= 0, "unknown metric " + metric);
+		return ordered(values[m]);
+	}
+
+	/** @return Times and the values of every metric taken together, so all have one entry per sample. */
+	public synchronized Snapshot getSnapshot() {
+		long[][] vals = new long[values.length][];
+		for(int m = 0; m < values.length; m++) {
+			vals[m] = ordered(values[m]);
+		}
+		return new Snapshot(ordered(times), vals);
+	}
+
+	/** @return The latest value of the metric or {@link #MISSING} if there are no samples. */
+	public synchronized long getLatest(String metric) {
+		int m = METRICS.indexOf(metric);
+		Preconditions.checkArgument(m >= 0, "unknown metric " + metric);
+		return size == 0 ? MISSING : values[m][(next - 1 + times.length) % times.length];
+	}
+
+	/** All samples at one moment, oldest first. */
+	public static class Snapshot {
+		private final long[] times;
+		private final long[][] values;
+
+		private Snapshot(long[] times, long[][] values) {
+			this.times = times;
+			this.values = values;
+		}
+
+		/** @return Time of each sample in milliseconds since epoch. */
+		public long[] getTimes() {
+			return times;
+		}
+
+		/** @return Values of the metric with {@link ServerHealthHistory#MISSING} where it was not reported. */
+		public long[] getValues(String metric) {
+			int m = METRICS.indexOf(metric);
+			Preconditions.checkArgument(m >= 0, "unknown metric " + metric);
+			return values[m];
+		}
+	}
+
+	private long[] ordered(long[] ring) {
+		if(size < ring.length) {
+			return Arrays.copyOf(ring, size);
+		}
+		long[] r = new long[size];
+		System.arraycopy(ring, next, r, 0, ring.length - next);
+		System.arraycopy(ring, 0, r, ring.length - next, next);
+		return r;
+	}
+}
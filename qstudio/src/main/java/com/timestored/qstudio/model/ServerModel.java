@@ -42,10 +42,23 @@ public class ServerModel {
 	private ServerSlashConfig serverSlashConfig;
 	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
 	private final ConnectionManager connectionManager;
+	private final MetadataCache metadataCache;
+	private final ServerHealthCollector healthCollector;
 	
 	public ServerModel(ConnectionManager connectionManager, ServerConfig serverConfig) {
+		this(connectionManager, serverConfig, null, null);
+	}
+
+	/** 
+	 * @param metadataCache Cache used to skip requerying unchanged trees or null to always query. 
+	 * @param healthCollector Collector whose recent reports are reused and which is given any new report, or null.
+	 */
+	ServerModel(ConnectionManager connectionManager, ServerConfig serverConfig, MetadataCache metadataCache,
+			ServerHealthCollector healthCollector) {
 		this.connectionManager = connectionManager;
 		this.serverConfig = serverConfig;
+		this.metadataCache = metadataCache;
+		this.healthCollector = healthCollector;
 	}
 
 	public static interface Listener {
@@ -54,14 +67,22 @@ public class ServerModel {
 
 	void refresh() {
 		
-		serverObjectTree = new ServerObjectTree(connectionManager, serverConfig);
+		serverObjectTree = new ServerObjectTree(connectionManager, serverConfig, metadataCache);
 		
 		KdbConnection kdbConnection = connectionManager.getKdbConnection(serverConfig);
 		if(kdbConnection!= null) {
 			
 			try {
 				try {
-					serverReport = new ServerReport(kdbConnection);
+					ServerReport recent = healthCollector == null ? null : healthCollector.getRecentReport(serverConfig);
+					if(recent != null) {
+						serverReport = recent;
+					} else {
+						serverReport = new ServerReport(kdbConnection);
+						if(healthCollector != null) {
+							healthCollector.record(serverConfig, serverReport);
+						}
+					}
 					serverSlashConfig = new ServerSlashConfig(kdbConnection);
 				} catch(Exception e) {
 					LOG.log(Level.WARNING, "Error retrieving Server Properties.", e);
@@ -79,6 +100,26 @@ public class ServerModel {
 		} 
 	}
 	
+	/**
+	 * Show the tree last cached for this server, if there is one, until it is refreshed.
+	 * @return true if a cached tree was found.
+	 */
+	boolean loadCached() {
+		if(metadataCache == null || serverObjectTree != null) {
+			return false;
+		}
+		serverObjectTree = ServerObjectTree.fromCache(connectionManager, serverConfig, metadataCache);
+		return serverObjectTree != null;
+	}
+
+	/** Mark this server as unreachable with an empty tree rather than trying to connect. */
+	void setUnreachable(String errMsg) {
+		serverObjectTree = new ServerObjectTree(connectionManager, serverConfig, errMsg);
+		for(Listener l : listeners) {
+			l.changeOccurred();
+		}
+	}
+
 	public KdbConnection getConnection() {
 		return connectionManager.getKdbConnection(serverConfig);
 	}
@@ -89,8 +130,12 @@ public class ServerModel {
 		return serverObjectTree;
 	}
 
-	/**  @return The last report obtained from the server otherwise null.  */
+	/**  @return The last report obtained from the server, including by background sampling, otherwise null.  */
 	public ServerReport getServerReport() {
+		ServerReport sampled = healthCollector == null ? null : healthCollector.getLatestReport(serverConfig.getName());
+		if(sampled != null && (serverReport == null || sampled.getTime() > serverReport.getTime())) {
+			return sampled;
+		}
 		return serverReport;
 	}
 
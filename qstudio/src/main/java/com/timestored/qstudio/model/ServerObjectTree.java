@@ -25,10 +25,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -46,15 +50,19 @@ import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.timestored.connections.ConnectionManager;
 import com.timestored.connections.JdbcTypes;
 import com.timestored.connections.MetaInfo;
 import com.timestored.connections.MetaInfo.ColumnInfo;
+import com.timestored.connections.MetaInfo.SchemaInfo;
 import com.timestored.connections.ServerConfig;
 import com.timestored.cstore.CAtomTypes;
 import com.timestored.kdb.KdbConnection;
+import com.timestored.qstudio.model.MetadataCache.Element;
+import com.timestored.qstudio.model.MetadataCache.Snapshot;
 import com.timestored.qdoc.DocumentedEntity;
 import com.timestored.qstudio.QStudioLauncher;
 import com.timestored.qstudio.model.ServerQEntity.QQuery;
@@ -81,18 +89,33 @@ public class ServerObjectTree {
 	@Setter private static String GET_TREE_QUERY = null;
 	
 	private static final String DEFAULT_NAMESPACE = "."; 
+	/** 
+	 * SQL databases with more namespaces than this only have their namespaces listed on refresh,
+	 * the tables of each are fetched when that namespace is first needed.
+	 */
+	private static final int LAZY_NAMESPACE_THRESHOLD = 10;
 
 	private static final List<ServerQEntity> EMPTY_LIST = Collections.emptyList();
 	private RefreshResult refreshResult;
 	private final ServerConfig serverConfig;
 	private final ConnectionManager connectionManager;
+	private final MetadataCache metadataCache;
+	/** Fingerprint of the schema this tree was built from, used to update the matching cache snapshot. */
+	private String fingerprint;
 	private boolean errorRetrievingTree = false;
+	/** Estimated counts for the whole database, fetched at most once per tree as namespaces are loaded. */
+	private final Supplier<Map<String, Long>> approximateCounts = Suppliers.memoize(this::fetchApproximateCounts);
 
 	@Data @AllArgsConstructor
 	private static class RefreshResult {
 		private final Map<String,NamespaceListing> namespaceListingMap;
 		private final String errMsg;
+		/** Namespaces whose elements have not been fetched yet, mapped to the schemas they contain. */
+		private final Map<String, List<SchemaInfo>> unloadedNamespaces;
 		public RefreshResult() { this(new HashMap<>(), "");	}
+		public RefreshResult(Map<String,NamespaceListing> namespaceListingMap, String errMsg) { 
+			this(namespaceListingMap, errMsg, Collections.emptyMap());	
+		}
 	}
 
 	/**
@@ -101,21 +124,89 @@ public class ServerObjectTree {
 	 * @param serverConfig
 	 */
 	ServerObjectTree(ConnectionManager connectionManager, ServerConfig serverConfig) {
+		this(connectionManager, serverConfig, (MetadataCache) null);
+	}
+
+	/**
+	 * Construct tree for given config / connection, reusing the cached elements if the server's
+	 * schema fingerprint has not changed and saving the new elements to the cache if it has.
+	 * @param metadataCache cache of previously retrieved elements or null to always query them.
+	 */
+	ServerObjectTree(ConnectionManager connectionManager, ServerConfig serverConfig, MetadataCache metadataCache) {
 		
 		this.serverConfig = Preconditions.checkNotNull(serverConfig);
 		this.connectionManager = Preconditions.checkNotNull(connectionManager);
+		this.metadataCache = metadataCache;
 		
 		refreshResult = new RefreshResult();
 		refreshFromServer();
 	}
 
+	private ServerObjectTree(ConnectionManager connectionManager, ServerConfig serverConfig, MetadataCache metadataCache, Snapshot snapshot) {
+		this.serverConfig = Preconditions.checkNotNull(serverConfig);
+		this.connectionManager = Preconditions.checkNotNull(connectionManager);
+		this.metadataCache = Preconditions.checkNotNull(metadataCache);
+		this.fingerprint = snapshot.getFingerprint();
+		this.refreshResult = fromSnapshot(serverConfig, snapshot);
+	}
+
+	/**
+	 * @return The tree last saved to the cache for that server without querying it, 
+	 * 	or null if nothing was cached.
+	 */
+	static ServerObjectTree fromCache(ConnectionManager connectionManager, ServerConfig serverConfig, MetadataCache metadataCache) {
+		Snapshot snapshot = metadataCache.get(serverConfig);
+		if(snapshot == null) {
+			return null;
+		}
+		return new ServerObjectTree(connectionManager, serverConfig, metadataCache, snapshot);
+	}
+
+	private static RefreshResult fromSnapshot(ServerConfig serverConfig, Snapshot snapshot) {
+		return new RefreshResult(toNamespaceListingMap(serverConfig, snapshot.getNamespaceElements()), "", 
+				new ConcurrentHashMap<>(snapshot.getUnloadedNamespaces()));
+	}
+
+
+	/** Construct an empty tree for a server that could not be reached, without querying it. */
+	ServerObjectTree(ConnectionManager connectionManager, ServerConfig serverConfig, String errMsg) {
+		this.serverConfig = Preconditions.checkNotNull(serverConfig);
+		this.connectionManager = Preconditions.checkNotNull(connectionManager);
+		this.metadataCache = null;
+		refreshResult = new RefreshResult(new HashMap<>(), Preconditions.checkNotNull(errMsg));
+	}
 
 	private void refreshFromServer() {
-		refreshResult = refreshTree(serverConfig, connectionManager);
+		if(metadataCache != null) {
+			fingerprint = MetadataCache.getFingerprint(serverConfig, connectionManager);
+			Snapshot snapshot = metadataCache.get(serverConfig);
+			if(fingerprint != null && snapshot != null && fingerprint.equals(snapshot.getFingerprint())) {
+				LOG.fine("schema unchanged, using cached tree for " + serverConfig.getName());
+				refreshResult = fromSnapshot(serverConfig, snapshot);
+				return;
+			}
+		}
+		
+		Map<String, List<Element>> namespaceElements = new HashMap<>();
+		Map<String, List<SchemaInfo>> unloadedNamespaces = new ConcurrentHashMap<>();
+		refreshResult = refreshTree(serverConfig, connectionManager, approximateCounts, namespaceElements, unloadedNamespaces);
+		if(metadataCache != null && refreshResult.getErrMsg().isEmpty()) {
+			metadataCache.put(serverConfig, new Snapshot(fingerprint, System.currentTimeMillis(), 
+					namespaceElements, new HashMap<>(unloadedNamespaces)));
+		}
 	}
 		
 	
-	private static RefreshResult refreshTree(ServerConfig serverConfig, ConnectionManager connectionManager) {
+	private Map<String, Long> fetchApproximateCounts() {
+		return MetaInfo.getApproximateCounts(connectionManager, serverConfig);
+	}
+	
+	/** 
+	 * @param namespaceElements Populated with the elements the returned tree was built from.
+	 * @param unloadedNamespaces Populated with namespaces that are only listed, not loaded. 
+	 */
+	private static RefreshResult refreshTree(ServerConfig serverConfig, ConnectionManager connectionManager, 
+			Supplier<Map<String, Long>> approximateCounts, Map<String, List<Element>> namespaceElements, Map<String, List<SchemaInfo>> unloadedNamespaces) {
 		Preconditions.checkNotNull(serverConfig);
 		Preconditions.checkNotNull(connectionManager);
 
@@ -125,12 +216,23 @@ public class ServerObjectTree {
 		
 		try {
 			if(serverConfig.isKDB()) {
-				namespaceListingMap = getNSListing(serverConfig, connectionManager);
+				namespaceElements.putAll(getNSListing(serverConfig, connectionManager));
 			} else if(serverConfig.getJdbcType().equals(JdbcTypes.DOLPHINDB)) {
-				namespaceListingMap = getNSListingForDolphin(serverConfig, connectionManager);
+				namespaceElements.putAll(getNSListingForDolphin(serverConfig, connectionManager));
 			} else {
-				namespaceListingMap = getNSqlListing(serverConfig, connectionManager);
+				Map<String, List<SchemaInfo>> nsToSchemas = getSqlNamespaces(serverConfig, connectionManager);
+				if(nsToSchemas.size() > LAZY_NAMESPACE_THRESHOLD) {
+					// default namespace is always shown expanded so fetch it now, others when needed
+					List<SchemaInfo> defaultSchemas = nsToSchemas.remove(DEFAULT_NAMESPACE);
+					if(defaultSchemas != null) {
+						namespaceElements.put(DEFAULT_NAMESPACE, getNSqlListing(serverConfig, connectionManager, defaultSchemas, approximateCounts.get()));
+					}
+					unloadedNamespaces.putAll(nsToSchemas);
+				} else {
+					namespaceElements.putAll(getNSqlListing(serverConfig, connectionManager, approximateCounts.get()));
+				}
 			}
+			namespaceListingMap = toNamespaceListingMap(serverConfig, namespaceElements);
 		} catch (KException ke) {
 			e = ke;
 			errMsg = "Kdb Exception when querying server. Ensure server security settings ok.";
@@ -145,42 +247,143 @@ public class ServerObjectTree {
 		if(e != null) {
 			LOG.log(Level.WARNING, errMsg, e);
 		}
-		return new RefreshResult(namespaceListingMap, errMsg);
+		return new RefreshResult(namespaceListingMap, errMsg, unloadedNamespaces);
 	}
 
+	/**
+	 * Fetch the elements of a namespace that was only listed when the tree was refreshed.
+	 * This queries the server so should not be called on the EDT.
+	 * @return true if the namespace is now loaded, false if it does not exist or could not be fetched.
+	 */
+	public boolean loadNamespace(String namespace) {
+		List<SchemaInfo> schemas = refreshResult.unloadedNamespaces.get(namespace);
+		if(schemas == null) {
+			return refreshResult.namespaceListingMap.containsKey(namespace);
+		}
+		synchronized (schemas) { // prevent fetching the same namespace twice at once
+			if(!refreshResult.unloadedNamespaces.containsKey(namespace)) {
+				return true;
+			}
+			List<Element> elements;
+			try {
+				elements = getNSqlListing(serverConfig, connectionManager, schemas, approximateCounts.get());
+			} catch (IOException | SQLException e) {
+				LOG.log(Level.WARNING, "Could not fetch namespace " + namespace + " for " + serverConfig.getName(), e);
+				return false;
+			}
+			Map<String, List<Element>> namespaceElements = Collections.singletonMap(namespace, elements);
+			refreshResult.namespaceListingMap.putAll(toNamespaceListingMap(serverConfig, namespaceElements));
+			refreshResult.unloadedNamespaces.remove(namespace);
+			updateCache(namespace, elements);
+		}
+		return true;
+	}
 
-	private static Map<String, NamespaceListing> getNSqlListing(ServerConfig serverConfig, ConnectionManager connectionManager) 
-			throws Exception {
+	/** Add a newly loaded namespace to the cached snapshot this tree was built from, if it is still current. */
+	private void updateCache(String namespace, List<Element> elements) {
+		if(metadataCache == null) {
+			return;
+		}
+		synchronized (metadataCache) {
+			Snapshot prev = metadataCache.get(serverConfig);
+			if(prev != null && Objects.equals(prev.getFingerprint(), fingerprint)) {
+				Map<String, List<Element>> namespaceElements = new HashMap<>(prev.getNamespaceElements());
+				namespaceElements.put(namespace, elements);
+				Map<String, List<SchemaInfo>> unloadedNamespaces = new HashMap<>(prev.getUnloadedNamespaces());
+				unloadedNamespaces.remove(namespace);
+				metadataCache.put(serverConfig, new Snapshot(fingerprint, prev.getSavedTime(), namespaceElements, unloadedNamespaces));
+			}
+		}
+	}
 
-		List<ServerQEntity> allElements = new ArrayList<>();
+	/** Create the entities for each element, elements that are not recognised are logged and skipped. */
+	private static Map<String, NamespaceListing> toNamespaceListingMap(ServerConfig sc, Map<String, List<Element>> namespaceElements) {
+		Map<String, NamespaceListing> r = new ConcurrentHashMap<String, NamespaceListing>(namespaceElements.size());
+		for(Entry<String, List<Element>> e : namespaceElements.entrySet()) {
+			String namespace = e.getKey();
+			List<ServerQEntity> entities = new ArrayList<ServerQEntity>(e.getValue().size());
+			for(Element el : e.getValue()) {
+				try {
+					ServerQEntity sqe = ServerQEntityFactory.get(sc.getName(), namespace, el.getName(), el.getTypeNum(), 
+							el.getCount(), el.isCountApproximate(), el.isTable(), el.isPartitioned(), el.isView(), el.getColArgNames(), sc.getJdbcType());
+					if(sqe == null) {
+						LOG.warning("unrecognised ServerQEntity: " + namespace + "." + el.getName());
+					} else {
+						entities.add(sqe);
+					}
+				} catch(IllegalArgumentException | NullPointerException ex) {
+					String msg = "unrecognised ServerQEntity: " + namespace + "." + el.getName();
+					LOG.log(Level.WARNING, msg, ex);
+				}
+			}
+			r.put(namespace, new NamespaceListing(entities));
+		}
+		return r;
+	}
+
+
+	/** @return The namespaces of the database mapped to the schemas within them, empty if they could not be listed. */
+	private static Map<String, List<SchemaInfo>> getSqlNamespaces(ServerConfig serverConfig, ConnectionManager connectionManager) {
+		Map<String, List<SchemaInfo>> r = new HashMap<>();
+		if(serverConfig.getJdbcType().equals(JdbcTypes.TDENGINE)) {
+			return r; // its tables are only found by the special query in MetaInfo 
+		}
+		try {
+			for(SchemaInfo si : MetaInfo.getSchemas(connectionManager, serverConfig)) {
+				String ns = si.getNamespace().isEmpty() ? DEFAULT_NAMESPACE : si.getNamespace();
+				r.computeIfAbsent(ns, k -> new ArrayList<>()).add(si);
+			}
+		} catch (IOException | SQLException | RuntimeException e) {
+			LOG.info("Could not list schemas of " + serverConfig.getName() + ": " + e);
+			r.clear();
+		}
+		return r;
+	}
+
+	/** @return The elements within the given schemas, all considered part of one namespace. */
+	private static List<Element> getNSqlListing(ServerConfig serverConfig, ConnectionManager connectionManager, 
+			List<SchemaInfo> schemas, Map<String, Long> approximateCounts) throws IOException, SQLException {
+		List<Element> r = new ArrayList<>();
+		for(SchemaInfo si : schemas) {
+			toElements(MetaInfo.getMetaInfo(connectionManager, serverConfig, si), approximateCounts).values().forEach(r::addAll);
+		}
+		return r;
+	}
+
+	private static Map<String, List<Element>> getNSqlListing(ServerConfig serverConfig, ConnectionManager connectionManager, 
+			Map<String, Long> approximateCounts) throws Exception {
 		MetaInfo mi = MetaInfo.getMetaInfo(connectionManager, serverConfig);
-		
+		return toElements(mi, approximateCounts);
+	}
+
+	/**
+	 * @param approximateCounts Estimated counts from {@link MetaInfo#getApproximateCounts(ConnectionManager, ServerConfig)}, 
+	 * 		exact counts are never run here as scanning every table is too expensive.
+	 */
+	private static Map<String, List<Element>> toElements(MetaInfo mi, Map<String, Long> approximateCounts) {
+		Map<String, List<Element>> r = new HashMap<>();
 		Map<String, List<ColumnInfo>> tnToCi = mi.getColumnInfo().stream().collect(Collectors.groupingBy(ci -> ci.getFullTableName()));
 		for(Entry<String, List<ColumnInfo>> e : tnToCi.entrySet()) {
-			String serverName = serverConfig.getName();
 			boolean isView = false;
 			String[] colNames = e.getValue().stream().map(ci -> ci.getColumnName()).collect(Collectors.toList()).toArray(new String[] {});
 			short typNum = (short) CAtomTypes.TABLE.getTypeNum();
 			String ns = e.getValue().get(0).getNamespace();
 			ns = ns.isEmpty() ? "." : ns;
 			String shortTblName = e.getValue().get(0).getTableName();
-			ServerQEntity sqe = ServerQEntityFactory.get(serverName, ns, shortTblName, typNum, 0, true, false, isView, colNames, serverConfig.getJdbcType());
-			allElements.add(sqe);
+			long count = MetaInfo.getApproximateCount(approximateCounts, e.getValue().get(0));
+			r.computeIfAbsent(ns, k -> new ArrayList<>()).add(new Element(shortTblName, typNum, count, count >= 0, true, false, isView, colNames));
 		}
-		HashMap<String, NamespaceListing> r = new HashMap<String, NamespaceListing>();
-		allElements.stream().collect(Collectors.groupingBy(sqe -> sqe.getNamespace())).forEach((ns,sqel) -> r.put(ns, new NamespaceListing(sqel)));
 		return r;
 	}
 
 
 
-	private static Map<String, NamespaceListing> getNSListingForDolphin(ServerConfig serverConfig,
+	private static Map<String, List<Element>> getNSListingForDolphin(ServerConfig serverConfig,
 			ConnectionManager connectionManager) throws IOException, SQLException {
 		if(!serverConfig.getJdbcType().equals(JdbcTypes.DOLPHINDB)) {
 			throw new IOException("Wrong server type");
 		}
-		List<ServerQEntity> allElements = new ArrayList<>();
-		String serverName = serverConfig.getName();
+		Map<String, List<Element>> r = new HashMap<>();
 		
 		// Get big DFS tables in namespaces.
 		try {
@@ -193,9 +396,7 @@ public class ServerObjectTree {
 					String tblName = tablesRS.getString("tableName");
 					String tblLoad = "loadTable('" + path + "', '" + tblName + "')";
 					String[] colNames = getDolphinColNames(connectionManager, serverConfig, tblLoad, new String[] { "unknown" }); 
-					ServerQEntity sqe = ServerQEntityFactory.get(serverName, path, tblName, tableTypNum, 0, true, false, 
-							false, colNames , serverConfig.getJdbcType());
-					allElements.add(sqe);
+					r.computeIfAbsent(path, k -> new ArrayList<>()).add(new Element(tblName, tableTypNum, 0, false, true, false, false, colNames));
 				}
 			}
 		} catch(Exception e) {
@@ -211,16 +412,10 @@ public class ServerObjectTree {
 			short typeNum = toTypeNum(vRS.getString("type"), form );
 			boolean isTbl = form.equals("TABLE");
 			String[] colNames = new String[] { "unknown" };
-			try {
-				if(isTbl) {
-					colNames = getDolphinColNames(connectionManager, serverConfig, name, colNames); 
-				}
-				ServerQEntity sqe = ServerQEntityFactory.get(serverName, ".", name, typeNum, vRS.getLong("rows"), isTbl, false, 
-						false, colNames , serverConfig.getJdbcType());
-				allElements.add(sqe);
-			} catch(IllegalArgumentException iae) {
-				LOG.warning("Error parsing " + name + " in tree:" + iae);
+			if(isTbl) {
+				colNames = getDolphinColNames(connectionManager, serverConfig, name, colNames); 
 			}
+			r.computeIfAbsent(".", k -> new ArrayList<>()).add(new Element(name, typeNum, vRS.getLong("rows"), false, isTbl, false, false, colNames));
 		}
 
 		try { // Get functions - not much use as can't see content.
@@ -229,16 +424,12 @@ public class ServerObjectTree {
 				String name = functionRS.getString("name");
 				String[] colNames = new String[] { "unknown" };
 				short typeNum = (short) CAtomTypes.LAMBDA.getTypeNum();
-				ServerQEntity sqe = ServerQEntityFactory.get(serverName, ".", name,  typeNum, 
-								0l, false, false, false, colNames, serverConfig.getJdbcType());
-				allElements.add(sqe);
+				r.computeIfAbsent(".", k -> new ArrayList<>()).add(new Element(name, typeNum, 0l, false, false, false, false, colNames));
 			}
 		} catch(Exception e) {
 			LOG.warning("Error getting getDFSDatabases " + e);
 		}
 
-		HashMap<String, NamespaceListing> r = new HashMap<String, NamespaceListing>();
-		allElements.stream().collect(Collectors.groupingBy(sqe -> sqe.getNamespace())).forEach((ns,sqel) -> r.put(ns, new NamespaceListing(sqel)));
 		return r;
 	}
 
@@ -282,7 +473,7 @@ public class ServerObjectTree {
 	}
 
 
-	private static Map<String, NamespaceListing> getNSListing(ServerConfig serverConfig, ConnectionManager connectionManager)
+	private static Map<String, List<Element>> getNSListing(ServerConfig serverConfig, ConnectionManager connectionManager)
 			throws IOException, KException, UnsupportedDataTypeException {
 		if(GET_TREE_QUERY == null) {
 			return Collections.emptyMap();
@@ -303,23 +494,26 @@ public class ServerObjectTree {
 		Dict tree = (Dict) o;
 		String[] namespaces = (String[]) tree.x;
 		Object[] nsList = (Object[]) tree.y;
-		Map<String, NamespaceListing> ns2e = new HashMap<String,NamespaceListing>(namespaces.length);
+		Map<String, List<Element>> ns2e = new HashMap<String, List<Element>>(namespaces.length);
 		ArrayList<String> problemNSs = new ArrayList<String>();
 
 		for(int i=0; i<nsList.length; i++) {
 			
 			String ns = namespaces[i];
-			List<ServerQEntity> allElements;
 
 			if(nsList[i] instanceof Dict) {
 				Dict nsTree = (Dict) nsList[i];
-				allElements = toElementListing(serverConfig, ns, nsTree);
-				ns2e.put(ns, new NamespaceListing(allElements));
+				ns2e.put(ns, toElementListing(ns, nsTree));
 			} else {
 				problemNSs.add(ns);
 			}
 		}
 		
+		List<Element> rootElements = ns2e.get(DEFAULT_NAMESPACE);
+		if(rootElements != null && rootElements.stream().anyMatch(el -> el.isTable() && el.getCount() < 0)) {
+			ns2e.put(DEFAULT_NAMESPACE, withKdbApproximateCounts(kdbConn, rootElements));
+		}
+		
 		if(!problemNSs.isEmpty()) {
 			String msg = "Could not refresh the server tree namespaces:" 
 					+ Joiner.on(',').join(problemNSs);
@@ -336,18 +530,64 @@ public class ServerObjectTree {
 		return ns2e;
 	}
 	
+	/**
+	 * The tree query leaves the count unknown where it could not be found cheaply, 
+	 * fill in those table counts from the partition counts or in-memory counts where available.
+	 * Both are exact so the filled in counts are not marked approximate.
+	 */
+	private static List<Element> withKdbApproximateCounts(KdbConnection kdbConn, List<Element> elements) {
+		Map<String, Long> counts = new HashMap<>();
+		try {
+			Object o = kdbConn.query(MetaInfo.getApproximateCountQuery(JdbcTypes.KDB));
+			if(o instanceof Dict && ((Dict) o).x instanceof String[] && ((Dict) o).y instanceof long[]) {
+				String[] names = (String[]) ((Dict) o).x;
+				long[] vals = (long[]) ((Dict) o).y;
+				for(int i = 0; i < names.length; i++) {
+					if(vals[i] >= 0) { // 0N is Long.MIN_VALUE
+						counts.put(names[i], vals[i]);
+					}
+				}
+			}
+		} catch(IOException | KException e) {
+			LOG.info("Could not get approximate kdb counts: " + e);
+		}
+		if(counts.isEmpty()) {
+			return elements;
+		}
+		List<Element> r = new ArrayList<>(elements.size());
+		for(Element el : elements) {
+			Long c = el.isTable() && el.getCount() < 0 ? counts.get(el.getName()) : null;
+			r.add(c == null ? el : new Element(el.getName(), el.getTypeNum(), c, false, el.isTable(), 
+					el.isPartitioned(), el.isView(), el.getColArgNames()));
+		}
+		return r;
+	}
+
+	/** @return All namespaces including those whose elements have not been fetched yet, see {@link #isLoaded(String)} */
 	public Set<String> getNamespaces() {
-		return refreshResult.namespaceListingMap.keySet();
+		if(refreshResult.unloadedNamespaces.isEmpty()) {
+			return refreshResult.namespaceListingMap.keySet();
+		}
+		Set<String> r = new HashSet<>(refreshResult.namespaceListingMap.keySet());
+		r.addAll(refreshResult.unloadedNamespaces.keySet());
+		return r;
+	}
+
+	/** 
+	 * @return false if the namespace exists but its elements have not been fetched yet,
+	 * 	in which case {@link #loadNamespace(String)} will fetch them. 
+	 */
+	public boolean isLoaded(String namespace) {
+		return !refreshResult.unloadedNamespaces.containsKey(namespace);
 	}
 	
-	private static List<ServerQEntity> toElementListing(ServerConfig sc,
-			String namespace, Dict tree) {
+	private static List<Element> toElementListing(String namespace, Dict tree) {
 
 		String[] elementNames = (String[]) tree.x;
 		Object[] detailsArray = (Object[]) tree.y;
 		
 		if(elementNames.length > 0) {
-			List<ServerQEntity> r = new ArrayList<ServerQEntity>(elementNames.length);
+			List<Element> r = new ArrayList<Element>(elementNames.length);
 			for(int i=0; i<elementNames.length; i++) {
 				try {
 					Object[] d = (Object[]) detailsArray[i];
@@ -357,18 +597,7 @@ public class ServerObjectTree {
 					String[] colNames = d[4] instanceof String[] ? (String[]) d[4] : null;
 					boolean isView = (d[5] instanceof Boolean) ? (Boolean) d[5] : false;
 					long count = d[1] instanceof Number ? ((Number) d[1]).longValue() : -1;
-					
-					ServerQEntity sqe;
-					sqe = ServerQEntityFactory.get(sc.getName(), namespace, elementNames[i], type, 
-							count, isTable, partitioned, isView, colNames, sc.getJdbcType());
-					if(sqe == null) {
-						LOG.warning("unrecognised ServerQEntity: " + namespace + "." + elementNames[i]);
-					} else {
-						r.add(sqe);
-					}
-				} catch(IllegalArgumentException iae) {
-					String msg = "unrecognised ServerQEntity: " + namespace + "." + elementNames[i];
-					LOG.log(Level.WARNING, msg, iae);
+					r.add(new Element(elementNames[i], type, count, false, isTable, partitioned, isView, colNames));
 				} catch(ClassCastException cce) {
 					String msg = "unrecognised ServerQEntity: " + namespace + "." + elementNames[i];
 					LOG.log(Level.WARNING, msg, cce);
@@ -392,6 +621,10 @@ public class ServerObjectTree {
 				entities.add(ServerQEntityFactory.getDict(firstItem.getSource(), firstItem.getNamespace(), "", 1));
 			}
 		}
+		// namespaces alone allow autocompleting them which triggers fetching their contents
+		for(String ns : refreshResult.unloadedNamespaces.keySet()) {
+			entities.add(ServerQEntityFactory.getDict(serverConfig.getName(), ns, "", 1));
+		}
 		return entities;
 	}
 
@@ -484,7 +717,8 @@ public class ServerObjectTree {
 		
 	/** @return true only if the namespace exists **/
 	boolean namespaceExists(String namespace) {
-		return refreshResult.namespaceListingMap.get(namespace) != null;
+		return refreshResult.namespaceListingMap.get(namespace) != null 
+				|| refreshResult.unloadedNamespaces.containsKey(namespace);
 	}
 
 	@Override
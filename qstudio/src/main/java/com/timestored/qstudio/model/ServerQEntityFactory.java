@@ -47,9 +47,10 @@ class ServerQEntityFactory {
 	 * @param colArgNames If the type is table, this is the column names
 	 * 		if it's specified as lambda, this is the arguments
 	 * @param count Count if known or -1 to specify unknown.
+	 * @param countApproximate true if count is an estimate, only applies to tables.
 	 */
 	static ServerQEntity get(String serverName, String namespace, String name, Short typeNum, long count,
-			boolean isTable, boolean partitioned, boolean isView, String[] colArgNames, JdbcTypes jdbcTypes) {
+			boolean countApproximate, boolean isTable, boolean partitioned, boolean isView, String[] colArgNames, JdbcTypes jdbcTypes) {
 		CAtomTypes t = CAtomTypes.getType(typeNum);
 		if(t==null) {
 			return null; // can't recognise type, return
@@ -57,7 +58,8 @@ class ServerQEntityFactory {
 		if(isView) {
 			return getView(serverName, namespace, name);
 		} else if(isTable) {
-			return getTable(serverName, namespace, name, typeNum, count, partitioned, colArgNames, jdbcTypes);
+			return new TableSQE(serverName, namespace, name, CAtomTypes.getType(typeNum), 
+					count, countApproximate, partitioned, colArgNames, jdbcTypes);
 		} else if(t.isList()) {
 			return new ListSQE(serverName, namespace, name, t, count, jdbcTypes);
 		} else if (t.equals(CAtomTypes.DICTIONARY)){
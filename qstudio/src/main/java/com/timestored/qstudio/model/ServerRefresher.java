@@ -0,0 +1,146 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.model;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.timestored.connections.ServerConfig;
+
+/**
+ * Refreshes {@link ServerModel}s in parallel on a bounded pool of threads.
+ * Before connecting properly, each server's host and port are probed with a short connect timeout
+ * so that unreachable hosts fail fast rather than waiting out the OS connect timeout.
+ * A server that keeps failing has its automatic refreshes skipped for exponentially longer
+ * periods, a circuit breaker, until it next succeeds.
+ */
+class ServerRefresher {
+
+	private static final Logger LOG = Logger.getLogger(ServerRefresher.class.getName());
+
+	private static final int THREADS = 8;
+	/** Time allowed to open a TCP connection to a server before it is considered unreachable. */
+	private static final int CONNECT_BUDGET_MS = 2_000;
+	/** Time a server is skipped after its first failure, doubled for each further consecutive failure. */
+	private static final long BASE_BACKOFF_MS = 15_000;
+	private static final long MAX_BACKOFF_MS = 10 * 60_000;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(THREADS,
+			new ThreadFactoryBuilder().setNameFormat("server-refresh-%d").setDaemon(true).build());
+	/** Keyed by server name, servers with no entry have not failed since their last success. */
+	private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+	/** Names of the servers currently being refreshed. */
+	private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+	private static class Breaker {
+		private final int failures;
+		private final long retryTime;
+
+		Breaker(int failures, long retryTime) {
+			this.failures = failures;
+			this.retryTime = retryTime;
+		}
+	}
+
+	/**
+	 * Refresh each model on the pool, in the order given, skipping those whose circuit is open.
+	 * @param onRefreshed Called on the refreshing thread as each server completes, successfully or not.
+	 */
+	void refreshAll(List<ServerModel> serverModels, Consumer<ServerModel> onRefreshed) {
+		for(ServerModel sm : serverModels) {
+			if(isOpen(sm.getServerConfig())) {
+				LOG.fine("skipping refresh of repeatedly failing server " + sm.getName());
+				continue;
+			}
+			executor.execute(() -> {
+				refresh(sm);
+				onRefreshed.accept(sm);
+			});
+		}
+	}
+
+	/**
+	 * Refresh one model on the calling thread, regardless of its circuit state
+	 * as this is only used where the user has asked for that server.
+	 */
+	void refresh(ServerModel sm) {
+		ServerConfig sc = sm.getServerConfig();
+		inFlight.add(sc.getName());
+		try {
+			if(isReachable(sc)) {
+				sm.refresh();
+			} else {
+				sm.setUnreachable("Could not connect to " + sc.getHost() + ":" + sc.getPort() 
+						+ " within " + CONNECT_BUDGET_MS + "ms");
+			}
+		} catch(RuntimeException re) {
+			LOG.log(Level.WARNING, "Error refreshing server " + sm.getName(), re);
+		} finally {
+			inFlight.remove(sc.getName());
+		}
+		ServerObjectTree tree = sm.getServerObjectTree();
+		if(tree != null && tree.getErrMsg().isEmpty()) {
+			breakers.remove(sc.getName());
+		} else {
+			breakers.compute(sc.getName(), (name, prev) -> {
+				int failures = prev == null ? 1 : prev.failures + 1;
+				long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(failures - 1, 16));
+				return new Breaker(failures, System.currentTimeMillis() + backoff);
+			});
+		}
+	}
+
+	/** @return true if the server is being refreshed right now. */
+	boolean isRefreshing(ServerConfig sc) {
+		return inFlight.contains(sc.getName());
+	}
+
+	/** @return true if the server has failed recently enough that automatic refreshes should skip it. */
+	boolean isOpen(ServerConfig sc) {
+		Breaker b = breakers.get(sc.getName());
+		return b != null && System.currentTimeMillis() < b.retryTime;
+	}
+
+	/**
+	 * @return false if the server has a network address that could not be connected to within
+	 * 	{@link #CONNECT_BUDGET_MS}, true otherwise including for file based databases.
+	 */
+	private static boolean isReachable(ServerConfig sc) {
+		String host = sc.getHost();
+		if(host == null || host.isEmpty() || sc.getPort() <= 0 || sc.getPort() > 65535) {
+			return true;
+		}
+		try(Socket s = new Socket()) {
+			s.connect(new InetSocketAddress(host, sc.getPort()), CONNECT_BUDGET_MS);
+			return true;
+		} catch(IOException e) {
+			LOG.info("Could not reach " + sc.getName() + " within " + CONNECT_BUDGET_MS + "ms: " + e);
+			return false;
+		}
+	}
+}
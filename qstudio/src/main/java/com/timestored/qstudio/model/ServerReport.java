@@ -39,6 +39,8 @@ public class ServerReport {
 	
 	private TableModel diskTab;
 	private TableModel memTab;
+	/** Time the report was taken, milliseconds since epoch. */
+	private final long time = System.currentTimeMillis();
 
 	private final int ip;
 	private final String hostname;
@@ -96,6 +98,42 @@ public class ServerReport {
 
 	}
 
+	/** @return Time the report was taken, milliseconds since epoch. */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @param name A .Q.w[] key e.g. used, heap, peak, wmax, mmap, mphy, syms, symw.
+	 * @return The value of that memory statistic or null if not reported.
+	 */
+	public Long getMemoryStat(String name) {
+		if(memTab == null || memTab.getRowCount() == 0) {
+			return null;
+		}
+		for(int c = 0; c < memTab.getColumnCount(); c++) {
+			if(memTab.getColumnName(c).equals(name)) {
+				Object o = memTab.getValueAt(0, c);
+				return o instanceof Number ? ((Number) o).longValue() : null;
+			}
+		}
+		return null;
+	}
+
+	/** @return The number of partitions if the database is partitioned otherwise null. */
+	public Long getPartitionCount() {
+		if(diskTab == null || diskTab.getColumnCount() < 2) {
+			return null;
+		}
+		for(int r = 0; r < diskTab.getRowCount(); r++) {
+			if("Partitions".equals(diskTab.getValueAt(r, 0))) {
+				Object o = diskTab.getValueAt(r, 1);
+				return o instanceof Number ? ((Number) o).longValue() : null;
+			}
+		}
+		return null;
+	}
+
 	public String getIp() {
 		return ((ip >> 24) & 0xFF) + "." + ((ip >> 16) & 0xFF) + "."
 				+ ((ip >> 8) & 0xFF) + "." + (ip & 0xFF);
@@ -0,0 +1,117 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.model;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.swing.SwingUtilities;
+
+import com.google.common.base.Preconditions;
+import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.MetaInfo;
+import com.timestored.connections.ServerConfig;
+import com.timestored.kdb.KdbConnection;
+import com.timestored.qstudio.BackgroundExecutor;
+
+/**
+ * Runs exact table counts in the background only when asked for, as scanning a large table
+ * can take far longer than the rest of the tree refresh. The server tree itself only shows
+ * the estimates from {@link MetaInfo#getApproximateCountQuery(com.timestored.connections.JdbcTypes)}.
+ * Counts are remembered until the server is refreshed.
+ */
+public class TableCounter {
+
+	private static final Logger LOG = Logger.getLogger(TableCounter.class.getName());
+
+	private final ConnectionManager connectionManager;
+	/** server\ntable to exact count, -2 if the count failed. */
+	private final Map<String, Long> exactCounts = new ConcurrentHashMap<>();
+	/** Counts being run, prevents the same table being scanned twice at once. */
+	private final Map<String, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+
+	TableCounter(ConnectionManager connectionManager) {
+		this.connectionManager = Preconditions.checkNotNull(connectionManager);
+	}
+
+	private static String getKey(ServerConfig sc, TableSQE table) {
+		return sc.getName() + "\n" + table.getFullName();
+	}
+
+	/** @return The exact count if it has already been found, -2 if counting failed, otherwise null. */
+	public Long getExactCount(ServerConfig sc, TableSQE table) {
+		return exactCounts.get(getKey(sc, table));
+	}
+
+	/** @return true if the table is being counted right now. */
+	public boolean isCounting(ServerConfig sc, TableSQE table) {
+		return inFlight.containsKey(getKey(sc, table));
+	}
+
+	/**
+	 * Count the table in the background unless its count is already known, a failed count is run again.
+	 * @param onCounted Called on the EDT with the exact count, or -2 if counting failed.
+	 */
+	public void count(ServerConfig sc, TableSQE table, Consumer<Long> onCounted) {
+		String key = getKey(sc, table);
+		Long known = exactCounts.get(key);
+		if(known != null && known >= 0) {
+			SwingUtilities.invokeLater(() -> onCounted.accept(known));
+			return;
+		}
+		CompletableFuture<Long> f = inFlight.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+			long c = runCount(sc, table);
+			exactCounts.put(k, c);
+			return c;
+		}, BackgroundExecutor.EXECUTOR));
+		f.whenComplete((c, t) -> inFlight.remove(key, f));
+		f.thenAccept(c -> SwingUtilities.invokeLater(() -> onCounted.accept(c)));
+	}
+
+	/** Forget all counts for this server, as they may have changed. */
+	void clear(ServerConfig sc) {
+		String prefix = sc.getName() + "\n";
+		exactCounts.keySet().removeIf(k -> k.startsWith(prefix));
+	}
+
+	private long runCount(ServerConfig sc, TableSQE table) {
+		String qry = MetaInfo.getCountQuery(sc.getJdbcType(), table.getFullName());
+		try {
+			if(sc.isKDB()) {
+				KdbConnection kdbConn = connectionManager.getKdbConnection(sc);
+				if(kdbConn == null) {
+					return -2;
+				}
+				try {
+					Object o = kdbConn.query(qry);
+					return o instanceof Number ? ((Number) o).longValue() : -2;
+				} finally {
+					kdbConn.close();
+				}
+			}
+			CachedRowSet rs = connectionManager.executeQuery(sc, qry);
+			return rs.next() ? rs.getLong(1) : -2;
+		} catch(Exception e) {
+			LOG.info("Could not count " + table.getFullName() + " on " + sc.getName() + ": " + e);
+		}
+		return -2;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.model;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+
+import com.google.common.base.Preconditions;
+import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.MetaInfo;
+import com.timestored.connections.ServerConfig;
+import com.timestored.kdb.KdbConnection;
+import com.timestored.qstudio.BackgroundExecutor;
+import com.timestored.qstudio.kdb.KdbTableFactory;
+
+/**
+ * Profiles every column of a table, null counts, distinct counts, min / max and histograms,
+ * using the single query from {@link MetaInfo#getProfileQuery(com.timestored.connections.JdbcTypes, List, String, long, long, boolean)}
+ * run in the background. Tables larger than {@link #SAMPLE_ROWS} are sampled.
+ * Profiles are remembered until the server is refreshed.
+ */
+public class TableProfiler {
+
+	private static final Logger LOG = Logger.getLogger(TableProfiler.class.getName());
+	/** Tables with more rows than this are sampled down to about this many rows. */
+	public static final long SAMPLE_ROWS = 1_000_000;
+
+	private final ConnectionManager connectionManager;
+	private final Map<String, TableModel> profiles = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<TableModel>> inFlight = new ConcurrentHashMap<>();
+
+	TableProfiler(ConnectionManager connectionManager) {
+		this.connectionManager = Preconditions.checkNotNull(connectionManager);
+	}
+
+	private static String getKey(ServerConfig sc, TableSQE table) {
+		return sc.getName() + "\n" + table.getFullName();
+	}
+
+	/** @return The profile if the table has already been profiled, otherwise null. */
+	public TableModel getProfile(ServerConfig sc, TableSQE table) {
+		return profiles.get(getKey(sc, table));
+	}
+
+	/**
+	 * Profile the table in the background unless it already has been.
+	 * @param onProfiled Called on the EDT with one row per column.
+	 * @param onError Called on the EDT if profiling failed.
+	 */
+	public void profile(ServerConfig sc, TableSQE table, Consumer<TableModel> onProfiled, Consumer<Exception> onError) {
+		String key = getKey(sc, table);
+		TableModel known = profiles.get(key);
+		if(known != null) {
+			SwingUtilities.invokeLater(() -> onProfiled.accept(known));
+			return;
+		}
+		CompletableFuture<TableModel> f = inFlight.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+			try {
+				TableModel tm = runProfile(sc, table);
+				profiles.put(k, tm);
+				return tm;
+			} catch(Exception e) {
+				throw new CompletionException(e);
+			}
+		}, BackgroundExecutor.EXECUTOR));
+		f.whenComplete((tm, t) -> inFlight.remove(key, f));
+		f.whenComplete((tm, t) -> SwingUtilities.invokeLater(() -> {
+			if(t == null) {
+				onProfiled.accept(tm);
+			} else {
+				Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+				onError.accept(cause instanceof Exception ? (Exception) cause : new Exception(cause));
+			}
+		}));
+	}
+
+	/** Forget all profiles for this server, as the data may have changed. */
+	void clear(ServerConfig sc) {
+		String prefix = sc.getName() + "\n";
+		profiles.keySet().removeIf(k -> k.startsWith(prefix));
+	}
+
+	private TableModel runProfile(ServerConfig sc, TableSQE table) throws Exception {
+		List<String> colNames = table.getColNames();
+		if(sc.isKDB()) {
+			String qry = MetaInfo.getProfileQuery(sc.getJdbcType(), colNames, table.getFullName(), table.getCount(), SAMPLE_ROWS, true);
+			KdbConnection kdbConn = connectionManager.getKdbConnection(sc);
+			if(kdbConn == null) {
+				throw new IOException("Could not connect to " + sc.getName());
+			}
+			try {
+				TableModel tm = KdbTableFactory.getAsTableModel(kdbConn.query(qry));
+				if(tm == null) {
+					throw new IOException("Profile query did not return a table");
+				}
+				return tm;
+			} finally {
+				kdbConn.close();
+			}
+		}
+		CachedRowSet rs;
+		boolean hasMinMax = true;
+		try {
+			rs = connectionManager.executeQuery(sc, MetaInfo.getProfileQuery(sc.getJdbcType(), colNames, table.getFullName(), table.getCount(), SAMPLE_ROWS, true));
+		} catch(SQLException e) {
+			// some types, e.g. boolean on postgres, have no MIN/MAX so profile without them
+			LOG.info("Profiling " + table.getFullName() + " with min/max failed, retrying without: " + e);
+			hasMinMax = false;
+			rs = connectionManager.executeQuery(sc, MetaInfo.getProfileQuery(sc.getJdbcType(), colNames, table.getFullName(), table.getCount(), SAMPLE_ROWS, false));
+		}
+		return toProfile(rs, colNames, hasMinMax, table.getCount());
+	}
+
+	/** Pivot the single wide row returned by SQL databases into one row per column. */
+	private static TableModel toProfile(CachedRowSet rs, List<String> colNames, boolean hasMinMax, long estimatedCount) throws SQLException {
+		if(!rs.next()) {
+			throw new SQLException("Profile query returned no rows");
+		}
+		int perCol = (rs.getMetaData().getColumnCount() - 1) / colNames.size();
+		boolean hasTopValues = perCol > (hasMinMax ? 4 : 2);
+		long rows = rs.getLong(1);
+		boolean sampled = estimatedCount < 0 || estimatedCount > SAMPLE_ROWS;
+		DefaultTableModel tm = new DefaultTableModel(new Object[] { "column", "nulls", "distinctCount", "minValue", "maxValue",
+				hasTopValues ? "topValues" : "histogram", "sampled" }, 0);
+		for(int i = 0; i < colNames.size(); i++) {
+			int c = 2 + i * perCol;
+			Object minV = hasMinMax ? rs.getObject(c + 2) : null;
+			Object maxV = hasMinMax ? rs.getObject(c + 3) : null;
+			Object top = hasTopValues ? rs.getObject(c + perCol - 1) : null;
+			tm.addRow(new Object[] { colNames.get(i), rows - rs.getLong(c), rs.getLong(c + 1), minV, maxV, top, sampled });
+		}
+		return tm;
+	}
+}
@@ -44,6 +44,8 @@ import lombok.NonNull;
 public class TableSQE extends BaseSQE {
 
 	@Getter private final long count;
+	/** true if {@link #getCount()} is an estimate from the database's statistics rather than exact. */
+	@Getter private final boolean countApproximate;
 	@Getter private final boolean isPartitioned;
 	@Getter private final List<String> colNames;
 	@NonNull private final JdbcTypes jdbcTypes;
@@ -53,6 +55,15 @@ public class TableSQE extends BaseSQE {
 	 */
 	TableSQE(String serverName, String namespace, String name, CAtomTypes type, 
 			long count, boolean isPartitioned, String[] colNames, JdbcTypes jdbcTypes) {
+		this(serverName, namespace, name, type, count, false, isPartitioned, colNames, jdbcTypes);
+	}
+
+	/**
+	 * @param count Count if known or -1 to specify unknown.
+	 * @param countApproximate true if the count is an estimate rather than exact.
+	 */
+	TableSQE(String serverName, String namespace, String name, CAtomTypes type, 
+			long count, boolean countApproximate, boolean isPartitioned, String[] colNames, JdbcTypes jdbcTypes) {
 		
 		super(serverName, namespace, name, type, jdbcTypes);
 		Preconditions.checkArgument(count>=-2);
@@ -62,6 +73,7 @@ public class TableSQE extends BaseSQE {
 		Preconditions.checkArgument(t.equals(TABLE) || t.equals(DICTIONARY));
 
 		this.count = count;
+		this.countApproximate = countApproximate && count >= 0;
 		this.isPartitioned = isPartitioned;
 		this.colNames = Arrays.asList(colNames);
 		this.jdbcTypes = jdbcTypes == null ? JdbcTypes.KDB : jdbcTypes;
@@ -78,7 +90,7 @@ public class TableSQE extends BaseSQE {
 	}
 
 	@Override public String toString() {
-		return "TableSQE[" + getName() + " count=" + count 
+		return "TableSQE[" + getName() + " count=" + (countApproximate ? "~" : "") + count 
 				+ " cols=" + Joiner.on(",").join(colNames) + "]";
 	}
 	
@@ -88,7 +100,8 @@ public class TableSQE extends BaseSQE {
 			return super.equals(o) && 
 				Objects.equal(colNames, that.colNames) && 
 				Objects.equal(isPartitioned, that.isPartitioned) && 
-				Objects.equal(count, that.count);
+				Objects.equal(count, that.count) &&
+				Objects.equal(countApproximate, that.countApproximate);
 		}
 		return false;
 	}
@@ -105,14 +118,14 @@ public class TableSQE extends BaseSQE {
 		if(!shortFormat) {
 			Map<String,String> namesToDescs = ImmutableMap.of("Name: ", getDocName(), 
 					"Type: ", t,
-					"Count: ", count==-1 ? "unknown" : ""+count,
+					"Count: ", count==-1 ? "unknown" : (countApproximate ? "~" + count + " (estimated)" : ""+count),
 					"Partitioned: ", (isPartitioned ? "Yes" : "No"),
 					"Columns: ", colHtml);
 			s = toHtml(namesToDescs);
 		} else {
 			s = HtmlUtils.START + " " + t + " ";
 			if(count != -1) {
-				s += count + " rows ";
+				s += (countApproximate ? "~" : "") + count + " rows ";
 			}
 			s += (isPartitioned ? "Partitioned" : "") + "<br />Columns: " + colHtml + HtmlUtils.END;
 		}
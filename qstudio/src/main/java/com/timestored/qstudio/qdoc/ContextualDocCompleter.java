@@ -11,6 +11,8 @@ import com.timestored.qdoc.DocCompleter;
 import com.timestored.qdoc.DocumentedEntity;
 import com.timestored.qstudio.Language;
 import com.timestored.qstudio.QStudioModel;
+import com.timestored.qstudio.model.AdminModel;
+import com.timestored.qstudio.model.ServerModel;
 import com.timestored.qstudio.model.ServerQEntity;
 import com.timestored.qstudio.model.ServerQEntity.QQuery;
 import com.timestored.sqldash.theme.DBIcons;
@@ -33,6 +35,7 @@ public class ContextualDocCompleter implements DocCompleter {
 			String fileEnding = qStudioModel.getOpenDocumentsModel().getSelectedDocument().getFileEnding();
 			Language language = Language.getLanguage(fileEnding);
 			String pre = txt.substring(0, caratPos);
+			loadNamespaceBeingTyped(pre);
 			
 			if(language.equals(Language.MARKDOWN)) {
 				int p = pre.lastIndexOf('\n');
@@ -74,6 +77,30 @@ public class ContextualDocCompleter implements DocCompleter {
 		return l;
 	}
 
+	/** 
+	 * If the text ends with namespace.partialName request that namespace's contents as they
+	 * may not have been fetched with the rest of the server tree. They are available on later keystrokes.
+	 */
+	private void loadNamespaceBeingTyped(String pre) {
+		int start = pre.length();
+		while(start > 0) {
+			char ch = pre.charAt(start - 1);
+			if(!Character.isLetterOrDigit(ch) && ch != '.' && ch != '_') {
+				break;
+			}
+			start--;
+		}
+		String word = pre.substring(start);
+		int dot = word.lastIndexOf('.');
+		if(dot > 0) {
+			AdminModel adminModel = qStudioModel.getAdminModel();
+			ServerModel sm = adminModel.getServerModel();
+			if(sm != null) {
+				adminModel.loadNamespace(sm, word.substring(0, dot));
+			}
+		}
+	}
+
 	private static final String[] pulseChartTypes = new String[] {"grid", "timeseries", "area", 
 			"line", "bar", "stack", "bar_horizontal", "stack_horizontal", "pie",
 		    "scatter", "bubble", "candle", "depthmap", "radar", "treemap", 
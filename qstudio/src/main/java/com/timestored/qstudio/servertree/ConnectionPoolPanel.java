@@ -0,0 +1,95 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.servertree;
+
+import java.awt.BorderLayout;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.html.HtmlEscapers;
+import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.ConnectionPoolStats;
+import com.timestored.connections.ServerConfig;
+import com.timestored.theme.Theme;
+
+/**
+ * Shows the {@link ConnectionPoolStats} of one server's connection pool, refreshed every few seconds
+ * while showing, so exhausted pools and repeated connection failures can be spotted.
+ * Reading the stats sends nothing to the server.
+ */
+class ConnectionPoolPanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+	private static final int REFRESH_MILLIS = 2000;
+
+	private final ConnectionManager connectionManager;
+	private final ServerConfig serverConfig;
+	private final JLabel label = new JLabel();
+	private final Timer timer;
+
+	ConnectionPoolPanel(ConnectionManager connectionManager, ServerConfig serverConfig) {
+		super(new BorderLayout());
+		this.connectionManager = Preconditions.checkNotNull(connectionManager);
+		this.serverConfig = Preconditions.checkNotNull(serverConfig);
+		label.setBorder(Theme.getCentreBorder());
+		add(Theme.getSubHeader("Connection Pool"), BorderLayout.NORTH);
+		add(label, BorderLayout.CENTER);
+		timer = new Timer(REFRESH_MILLIS, e -> refresh());
+		refresh();
+	}
+
+	private void refresh() {
+		label.setText(toHtml(connectionManager.getPoolStats(serverConfig)));
+	}
+
+	private static String toHtml(ConnectionPoolStats s) {
+		if(s == null) {
+			return "<html>No connections open.</html>";
+		}
+		StringBuilder sb = new StringBuilder("<html>");
+		sb.append("Active: ").append(s.getActive()).append(" / ").append(s.getMaxTotal())
+			.append(" &nbsp; Idle: ").append(s.getIdle());
+		if(s.isExhausted()) {
+			sb.append(" &nbsp; <b>Exhausted</b>");
+		}
+		sb.append("<br/>Borrows: ").append(s.getBorrowCount())
+			.append(String.format(" &nbsp; Mean wait: %.1f ms", s.getMeanBorrowMillis()))
+			.append(" &nbsp; Max wait: ").append(s.getMaxBorrowMillis()).append(" ms");
+		sb.append("<br/>Failures: ").append(s.getFailureCount());
+		if(s.getLastFailure() != null) {
+			String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(s.getLastFailureTime()));
+			sb.append(" &nbsp; Last at ").append(time).append(": ").append(HtmlEscapers.htmlEscaper().escape(s.getLastFailure()));
+		}
+		return sb.append("</html>").toString();
+	}
+
+	@Override public void addNotify() {
+		super.addNotify();
+		refresh();
+		timer.start();
+	}
+
+	@Override public void removeNotify() {
+		timer.stop();
+		super.removeNotify();
+	}
+}
@@ -24,14 +24,19 @@ import java.awt.datatransfer.StringSelection;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.sql.rowset.CachedRowSet;
 import javax.swing.Box;
 import javax.swing.JButton;
+import javax.swing.JDialog;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 import kx.c.KException;
 
@@ -43,6 +48,9 @@ import com.timestored.qstudio.model.AdminModel;
 import com.timestored.qstudio.model.QueryManager;
 import com.timestored.qstudio.model.ServerQEntity;
 import com.timestored.qstudio.model.ServerQEntity.QQuery;
+import com.timestored.qstudio.model.TableCounter;
+import com.timestored.qstudio.model.TableProfiler;
+import com.timestored.qstudio.model.TableSQE;
 import com.timestored.sqldash.chart.ChartTheme;
 import com.timestored.theme.Theme;
 
@@ -77,6 +85,68 @@ class ElementDisplayFactory {
 		return b;
 	}
 
+	/**
+	 * @return Label showing the table's count, estimated counts are prefixed with ~ and 
+	 * 	can be replaced with the exact count which is run in the background when asked for.
+	 * 	Followed by a button to profile the table's columns.
+	 */
+	private static Box getCountBox(AdminModel adminModel, TableSQE table) {
+		Box b = Box.createHorizontalBox();
+		ServerConfig sc = adminModel.getServerModel().getServerConfig();
+		TableCounter tableCounter = adminModel.getTableCounter();
+		JLabel label = new JLabel();
+		JButton countBut = new JButton("Count Exactly", Theme.CIcon.TABLE_ELEMENT.get16());
+		countBut.setToolTipText("Run a full count of this table in the background, this may be slow for large tables.");
+		Consumer<Long> showExact = c -> {
+			label.setText(c < 0 ? " Count failed " : (" " + c + " rows "));
+			countBut.setVisible(c < 0);
+			countBut.setEnabled(true);
+		};
+		Long exactCount = tableCounter.getExactCount(sc, table);
+		if(exactCount != null) {
+			showExact.accept(exactCount);
+		} else if(table.getCount() >= 0 && !table.isCountApproximate()) {
+			label.setText(" " + table.getCount() + " rows ");
+			countBut.setVisible(false);
+		} else {
+			label.setText(table.getCount() >= 0 ? (" ~" + table.getCount() + " rows (estimated) ") : " Count unknown ");
+			countBut.setEnabled(!tableCounter.isCounting(sc, table));
+		}
+		countBut.addActionListener(e -> {
+			countBut.setEnabled(false);
+			label.setText(" Counting... ");
+			tableCounter.count(sc, table, showExact);
+		});
+		b.add(label);
+		b.add(countBut);
+		b.add(getProfileButton(adminModel, table));
+		return b;
+	}
+
+	/** @return Button that profiles the table's columns in the background then shows the profile in a dialog. */
+	private static JButton getProfileButton(AdminModel adminModel, TableSQE table) {
+		ServerConfig sc = adminModel.getServerModel().getServerConfig();
+		JButton but = new JButton("Profile Columns", Theme.CIcon.TABLE_ELEMENT.get16());
+		but.setToolTipText("<html>Null counts, distinct counts, min / max and histograms of every column in one query."
+				+ "<br/>Tables over " + TableProfiler.SAMPLE_ROWS + " rows are sampled.</html>");
+		but.addActionListener(e -> {
+			but.setEnabled(false);
+			adminModel.getTableProfiler().profile(sc, table, tm -> {
+				but.setEnabled(true);
+				JDialog d = new JDialog(SwingUtilities.getWindowAncestor(but), "Profile of " + table.getFullName());
+				d.add(new JScrollPane(KdbTableFactory.getPlainReadonlyTable(tm)));
+				d.setSize(800, 400);
+				d.setLocationRelativeTo(but);
+				d.setVisible(true);
+			}, ex -> {
+				but.setEnabled(true);
+				JOptionPane.showMessageDialog(but, "Could not profile " + table.getFullName() + ":\r\n" + ex.getMessage(), 
+						"Profile Error", JOptionPane.ERROR_MESSAGE);
+			});
+		});
+		return but;
+	}
+
 	public static Component getPanel(AdminModel adminModel, QueryManager queryManager, ChartTheme chartTheme) {
 		
 		Component retComponent = null;
@@ -127,7 +197,11 @@ class ElementDisplayFactory {
 		if(adminModel.getServerModel().getServerConfig().isKDB()) {
 			if (elementDetails.isTable()) {
 				JPanel p = new JPanel(new BorderLayout());
-				p.add(getActionButtons(queryManager, elementDetails.getQQueries()), BorderLayout.NORTH);
+				Box b = getActionButtons(queryManager, elementDetails.getQQueries());
+				if(elementDetails instanceof TableSQE) {
+					b.add(getCountBox(adminModel, (TableSQE) elementDetails));
+				}
+				p.add(b, BorderLayout.NORTH);
 				p.add(new PagingTablePanel(adminModel, queryName), BorderLayout.CENTER);
 				return p;
 			
@@ -151,7 +225,11 @@ class ElementDisplayFactory {
 					ServerConfig sc = adminModel.getServerModel().getServerConfig();
 					List<QQuery> qQueryies = serverEntity.getQQueries();
 					if(qQueryies.size() > 0) {
-						add(getActionButtons(queryManager, qQueryies), BorderLayout.NORTH);
+						Box b = getActionButtons(queryManager, qQueryies);
+						if(serverEntity instanceof TableSQE) {
+							b.add(getCountBox(adminModel, (TableSQE) serverEntity));
+						}
+						add(b, BorderLayout.NORTH);
 						QQuery qQuery = serverEntity.getQQueries().get(0);
 						String sqlQuery = qQuery.getQuery();
 						CachedRowSet r = adminModel.getConnectionManager().executeQuery(sc, sqlQuery );
@@ -33,14 +33,16 @@ import javax.swing.ScrollPaneConstants;
 import kx.c.KException;
 
 import com.google.common.base.Preconditions;
-import com.timestored.kdb.KdbConnection;
+import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.ServerConfig;
 import com.timestored.qstudio.QStudioLauncher;
 import com.timestored.qstudio.kdb.KdbTableFactory;
 import com.timestored.qstudio.model.AdminModel;
 import com.timestored.theme.Theme;
 
 /**
- * Displays tables as pa
+ * Displays tables as pages of {@link #ROWS_SHOWN} rows that are fetched in the background
+ * by a {@link TablePageCache}.
  */
 public class PagingTablePanel extends JPanel {
 
@@ -55,7 +57,7 @@ public class PagingTablePanel extends JPanel {
 
 	private static long ROWS_SHOWN = 10_000;
 	private long offset = 0;
-	private long count;
+	private final TablePageCache pageCache;
 	
 	private final String queryName;
 	private final JButton firstButton;
@@ -64,14 +66,21 @@ public class PagingTablePanel extends JPanel {
 	private JButton lastButton;
 	private Component scrollPane;
 	private final JLabel positionLabel;
-	private final AdminModel adminModel;
+	private final ServerConfig serverConfig;
+	/** true once removed from the display, which cancels page fetches, so the page is loaded again if re-added. */
+	private boolean closed = false;
+	/** Incremented by each page request so only the latest one's result is shown. */
+	private int requestId = 0;
 	
 
 	PagingTablePanel(AdminModel adminModel,
 			String queryName) throws IOException, KException {
 			
 		this.queryName = Preconditions.checkNotNull(queryName);
-		this.adminModel = Preconditions.checkNotNull(adminModel);
+		// the server of this table, not whichever is selected when a page is fetched
+		this.serverConfig = Preconditions.checkNotNull(adminModel.getServerModel()).getServerConfig();
+		ConnectionManager connectionManager = adminModel.getConnectionManager();
+		this.pageCache = new TablePageCache(queryName, ROWS_SHOWN, () -> connectionManager.getKdbConnection(serverConfig));
 		
 		// paging controls
 		firstButton = new JButton("<<");
@@ -99,7 +108,7 @@ public class PagingTablePanel extends JPanel {
 		lastButton.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				PagingTablePanel.this.refreshToShow(count - ROWS_SHOWN);
+				PagingTablePanel.this.refreshToShow(pageCache.getCount() - ROWS_SHOWN);
 			}
 		});
 		positionLabel = new JLabel();
@@ -109,7 +118,7 @@ public class PagingTablePanel extends JPanel {
 		lastButton.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				PagingTablePanel.this.refreshToShow(count - ROWS_SHOWN);
+				PagingTablePanel.this.refreshToShow(pageCache.getCount() - ROWS_SHOWN);
 			}
 		});
 
@@ -138,82 +147,108 @@ public class PagingTablePanel extends JPanel {
 	
 	public static String getTableQuery(String tableName, long offset, long rowsShown) {
 
-		String query = "(count " +tableName + ";" + SUBBLIST_Q + 
-				"[" + offset + " " + rowsShown 
-				+ "j;" + tableName + "])";
+		String query = "(count " +tableName + ";" + getPageQuery(tableName, offset, rowsShown) + ")";
 		return query;
 	}
+
+	/** @return query for just the rows of a table from offset without the count. */
+	static String getPageQuery(String tableName, long offset, long rowsShown) {
+		return SUBBLIST_Q + "[" + offset + " " + rowsShown + "j;" + tableName + "]";
+	}
 	
 	private void refreshToShow(long offset) {
-		
-		// wipe GUI
-		KdbConnection kdbConnection = null;
-		remove(scrollPane);
-		Component sp = new JPanel();
-		Exception e = null;
 
+		long count = pageCache.getCount();
+		// prefetch in the direction being moved, or back from the end and forward from the start
+		int direction = Long.signum(offset - this.offset);
+		if(offset <= 0) {
+			direction = 1;
+		} else if(count != -1 && offset + ROWS_SHOWN >= count) {
+			direction = -1;
+		}
 		this.offset = offset;
-		// perform necessary query
-		String query = getTableQuery(queryName, offset, ROWS_SHOWN);
-		
-		kdbConnection = adminModel.getKdbConnection();
-		boolean prevPossible = false;
-		boolean nextPossible = false;
-		String posText = "";
-		
-		try {
-			
-			if(kdbConnection!=null) {
-				Object[] resArray = (Object[]) kdbConnection.query(query); 
-				count = ((Number) resArray[0]).longValue();
-
-				// configure controls
-				prevPossible = (offset>0);
-				nextPossible = ((offset+ROWS_SHOWN) < count);
-				
-				// table of results, update view
-				long np = (offset + ROWS_SHOWN);
-				posText = offset + "-" + ((np > count) ? count :  np)+ " of " + count;
-				
-				sp = KdbTableFactory.getJXTable(resArray[1]);
-			} else {
-				String txt = "Could not establish a connection to server: " + adminModel.getSelectedServerName();
-				sp = Theme.getErrorBox("No Connection", Theme.getTextArea("errTxt", txt));
+
+		// disable paging until this page arrives, the old page stays shown meanwhile
+		firstButton.setEnabled(false);
+		prevButton.setEnabled(false);
+		nextButton.setEnabled(false);
+		lastButton.setEnabled(false);
+		positionLabel.setText("Loading " + offset + "...");
+
+		final int id = ++requestId;
+		pageCache.getPage(offset, direction, table -> {
+			if(id == requestId) {
+				showPage(table);
 			}
-			
-		} catch (KException ke) {
-			e = ke;
-		} catch (IOException ioe) {
-			e = ioe;
-		} catch (Exception ex) {
-			e = ex;
-		} finally {
-			if(kdbConnection!=null) {
-				try {
-					kdbConnection.close();
-				} catch (IOException ioe) {
-					LOG.log(Level.WARNING, "Problem closing KDB connection", e);
-				}
+		}, e -> {
+			if(id == requestId) {
+				showError(e);
 			}
-		}
-		
-		// set gui appearance
+		});
+	}
+
+	private void showPage(Object table) {
+		long count = pageCache.getCount();
+		// configure controls
+		boolean prevPossible = (offset>0);
+		boolean nextPossible = ((offset+ROWS_SHOWN) < count);
 		firstButton.setEnabled(prevPossible);
 		prevButton.setEnabled(prevPossible);
 		nextButton.setEnabled(nextPossible);
 		lastButton.setEnabled(nextPossible);
-		positionLabel.setText(posText);
-		
-		// log and present user option to report in case this is a bug
-		if(e != null) {
+
+		// table of results, update view
+		long np = (offset + ROWS_SHOWN);
+		positionLabel.setText(offset + "-" + ((np > count) ? count :  np)+ " of " + count);
+
+		Component sp;
+		try {
+			sp = KdbTableFactory.getJXTable(table);
+		} catch (Exception e) {
+			showError(e);
+			return;
+		}
+		setCenter(sp);
+	}
+
+	private void showError(Exception e) {
+		positionLabel.setText("");
+		boolean prevPossible = offset > 0;
+		firstButton.setEnabled(prevPossible);
+		prevButton.setEnabled(prevPossible);
+
+		Component sp;
+		if(e instanceof TablePageCache.NoConnectionException) {
+			String txt = "Could not establish a connection to server: " + serverConfig.getName();
+			sp = Theme.getErrorBox("No Connection", Theme.getTextArea("errTxt", txt));
+		} else {
+			// log and present user option to report in case this is a bug
 			String shortDesc = "Error showing selected item, try refreshing the servers object tree";
 			LOG.log(Level.WARNING, shortDesc, e);
 			sp = QStudioLauncher.ERR_REPORTER.getErrorReportLink(e, shortDesc);
 		}
-		
-		// re-set GUI
+		setCenter(sp);
+	}
+
+	private void setCenter(Component sp) {
+		remove(scrollPane);
 		add(sp, BorderLayout.CENTER);
 		scrollPane = sp;
 		revalidate();
+		repaint();
+	}
+
+	@Override public void addNotify() {
+		super.addNotify();
+		if(closed) {
+			closed = false;
+			refreshToShow(offset);
+		}
+	}
+
+	@Override public void removeNotify() {
+		closed = true;
+		pageCache.close();
+		super.removeNotify();
 	}
 }
@@ -93,7 +93,19 @@ public class SelectedServerObjectPanel extends JPanel implements AdminModel.List
 				p = getNamespaceListing(adminModel);
 				title = adminModel.getSelectedNamespace();
 			} else {
-				p = getServerDescriptionPanel(adminModel.getServerModel());
+				ServerModel sm = adminModel.getServerModel();
+				p = getServerDescriptionPanel(sm);
+				if(sm != null) {
+					JPanel health = new JPanel(new BorderLayout());
+					health.add(new ConnectionPoolPanel(adminModel.getConnectionManager(), sm.getServerConfig()), BorderLayout.NORTH);
+					if(sm.getServerConfig().isKDB()) {
+						health.add(new ServerHealthPanel(adminModel.getHealthCollector(), sm.getName(), chartTheme), BorderLayout.CENTER);
+					}
+					JPanel descAndHealth = new JPanel(new BorderLayout());
+					descAndHealth.add(p, BorderLayout.CENTER);
+					descAndHealth.add(health, BorderLayout.SOUTH);
+					p = descAndHealth;
+				}
 			}
 		}
 		
@@ -0,0 +1,103 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.servertree;
+
+import java.awt.Dimension;
+import java.awt.GridLayout;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.time.FixedMillisecond;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesCollection;
+
+import com.google.common.base.Preconditions;
+import com.timestored.qstudio.model.ServerHealthCollector;
+import com.timestored.qstudio.model.ServerHealthHistory;
+import com.timestored.sqldash.chart.ChartTheme;
+
+/**
+ * Charts the memory usage and partition count history of one kdb server from the samples
+ * already held by the {@link ServerHealthCollector}, so no query is sent to the server.
+ * Updates as new samples arrive while it is showing.
+ */
+class ServerHealthPanel extends JPanel implements ServerHealthCollector.Listener {
+
+	private static final long serialVersionUID = 1L;
+	private static final String[] MEMORY_METRICS = { "used", "heap", "peak" };
+	private static final double MB = 1024 * 1024;
+
+	private final ServerHealthCollector healthCollector;
+	private final String serverName;
+	private final TimeSeriesCollection memoryDataset = new TimeSeriesCollection();
+	private final TimeSeriesCollection partitionDataset = new TimeSeriesCollection();
+
+	/** @param chartTheme Theme applied to the charts or null to use the default appearance. */
+	ServerHealthPanel(ServerHealthCollector healthCollector, String serverName, ChartTheme chartTheme) {
+		super(new GridLayout(1, 2));
+		this.healthCollector = Preconditions.checkNotNull(healthCollector);
+		this.serverName = Preconditions.checkNotNull(serverName);
+		JFreeChart memChart = ChartFactory.createTimeSeriesChart("Memory", "Time", "MB", memoryDataset, true, true, false);
+		JFreeChart partChart = ChartFactory.createTimeSeriesChart("Partitions", "Time", "Count", partitionDataset, false, true, false);
+		add(new ChartPanel(chartTheme == null ? memChart : chartTheme.apply(memChart), false, true, true, false, true));
+		add(new ChartPanel(chartTheme == null ? partChart : chartTheme.apply(partChart), false, true, true, false, true));
+		setPreferredSize(new Dimension(400, 220));
+		updateDatasets();
+	}
+
+	private void updateDatasets() {
+		ServerHealthHistory.Snapshot h = healthCollector.getHistory(serverName).getSnapshot();
+		long[] times = h.getTimes();
+		memoryDataset.removeAllSeries();
+		for(String m : MEMORY_METRICS) {
+			memoryDataset.addSeries(toSeries(m, times, h.getValues(m), MB));
+		}
+		partitionDataset.removeAllSeries();
+		partitionDataset.addSeries(toSeries("partitions", times, h.getValues("partitions"), 1));
+	}
+
+	private static TimeSeries toSeries(String name, long[] times, long[] vals, double divisor) {
+		TimeSeries ts = new TimeSeries(name);
+		for(int i = 0; i < times.length; i++) {
+			if(vals[i] != ServerHealthHistory.MISSING) {
+				ts.addOrUpdate(new FixedMillisecond(times[i]), vals[i] / divisor);
+			}
+		}
+		return ts;
+	}
+
+	@Override public void sampled(String sampledServer) {
+		if(serverName.equals(sampledServer)) {
+			SwingUtilities.invokeLater(this::updateDatasets);
+		}
+	}
+
+	@Override public void addNotify() {
+		super.addNotify();
+		healthCollector.addListener(this);
+		updateDatasets();
+	}
+
+	@Override public void removeNotify() {
+		healthCollector.removeListener(this);
+		super.removeNotify();
+	}
+}
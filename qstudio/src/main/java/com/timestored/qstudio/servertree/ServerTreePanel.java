@@ -27,7 +27,10 @@ import java.awt.event.ActionEvent;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.swing.AbstractAction;
@@ -41,6 +44,8 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTree;
 import javax.swing.TransferHandler;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreePath;
 
@@ -112,6 +117,9 @@ class ObjectTreePanel extends JPanel {
 	private final QStudioModel qStudioModel;
 	// variable used to make expanding default namespace nodes easier
 	private final List<DefaultMutableTreeNode> defaultNSnodes = new ArrayList<DefaultMutableTreeNode>();
+	/** Namespaces the user expanded, kept expanded when the tree is rebuilt e.g. after one is fetched. */
+	private final Set<String> expandedNamespaces = new HashSet<String>();
+	private final Map<String, DefaultMutableTreeNode> namespaceNodes = new HashMap<String, DefaultMutableTreeNode>();
 
 	
 	private ServerModel curServerModel;
@@ -144,7 +152,12 @@ class ObjectTreePanel extends JPanel {
 			@Override public void run() {
 				DefaultMutableTreeNode top = new DefaultMutableTreeNode();
 				defaultNSnodes.clear();
+				namespaceNodes.clear();
+				ServerModel prevServerModel = curServerModel;
 				curServerModel = adminModel.getServerModel();
+				if(prevServerModel == null || curServerModel == null || !prevServerModel.getName().equals(curServerModel.getName())) {
+					expandedNamespaces.clear();
+				}
 				if(curServerModel!=null) {
 					ServerObjectTree soTree = curServerModel.getServerObjectTree();
 					if (soTree != null) {
@@ -162,6 +175,13 @@ class ObjectTreePanel extends JPanel {
 					// within default namespace expand functions / variables.
 					tree.expandPath(new TreePath(dmtNode.getPath()));
 				}
+				for(String ns : expandedNamespaces) {
+					DefaultMutableTreeNode dmtNode = namespaceNodes.get(ns);
+					if(dmtNode != null) {
+						tree.expandPath(new TreePath(dmtNode.getPath()));
+					}
+				}
+				tree.addTreeExpansionListener(new NamespaceExpansionListener(curServerModel));
 				
 				removeAll();
 				add(treeView, BorderLayout.CENTER);
@@ -196,6 +216,11 @@ class ObjectTreePanel extends JPanel {
 				if(ns.equals(".")) {
 					defaultNSnodes.add(nsTree);
 				} 
+				namespaceNodes.put(ns, nsTree);
+				if(!kdbServerObjects.isLoaded(ns)) {
+					// placeholder allows expanding, which fetches the real contents
+					nsTree.add(new DefaultMutableTreeNode("Loading..."));
+				}
 				for(TableSQE ed : sorted(kdbServerObjects.getTables(ns))) {
 
 					DefaultMutableTreeNode branch = new DefaultMutableTreeNode(new ServerQEntityNode(serverName, ed));
@@ -228,6 +253,38 @@ class ObjectTreePanel extends JPanel {
 		return tables;
 	}
 
+	/** Fetches namespaces that were not loaded with the rest of the tree as they are expanded. */
+	private class NamespaceExpansionListener implements TreeExpansionListener {
+		private final ServerModel serverModel;
+
+		NamespaceExpansionListener(ServerModel serverModel) { this.serverModel = serverModel; }
+
+		@Override public void treeExpanded(TreeExpansionEvent event) {
+			NamespaceNode nsNode = getNamespaceNode(event.getPath());
+			if(nsNode != null) {
+				expandedNamespaces.add(nsNode.ns);
+				if(serverModel != null) {
+					adminModel.loadNamespace(serverModel, nsNode.ns);
+				}
+			}
+		}
+
+		@Override public void treeCollapsed(TreeExpansionEvent event) {
+			NamespaceNode nsNode = getNamespaceNode(event.getPath());
+			if(nsNode != null) {
+				expandedNamespaces.remove(nsNode.ns);
+			}
+		}
+
+		private NamespaceNode getNamespaceNode(TreePath path) {
+			Object o = path.getLastPathComponent();
+			if(o instanceof DefaultMutableTreeNode && ((DefaultMutableTreeNode) o).getUserObject() instanceof NamespaceNode) {
+				return (NamespaceNode) ((DefaultMutableTreeNode) o).getUserObject();
+			}
+			return null;
+		}
+	}
+
 	/** Represents KDB namespace */
 	private class NamespaceNode extends CustomNode {
 		private final String ns;
@@ -0,0 +1,237 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio.servertree;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.timestored.kdb.KdbConnection;
+
+/**
+ * Fetches pages of a kdb table off the EDT using one connection that is kept open between pages.
+ * The table count is queried once with the first page, the most recently used pages are cached
+ * and the pages following each request in the direction of travel are prefetched.
+ * All methods other than the callbacks must be called from the EDT.
+ */
+class TablePageCache {
+
+	private static final Logger LOG = Logger.getLogger(TablePageCache.class.getName());
+
+	/** Number of pages kept in memory, includes those being prefetched. */
+	private static final int MAX_PAGES = 8;
+	/** Number of pages fetched ahead of the one requested. */
+	private static final int PREFETCH_PAGES = 2;
+
+	private final String tableName;
+	private final long pageSize;
+	private final Supplier<KdbConnection> connectionSupplier;
+	/** Single thread as the connection can only run one query at a time, it exits when idle. */
+	private final ThreadPoolExecutor executor;
+	/** LRU of page offset to its fetched table, evicted pages that have not started are cancelled. */
+	private final Map<Long, PageTask> pages = new LinkedHashMap<Long, PageTask>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override protected boolean removeEldestEntry(Map.Entry<Long, PageTask> eldest) {
+			if(size() > MAX_PAGES) {
+				eldest.getValue().cancel(false);
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/** Only accessed from the executor thread. */
+	private KdbConnection conn;
+	/** Row count of the table or -1 if not known yet. */
+	private volatile long count = -1;
+
+	/**
+	 * @param connectionSupplier Provides a new connection each time one is needed,
+	 * 	or null if no connection could be made. Called off the EDT.
+	 */
+	TablePageCache(String tableName, long pageSize, Supplier<KdbConnection> connectionSupplier) {
+		this.tableName = Preconditions.checkNotNull(tableName);
+		Preconditions.checkArgument(pageSize > 0);
+		this.pageSize = pageSize;
+		this.connectionSupplier = Preconditions.checkNotNull(connectionSupplier);
+		this.executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactoryBuilder().setNameFormat("table-page-%d").setDaemon(true).build());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/** @return The number of rows in the table or -1 if the first page has not arrived yet. */
+	long getCount() { return count; }
+
+	/**
+	 * Request the page starting at offset, the callback is run on the EDT once it is available,
+	 * immediately if it is already cached.
+	 * @param direction 1 if moving forward through the table, -1 if backwards, 0 for neither,
+	 * 	used to choose which pages to prefetch.
+	 * @param callback Receives the kdb table or the exception that occurred fetching it.
+	 */
+	void getPage(long offset, int direction, Consumer<Object> callback, Consumer<Exception> errorCallback) {
+		PageTask page = request(offset);
+		for(int i = 1; i <= PREFETCH_PAGES && direction != 0; i++) {
+			long o = offset + i * direction * pageSize;
+			if(o >= 0 && (count == -1 || o < count)) {
+				request(o);
+			}
+		}
+		// touch the requested page last so it is the most recently used
+		pages.get(offset);
+
+		if(page.isDone()) {
+			deliver(page, callback, errorCallback);
+		} else {
+			page.onDone.add(() -> deliver(page, callback, errorCallback));
+		}
+	}
+
+	private void deliver(PageTask page, Consumer<Object> callback, Consumer<Exception> errorCallback) {
+		try {
+			callback.accept(page.get());
+		} catch (CancellationException ce) {
+			// closed or evicted, whoever wanted the page has moved on and a later request fetches it again
+		} catch (ExecutionException ee) {
+			removeFailed(page);
+			errorCallback.accept(ee.getCause() instanceof Exception ? (Exception) ee.getCause() : ee);
+		} catch (Exception e) {
+			removeFailed(page);
+			errorCallback.accept(e);
+		}
+	}
+
+	/** Failed pages are not kept so the next request retries. */
+	private void removeFailed(Future<Object> page) {
+		Iterator<PageTask> it = pages.values().iterator();
+		while(it.hasNext()) {
+			if(it.next() == page) {
+				it.remove();
+			}
+		}
+	}
+
+	private PageTask request(long offset) {
+		PageTask page = pages.get(offset);
+		if(page == null || page.isCancelled()) {
+			page = new PageTask(new PageQuery(offset));
+			pages.put(offset, page);
+			executor.execute(page);
+		}
+		return page;
+	}
+
+	/** Thrown when the connection supplier could not provide a connection. */
+	static class NoConnectionException extends IOException {
+		private static final long serialVersionUID = 1L;
+		NoConnectionException() { super("Could not establish a connection to server"); }
+	}
+
+	/** A page fetch that once complete runs its callbacks on the EDT. */
+	private static class PageTask extends FutureTask<Object> {
+		/** Only accessed on the EDT */
+		private final List<Runnable> onDone = new ArrayList<>();
+
+		PageTask(Callable<Object> callable) { super(callable); }
+
+		@Override protected void done() {
+			SwingUtilities.invokeLater(() -> {
+				for(Runnable r : onDone) {
+					r.run();
+				}
+				onDone.clear();
+			});
+		}
+	}
+
+	/** Queries one page, and the count if it is not yet known, on the executor thread. */
+	private class PageQuery implements Callable<Object> {
+		private final long offset;
+
+		PageQuery(long offset) { this.offset = offset; }
+
+		@Override public Object call() throws Exception {
+			String pageQuery = PagingTablePanel.getPageQuery(tableName, offset, pageSize);
+			boolean needCount = count == -1;
+			String query = needCount ? "(count " + tableName + ";" + pageQuery + ")" : pageQuery;
+			Object res;
+			try {
+				res = getConnection().query(query);
+			} catch(IOException ioe) {
+				// connection may have dropped while idle, retry once with a new one
+				closeConnection();
+				res = getConnection().query(query);
+			}
+			if(needCount) {
+				Object[] resArray = (Object[]) res;
+				count = ((Number) resArray[0]).longValue();
+				return resArray[1];
+			}
+			return res;
+		}
+	}
+
+	private KdbConnection getConnection() throws IOException {
+		if(conn == null || !conn.isConnected()) {
+			closeConnection();
+			conn = connectionSupplier.get();
+			if(conn == null) {
+				throw new NoConnectionException();
+			}
+		}
+		return conn;
+	}
+
+	private void closeConnection() {
+		if(conn != null) {
+			try {
+				conn.close();
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Problem closing KDB connection", e);
+			}
+			conn = null;
+		}
+	}
+
+	/** Cancel any outstanding fetches and close the connection, a later request will reopen it. */
+	void close() {
+		for(PageTask page : pages.values()) {
+			page.cancel(false);
+		}
+		pages.clear();
+		executor.execute(this::closeConnection);
+	}
+}
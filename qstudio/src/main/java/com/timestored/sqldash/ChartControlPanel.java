@@ -27,6 +27,7 @@ import com.timestored.TimeStored;
 import com.timestored.misc.HtmlUtils;
 import com.timestored.qstudio.UpdateHelper;
 import com.timestored.sqldash.chart.ChartTheme;
+import com.timestored.sqldash.chart.RenderMetricsPanel;
 import com.timestored.sqldash.chart.ViewStrategy;
 import com.timestored.sqldash.chart.ViewStrategyFactory;
 import com.timestored.theme.Theme;
@@ -142,11 +143,12 @@ public class ChartControlPanel extends JPanel implements Widget.Listener {
 		}
 
 		JLabel largeLabel = new JLabel(Theme.CIcon.INFO.get());
-		largeLabel.setToolTipText("<html>If the data has many rows or columns it won't automatically render to prevent slowness."
+		largeLabel.setToolTipText("<html>If the data is predicted to be slow to draw it won't automatically render to prevent slowness."
 				+ "<br />Check this box to try and render all data of any size.</html>");
 		add(IL.get("Type:", chartComboBox, "chartComboBox", new CurrentViewInfoLinkLabel()));
 		add(IL.get("Theme:", chartThemeComboBox, "chartThemeComboBox"));
 		add(IL.get("", veryLargeChartsCheckBox, "veryLargeChartsCheckBox"));
+		add(IL.get("Last Render:", new RenderMetricsPanel(), "renderMetricsPanel"));
 		
 		if(app != null) {
 			app.addListener(this);
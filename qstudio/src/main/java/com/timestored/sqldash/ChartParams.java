@@ -111,6 +111,11 @@ public class ChartParams {
 		return p;
 	}
 
+	/** @return A copy of these params that saves to a different file. */
+	ChartParams withFile(File file) {
+		return new ChartParams(query, serverConfig, chartTheme, viewStrategy, width, height, file);
+	}
+
 	public static class ChartParamsBuilder {
 		
 		ChartTheme chartTheme = ViewStrategyFactory.LIGHT_THEME;
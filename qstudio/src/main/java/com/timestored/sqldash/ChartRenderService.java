@@ -0,0 +1,320 @@
+package com.timestored.sqldash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.rowset.CachedRowSet;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.timestored.connections.ConnectionManager;
+import com.timestored.connections.ServerConfig;
+import com.timestored.connections.ServerConfigBuilder;
+import com.timestored.misc.CmdRunner;
+import com.timestored.sqldash.chart.ChartFormatException;
+import com.timestored.sqldash.chart.ChartUtils;
+
+/**
+ * Long running headless chart renderer. Unlike {@link SqlChart#generate(ChartParams)} which
+ * connects once per chart, this keeps one warm {@link ConnectionManager} with pooled connections,
+ * renders jobs in parallel on a worker pool and caches query results by query hash for a TTL.
+ * Jobs are specified using the same arguments as {@link SqlChart}, either one job per line
+ * of a batch file or POSTed to a local HTTP endpoint that is only bound to loopback.
+ */
+public class ChartRenderService implements AutoCloseable {
+
+	private static final Logger LOG = Logger.getLogger(ChartRenderService.class.getName());
+
+	private static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	private static final int DEFAULT_CACHE_TTL_SECONDS = 60;
+	private static final int MAX_CACHED_RESULTS = 1000;
+
+	private static final OptionParser p = getParser();
+
+	private final ConnectionManager connMan = ConnectionManager.newInstance();
+	/** Maps connection details to a uniquely named server registered with connMan */
+	private final Map<String, ServerConfig> servers = new ConcurrentHashMap<>();
+	private final Cache<String, CachedRowSet> resultCache;
+	private final ExecutorService executor;
+	private HttpServer httpServer;
+
+	/**
+	 * @param threads The number of charts that can be rendered in parallel.
+	 * @param cacheTtlSeconds How long a query result is reused for, 0 disables caching.
+	 */
+	public ChartRenderService(int threads, int cacheTtlSeconds) {
+		Preconditions.checkArgument(threads > 0);
+		Preconditions.checkArgument(cacheTtlSeconds >= 0);
+		this.executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("chart-render-%d").setDaemon(true).build());
+		this.resultCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheTtlSeconds == 0 ? 0 : MAX_CACHED_RESULTS)
+				.expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+				.build();
+	}
+
+	private static OptionParser getParser() {
+		OptionParser p = new OptionParser();
+		p.accepts("batch", "Render every chart listed in a file, one set of chart arguments per line.")
+			.withRequiredArg().describedAs("batch_file").ofType(String.class);
+		p.accepts("serve", "Listen on localhost for POSTs to /render containing chart arguments, returns png.")
+			.withRequiredArg().describedAs("port").ofType(Integer.class);
+		p.accepts("threads", "Number of charts to render in parallel.")
+			.withRequiredArg().describedAs("num_threads").ofType(Integer.class).defaultsTo(DEFAULT_THREADS);
+		p.accepts("cachettl", "Seconds that a query result is reused for by charts with identical queries.")
+			.withRequiredArg().describedAs("seconds").ofType(Integer.class).defaultsTo(DEFAULT_CACHE_TTL_SECONDS);
+		p.allowsUnrecognizedOptions();
+		return p;
+	}
+
+	/** @return true if the arguments request batch or server mode rather than a single chart. */
+	static boolean isServiceRequest(String... args) {
+		for(String a : args) {
+			if(a.equals("--batch") || a.equals("--serve")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static void printHelpOn(PrintStream out) throws IOException {
+		p.printHelpOn(out);
+	}
+
+	/**
+	 * Run in batch or server mode as specified by the command line arguments.
+	 * @return The exit status for reporting to the OS.
+	 */
+	static int run(String... args) throws IOException {
+		OptionSet o = p.parse(args);
+		int threads = (Integer) o.valueOf("threads");
+		int cacheTtl = (Integer) o.valueOf("cachettl");
+		try(ChartRenderService crs = new ChartRenderService(threads, cacheTtl)) {
+			int exitCode = 0;
+			if(o.has("batch")) {
+				List<String> errors = crs.renderBatch(new File((String) o.valueOf("batch")));
+				for(String err : errors) {
+					System.err.println(err);
+				}
+				exitCode = errors.isEmpty() ? 0 : 1;
+			}
+			if(o.has("serve")) {
+				crs.serve((Integer) o.valueOf("serve"));
+				System.out.println("Listening on http://localhost:" + o.valueOf("serve") + "/render");
+				crs.awaitTermination();
+			}
+			return exitCode;
+		}
+	}
+
+	/**
+	 * Submit a chart for rendering on the worker pool.
+	 * @return A future for the file the chart was saved to.
+	 */
+	public Future<File> submit(ChartParams chartParams) {
+		Preconditions.checkNotNull(chartParams);
+		return executor.submit(() -> {
+			render(chartParams);
+			return chartParams.file;
+		});
+	}
+
+	/**
+	 * Render every chart within a batch file, where each non-blank line that is not a # comment
+	 * contains the command line arguments for one chart. All jobs are attempted even if some fail.
+	 * @return Error messages for any failed jobs, empty if all succeeded.
+	 * @throws IOException If the batch file could not be read.
+	 */
+	public List<String> renderBatch(File batchFile) throws IOException {
+		List<String> lines = Files.readAllLines(batchFile.toPath(), StandardCharsets.UTF_8);
+		List<String> errors = new ArrayList<>();
+		List<Future<File>> futures = new ArrayList<>();
+		List<String> jobLines = new ArrayList<>();
+		for(String line : lines) {
+			if(line.trim().isEmpty() || line.trim().startsWith("#")) {
+				continue;
+			}
+			try {
+				futures.add(submit(toChartParams(line)));
+				jobLines.add(line);
+			} catch(IOException | IllegalArgumentException | OptionException e) {
+				errors.add("Bad job: " + line + "\r\n" + e.getMessage());
+			}
+		}
+		LOG.info("Rendering " + futures.size() + " charts from batch: " + batchFile.getAbsolutePath());
+
+		for(int i=0; i<futures.size(); i++) {
+			try {
+				System.out.println(futures.get(i).get().getAbsolutePath());
+			} catch (ExecutionException e) {
+				errors.add("Failed job: " + jobLines.get(i) + "\r\n" + e.getCause().getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted rendering batch.");
+			}
+		}
+		return errors;
+	}
+
+	/**
+	 * Start a HTTP server bound only to the loopback address, that renders the chart specified
+	 * by the arguments in the body of a POST to /render and responds with the png.
+	 */
+	public synchronized void serve(int port) throws IOException {
+		Preconditions.checkState(httpServer == null, "already serving");
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		httpServer.createContext("/render", this::handleRender);
+		httpServer.setExecutor(executor);
+		httpServer.start();
+	}
+
+	private void handleRender(HttpExchange exchange) throws IOException {
+		File tmpFile = null;
+		try {
+			if(!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+				sendResponse(exchange, 405, "text/plain", "Only POST supported".getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			String args = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+			tmpFile = File.createTempFile("chart", ".png");
+			ChartParams cp = toChartParams(args).withFile(tmpFile);
+			render(cp);
+			sendResponse(exchange, 200, "image/png", Files.readAllBytes(tmpFile.toPath()));
+		} catch(IOException | SQLException | IllegalArgumentException | OptionException e) {
+			sendResponse(exchange, 400, "text/plain", ("" + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+		} finally {
+			if(tmpFile != null) {
+				tmpFile.delete();
+			}
+			exchange.close();
+		}
+	}
+
+	private static void sendResponse(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(code, body.length);
+		try(OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int n;
+		while((n = is.read(buf)) != -1) {
+			bos.write(buf, 0, n);
+		}
+		return bos.toByteArray();
+	}
+
+	/** Block until the service is closed. */
+	public void awaitTermination() {
+		try {
+			while(!executor.awaitTermination(1, TimeUnit.MINUTES)) { }
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ChartParams toChartParams(String argLine) throws IOException {
+		OptionSet o = ChartParams.parse(CmdRunner.parseCommand(argLine));
+		if(!o.has("execute")) {
+			throw new IllegalArgumentException("Must specify sql execute statement for every chart.");
+		}
+		return ChartParams.getChartParams(o);
+	}
+
+	/**
+	 * Query the database, reusing any cached result for the identical query and server,
+	 * then save the chart to the file specified.
+	 */
+	void render(ChartParams chartParams) throws IOException, SQLException {
+		ServerConfig sc = getPooledServer(chartParams.serverConfig);
+		String key = Hashing.sha256().hashString(sc.getName() + "\n" + chartParams.query, StandardCharsets.UTF_8).toString();
+		CachedRowSet rs = resultCache.getIfPresent(key);
+		if(rs == null) {
+			rs = connMan.executeQuery(sc, chartParams.query);
+			if(rs == null) {
+				throw new IOException("Query returned no result: " + chartParams.query);
+			}
+			resultCache.put(key, rs);
+		}
+
+		File file = chartParams.file;
+		try {
+			com.google.common.io.Files.createParentDirs(file);
+			// copy so concurrent renders of one cached result don't share a cursor
+			ChartUtils.save(chartParams.viewStrategy, rs.createCopy(), file,
+					chartParams.width, chartParams.height, false, chartParams.chartTheme);
+			LOG.fine("Rendered " + file.getAbsolutePath());
+		} catch (ChartFormatException e) {
+			String msg = "Error: " + e.getMessage() + "\r\n\r\nFormat Expected:\r\n";
+			msg += chartParams.viewStrategy.getFormatExplaination();
+			throw new IOException(msg);
+		}
+	}
+
+	/**
+	 * Command line chart params all share one name, so register each distinct set of
+	 * connection details under its own name to give it its own connection pool.
+	 */
+	private ServerConfig getPooledServer(ServerConfig serverConfig) {
+		String id = Arrays.asList(serverConfig.getJdbcType(), serverConfig.getHost(), serverConfig.getPort(),
+				serverConfig.getDatabase(), serverConfig.getUsername(), serverConfig.getPassword()).toString();
+		return servers.computeIfAbsent(id, k -> {
+			String name = "render-" + Hashing.murmur3_32_fixed().hashString(k, StandardCharsets.UTF_8);
+			ServerConfig sc = new ServerConfigBuilder(serverConfig).setName(name).build();
+			connMan.addServer(sc);
+			return sc;
+		});
+	}
+
+	@Override public void close() {
+		synchronized (this) {
+			if(httpServer != null) {
+				httpServer.stop(0);
+				httpServer = null;
+			}
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			LOG.log(Level.WARNING, "Interrupted waiting for charts to render", e);
+			Thread.currentThread().interrupt();
+		}
+		resultCache.invalidateAll();
+		connMan.close();
+	}
+}
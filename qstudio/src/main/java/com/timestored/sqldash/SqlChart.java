@@ -2,8 +2,6 @@ package com.timestored.sqldash;
 
 import java.io.File;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.logging.Handler;
 import java.util.logging.Logger;
@@ -56,10 +54,14 @@ public class SqlChart {
 			Exception ex = null;
 		    try {
 				LOG.info("Generating Chart for args: " + Joiner.on(" ").join(args));
+				if(ChartRenderService.isServiceRequest(args)) {
+					return ChartRenderService.run(args);
+				}
 		    	OptionSet o = ChartParams.parse(args);
 				if(o.has("?")) {
 					try {
 						ChartParams.printHelpOn(System.out);
+						ChartRenderService.printHelpOn(System.out);
 					} catch (IOException e) {
 						throw new IOException("Error displaying help.");
 					}
@@ -85,6 +87,7 @@ public class SqlChart {
 			//p.formatHelpWith(new HtmlHelpFormatter());
 			try {
 				ChartParams.printHelpOn(System.out);
+				ChartRenderService.printHelpOn(System.out);
 			} catch (IOException e) {
 				System.err.println("Error printing help.");
 			}
@@ -115,7 +118,6 @@ public class SqlChart {
 			try {
 				ConnectionManager connMan = ConnectionManager.newInstance();
 				connMan.addServer(sc);
-				Connection conn = DriverManager.getConnection(sc.getUrl(), sc.getUsername(), sc.getPassword());
 				CachedRowSet rs = connMan.executeQuery(sc, chartParams.query);
 
 			    File file = chartParams.file;
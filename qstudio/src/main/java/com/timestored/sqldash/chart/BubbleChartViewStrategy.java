@@ -1,5 +1,6 @@
 package com.timestored.sqldash.chart;
 
+import java.awt.event.MouseEvent;
 import java.sql.ResultSet;
 import java.util.List;
 
@@ -39,9 +40,17 @@ enum BubbleChartViewStrategy implements ViewStrategy {
 				"", dataset, PlotOrientation.HORIZONTAL, false, true, true);
 		XYPlot xyplot = (XYPlot) chart.getPlot();
 		xyplot.setForegroundAlpha(0.65F);
+		final RasterBubbleRenderer renderer = new RasterBubbleRenderer();
+		xyplot.setRenderer(renderer);
 
-		ChartPanel cp = new ChartPanel(theme.apply(chart));
-		chart.getXYPlot().getRenderer().setBaseToolTipGenerator(Tooltip.getXYZNumbersGenerator());
+		// bubbles are painted as one image without entities, so find tooltips from the renderer
+		ChartPanel cp = new ChartPanel(theme.apply(chart)) {
+			private static final long serialVersionUID = 1L;
+			@Override public String getToolTipText(MouseEvent e) {
+				return renderer.getToolTipText(translateScreenToJava2D(e.getPoint()));
+			}
+		};
+		renderer.setBaseToolTipGenerator(Tooltip.getXYZNumbersGenerator());
 		
 		return new XYZDatasetUpdateableView(cp, dataset);
 	}
@@ -81,7 +90,7 @@ enum BubbleChartViewStrategy implements ViewStrategy {
 	}
 
 	@Override public boolean isQuickToRender(ResultSet rs, int rowCount, int numColumnCount) {
-		return rowCount < 5_000; // 3 seconds on Ryans PC
+		return rowCount < 200_000; // raster rendered, 100k bubbles take ~250ms
 	}
 	@Override public String getPulseName() { return "bubble"; }
 }
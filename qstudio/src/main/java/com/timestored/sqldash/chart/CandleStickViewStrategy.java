@@ -8,6 +8,7 @@ import java.awt.Component;
 import java.sql.ResultSet;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -25,11 +26,8 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.CandlestickRenderer;
 import org.jfree.chart.renderer.xy.XYBarRenderer;
-import org.jfree.data.time.RegularTimePeriod;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
-import org.jfree.data.xy.DefaultHighLowDataset;
 import org.jfree.data.xy.OHLCDataset;
+import org.jfree.data.xy.XYDataset;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
@@ -92,7 +90,7 @@ public enum CandleStickViewStrategy implements ViewStrategy {
 				plot.add(subplot1, 3);
 				
 				//creates dataset for volume chart
-				TimeSeriesCollection dataset2 = createVolumeDataset(chartResultSet);
+				XYDataset dataset2 = createVolumeDataset(chartResultSet);
 				if(dataset2 != null) {
 					XYBarRenderer rr2 = new XYBarRenderer();
 					rr2.setToolTipGenerator(new StandardXYToolTipGenerator(TOOLTIP_FORMAT, 
@@ -165,24 +163,15 @@ public enum CandleStickViewStrategy implements ViewStrategy {
 	/**
 	 * @return A dataset of volume/date where possible, otherwise null.
 	 */
-	private static TimeSeriesCollection createVolumeDataset(ChartResultSet colResultSet) {
+	private static XYDataset createVolumeDataset(ChartResultSet colResultSet) {
 
 		TimeCol timeCol = colResultSet.getTimeCol();
 		NumericCol nc = colResultSet.getNumericalColumn("volume");
 			
 		// time series chart
 		if(timeCol != null && nc != null) {
-			TimeSeriesCollection dataset = new TimeSeriesCollection();
-			RegularTimePeriod[] timePeriods = timeCol.getRegularTimePeriods();
-    	    	TimeSeries tSeries = new TimeSeries("" + nc.getLabel());
-    	    	int row = 0;
-		        for(double d : nc.getDoubles()) {
-		        	tSeries.addOrUpdate(timePeriods[row++], d);
-		        }
-	    		if(!tSeries.isEmpty()) {
-	    			dataset.addSeries(tSeries);
-	    		}
-	    		return dataset;
+			return ColumnarXYDataset.forTimeSeries(timeCol.getEpochMillis(), timeCol.getPeriodMillis(), 
+					Collections.singletonList(nc));
     	}
 		return null;
 	}
@@ -222,21 +211,17 @@ public enum CandleStickViewStrategy implements ViewStrategy {
 			hlocvIndices[3] = hlocvIndices[2]; // close = open
 		}
 
-		// have time column and OHLC cur
-		double[][] doubArray = new double[COL_TITLES.length][];
-		for (int j = 0; j < COL_TITLES.length; j++) {
-			if(hlocvIndices[j] != null) {
-				doubArray[j] = hlocvIndices[j].getDoubles();
-			} 
-		}
-		
-		
-
 		// one off conversion of timeseries to chart compatible format
 		Date[] arrayOfDate = timeCol.getDates();
-		double[] vol = new double[chartResultSet.getRowCount()];
-		return new DefaultHighLowDataset("Series 1", arrayOfDate, doubArray[0], doubArray[1], doubArray[2],
-				doubArray[3], vol);
+		long[] times = new long[arrayOfDate.length];
+		for (int j = 0; j < times.length; j++) {
+			if(arrayOfDate[j] == null) {
+				throw new ChartFormatException("Time column must not contain nulls.");
+			}
+			times[j] = arrayOfDate[j].getTime();
+		}
+		return new ColumnarOHLCDataset("Series 1", times, hlocvIndices[0].getDoubles(), hlocvIndices[1].getDoubles(), 
+				hlocvIndices[2].getDoubles(), hlocvIndices[3].getDoubles(), null);
 
 	}
 
@@ -12,11 +12,8 @@ import org.jfree.chart.axis.ValueAxis;
 import org.jfree.chart.labels.StandardCategoryToolTipGenerator;
 import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.renderer.category.CategoryItemRenderer;
-import org.jfree.data.category.DefaultCategoryDataset;
-import org.jfree.data.general.Dataset;
 
 import com.google.common.base.Preconditions;
-import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
 
 /**
  * A CategoryDataset based updateable view.
@@ -25,14 +22,14 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 
 	private static final Font TINY_FONT = new Font("Times New Roman", Font.PLAIN, 0);
 	private final ChartPanel chartPanel;
-	private DefaultCategoryDataset dataset;
+	private ColumnarCategoryDataset dataset;
 
 	public CategoryDatasetUpdateableView(ChartTheme theme, JFreeChart chart) {
 
 		Preconditions.checkNotNull(chart);
 		Preconditions.checkNotNull(theme);
 		
-		this.dataset = new DefaultCategoryDataset();
+		this.dataset = new ColumnarCategoryDataset();
 		chart.getCategoryPlot().setDataset(dataset);
 		
 		chartPanel = new ChartPanel(theme.apply(chart), false, true, true, false, true);
@@ -64,8 +61,8 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 			rangeAxis.setLabel("");
 		}
 
-		dataset.clear();
-		add(chartRS, dataset);
+		dataset = new ColumnarCategoryDataset(chartRS);
+		cplot.setDataset(dataset);
 
 		
 		// domain axis labels - too many?
@@ -89,15 +86,4 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 	@Override public Component getComponent() {
 		return chartPanel;
 	}
-
-	/** Add the new data in {@link ResultSet} to the {@link Dataset} if possible. */
-	public static DefaultCategoryDataset add(ChartResultSet colResultSet, DefaultCategoryDataset dataset) {
-		for (NumericCol numCol : colResultSet.getNumericColumns()) {
-			double[] vals = numCol.getDoubles();
-			for (int i = 0; i < vals.length; i++) {
-				dataset.addValue(vals[i], numCol.getLabel(), colResultSet.getRowLabel(i));
-			}
-		}
-		return dataset;
-	}
 }
@@ -118,6 +118,44 @@ class ChartResultSet {
 	public List<StringyCol> getStringyColumns() {
 		return stringyColumns;
 	}
+
+	/**
+	 * @return A result set containing only every step'th row of this one and always the last row,
+	 * 	or this if step is 1 or less.
+	 */
+	ChartResultSet getEveryNthRow(int step) {
+		int rowCount = getRowCount();
+		if(step <= 1 || rowCount <= 1) {
+			return this;
+		}
+		int[] rows = new int[(rowCount - 1) / step + ((rowCount - 1) % step == 0 ? 1 : 2)];
+		for(int i = 0; i < rows.length; i++) {
+			rows[i] = Math.min(i * step, rowCount - 1);
+		}
+
+		List<NumericCol> ncs = new ArrayList<NumericCol>(numericColumns.size());
+		for(NumericCol nc : numericColumns) {
+			double[] vals = new double[rows.length];
+			for(int i = 0; i < rows.length; i++) {
+				vals[i] = nc.getDoubles()[rows[i]];
+			}
+			ncs.add(new NumericCol(nc.getLabel(), nc.getType(), vals));
+		}
+		List<StringyCol> scs = new ArrayList<StringyCol>(stringyColumns.size());
+		for(StringyCol sc : stringyColumns) {
+			scs.add(new StringyCol(sc.getLabel(), sc.getType(), pick(sc.getVals(), rows)));
+		}
+		TimeCol tc = timeCol == null ? null : new TimeCol(timeCol.getLabel(), timeCol.getType(), pick(timeCol.getVals(), rows));
+		return new ChartResultSet(ncs, scs, pick(rowLabels, rows), tc, rowTitle, colTitle);
+	}
+
+	private static <T> List<T> pick(List<T> vals, int[] rows) {
+		List<T> res = new ArrayList<T>(rows.length);
+		for(int row : rows) {
+			res.add(vals.get(row));
+		}
+		return res;
+	}
 	
 		
 	
@@ -212,6 +250,8 @@ class ChartResultSet {
 	/** Represents a titled column containing temporal data. */
 	public static class TimeCol extends StringyCol {
 		
+		/** Marks a row whose value could not be converted to a time. */
+		public static final long NO_TIME = Long.MIN_VALUE;
 		private volatile Date[] dates = null;
 		
 		TimeCol(String name, int type, List<Object> vals) {
@@ -238,6 +278,74 @@ class ChartResultSet {
 			return convertToJFreeTime(vals);
 		}
 
+		/**
+		 * @return The first millisecond of the period each row represents, placed exactly as
+		 * {@link #getRegularTimePeriods()} would position them on a time axis but without creating
+		 * a period object per row. Rows that could not be converted are {@link #NO_TIME}.
+		 * @throws IllegalArgumentException If no rows could be converted.
+		 */
+		public long[] getEpochMillis() {
+			final int rowCount = vals.size();
+			long[] res = new long[rowCount];
+			int unconvertedRows = 0;
+			ZoneId tz = ZoneId.systemDefault();
+			for(int row = 0; row < rowCount; row++) {
+				Object o = vals.get(row);
+				long t = NO_TIME;
+	    		if(o instanceof RegularTimePeriod) {
+	    			t = ((RegularTimePeriod) o).getFirstMillisecond();
+	    		} else if(o instanceof java.time.YearMonth) {
+	    			t = ((java.time.YearMonth) o).atDay(1).atStartOfDay(tz).toInstant().toEpochMilli();
+	    		} else if(o instanceof java.sql.Time) {
+	    			t = ((java.sql.Time) o).getTime();
+	    		} else if(o instanceof OffsetTime) {
+	    			t = ((OffsetTime) o).getLong(ChronoField.MILLI_OF_DAY);
+	    		} else if(o instanceof OffsetDateTime) {
+	    			LocalDate ld = ((OffsetDateTime) o).toInstant().atZone(tz).toLocalDate();
+	    			t = ld.atStartOfDay(tz).toInstant().toEpochMilli();
+	    		} else if(o instanceof LocalTime) {
+	    			// jfree periods take the UTC fields and place them in the local timezone
+	    			t = LocalDate.ofEpochDay(0).atTime((LocalTime) o).atZone(tz).toInstant().toEpochMilli();
+	    		} else if(o instanceof java.sql.Timestamp) {
+	    			t = ((java.sql.Timestamp) o).getTime();
+	    		} else if(o instanceof LocalDate) {
+	    			t = ((LocalDate) o).atStartOfDay(tz).toInstant().toEpochMilli();
+	    		} else if(o instanceof LocalDateTime) {
+	    			t = ((LocalDateTime) o).atZone(tz).toInstant().toEpochMilli();
+	    		} else if(o instanceof Date) {
+	    			// java.sql.Date does not support toInstant()
+	    			LocalDate ld = java.time.Instant.ofEpochMilli(((Date) o).getTime()).atZone(tz).toLocalDate();
+	    			t = ld.atStartOfDay(tz).toInstant().toEpochMilli();
+	    		} else {
+	    			unconvertedRows++;
+	    		}
+	    		res[row] = t;
+			}
+			if(rowCount>0 && unconvertedRows == rowCount) {
+				throw new IllegalArgumentException("Could not convert any rows of the time column");
+			}
+			return res;
+		}
+
+		/**
+		 * @return The length in milliseconds of the period represented by each row,
+		 * 	one day for date types, one millisecond for types that contain a time.
+		 */
+		public long getPeriodMillis() {
+			for(Object o : vals) {
+				if(o instanceof RegularTimePeriod) {
+					RegularTimePeriod p = (RegularTimePeriod) o;
+					return p.getLastMillisecond() - p.getFirstMillisecond() + 1;
+				} else if(o instanceof java.time.YearMonth || o instanceof OffsetDateTime || o instanceof LocalDate
+						|| (o instanceof Date && !(o instanceof java.sql.Time) && !(o instanceof java.sql.Timestamp))) {
+					return 24 * 60 * 60 * 1000L;
+				} else if(o != null) {
+					return 1L;
+				}
+			}
+			return 1L;
+		}
+
 		private RegularTimePeriod[] convertToJFreeTime(List<Object> timeObjects) {
 			
 			final int rowCount = timeObjects.size();
@@ -0,0 +1,121 @@
+package com.timestored.sqldash.chart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.AbstractDataset;
+
+import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
+
+/**
+ * A CategoryDataset that reads directly from the double[] numeric columns of a {@link ChartResultSet}.
+ * Each numeric column is a row (series) and each row label a column (category).
+ * Like DefaultCategoryDataset, a repeated row label keeps its first position but takes the last value.
+ */
+class ColumnarCategoryDataset extends AbstractDataset implements CategoryDataset {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<String> rowKeys;
+	private final List<double[]> vals;
+	private final List<String> columnKeys;
+	/** Maps each category to the source row that holds its values */
+	private final int[] columnRows;
+	private final Map<String, Integer> rowIndex;
+	private final Map<String, Integer> columnIndex;
+
+	/** Create an empty dataset. */
+	ColumnarCategoryDataset() {
+		this.rowKeys = Collections.emptyList();
+		this.vals = Collections.emptyList();
+		this.columnKeys = Collections.emptyList();
+		this.columnRows = new int[0];
+		this.rowIndex = Collections.emptyMap();
+		this.columnIndex = Collections.emptyMap();
+	}
+
+	ColumnarCategoryDataset(ChartResultSet colResultSet) {
+		List<NumericCol> numCols = colResultSet.getNumericColumns();
+		rowKeys = new ArrayList<>(numCols.size());
+		vals = new ArrayList<>(numCols.size());
+		rowIndex = new HashMap<>();
+		for(NumericCol nc : numCols) {
+			Integer existing = rowIndex.get(nc.getLabel());
+			if(existing == null) {
+				rowIndex.put(nc.getLabel(), rowKeys.size());
+				rowKeys.add(nc.getLabel());
+				vals.add(nc.getDoubles());
+			} else {
+				vals.set(existing, nc.getDoubles());
+			}
+		}
+
+		int rowCount = colResultSet.getRowCount();
+		columnKeys = new ArrayList<>(rowCount);
+		columnIndex = new HashMap<>(rowCount * 2);
+		int[] rows = new int[rowCount];
+		for(int r=0; r<rowCount; r++) {
+			String label = colResultSet.getRowLabel(r);
+			Integer c = columnIndex.get(label);
+			if(c == null) {
+				columnIndex.put(label, columnKeys.size());
+				rows[columnKeys.size()] = r;
+				columnKeys.add(label);
+			} else {
+				rows[c] = r;
+			}
+		}
+		columnRows = columnKeys.size() == rowCount ? rows : Arrays.copyOf(rows, columnKeys.size());
+	}
+
+	@Override public int getRowCount() { return rowKeys.size(); }
+
+	@Override public int getColumnCount() { return columnKeys.size(); }
+
+	@Override public Number getValue(int row, int column) {
+		return vals.get(row)[columnRows[column]];
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override public Comparable getRowKey(int row) { return rowKeys.get(row); }
+
+	@SuppressWarnings("rawtypes")
+	@Override public int getRowIndex(Comparable key) {
+		Integer i = rowIndex.get(key);
+		return i == null ? -1 : i;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override public List getRowKeys() { return Collections.unmodifiableList(rowKeys); }
+
+	@SuppressWarnings("rawtypes")
+	@Override public Comparable getColumnKey(int column) { return columnKeys.get(column); }
+
+	@SuppressWarnings("rawtypes")
+	@Override public int getColumnIndex(Comparable key) {
+		Integer i = columnIndex.get(key);
+		return i == null ? -1 : i;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override public List getColumnKeys() { return Collections.unmodifiableList(columnKeys); }
+
+	@SuppressWarnings("rawtypes")
+	@Override public Number getValue(Comparable rowKey, Comparable columnKey) {
+		int r = getRowIndex(rowKey);
+		if(r < 0) {
+			throw new UnknownKeyException("Unrecognised row key: " + rowKey);
+		}
+		int c = getColumnIndex(columnKey);
+		if(c < 0) {
+			throw new UnknownKeyException("Unrecognised column key: " + columnKey);
+		}
+		return getValue(r, c);
+	}
+}
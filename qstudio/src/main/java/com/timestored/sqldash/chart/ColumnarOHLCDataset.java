@@ -0,0 +1,75 @@
+package com.timestored.sqldash.chart;
+
+import org.jfree.data.xy.AbstractXYDataset;
+import org.jfree.data.xy.OHLCDataset;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A single series OHLCDataset that reads directly from primitive time and price columns
+ * rather than creating a data item per candle.
+ */
+class ColumnarOHLCDataset extends AbstractXYDataset implements OHLCDataset {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Comparable<?> key;
+	private final long[] times;
+	private final double[] high;
+	private final double[] low;
+	private final double[] open;
+	private final double[] close;
+	/** May be null in which case volume is zero */
+	private final double[] volume;
+
+	ColumnarOHLCDataset(Comparable<?> key, long[] times, double[] high, double[] low,
+			double[] open, double[] close, double[] volume) {
+		this.key = Preconditions.checkNotNull(key);
+		this.times = Preconditions.checkNotNull(times);
+		int n = times.length;
+		Preconditions.checkArgument(high.length == n && low.length == n && open.length == n && close.length == n);
+		Preconditions.checkArgument(volume == null || volume.length == n);
+		this.high = high;
+		this.low = low;
+		this.open = open;
+		this.close = close;
+		this.volume = volume;
+	}
+
+	@Override public int getSeriesCount() { return 1; }
+
+	@SuppressWarnings("rawtypes")
+	@Override public Comparable getSeriesKey(int series) { return key; }
+
+	@Override public int getItemCount(int series) { return times.length; }
+
+	@Override public Number getX(int series, int item) { return times[item]; }
+
+	@Override public double getXValue(int series, int item) { return times[item]; }
+
+	@Override public Number getY(int series, int item) { return close[item]; }
+
+	@Override public double getYValue(int series, int item) { return close[item]; }
+
+	@Override public Number getHigh(int series, int item) { return high[item]; }
+
+	@Override public double getHighValue(int series, int item) { return high[item]; }
+
+	@Override public Number getLow(int series, int item) { return low[item]; }
+
+	@Override public double getLowValue(int series, int item) { return low[item]; }
+
+	@Override public Number getOpen(int series, int item) { return open[item]; }
+
+	@Override public double getOpenValue(int series, int item) { return open[item]; }
+
+	@Override public Number getClose(int series, int item) { return close[item]; }
+
+	@Override public double getCloseValue(int series, int item) { return close[item]; }
+
+	@Override public Number getVolume(int series, int item) { return getVolumeValue(series, item); }
+
+	@Override public double getVolumeValue(int series, int item) {
+		return volume == null ? 0 : volume[item];
+	}
+}
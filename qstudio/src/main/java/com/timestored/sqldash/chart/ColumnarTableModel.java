@@ -0,0 +1,93 @@
+package com.timestored.sqldash.chart;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.swing.table.AbstractTableModel;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A read-only TableModel that stores each column as one array rather than a Vector per row.
+ * Each call to {@link #setData(List, List, int)} is compared to the previous data so that only
+ * the rows that changed, were added or were removed are notified. This allows a table that is
+ * refreshed often to keep its scroll position, selection and column widths.
+ */
+class ColumnarTableModel extends AbstractTableModel {
+
+	private static final long serialVersionUID = 1L;
+	/** Above this many separate changed ranges, a single update of all rows is fired instead. */
+	private static final int MAX_UPDATE_EVENTS = 100;
+
+	private List<String> columnNames = Collections.emptyList();
+	private List<Object[]> columns = Collections.emptyList();
+	private int rowCount = 0;
+
+	/**
+	 * Replace the data shown by this model.
+	 * @param columnNames The name of each column.
+	 * @param columns One array per column, each at least rowCount long. The model takes ownership.
+	 * @return true if the columns changed, in which case a structure change was fired.
+	 */
+	boolean setData(List<String> columnNames, List<Object[]> columns, int rowCount) {
+		Preconditions.checkArgument(columnNames.size() == columns.size());
+		List<Object[]> prevColumns = this.columns;
+		int prevRowCount = this.rowCount;
+		boolean structureChanged = !columnNames.equals(this.columnNames);
+
+		this.columnNames = columnNames;
+		this.columns = columns;
+		this.rowCount = rowCount;
+
+		if(structureChanged) {
+			fireTableStructureChanged();
+			return true;
+		}
+		fireChangedRows(prevColumns, Math.min(prevRowCount, rowCount));
+		if(rowCount > prevRowCount) {
+			fireTableRowsInserted(prevRowCount, rowCount - 1);
+		} else if(rowCount < prevRowCount) {
+			fireTableRowsDeleted(rowCount, prevRowCount - 1);
+		}
+		return false;
+	}
+
+	/** Fire an update for each contiguous range of rows below commonRows that differ from the previous columns. */
+	private void fireChangedRows(List<Object[]> prevColumns, int commonRows) {
+		int events = 0;
+		int first = -1;
+		for(int r = 0; r <= commonRows; r++) {
+			boolean changed = r < commonRows && isRowChanged(prevColumns, r);
+			if(changed && first == -1) {
+				first = r;
+			} else if(!changed && first != -1) {
+				if(++events > MAX_UPDATE_EVENTS) {
+					fireTableRowsUpdated(0, commonRows - 1);
+					return;
+				}
+				fireTableRowsUpdated(first, r - 1);
+				first = -1;
+			}
+		}
+	}
+
+	private boolean isRowChanged(List<Object[]> prevColumns, int row) {
+		for(int c = 0; c < columns.size(); c++) {
+			if(!Objects.deepEquals(prevColumns.get(c)[row], columns.get(c)[row])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override public int getRowCount() { return rowCount; }
+
+	@Override public int getColumnCount() { return columnNames.size(); }
+
+	@Override public String getColumnName(int column) { return columnNames.get(column); }
+
+	@Override public Object getValueAt(int rowIndex, int columnIndex) {
+		return columns.get(columnIndex)[rowIndex];
+	}
+}
@@ -0,0 +1,258 @@
+package com.timestored.sqldash.chart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+
+import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
+import com.timestored.sqldash.chart.ChartResultSet.TimeCol;
+
+/**
+ * An XY dataset that reads directly from the primitive columns of a {@link ChartResultSet}
+ * rather than copying every point into a data item object. One x column is shared by all series.
+ * Rows with NaN y values are skipped and when x is time, items are returned in time order
+ * with only the last row of any repeated time kept.
+ */
+class ColumnarXYDataset extends AbstractIntervalXYDataset implements DomainInfo, RangeInfo {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Exactly one of xTimes / xVals is set. */
+	private final long[] xTimes;
+	private final double[] xVals;
+	private final double intervalWidth;
+	private final List<Series> series;
+	private final Range domainBounds;
+	private final Range rangeBounds;
+
+	/** One series, rows maps item index to row, null when every row is used in order. */
+	private static class Series {
+		private final Comparable<?> key;
+		private final double[] y;
+		private final int[] rows;
+
+		private Series(Comparable<?> key, double[] y, int[] rows) {
+			this.key = key;
+			this.y = y;
+			this.rows = rows;
+		}
+
+		private int size() { return rows == null ? y.length : rows.length; }
+		private int row(int item) { return rows == null ? item : rows[item]; }
+	}
+
+	private ColumnarXYDataset(long[] xTimes, double[] xVals, double intervalWidth, List<Series> series) {
+		this.xTimes = xTimes;
+		this.xVals = xVals;
+		this.intervalWidth = intervalWidth;
+		this.series = series;
+
+		double minX = Double.NaN, maxX = Double.NaN, minY = Double.NaN, maxY = Double.NaN;
+		for(Series s : series) {
+			for(int i=0; i<s.size(); i++) {
+				int r = s.row(i);
+				double x = getX(r);
+				double y = s.y[r];
+				if(Double.isNaN(x)) {
+					continue;
+				}
+				minX = Double.isNaN(minX) || x < minX ? x : minX;
+				maxX = Double.isNaN(maxX) || x > maxX ? x : maxX;
+				if(!Double.isNaN(y)) {
+					minY = Double.isNaN(minY) || y < minY ? y : minY;
+					maxY = Double.isNaN(maxY) || y > maxY ? y : maxY;
+				}
+			}
+		}
+		this.domainBounds = Double.isNaN(minX) ? null : new Range(minX, maxX);
+		this.rangeBounds = Double.isNaN(minY) ? null : new Range(minY, maxY);
+	}
+
+	/**
+	 * Create a time series dataset, the first time column is x and each numeric column a series.
+	 * Series where every value is NaN are omitted.
+	 * @throws ChartFormatException If there is no time column or it cannot be converted.
+	 */
+	static ColumnarXYDataset forTimeSeries(ChartResultSet chartResultSet) throws ChartFormatException {
+		if(chartResultSet==null) {
+			throw new ChartFormatException("Could not create chart result set.");
+		}
+		TimeCol timeCol = chartResultSet.getTimeCol();
+		if(timeCol==null) {
+			throw new ChartFormatException("No Time Column Found.");
+		}
+		long[] times;
+		try {
+			times = timeCol.getEpochMillis();
+		} catch(IllegalArgumentException iae) {
+			throw new ChartFormatException(iae.toString());
+		}
+		return forTimeSeries(times, timeCol.getPeriodMillis(), chartResultSet.getNumericColumns());
+	}
+
+	static ColumnarXYDataset forTimeSeries(long[] times, long periodMillis, List<NumericCol> numCols) {
+		int[] order = getTimeOrder(times);
+		List<Series> series = new ArrayList<>(numCols.size());
+		for(NumericCol nc : numCols) {
+			int[] rows = getValidRows(times, nc.getDoubles(), order);
+			int size = rows == null ? times.length : rows.length;
+			if(size > 0) {
+				series.add(new Series(nc.getLabel(), nc.getDoubles(), rows));
+			}
+		}
+		return new ColumnarXYDataset(times, null, periodMillis, series);
+	}
+
+	/**
+	 * Create an XY dataset where the first numeric column is x and every other numeric column a series.
+	 * @throws ChartFormatException If there are less than two numeric columns.
+	 */
+	static ColumnarXYDataset forNumericX(ChartResultSet chartResultSet) throws ChartFormatException {
+		List<NumericCol> numCols = chartResultSet.getNumericColumns();
+		if(numCols.size() < 2) {
+			throw new ChartFormatException("There must be atleast two numeric columns.");
+		}
+		List<Series> series = new ArrayList<>(numCols.size() - 1);
+		for (int i=1; i < numCols.size(); i++) {
+			series.add(new Series(numCols.get(i).getLabel(), numCols.get(i).getDoubles(), null));
+		}
+		return new ColumnarXYDataset(null, numCols.get(0).getDoubles(), 0, series);
+	}
+
+	/** @return rows stably sorted by time, or null if they already are. */
+	private static int[] getTimeOrder(long[] times) {
+		for(int i=1; i<times.length; i++) {
+			if(times[i] < times[i-1]) {
+				int[] a = new int[times.length];
+				for(int j=0; j<a.length; j++) {
+					a[j] = j;
+				}
+				mergeSort(a, new int[a.length], times);
+				return a;
+			}
+		}
+		return null;
+	}
+
+	/** Bottom up merge sort of row indices by time, stable so rows with equal times keep their order. */
+	private static void mergeSort(int[] a, int[] tmp, long[] times) {
+		int n = a.length;
+		for(int width=1; width<n; width*=2) {
+			for(int lo=0; lo<n-width; lo+=2*width) {
+				int mid = lo + width;
+				int hi = Math.min(lo + 2*width, n);
+				if(times[a[mid-1]] <= times[a[mid]]) {
+					continue;
+				}
+				System.arraycopy(a, lo, tmp, lo, hi - lo);
+				int i = lo, j = mid;
+				for(int k=lo; k<hi; k++) {
+					if(i < mid && (j >= hi || times[tmp[i]] <= times[tmp[j]])) {
+						a[k] = tmp[i++];
+					} else {
+						a[k] = tmp[j++];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The rows in the given order that have a time and a non-NaN value, where rows share
+	 *  a time only the last is kept as TimeSeries.addOrUpdate did,
+	 * 	or null if that is every row in its natural order.
+	 */
+	private static int[] getValidRows(long[] times, double[] vals, int[] order) {
+		int[] rows = null;
+		int n = 0;
+		for(int i=0; i<vals.length; i++) {
+			int r = order == null ? i : order[i];
+			boolean valid = !Double.isNaN(vals[r]) && times[r] != TimeCol.NO_TIME;
+			boolean dup = valid && n > 0 && times[rows == null ? n - 1 : rows[n-1]] == times[r];
+			if(rows == null && (!valid || dup || order != null)) {
+				// first row that differs from the natural order, copy those before it
+				rows = new int[vals.length];
+				for(int j=0; j<n; j++) {
+					rows[j] = j;
+				}
+			}
+			if(dup) {
+				rows[n-1] = r;
+			} else if(valid) {
+				if(rows != null) {
+					rows[n] = r;
+				}
+				n++;
+			}
+		}
+		return rows == null ? null : Arrays.copyOf(rows, n);
+	}
+
+	private double getX(int row) {
+		return xTimes != null ? xTimes[row] : xVals[row];
+	}
+
+	@Override public int getSeriesCount() { return series.size(); }
+
+	@SuppressWarnings("rawtypes")
+	@Override public Comparable getSeriesKey(int s) { return series.get(s).key; }
+
+	@Override public int getItemCount(int s) { return series.get(s).size(); }
+
+	@Override public Number getX(int s, int item) { return getXValue(s, item); }
+
+	@Override public double getXValue(int s, int item) { return getX(series.get(s).row(item)); }
+
+	@Override public Number getY(int s, int item) { return getYValue(s, item); }
+
+	@Override public double getYValue(int s, int item) {
+		Series sr = series.get(s);
+		return sr.y[sr.row(item)];
+	}
+
+	@Override public Number getStartX(int s, int item) { return getStartXValue(s, item); }
+
+	@Override public double getStartXValue(int s, int item) { return getXValue(s, item); }
+
+	@Override public Number getEndX(int s, int item) { return getEndXValue(s, item); }
+
+	/** Time periods end one millisecond before the next period starts. */
+	@Override public double getEndXValue(int s, int item) {
+		return xTimes != null ? getXValue(s, item) + intervalWidth - 1 : getXValue(s, item);
+	}
+
+	@Override public Number getStartY(int s, int item) { return getY(s, item); }
+
+	@Override public Number getEndY(int s, int item) { return getY(s, item); }
+
+	@Override public double getDomainLowerBound(boolean includeInterval) {
+		return domainBounds == null ? Double.NaN : domainBounds.getLowerBound();
+	}
+
+	@Override public double getDomainUpperBound(boolean includeInterval) {
+		Range r = getDomainBounds(includeInterval);
+		return r == null ? Double.NaN : r.getUpperBound();
+	}
+
+	@Override public Range getDomainBounds(boolean includeInterval) {
+		if(domainBounds != null && includeInterval && xTimes != null) {
+			return new Range(domainBounds.getLowerBound(), domainBounds.getUpperBound() + intervalWidth - 1);
+		}
+		return domainBounds;
+	}
+
+	@Override public double getRangeLowerBound(boolean includeInterval) {
+		return rangeBounds == null ? Double.NaN : rangeBounds.getLowerBound();
+	}
+
+	@Override public double getRangeUpperBound(boolean includeInterval) {
+		return rangeBounds == null ? Double.NaN : rangeBounds.getUpperBound();
+	}
+
+	@Override public Range getRangeBounds(boolean includeInterval) { return rangeBounds; }
+}
@@ -8,15 +8,14 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ScrollPaneConstants;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 
 import org.jdesktop.swingx.JXTable;
@@ -87,12 +86,13 @@ public class DataTableViewStrategy implements ViewStrategy {
 	}
 	
 	/**
-	 * A view that displays {@link ResultSet} data as a fresh {@link JTable} each time new data arrives.
+	 * A view that displays {@link ResultSet} data in one {@link JTable} whose model is updated
+	 * with only the rows that changed each time new data arrives.
 	 */
 	private static class DataTableUpdateableView implements UpdateableView {
 	
 		private static final String PREFIX = "sd_";
-		private final DefaultTableModel tableModel;
+		private final ColumnarTableModel tableModel;
 		private final JXTable table;
 		private final JPanel p;
 		private final boolean debugView;
@@ -101,7 +101,7 @@ public class DataTableViewStrategy implements ViewStrategy {
 		
 	
 		public DataTableUpdateableView(final ChartTheme theme, boolean debugView) {
-			tableModel = new DefaultTableModel();
+			tableModel = new ColumnarTableModel();
 			this.debugView = debugView;
 			table = new JXTable(tableModel);
 			table.addMouseListener(new SaveTableMouseAdapter(table, Theme.CIcon.CSV.get()));
@@ -181,44 +181,61 @@ public class DataTableViewStrategy implements ViewStrategy {
 		@Override public Component getComponent() {
 			return p;
 		}
+
+		@Override public boolean isReusable() { return true; }
 	
 		private void rebuildTableModel(ResultSet rs) throws SQLException {
 
 			rs.beforeFirst(); // in case someone else used it first.
 		    ResultSetMetaData metaData = rs.getMetaData();
 	
-		    // names of columns
-		    final Vector<String> columnNames = new Vector<String>();
-		    final Vector<String> cleanNames = new Vector<String>();
+		    // names of columns and which are shown
 		    int columnCount = metaData.getColumnCount();
+		    final List<String> shownNames = new ArrayList<String>(columnCount);
+		    final int[] shownIdx = new int[columnCount];
+		    int bgColorIdx = -1;
+		    int fgColorIdx = -1;
 		    for (int c = 1; c <= columnCount; c++) {
 		    	String cn = metaData.getColumnName(c);
-		        columnNames.add(cn);
-		        if(!cn.toLowerCase().startsWith(PREFIX)) {
-		        	cleanNames.add(cn);
+		    	String lcn = cn.toLowerCase();
+		        if(debugView || !lcn.startsWith(PREFIX)) {
+		        	shownIdx[shownNames.size()] = c;
+		        	shownNames.add(cn);
 		        }
+	        	if(lcn.equals(PREFIX + "bgcolor")){
+	        		bgColorIdx = c;
+	        	} else if(lcn.equals(PREFIX + "fgcolor")){
+	        		fgColorIdx = c;
+	        	}
 		    }
 	
 			List<Color> rowBgColorsNew = new ArrayList<Color>();
 			List<Color> rowFgColorsNew = new ArrayList<Color>();
 		    
-		    // data of the table
-		    final Vector<Vector<Object>> data = new Vector<Vector<Object>>();
+		    // data of the table, one array per column
+		    List<Object[]> columns = new ArrayList<Object[]>(shownNames.size());
+		    int capacity = 64;
+		    for(int i = 0; i < shownNames.size(); i++) {
+		    	columns.add(new Object[capacity]);
+		    }
+		    int rowCount = 0;
 		    while (rs.next()) {
-		        Vector<Object> vector = new Vector<Object>();
-		        for (int cIdx = 1; cIdx <= columnCount; cIdx++) {
-		        	String cn = columnNames.get(cIdx-1).toLowerCase();
-		        	if(debugView || !cn.startsWith(PREFIX)) {
-			            vector.add(rs.getObject(cIdx));
-		        	} 
-		        	
-		        	if(cn.equals(PREFIX + "bgcolor")){
-		        		rowBgColorsNew.add(getColor(""+rs.getObject(cIdx)));
-		        	} else if(cn.equals(PREFIX + "fgcolor")){
-		        		rowFgColorsNew.add(getColor(""+rs.getObject(cIdx)));
-		        	}
+		    	if(rowCount == capacity) {
+		    		capacity *= 2;
+		    		for(int i = 0; i < columns.size(); i++) {
+		    			columns.set(i, Arrays.copyOf(columns.get(i), capacity));
+		    		}
+		    	}
+		        for (int i = 0; i < columns.size(); i++) {
+		        	columns.get(i)[rowCount] = rs.getObject(shownIdx[i]);
 		        }
-		        data.add(vector);
+	        	if(bgColorIdx != -1){
+	        		rowBgColorsNew.add(getColor(""+rs.getObject(bgColorIdx)));
+	        	}
+	        	if(fgColorIdx != -1){
+	        		rowFgColorsNew.add(getColor(""+rs.getObject(fgColorIdx)));
+	        	}
+		        rowCount++;
 		    }
 
 		    synchronized (this) {
@@ -226,8 +243,12 @@ public class DataTableViewStrategy implements ViewStrategy {
 				rowFgColors = rowFgColorsNew.size()>0 ? rowFgColorsNew : null;
 			}
 		    
-			tableModel.setDataVector(data, (debugView ? columnNames : cleanNames));
-			table.packTable(5);
+		    // only resize the columns when they change so users widths are kept
+			if(tableModel.setData(shownNames, columns, rowCount)) {
+				table.packTable(5);
+			} else if(rowBgColors != null || rowFgColors != null) {
+				table.repaint();
+			}
 		}
 
 		private static Color getColor(String cVal) {
@@ -9,12 +9,15 @@ import com.timestored.theme.*;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Container;
 import java.awt.EventQueue;
+import java.awt.Graphics;
 import java.awt.GridLayout;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,6 +27,16 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.event.ChartProgressEvent;
+import org.jfree.chart.event.ChartProgressListener;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.Plot;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.category.LineAndShapeRenderer;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.chart.title.TextTitle;
 import org.jfree.util.Log;
 
 import kx.c.KException;
@@ -31,20 +44,33 @@ import lombok.Getter;
 import lombok.Setter;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.timestored.sqldash.chart.RenderMetrics.Quality;
+import com.timestored.sqldash.chart.RenderMetrics.Sample;
 
 /**
  * A generic chart component that can have the particular type of chart displayed changed, 
  * it's configuration changed, and receive {@link ResultSet} data updates.
+ * Each render is timed and recorded in {@link RenderMetrics} which then decides whether
+ * later large result sets are drawn automatically, at what {@link Quality} and whether only every
+ * nth row is drawn.
  */
 public class JdbcChartPanel extends JPanel {
 
 	private static final Logger LOG = Logger.getLogger(JdbcChartPanel.class.getName());
+	/** Chart types that plot each row as an x/y point, drawing every nth row keeps the shape of the data. */
+	private static final Set<ViewStrategy> DOWNSAMPLEABLE = ImmutableSet.of(TimeseriesViewStrategy.INSTANCE, 
+			StepChartViewStrategy.INSTANCE, ScatterPlotViewStrategy.INSTANCE);
 
 	private ViewStrategy viewCreator;
 	private ChartTheme theme;
 	@Setter @Getter private boolean renderLargeDataSets = false;;
 	
 	private UpdateableView updateableView;
+	/** The strategy and theme that updateableView was created from and whether its last update succeeded */
+	private ViewStrategy viewStrategyOfView;
+	private ChartTheme themeOfView;
+	private boolean viewShown = false;
 	
 	/** cache previous RS so that if chart type selected changed we can fill some data */
 	private ResultSet prevRS = null;
@@ -53,12 +79,33 @@ public class JdbcChartPanel extends JPanel {
 	private ChartFormatException lastChartFormatException = null;
 	private ChartResultSet prevCRS = null;
 
+	private final RenderMetrics renderMetrics = RenderMetrics.getInstance();
+	/** Time taken to convert prevRS to prevCRS */
+	private long convertNanos = 0;
+	/** The render whose first paint has not been timed yet, paintNanos unset */
+	private Sample pendingSample = null;
+	private ViewStrategy pendingViewStrategy = null;
+	/** Incremented on each render so that a queued {@link #timeFirstPaint} of an older render is dropped. */
+	private int renderId = 0;
+	/** The chart of the latest render whose own draws are timed, null if that view has no chart. */
+	private JFreeChart timedChart = null;
+	private long drawStartNanos = 0;
+	private final ChartProgressListener drawTimer = e -> {
+		if(e.getType() == ChartProgressEvent.DRAWING_STARTED) {
+			drawStartNanos = System.nanoTime();
+		} else if(e.getType() == ChartProgressEvent.DRAWING_FINISHED) {
+			recordPaint(System.nanoTime() - drawStartNanos);
+		}
+	};
+
 	/** Construct a chart panel using inital {@link ViewStrategy} and {@link ViewTheme} */
 	JdbcChartPanel(ViewStrategy viewCreator, ChartTheme theme) {
 
 		this.viewCreator = Preconditions.checkNotNull(viewCreator);
 		this.theme = Preconditions.checkNotNull(theme);
 		updateableView = viewCreator.getView(theme);
+		viewStrategyOfView = viewCreator;
+		themeOfView = theme;
 		
 		setLayout(new GridLayout(1, 0));
 		add(updateableView.getComponent());
@@ -110,29 +157,59 @@ public class JdbcChartPanel extends JPanel {
 
 	private void runn() {
 		Component c = null;
+		pendingSample = null;
+		renderId++;
+		boolean reuseView = viewShown && updateableView.isReusable() 
+				&& viewCreator.equals(viewStrategyOfView) && theme.equals(themeOfView);
+		viewShown = false;
 		try {
-			updateableView = viewCreator.getView(theme);
+			if(!reuseView) {
+				updateableView = viewCreator.getView(theme);
+				viewStrategyOfView = viewCreator;
+				themeOfView = theme;
+			}
 			if(prevRS!=null) {
 				// TODO this line threw a null pointer exception from JfreeChary DefaulHighLowDataset
 				// should i let these spiral up or show an error screen?
 				boolean isVerySafeToRender = true;
+				int rowCount = 0;
+				int numColCount = 0;
 				try {
-					int rowCount = DBHelper.getSize(prevRS);
-					int numColCount = 0;
+					rowCount = DBHelper.getSize(prevRS);
 					ResultSetMetaData rsmd = prevRS.getMetaData();
 					for(int col=1; col<=rsmd.getColumnCount(); col++) {
 						if(isNumType(rsmd.getColumnType(col))) {
 							numColCount++;
 						}
 					}
-					isVerySafeToRender = viewCreator.isQuickToRender(prevRS, rowCount, numColCount);
+					isVerySafeToRender = renderMetrics.isQuickToRender(viewCreator, prevRS, rowCount, numColCount);
 				} catch (SQLException e) {
 					Log.warn("Problem assessing how safe it is to render chart:" + e);
 				}
 				lastChartFormatException = null;
+				// rather than refuse a chart predicted to be too slow, draw fewer of its points
+				int step = 1;
+				if(!isVerySafeToRender && !renderLargeDataSets && prevCRS != null && DOWNSAMPLEABLE.contains(viewCreator)) {
+					step = renderMetrics.getDownsampleStep(viewCreator, rowCount, numColCount);
+					isVerySafeToRender = step > 1;
+				}
 				if(isVerySafeToRender || renderLargeDataSets) {
-					updateableView.update(prevRS, prevCRS);
+					long start = System.nanoTime();
+					ChartResultSet crs = prevCRS;
+					int drawnRows = rowCount;
+					if(step > 1) {
+						crs = prevCRS.getEveryNthRow(step);
+						drawnRows = crs.getRowCount();
+						LOG.fine("drawing every " + step + "th row, " + drawnRows + " of " + rowCount);
+					}
+					Quality quality = renderMetrics.getQuality(viewCreator, isVerySafeToRender, drawnRows, numColCount);
+					updateableView.update(prevRS, crs);
 					c = updateableView.getComponent();
+					viewShown = true;
+					Sample sample = new Sample(viewCreator.getDescription(), drawnRows, step, 
+							RenderMetrics.getCellCount(drawnRows, numColCount), quality, 
+							convertNanos, System.nanoTime() - start, 0);
+					timeFirstPaint(c, viewCreator, sample, rowCount);
 				} else {
         			String html = "<html>The data is large, it has many rows and/or columns."
         					+ "<br /><b>To continue and draw the chart click the checkbox on the left hand side.</b>"
@@ -163,9 +240,103 @@ public class JdbcChartPanel extends JPanel {
 			c =  getChartFormatExplaination(viewCreator, null);
 		}
 		
-		removeAll();
-		add(c);
-		revalidate();
+		// keep a reused view in place so its scroll position and selection are not reset
+		if(getComponentCount() != 1 || getComponent(0) != c) {
+			removeAll();
+			add(c);
+			revalidate();
+		}
+	}
+
+	/**
+	 * Apply the quality of a render to its chart and time the first draw of that chart, or when the
+	 * view has no chart the first paint of this panel. Views swap in their new component later on 
+	 * the event thread so this is queued behind them.
+	 */
+	private void timeFirstPaint(Component c, ViewStrategy viewStrategy, Sample sample, int rowCount) {
+		final int id = renderId;
+		EventQueue.invokeLater(() -> {
+			if(id != renderId) {
+				return;
+			}
+			JFreeChart chart = findChart(c);
+			if(timedChart != null) {
+				timedChart.removeProgressListener(drawTimer);
+			}
+			timedChart = chart;
+			pendingViewStrategy = viewStrategy;
+			pendingSample = sample;
+			if(chart != null) {
+				chart.addProgressListener(drawTimer);
+				applyQuality(chart, sample.getQuality());
+				if(sample.getDownsampleStep() > 1) {
+					chart.addSubtitle(new TextTitle("Showing every " + sample.getDownsampleStep() + "th row, " 
+							+ sample.getRowCount() + " of " + rowCount));
+				}
+			}
+			repaint();
+		});
+	}
+
+	/** Charts time their own draws, other views are timed by the first paint after each render. */
+	@Override protected void paintChildren(Graphics g) {
+		long start = System.nanoTime();
+		super.paintChildren(g);
+		if(timedChart == null) {
+			recordPaint(System.nanoTime() - start);
+		}
+	}
+
+	private void recordPaint(long paintNanos) {
+		Sample s = pendingSample;
+		if(s != null) {
+			pendingSample = null;
+			renderMetrics.record(pendingViewStrategy, new Sample(s.getChartType(), s.getRowCount(), s.getDownsampleStep(),
+					s.getCellCount(), s.getQuality(), s.getConvertNanos(), s.getBuildNanos(), paintNanos));
+		}
+	}
+
+	/** @return The first JFreeChart within the component or null if there is none. */
+	private static JFreeChart findChart(Component c) {
+		if(c instanceof ChartPanel) {
+			return ((ChartPanel) c).getChart();
+		} else if(c instanceof Container) {
+			for(Component child : ((Container) c).getComponents()) {
+				JFreeChart chart = findChart(child);
+				if(chart != null) {
+					return chart;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Lower the visual detail of the chart to make it cheaper to paint. */
+	private static void applyQuality(JFreeChart chart, Quality quality) {
+		if(quality != Quality.HIGH) {
+			chart.setAntiAlias(false);
+			if(quality == Quality.LOW) {
+				hideShapes(chart.getPlot());
+			}
+		}
+	}
+
+	private static void hideShapes(Plot plot) {
+		if(plot instanceof XYPlot) {
+			XYPlot xyPlot = (XYPlot) plot;
+			for(int i=0; i<xyPlot.getRendererCount(); i++) {
+				if(xyPlot.getRenderer(i) instanceof XYLineAndShapeRenderer) {
+					((XYLineAndShapeRenderer) xyPlot.getRenderer(i)).setBaseShapesVisible(false);
+				}
+			}
+		} else if(plot instanceof CategoryPlot) {
+			CategoryPlot catPlot = (CategoryPlot) plot;
+			for(int i=0; i<catPlot.getRendererCount(); i++) {
+				if(catPlot.getRenderer(i) instanceof LineAndShapeRenderer) {
+					((LineAndShapeRenderer) catPlot.getRenderer(i)).setBaseShapesVisible(false);
+				}
+			}
+		}
 	}
 
 	private static Component getChartFormatExplaination(ViewStrategy viewStrategy, ChartFormatException cfe) {
@@ -203,9 +374,12 @@ public class JdbcChartPanel extends JPanel {
 		prevRS = resultSet;
 		e = null;
 		prevCRS = null;
+		convertNanos = 0;
 		if(resultSet != null) {
+			long start = System.nanoTime();
 			try {
 				prevCRS = ChartResultSet.getInstance(resultSet);
+				convertNanos = System.nanoTime() - start;
 			} catch (SQLException e) {
 				LOG.log(Level.INFO, "could not create chartResultSet ", e);
 			} catch (IllegalArgumentException e) {
@@ -13,7 +13,7 @@ import org.jfree.chart.JFreeChart;
 import org.jfree.chart.labels.StandardPieToolTipGenerator;
 import org.jfree.chart.plot.MultiplePiePlot;
 import org.jfree.chart.plot.PiePlot;
-import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.category.CategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
 import org.jfree.data.general.PieDataset;
 import org.jfree.util.TableOrder;
@@ -67,8 +67,7 @@ public enum PieChartViewStrategy implements ViewStrategy {
 			        colResultSet = ChartResultSetBuilder.transpose(colResultSet);
 				}
 		        
-		        DefaultCategoryDataset catData;
-		        catData = CategoryDatasetUpdateableView.add(colResultSet, new DefaultCategoryDataset());
+		        CategoryDataset catData = new ColumnarCategoryDataset(colResultSet);
 		        boolean showLegend = colResultSet.getRowCount() < 100;
 				final JFreeChart chart = ChartFactory.createMultiplePieChart("", 
 						catData, TableOrder.BY_ROW, showLegend, true, false);
@@ -0,0 +1,178 @@
+package com.timestored.sqldash.chart;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.labels.XYToolTipGenerator;
+import org.jfree.chart.plot.CrosshairState;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.PlotRenderingInfo;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYBubbleRenderer;
+import org.jfree.chart.renderer.xy.XYItemRendererState;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+import org.jfree.ui.RectangleEdge;
+
+/**
+ * Bubble renderer that rather than creating and drawing a shape and entity per item,
+ * paints every bubble into one int[] pixel buffer then draws that as a single image.
+ * An item index is kept per pixel so that tooltips can be found by inverse mapping
+ * a point back to the top-most bubble drawn there, see {@link #getToolTipText(Point2D)}.
+ * Bubbles are sized on the range axis as they are for {@link XYBubbleRenderer#SCALE_ON_RANGE_AXIS}.
+ */
+class RasterBubbleRenderer extends XYBubbleRenderer {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient XYItemRendererState paintedState;
+	private transient XYDataset paintedDataset;
+	private transient Rectangle2D paintedArea;
+	/** For each pixel of the paintedArea, one plus the overall index of the item drawn there, or 0 if none. */
+	private transient int[] itemAtPixel;
+	/** The overall index of the first item of each series, followed by the total item count. */
+	private transient int[] seriesStart;
+
+	RasterBubbleRenderer() {
+		super(SCALE_ON_RANGE_AXIS);
+	}
+
+	@Override public void drawItem(Graphics2D g2, XYItemRendererState state, Rectangle2D dataArea,
+			PlotRenderingInfo info, XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis,
+			XYDataset dataset, int series, int item, CrosshairState crosshairState, int pass) {
+
+		// the plot calls this once for every item, only the first call of each render paints them all.
+		if(state == paintedState) {
+			return;
+		}
+		paintedState = state;
+		paintedDataset = dataset;
+
+		int w = (int) Math.ceil(dataArea.getWidth());
+		int h = (int) Math.ceil(dataArea.getHeight());
+		if(w <= 0 || h <= 0) {
+			return;
+		}
+		BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		int[] px = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+		int[] items = new int[w * h];
+		int[] seriesStart = new int[dataset.getSeriesCount() + 1];
+
+		boolean vertical = plot.getOrientation() == PlotOrientation.VERTICAL;
+		RectangleEdge domainEdge = plot.getDomainAxisEdge();
+		RectangleEdge rangeEdge = plot.getRangeAxisEdge();
+		double zero = rangeAxis.valueToJava2D(0.0, dataArea, rangeEdge);
+		XYZDataset xyz = dataset instanceof XYZDataset ? (XYZDataset) dataset : null;
+
+		for(int s = 0; s < dataset.getSeriesCount(); s++) {
+			int itemCount = dataset.getItemCount(s);
+			seriesStart[s + 1] = seriesStart[s] + itemCount;
+			if(!isSeriesVisible(s) || xyz == null) {
+				continue;
+			}
+			for(int i = 0; i < itemCount; i++) {
+				double z = xyz.getZValue(s, i);
+				if(Double.isNaN(z)) {
+					continue;
+				}
+				double transX = domainAxis.valueToJava2D(dataset.getXValue(s, i), dataArea, domainEdge);
+				double transY = rangeAxis.valueToJava2D(dataset.getYValue(s, i), dataArea, rangeEdge);
+				double r = Math.abs(zero - rangeAxis.valueToJava2D(z, dataArea, rangeEdge)) / 2.0;
+				double cx = (vertical ? transX : transY) - dataArea.getX();
+				double cy = (vertical ? transY : transX) - dataArea.getY();
+				int fill = toRGB(getItemPaint(s, i));
+				int outline = toRGB(getItemOutlinePaint(s, i));
+				// ids are offset by one so that zero means no bubble
+				fillCircle(px, items, w, h, cx, cy, r, outline, fill, seriesStart[s] + i + 1);
+			}
+		}
+
+		this.seriesStart = seriesStart;
+		this.itemAtPixel = items;
+		this.paintedArea = (Rectangle2D) dataArea.clone();
+		g2.drawImage(img, (int) dataArea.getX(), (int) dataArea.getY(), null);
+	}
+
+	private static int toRGB(Paint p) {
+		return p instanceof Color ? ((Color) p).getRGB() : Color.GRAY.getRGB();
+	}
+
+	/**
+	 * Set every pixel within radius r of the center to the fill color, with a one pixel outline.
+	 * Each row is written once, at least one pixel is always set.
+	 */
+	private static void fillCircle(int[] px, int[] items, int w, int h, double cx, double cy, double r,
+			int outline, int fill, int id) {
+		if(r < 0.5) {
+			int x = (int) cx;
+			int y = (int) cy;
+			if(r >= 0 && x >= 0 && x < w && y >= 0 && y < h) {
+				px[y * w + x] = outline;
+				items[y * w + x] = id;
+			}
+			return;
+		}
+		double inner = r - 1;
+		int y0 = Math.max(0, (int) Math.ceil(cy - r));
+		int y1 = Math.min(h - 1, (int) Math.floor(cy + r));
+		for(int y = y0; y <= y1; y++) {
+			double dy = y - cy;
+			double dx = Math.sqrt(r * r - dy * dy);
+			int x0 = Math.max(0, (int) Math.ceil(cx - dx));
+			int x1 = Math.min(w - 1, (int) Math.floor(cx + dx));
+			// the fill span of this row, empty on rows that only cross the outline
+			int fx0 = x1 + 1;
+			int fx1 = x1;
+			if(inner > 0 && Math.abs(dy) <= inner) {
+				double fdx = Math.sqrt(inner * inner - dy * dy);
+				fx0 = Math.max(x0, (int) Math.ceil(cx - fdx));
+				fx1 = Math.min(x1, (int) Math.floor(cx + fdx));
+			}
+			int row = y * w;
+			for(int x = x0; x <= x1; x++) {
+				px[row + x] = x >= fx0 && x <= fx1 ? fill : outline;
+				items[row + x] = id;
+			}
+		}
+	}
+
+	/**
+	 * @param java2DPoint A point in the same java2D space as the last render.
+	 * @return The tooltip for the top-most bubble at that point, or null if there is none.
+	 */
+	String getToolTipText(Point2D java2DPoint) {
+		int[] items = itemAtPixel;
+		int[] starts = seriesStart;
+		Rectangle2D area = paintedArea;
+		XYDataset dataset = paintedDataset;
+		if(items == null || starts == null || area == null || dataset == null) {
+			return null;
+		}
+		int w = (int) Math.ceil(area.getWidth());
+		int x = (int) (java2DPoint.getX() - area.getX());
+		int y = (int) (java2DPoint.getY() - area.getY());
+		if(x < 0 || y < 0 || x >= w || y * w + x >= items.length) {
+			return null;
+		}
+		int id = items[y * w + x] - 1;
+		if(id < 0) {
+			return null;
+		}
+		int s = 0;
+		while(s + 2 < starts.length && id >= starts[s + 1]) {
+			s++;
+		}
+		int i = id - starts[s];
+		XYToolTipGenerator ttg = getToolTipGenerator(s, i);
+		if(ttg == null || s >= dataset.getSeriesCount() || i >= dataset.getItemCount(s)) {
+			return null;
+		}
+		return ttg.generateToolTip(dataset, s, i);
+	}
+}
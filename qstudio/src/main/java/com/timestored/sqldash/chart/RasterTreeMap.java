@@ -0,0 +1,148 @@
+package com.timestored.sqldash.chart;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.Objects;
+
+import net.sf.jtreemap.swing.ColorProvider;
+import net.sf.jtreemap.swing.JTreeMap;
+import net.sf.jtreemap.swing.TreeMapNode;
+import net.sf.jtreemap.swing.Value;
+
+/**
+ * A JTreeMap that paints its leaves into an int[] pixel buffer once per layout and then
+ * only blits that image. JTreeMap itself recalculates the layout and fills every leaf on
+ * every repaint, including each mouse move as the active leaf changes, which does not
+ * scale beyond a few thousand leaves. Layout uses {@link SquarifiedLayout} for the same reason.
+ * Tooltips still use JTreeMap's own point to leaf lookup.
+ */
+class RasterTreeMap extends JTreeMap {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient BufferedImage image;
+	private transient Object[] imageKey;
+
+	RasterTreeMap(TreeMapNode root) {
+		super(root);
+		setStrategy(new SquarifiedLayout());
+	}
+
+	@Override protected void paintComponent(Graphics g) {
+		int w = getWidth();
+		int h = getHeight();
+		// JTreeMap's own paintComponent would lay out and fill every leaf, so fill the background as JComponent would
+		if(isOpaque()) {
+			g.setColor(getBackground());
+			g.fillRect(0, 0, w, h);
+		}
+		if(w <= 0 || h <= 0 || getDisplayedRoot() == null) {
+			return;
+		}
+		Object[] key = { w, h, getRoot(), getDisplayedRoot(), getColorProvider(), getStrategy(), getInsets(),
+				getBackground(), getFont(), dataStamp(getDisplayedRoot()) };
+		if(image == null || !Arrays.equals(key, imageKey)) {
+			layoutNodes(w, h);
+			image = render(w, h);
+			imageKey = key;
+		}
+		g.drawImage(image, 0, 0, null);
+		TreeMapNode activeLeaf = getActiveLeaf();
+		if(activeLeaf != null) {
+			reveal(g, activeLeaf);
+		}
+	}
+
+	/**
+	 * @return A hash of the shape, labels, weights and values of the tree so that nodes changed in place
+	 * 	are repainted. Reading the fields is far cheaper than the layout it saves.
+	 */
+	private static long dataStamp(TreeMapNode root) {
+		long stamp = 1;
+		Deque<TreeMapNode> stack = new ArrayDeque<>();
+		stack.push(root);
+		while(!stack.isEmpty()) {
+			TreeMapNode node = stack.pop();
+			stamp = 31 * stamp + Double.hashCode(node.getWeight());
+			stamp = 31 * stamp + Objects.hashCode(node.getLabel());
+			if(node.isLeaf()) {
+				Value v = node.getValue();
+				stamp = 31 * stamp + (v == null ? 0 : Double.hashCode(v.getValue()));
+			} else {
+				stamp = 31 * stamp + node.getChildCount();
+				Enumeration<?> children = node.children();
+				while(children.hasMoreElements()) {
+					stack.push((TreeMapNode) children.nextElement());
+				}
+			}
+		}
+		return stamp;
+	}
+
+	/** Size the root and displayed root to this component then position all nodes, as JTreeMap does. */
+	private void layoutNodes(int w, int h) {
+		Insets insets = getInsets();
+		int border = TreeMapNode.getBorder();
+		int nodeW = w - border - insets.left - insets.right;
+		int nodeH = h - border - insets.top - insets.bottom;
+		TreeMapNode root = getRoot();
+		root.setDimension(root.getX(), root.getY(), nodeW, nodeH);
+		TreeMapNode displayedRoot = getDisplayedRoot();
+		if(!root.equals(displayedRoot)) {
+			displayedRoot.setDimension(displayedRoot.getX(), displayedRoot.getY(), nodeW, nodeH);
+		}
+		calculatePositions();
+	}
+
+	private BufferedImage render(int w, int h) {
+		BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		int[] px = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+		TreeMapNode displayedRoot = getDisplayedRoot();
+		if(displayedRoot.children().hasMoreElements()) {
+			fillRect(px, w, h, displayedRoot.getX(), displayedRoot.getY(),
+					displayedRoot.getWidth(), displayedRoot.getHeight(), getBackground().getRGB());
+			ColorProvider colorProvider = getColorProvider();
+			Deque<TreeMapNode> stack = new ArrayDeque<>();
+			stack.push(displayedRoot);
+			while(!stack.isEmpty()) {
+				TreeMapNode node = stack.pop();
+				if(node.isLeaf()) {
+					if(node.getValue() != null) {
+						int argb = colorProvider.getColor(node.getValue()).getRGB();
+						fillRect(px, w, h, node.getX(), node.getY(), node.getWidth(), node.getHeight(), argb);
+					}
+				} else {
+					Enumeration<?> children = node.children();
+					while(children.hasMoreElements()) {
+						stack.push((TreeMapNode) children.nextElement());
+					}
+				}
+			}
+			Graphics2D g2 = img.createGraphics();
+			g2.setFont(getFont());
+			drawLabels(g2, displayedRoot);
+			g2.dispose();
+		}
+		return img;
+	}
+
+	private static void fillRect(int[] px, int w, int h, int x, int y, int rw, int rh, int argb) {
+		int x0 = Math.max(0, x);
+		int x1 = Math.min(w, x + rw);
+		int y0 = Math.max(0, y);
+		int y1 = Math.min(h, y + rh);
+		for(int row = y0; row < y1; row++) {
+			int offset = row * w;
+			for(int col = x0; col < x1; col++) {
+				px[offset + col] = argb;
+			}
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package com.timestored.sqldash.chart;
+
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lombok.Data;
+
+/**
+ * Records how long each chart render takes, split into data conversion, dataset build and paint,
+ * and keeps a per {@link ViewStrategy} calibration of the cost per data cell on this machine.
+ * The calibration is used to predict the cost of rendering a new result set so that
+ * {@link JdbcChartPanel} can decide whether to render it at all and at what {@link Quality}.
+ * Strategies that have not yet been calibrated fall back to {@link ViewStrategy#isQuickToRender}.
+ */
+public class RenderMetrics {
+
+	/** Predicted time above which a chart is considered too large to render automatically. */
+	static final long RENDER_BUDGET_MS = 2_000;
+	/** Predicted paint time below which anti-aliasing is kept on. */
+	private static final long HIGH_QUALITY_PAINT_MS = 250;
+	/** Predicted paint time below which shapes are still drawn. */
+	private static final long MEDIUM_QUALITY_PAINT_MS = 1_000;
+	/** Renders smaller than this are dominated by fixed costs so are not used to calibrate. */
+	private static final int MIN_CALIBRATION_CELLS = 1_000;
+	/** Weight given to the newest measurement in the moving average. */
+	private static final double ALPHA = 0.3;
+
+	private static final RenderMetrics INSTANCE = new RenderMetrics();
+
+	/** Level of visual detail a chart is drawn with, lower levels are cheaper to paint. */
+	public enum Quality {
+		/** Anti-aliased with shapes as the chart type wants. */
+		HIGH,
+		/** No anti-aliasing. */
+		MEDIUM,
+		/** No anti-aliasing and no item shapes drawn on lines. */
+		LOW
+	}
+
+	/** The timings of one render of one result set. */
+	@Data public static class Sample {
+		private final String chartType;
+		/** Rows drawn, after any downsampling. */
+		private final int rowCount;
+		/** 1 if every row was drawn, otherwise only every downsampleStep'th row was. */
+		private final int downsampleStep;
+		private final int cellCount;
+		private final Quality quality;
+		private final long convertNanos;
+		private final long buildNanos;
+		private final long paintNanos;
+
+		public long getTotalMillis() { return (convertNanos + buildNanos + paintNanos) / 1_000_000; }
+	}
+
+	/** Moving averages of cost in nanoseconds per data cell for one {@link ViewStrategy}. */
+	private static class Calibration {
+		private double buildNanosPerCell = Double.NaN;
+		/** Paint cost per cell indexed by {@link Quality#ordinal()} */
+		private final double[] paintNanosPerCell = { Double.NaN, Double.NaN, Double.NaN };
+
+		private static double average(double prev, double latest) {
+			return Double.isNaN(prev) ? latest : (1 - ALPHA) * prev + ALPHA * latest;
+		}
+	}
+
+	public static interface Listener {
+		/** A render has completed and its timings recorded. */
+		void rendered(Sample sample);
+	}
+
+	private final Map<ViewStrategy, Calibration> calibrations = new ConcurrentHashMap<>();
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+	private volatile Sample lastSample;
+
+	/** @return The metrics shared by all chart panels in this application. */
+	public static RenderMetrics getInstance() { return INSTANCE; }
+
+	RenderMetrics() { }
+
+	void record(ViewStrategy viewStrategy, Sample sample) {
+		lastSample = sample;
+		if(sample.getCellCount() >= MIN_CALIBRATION_CELLS) {
+			Calibration c = calibrations.computeIfAbsent(viewStrategy, vs -> new Calibration());
+			double cells = sample.getCellCount();
+			synchronized (c) {
+				c.buildNanosPerCell = Calibration.average(c.buildNanosPerCell, sample.getBuildNanos() / cells);
+				int q = sample.getQuality().ordinal();
+				c.paintNanosPerCell[q] = Calibration.average(c.paintNanosPerCell[q], sample.getPaintNanos() / cells);
+			}
+		}
+		for(Listener l : listeners) {
+			l.rendered(sample);
+		}
+	}
+
+	/**
+	 * @return Predicted milliseconds to build and paint the given number of cells at the given quality,
+	 * 	or -1 if that strategy/quality has not been calibrated yet.
+	 */
+	long predictMillis(ViewStrategy viewStrategy, int cellCount, Quality quality) {
+		Calibration c = calibrations.get(viewStrategy);
+		if(c == null) {
+			return -1;
+		}
+		synchronized (c) {
+			double paint = c.paintNanosPerCell[quality.ordinal()];
+			if(Double.isNaN(c.buildNanosPerCell) || Double.isNaN(paint)) {
+				return -1;
+			}
+			return (long) ((c.buildNanosPerCell + paint) * cellCount / 1_000_000);
+		}
+	}
+
+	/**
+	 * @return true if the chart is predicted to render within {@link #RENDER_BUDGET_MS} at the cheapest
+	 * 	calibrated quality, or when uncalibrated if the strategies own static threshold says so.
+	 */
+	boolean isQuickToRender(ViewStrategy viewStrategy, ResultSet rs, int rowCount, int numColCount) {
+		long predicted = predictCheapestMillis(viewStrategy, getCellCount(rowCount, numColCount));
+		if(predicted >= 0) {
+			return predicted < RENDER_BUDGET_MS;
+		}
+		return viewStrategy.isQuickToRender(rs, rowCount, numColCount);
+	}
+
+	/** @return Predicted milliseconds at the cheapest calibrated quality or -1 if none are calibrated. */
+	private long predictCheapestMillis(ViewStrategy viewStrategy, int cellCount) {
+		for(int q = Quality.values().length - 1; q >= 0; q--) {
+			long predicted = predictMillis(viewStrategy, cellCount, Quality.values()[q]);
+			if(predicted >= 0) {
+				return predicted;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The best quality whose predicted paint time is acceptable. Until calibrated at high quality,
+	 * 	charts the strategy considers quick are drawn at high quality and others at low.
+	 */
+	Quality getQuality(ViewStrategy viewStrategy, boolean quickToRender, int rowCount, int numColCount) {
+		Calibration c = calibrations.get(viewStrategy);
+		double paint = Double.NaN;
+		if(c != null) {
+			synchronized (c) {
+				paint = c.paintNanosPerCell[Quality.HIGH.ordinal()];
+			}
+		}
+		if(Double.isNaN(paint)) {
+			return quickToRender ? Quality.HIGH : Quality.LOW;
+		}
+		double paintMs = paint * getCellCount(rowCount, numColCount) / 1_000_000;
+		if(paintMs < HIGH_QUALITY_PAINT_MS) {
+			return Quality.HIGH;
+		}
+		return paintMs < MEDIUM_QUALITY_PAINT_MS ? Quality.MEDIUM : Quality.LOW;
+	}
+
+	/**
+	 * @return How many rows to step over per row drawn so that the chart is predicted to render
+	 * 	within {@link #RENDER_BUDGET_MS} at the cheapest calibrated quality, 1 if it already fits or is not calibrated.
+	 */
+	int getDownsampleStep(ViewStrategy viewStrategy, int rowCount, int numColCount) {
+		long predicted = predictCheapestMillis(viewStrategy, getCellCount(rowCount, numColCount));
+		if(predicted < RENDER_BUDGET_MS) {
+			return 1;
+		}
+		return (int) Math.min(rowCount, (predicted + RENDER_BUDGET_MS - 1) / RENDER_BUDGET_MS);
+	}
+
+	static int getCellCount(int rowCount, int numColCount) {
+		return rowCount * Math.max(1, numColCount);
+	}
+
+	/** @return The timings of the latest render of any chart or null if there has been none. */
+	public Sample getLastSample() { return lastSample; }
+
+	public void addListener(Listener listener) { listeners.add(listener); }
+
+	public void removeListener(Listener listener) { listeners.remove(listener); }
+}
@@ -0,0 +1,65 @@
+package com.timestored.sqldash.chart;
+
+import java.awt.BorderLayout;
+import java.text.NumberFormat;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import com.timestored.sqldash.chart.RenderMetrics.Sample;
+
+/**
+ * Shows the timings of the latest chart render as recorded by {@link RenderMetrics}.
+ */
+public class RenderMetricsPanel extends JPanel implements RenderMetrics.Listener {
+
+	private static final long serialVersionUID = 1L;
+
+	private final RenderMetrics renderMetrics;
+	private final JLabel label = new JLabel();
+
+	public RenderMetricsPanel() {
+		this(RenderMetrics.getInstance());
+	}
+
+	RenderMetricsPanel(RenderMetrics renderMetrics) {
+		super(new BorderLayout());
+		this.renderMetrics = renderMetrics;
+		add(label, BorderLayout.CENTER);
+		display(renderMetrics.getLastSample());
+	}
+
+	@Override public void addNotify() {
+		super.addNotify();
+		renderMetrics.addListener(this);
+		display(renderMetrics.getLastSample());
+	}
+
+	@Override public void removeNotify() {
+		renderMetrics.removeListener(this);
+		super.removeNotify();
+	}
+
+	@Override public void rendered(Sample sample) {
+		SwingUtilities.invokeLater(() -> display(sample));
+	}
+
+	private void display(Sample s) {
+		if(s == null) {
+			label.setText("No chart drawn yet");
+			label.setToolTipText(null);
+			return;
+		}
+		label.setText(s.getTotalMillis() + " ms, " + NumberFormat.getIntegerInstance().format(s.getRowCount())
+				+ " rows" + (s.getDownsampleStep() > 1 ? " (every " + s.getDownsampleStep() + "th)" : "")
+				+ ", " + s.getQuality().name().toLowerCase() + " quality");
+		label.setToolTipText("<html><b>" + s.getChartType() + "</b>"
+				+ "<br />Convert data: " + s.getConvertNanos() / 1_000_000 + " ms"
+				+ "<br />Build dataset: " + s.getBuildNanos() / 1_000_000 + " ms"
+				+ "<br />Paint: " + s.getPaintNanos() / 1_000_000 + " ms"
+				+ "<br />Charts predicted to take over " + RenderMetrics.RENDER_BUDGET_MS
+				+ " ms are not drawn automatically, slow charts are drawn at lower quality"
+				+ "<br />and time series, step and scatter charts draw only every nth row.</html>");
+	}
+}
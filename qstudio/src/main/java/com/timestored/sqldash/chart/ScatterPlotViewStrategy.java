@@ -12,14 +12,12 @@ import org.jfree.chart.axis.DateAxis;
 import org.jfree.chart.labels.StandardXYToolTipGenerator;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
-import org.jfree.data.xy.DefaultXYDataset;
 import org.jfree.data.xy.XYDataset;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.timestored.connections.JdbcTypes;
-import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
 import com.timestored.sqldash.theme.DBIcons;
 import com.timestored.theme.Icon;
 
@@ -82,21 +80,7 @@ public enum ScatterPlotViewStrategy implements ViewStrategy {
 	 */
 	static XYDataset createXYDataset(ChartResultSet chartResultSet) 
 			throws ChartFormatException {
-
-        List<NumericCol> numCols = chartResultSet.getNumericColumns();
-        if(numCols.size() < 2) {
-        	throw new ChartFormatException("There must be atleast two numeric columns.");
-        }
-			
-    	// convert the RS to array of doubles
-		DefaultXYDataset dataset = new DefaultXYDataset();
-    	double[] xAxis = numCols.get(0).getDoubles();
-		for (int i=1; i < numCols.size(); i++) {
-    		String sTitle = numCols.get(i).getLabel();
-            dataset.addSeries(sTitle, new double[][] { xAxis, numCols.get(i).getDoubles()});
-		}
-    	
-        return dataset;
+		return ColumnarXYDataset.forNumericX(chartResultSet);
 	}
 	
 
@@ -0,0 +1,119 @@
+package com.timestored.sqldash.chart;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+
+import net.sf.jtreemap.swing.SplitSquarified;
+import net.sf.jtreemap.swing.TreeMapNode;
+
+/**
+ * Squarified treemap layout that places each branch's children in rows in one pass over the
+ * children sorted by weight. JTreeMap's own strategies split the children in two recursively,
+ * copying and re-summing vectors at every level, which takes seconds past tens of thousands of leaves.
+ * Nodes are positioned and inset by the border exactly as JTreeMap's strategies do so painting,
+ * tooltips and zooming are unchanged.
+ */
+class SquarifiedLayout extends SplitSquarified {
+
+	private static final long serialVersionUID = 1L;
+	private static final Comparator<TreeMapNode> HEAVIEST_FIRST =
+			(a, b) -> Double.compare(b.getWeight(), a.getWeight());
+
+	@Override public void calculatePositions(TreeMapNode root) {
+		if(root != null) {
+			layoutChildren(root, root.getX(), root.getY(), root.getWidth(), root.getHeight(), TreeMapNode.getBorder());
+		}
+	}
+
+	/** Lay out the children of parent within the given rectangle, recursing into branches. */
+	private static void layoutChildren(TreeMapNode parent, int x, int y, int w, int h, int border) {
+		int n = parent.getChildCount();
+		if(n == 0) {
+			return;
+		}
+		TreeMapNode[] nodes = new TreeMapNode[n];
+		Enumeration<?> children = parent.children();
+		double total = 0;
+		for(int i=0; i<n; i++) {
+			nodes[i] = (TreeMapNode) children.nextElement();
+			total += Math.max(0, nodes[i].getWeight());
+		}
+		Arrays.sort(nodes, HEAVIEST_FIRST);
+		double scale = total > 0 ? (double) w * h / total : 0;
+
+		double rx = x, ry = y, rw = w, rh = h;
+		int start = 0;
+		while(start < n) {
+			// grow the row while that makes its worst aspect ratio no worse
+			double side = Math.min(rw, rh);
+			double largest = area(nodes[start], scale);
+			double rowArea = 0;
+			double worst = Double.POSITIVE_INFINITY;
+			int end = start;
+			while(end < n) {
+				double a = area(nodes[end], scale);
+				double s = rowArea + a;
+				double wst = worstAspect(largest, a, s, side);
+				if(end > start && wst > worst) {
+					break;
+				}
+				worst = wst;
+				rowArea = s;
+				end++;
+			}
+			double thickness = side > 0 ? rowArea / side : 0;
+			boolean vertical = rw >= rh; // row runs down the left of a wide rectangle, else across the top
+			double offset = vertical ? ry : rx;
+			for(int i=start; i<end; i++) {
+				double len = thickness > 0 ? area(nodes[i], scale) / thickness : 0;
+				if(vertical) {
+					place(nodes[i], rx, offset, thickness, len, border);
+				} else {
+					place(nodes[i], offset, ry, len, thickness, border);
+				}
+				offset += len;
+			}
+			if(vertical) {
+				rx += thickness;
+				rw = Math.max(0, rw - thickness);
+			} else {
+				ry += thickness;
+				rh = Math.max(0, rh - thickness);
+			}
+			start = end;
+		}
+	}
+
+	private static double area(TreeMapNode node, double scale) {
+		return Math.max(0, node.getWeight()) * scale;
+	}
+
+	/** @return The worst aspect ratio of a row of total area s along side, with largest and smallest areas. */
+	private static double worstAspect(double largest, double smallest, double s, double side) {
+		if(s <= 0 || smallest <= 0 || side <= 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double side2 = side * side;
+		double s2 = s * s;
+		return Math.max(side2 * largest / s2, s2 / (side2 * smallest));
+	}
+
+	/**
+	 * Round the cell to whole pixels so neighbours share edges, then inset leaves by the border
+	 * and recurse into branches with a smaller border as SplitStrategy does.
+	 */
+	private static void place(TreeMapNode node, double x, double y, double w, double h, int border) {
+		int ix = (int) Math.round(x);
+		int iy = (int) Math.round(y);
+		int iw = (int) Math.round(x + w) - ix;
+		int ih = (int) Math.round(y + h) - iy;
+		if(node.isLeaf()) {
+			node.setDimension(ix + border, iy + border, Math.max(0, iw - border), Math.max(0, ih - border));
+		} else {
+			node.setDimension(ix, iy, iw, ih);
+			int inset = border > 1 ? 2 : border;
+			layoutChildren(node, ix + inset, iy + inset, Math.max(0, iw - inset), Math.max(0, ih - inset), border - inset);
+		}
+	}
+}
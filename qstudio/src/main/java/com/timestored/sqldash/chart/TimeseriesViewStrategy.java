@@ -17,14 +17,11 @@ import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.labels.StandardXYToolTipGenerator;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
-import org.jfree.data.time.RegularTimePeriod;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
+import org.jfree.data.xy.XYDataset;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.timestored.connections.JdbcTypes;
-import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
 import com.timestored.sqldash.chart.ChartResultSet.TimeCol;
 import com.timestored.theme.Icon;
 import com.timestored.theme.Theme.CIcon;
@@ -51,7 +48,7 @@ public enum TimeseriesViewStrategy implements ViewStrategy {
 			@Override public Component getView(ResultSet rs, ChartResultSet colResultSet) 
 					throws ChartFormatException {
 
-				TimeSeriesCollection dataset = generateTimeSeries(colResultSet);
+				XYDataset dataset = generateTimeSeries(colResultSet);
 
 				JFreeChart chart = ChartFactory.createTimeSeriesChart(
 						"", "Time", "Value", dataset, true, true, false);
@@ -80,42 +77,12 @@ public enum TimeseriesViewStrategy implements ViewStrategy {
 		}
 	}
 	
-	static TimeSeriesCollection generateTimeSeries(ChartResultSet colResultSet) throws ChartFormatException {
-
-		if(colResultSet==null) {
-			throw new ChartFormatException("Could not create chart result set.");
-		}
-		
-		TimeCol timeCol = colResultSet.getTimeCol();
-		if(timeCol==null) {
-			throw new ChartFormatException("No Time Column Found.");
-		}
-		TimeSeriesCollection dataset = new TimeSeriesCollection();
-			
-		// time series chart
-		if(timeCol != null) {
-			RegularTimePeriod[] timePeriods = null;
-			try {
-				timePeriods = timeCol.getRegularTimePeriods();
-			} catch(IllegalArgumentException iae) {
-				throw new ChartFormatException(iae.toString());
-			}
-	    	// create time series for each column
-	    	for(NumericCol nc : colResultSet.getNumericColumns()) {
-    	    	TimeSeries tSeries = new TimeSeries("" + nc.getLabel());
-    	    	int row = 0;
-		        for(double d : nc.getDoubles()) {
-		        	if(!Double.isNaN(d)) {
-		        		tSeries.addOrUpdate(timePeriods[row], d);
-		        	}
-		        	row++;
-		        }
-	    		if(!tSeries.isEmpty()) {
-	    			dataset.addSeries(tSeries);
-	    		}
-	    	}
-		}
-		return dataset;
+	/** 
+	 * @return A dataset with one series per numeric column against the first time column,
+	 * 	read directly from the columns rather than copied into TimeSeries items.
+	 */
+	static XYDataset generateTimeSeries(ChartResultSet colResultSet) throws ChartFormatException {
+		return ColumnarXYDataset.forTimeSeries(colResultSet);
 	}
 	
 	public static SimpleDateFormat getDateFormat(int timeType) {
@@ -19,4 +19,10 @@ interface UpdateableView {
 	public void update(ResultSet rs, ChartResultSet chartResultSet) throws ChartFormatException;
 	
 	public Component getComponent();
+
+	/**
+	 * @return true if this view should be kept and updated with each new {@link ResultSet}
+	 * 	so that its state e.g. scroll position is kept, false if it should be recreated each time.
+	 */
+	public default boolean isReusable() { return false; }
 }
@@ -59,14 +59,14 @@ class XYZDatasetUpdateableView implements UpdateableView {
 			// getting the range, in order to set the axis
 			for(int series = 0; series<dataset.getSeriesCount(); series++) {
 				for(int item=0; item<dataset.getItemCount(series); item++) {
-					double x = dataset.getX(series, item).doubleValue();
+					double x = dataset.getXValue(series, item);
 					if(x < minX) {
 						minX = x;
 					} else if(x > maxX) {
 						maxX = x;
 					}
 
-					double y = dataset.getY(series, item).doubleValue();
+					double y = dataset.getYValue(series, item);
 					if(y < minY) {
 						minY = y;
 					} else if(y > maxY) {
@@ -61,6 +61,11 @@ public class FileOpenCommandProvider implements CommandProvider {
 		}
 		return Collections.emptyList();
 	}
+
+	@Override public boolean addCommandsChangedListener(Runnable listener) {
+		fileTreePanel.addFileCacheListener(listener);
+		return true;
+	}
 	
 	private class FileOpenCommand implements Command {
 		
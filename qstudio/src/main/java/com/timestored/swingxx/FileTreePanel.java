@@ -85,6 +85,7 @@ public class FileTreePanel extends JPanel {
 	/** component shown when no roots set */
 	private Component noRootsComponent;
 	private final CopyOnWriteArrayList<Listener> listeners;
+	private final CopyOnWriteArrayList<Runnable> fileCacheListeners = new CopyOnWriteArrayList<Runnable>();
 	private final TreeMouseListener treeMouseListener;
 	private boolean rightClickMenuShown = true;
 	private FileFilter fileFilter;
@@ -119,7 +120,9 @@ public class FileTreePanel extends JPanel {
 		fileTreeCellRenderer = new FileTreeCellRenderer();
 		fileTreeCellRenderer.addListener(new FileTreeCellRenderer.Listener() {
 			@Override public void renderedFile(File file) {
-				fileCache.add(file);
+				if(fileCache.add(file)) {
+					fireFileCacheChanged();
+				}
 			}
 		}); 
 	}
@@ -134,6 +137,17 @@ public class FileTreePanel extends JPanel {
 		return fileCache.getAll();
 	}
 
+	/** Listener is run whenever a file is added to the {@link #getFileCache()}. */
+	public void addFileCacheListener(Runnable listener) {
+		fileCacheListeners.add(listener);
+	}
+
+	private void fireFileCacheChanged() {
+		for(Runnable r : fileCacheListeners) {
+			r.run();
+		}
+	}
+
 	private JPopupMenu getFileRightClickMenu(final File file) {
 		
 		JPopupMenu popupMenu = new JPopupMenu("");
@@ -316,7 +330,9 @@ public class FileTreePanel extends JPanel {
 
 			File[] files = DirWatch.getFiles(fileFilter, root);
 			
-			fileCache.addAll(DirWatch.generateFileCache(files, fileFilter));
+			if(fileCache.addAll(DirWatch.generateFileCache(files, fileFilter))) {
+				fireFileCacheChanged();
+			}
 			
 			if (files.length > 0){
 				FileTreeNode rootTreeNode = new FileTreeNode(files, fileFilter);
@@ -21,6 +21,7 @@ public class QueryStatusBar extends JXStatusBar {
 	private final JLabel statusLabel;
 	private final JLabel rowCountLabel;
 	private final JLabel timingLabel;
+	private final JLabel taskLabel;
 	
 	public QueryStatusBar() {
 		
@@ -31,8 +32,11 @@ public class QueryStatusBar extends JXStatusBar {
 	    pbar = new JProgressBar();
 		rowCountLabel = new JLabel("Count = 0  ");
 		timingLabel = new JLabel("Time = 0 ms   ");
+		taskLabel = new JLabel();
+		taskLabel.setVisible(false);
 
 	    add(statusLabel, fillConstraint); 
+	    add(taskLabel); 
 	    add(rowCountLabel); 
 	    add(timingLabel);  
 	    add(pbar, fixedWidthConstraint);
@@ -55,6 +59,17 @@ public class QueryStatusBar extends JXStatusBar {
 	}
 
 	
+	/**
+	 * Show progress of background work other than queries, e.g. indexing files.
+	 * @param text The progress to show or null to hide it once the work is finished.
+	 */
+	public void showTask(final String text) {
+		EventQueue.invokeLater(() -> {
+			taskLabel.setText(text == null ? "" : text + "  ");
+			taskLabel.setVisible(text != null);
+		});
+	}
+
 	/**
 	 * Update the appearance of the status bar 
 	 * @param count The number of results that were returned, setting to a negative means unknown.